@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.da;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Executes a batch of keyed tasks concurrently while keeping at most a given number of them in flight. Results
+ * are handed to a {@link CompletionHandler} in the order the tasks complete. The handler is always called on
+ * the thread invoking {@link #execute(Map, CompletionHandler)}, so it may merge results into shared,
+ * non-thread-safe structures. Expensive work (e.g. parsing responses) should be done within the tasks, i.e.
+ * on the worker threads.
+ *
+ * @param <K>
+ *        the type of the keys identifying the tasks.
+ * @param <V>
+ *        the type of the task results.
+ */
+public class BoundedCompletionExecutor<K, V> {
+
+    private final Executor executor;
+
+    private final int maxInFlight;
+
+    private final long timeout;
+
+    /**
+     * @param executor
+     *        the executor running the tasks.
+     * @param maxInFlight
+     *        the maximum number of tasks submitted but not yet completed.
+     * @param timeout
+     *        time in milliseconds after which a task counts as failed with a {@link TimeoutException}.
+     */
+    public BoundedCompletionExecutor(Executor executor, int maxInFlight, long timeout) {
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Executes all tasks and returns when each of them has either completed, failed or timed out.
+     *
+     * @param tasks
+     *        the tasks to execute.
+     * @param handler
+     *        gets notified about each task's outcome.
+     * @throws InterruptedException
+     *         if interrupted while waiting for results. Tasks still in flight get cancelled.
+     */
+    public void execute(Map<K, ? extends Callable<V>> tasks, CompletionHandler<K, V> handler) throws InterruptedException {
+        CompletionService<V> completionService = new ExecutorCompletionService<V>(executor);
+        Iterator< ? extends Entry<K, ? extends Callable<V>>> toSubmit = tasks.entrySet().iterator();
+        // ordered by submission, so the first entry always has the nearest deadline
+        Map<Future<V>, PendingTask<K>> inFlight = new LinkedHashMap<Future<V>, PendingTask<K>>();
+        try {
+            while (toSubmit.hasNext() || !inFlight.isEmpty()) {
+                while (inFlight.size() < maxInFlight && toSubmit.hasNext()) {
+                    Entry<K, ? extends Callable<V>> task = toSubmit.next();
+                    Future<V> future = completionService.submit(task.getValue());
+                    inFlight.put(future, new PendingTask<K>(task.getKey(), now() + timeout));
+                }
+
+                long waitTime = inFlight.values().iterator().next().deadline - now();
+                Future<V> completed = waitTime > 0
+                    ? completionService.poll(waitTime, MILLISECONDS)
+                    : completionService.poll();
+                if (completed == null) {
+                    expireTasks(inFlight, handler);
+                    continue;
+                }
+                PendingTask<K> pending = inFlight.remove(completed);
+                if (pending == null) {
+                    continue; // cancelled after timeout and already reported
+                }
+                try {
+                    handler.completed(pending.key, completed.get());
+                }
+                catch (ExecutionException e) {
+                    handler.failed(pending.key, e.getCause());
+                }
+            }
+        }
+        finally {
+            for (Future<V> future : inFlight.keySet()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private void expireTasks(Map<Future<V>, PendingTask<K>> inFlight, CompletionHandler<K, V> handler) {
+        long now = now();
+        Iterator<Entry<Future<V>, PendingTask<K>>> iterator = inFlight.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<Future<V>, PendingTask<K>> entry = iterator.next();
+            PendingTask<K> pending = entry.getValue();
+            if (pending.deadline > now) {
+                break;
+            }
+            entry.getKey().cancel(true);
+            iterator.remove();
+            handler.failed(pending.key, new TimeoutException("No result after " + timeout + "ms."));
+        }
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Gets notified about the outcome of each task.
+     */
+    public interface CompletionHandler<K, V> {
+
+        /**
+         * @param key
+         *        the key of the completed task.
+         * @param result
+         *        the task's result (may be <code>null</code>).
+         */
+        void completed(K key, V result);
+
+        /**
+         * @param key
+         *        the key of the failed task.
+         * @param cause
+         *        the exception thrown by the task, or a {@link TimeoutException} if the task did not complete in
+         *        time.
+         */
+        void failed(K key, Throwable cause);
+    }
+
+    private static final class PendingTask<K> {
+
+        private final K key;
+
+        private final long deadline;
+
+        PendingTask(K key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+
+}
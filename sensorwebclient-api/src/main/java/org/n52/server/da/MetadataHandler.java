@@ -43,7 +43,6 @@ import net.opengis.sampling.x20.SFSamplingFeatureType;
 import net.opengis.sos.x20.GetFeatureOfInterestResponseDocument;
 
 import org.apache.xmlbeans.XmlObject;
-import org.jfree.util.Log;
 import org.n52.io.crs.CRSUtils;
 import org.n52.oxf.OXFException;
 import org.n52.oxf.adapter.OperationResult;
@@ -54,7 +53,6 @@ import org.n52.oxf.ows.capabilities.IBoundingBox;
 import org.n52.oxf.ows.capabilities.Operation;
 import org.n52.oxf.sos.adapter.SOSAdapter;
 import org.n52.oxf.sos.capabilities.ObservationOffering;
-import org.n52.server.mgmt.ConfigurationContext;
 import org.n52.server.parser.ConnectorUtils;
 import org.n52.server.util.SosAdapterFactory;
 import org.n52.shared.serializable.pojos.TimeseriesProperties;
@@ -79,7 +77,7 @@ public abstract class MetadataHandler {
 
     private SOSAdapter adapter;
 
-    private SOSMetadata sosMetadata;
+    private final SOSMetadata sosMetadata;
 
     protected MetadataHandler(SOSMetadata metadata) {
         if (metadata == null) {
@@ -146,27 +144,17 @@ public abstract class MetadataHandler {
             smlVersion = "http://www.opengis.net/sensorML/1.0.1";
         }
 
-        try {
-            sosMetadata = (SOSMetadata) ConfigurationContext.getServiceMetadatas().get(sosUrl);
-            if (sosMetadata != null) {
-                sosMetadata.setTitle(sosTitle);
-                sosMetadata.setSensorMLVersion(smlVersion);
-                sosMetadata.setOmVersion(omResponseFormat);
-                sosMetadata.setSosVersion(sosVersion);
-                sosMetadata.setInitialized(true);
-            } else {
-                sosMetadata = new SOSMetadata(sosUrl, sosVersion, smlVersion, omResponseFormat, sosTitle);
-                ConfigurationContext.initializeMetadata(sosMetadata);
-            }
-        } catch (Exception e) {
-            Log.error("Cannot cast SOSMetadata", e);
-        }
+        sosMetadata.setTitle(sosTitle);
+        sosMetadata.setSensorMLVersion(smlVersion);
+        sosMetadata.setOmVersion(omResponseFormat);
+        sosMetadata.setSosVersion(sosVersion);
+        sosMetadata.setInitialized(true);
 
         return sosMetadata;
     }
 
     protected SOSAdapter createSosAdapter(SOSMetadata metadata) {
-        return SosAdapterFactory.createSosAdapter(metadata);
+        return SosAdapterFactory.getSosAdapter(metadata);
     }
 
     protected Collection<SosTimeseries> createObservingTimeseries(String sosUrl) throws OXFException {
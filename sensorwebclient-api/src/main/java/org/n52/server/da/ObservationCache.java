@@ -0,0 +1,343 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.da;
+
+import static org.n52.server.mgmt.ConfigurationContext.OBSERVATION_CACHE_BUCKET_SIZE;
+import static org.n52.server.mgmt.ConfigurationContext.OBSERVATION_CACHE_SIZE;
+import static org.n52.server.mgmt.ConfigurationContext.OBSERVATION_CACHE_TTL;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Caches decoded observations of timeseries in time buckets aligned to a fixed bucket size (e.g. an hour
+ * or a day). A bucket which ends before the time it was fetched is considered complete and is kept until it
+ * gets evicted. A bucket which was still growing when it was fetched (i.e. the newest bucket) is only
+ * considered fresh for a configurable time to live.<br>
+ * <br>
+ * The memory of cached buckets is bounded by an estimate of each bucket's size, i.e. 16 bytes per
+ * observation plus a fixed overhead, so that buckets of high frequency series count more than sparse ones.
+ * Least recently used buckets are evicted first. Hit, miss and eviction counters are kept to tune bucket size
+ * and cache size.
+ */
+public class ObservationCache {
+
+    /**
+     * Estimated bytes of a bucket regardless of its observations (objects, arrays, key and map entry).
+     */
+    static final long BUCKET_OVERHEAD = 128;
+
+    /**
+     * Estimated bytes of one observation (a <code>long</code> time and a <code>double</code> value).
+     */
+    static final long OBSERVATION_SIZE = 16;
+
+    private static ObservationCache instance;
+
+    private final long bucketSize;
+
+    private final long maxBytes;
+
+    private final long freshnessTtl;
+
+    private final LinkedHashMap<String, CachedBucket> buckets;
+
+    private long cachedBytes;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    /**
+     * @return the shared cache instance configured via {@link org.n52.server.mgmt.ConfigurationContext}.
+     */
+    public static synchronized ObservationCache getInstance() {
+        if (instance == null) {
+            instance = new ObservationCache(OBSERVATION_CACHE_BUCKET_SIZE, OBSERVATION_CACHE_SIZE, OBSERVATION_CACHE_TTL);
+        }
+        return instance;
+    }
+
+    /**
+     * @param bucketSize
+     *        the size of each time bucket in milliseconds.
+     * @param maxBytes
+     *        the maximum estimated memory of all cached buckets in bytes. A value less or equal <code>0</code>
+     *        disables caching.
+     * @param freshnessTtl
+     *        milliseconds a bucket which was still growing during fetch is considered fresh.
+     */
+    public ObservationCache(long bucketSize, long maxBytes, long freshnessTtl) {
+        if (bucketSize <= 0) {
+            throw new IllegalArgumentException("Bucket size must be positive: " + bucketSize);
+        }
+        this.bucketSize = bucketSize;
+        this.maxBytes = maxBytes;
+        this.freshnessTtl = freshnessTtl;
+        this.buckets = new LinkedHashMap<String, CachedBucket>(16, 0.75f, true);
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    public long getBucketSize() {
+        return bucketSize;
+    }
+
+    /**
+     * @param time
+     *        a point in time.
+     * @return the start of the bucket containing the given time.
+     */
+    public long getBucketStart(long time) {
+        long offset = time % bucketSize;
+        return offset < 0 ? time - offset - bucketSize : time - offset;
+    }
+
+    /**
+     * @param begin
+     *        the begin of the time range (inclusive).
+     * @param end
+     *        the end of the time range (inclusive).
+     * @return the starts of all buckets covering the given time range.
+     */
+    public List<Long> getBucketStarts(long begin, long end) {
+        List<Long> bucketStarts = new ArrayList<Long>();
+        for (long start = getBucketStart(begin); start <= end; start += bucketSize) {
+            bucketStarts.add(start);
+        }
+        return bucketStarts;
+    }
+
+    /**
+     * @param timeseriesId
+     *        the timeseries id.
+     * @param bucketStart
+     *        the start of the bucket.
+     * @return the cached bucket, or <code>null</code> if not cached or not fresh anymore.
+     */
+    public synchronized CachedBucket getBucket(String timeseriesId, long bucketStart) {
+        String key = createKey(timeseriesId, bucketStart);
+        CachedBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            missCount++;
+            return null;
+        }
+        if ( !isFresh(bucket, now())) {
+            remove(key);
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return bucket;
+    }
+
+    /**
+     * Creates a bucket from observations of a timeseries. The given observations have to be sorted by time
+     * and lie within the bucket.
+     * 
+     * @param bucketStart
+     *        the start of the bucket.
+     * @param times
+     *        the sorted observation times.
+     * @param values
+     *        the observation values, {@link Double#NaN} for no-data values.
+     * @return a bucket which can be put to the cache.
+     */
+    public CachedBucket createBucket(long bucketStart, long[] times, double[] values) {
+        return createBucket(bucketStart, now(), times, values);
+    }
+
+    /**
+     * Like {@link #createBucket(long, long[], double[])} but for observations requested at the given time.
+     * Buckets not ending before that time are incomplete and expire after the freshness TTL.
+     * 
+     * @param bucketStart
+     *        the start of the bucket.
+     * @param fetchedAt
+     *        the time the observations were requested at.
+     * @param times
+     *        the sorted observation times.
+     * @param values
+     *        the observation values, {@link Double#NaN} for no-data values.
+     * @return a bucket which can be put to the cache.
+     */
+    public CachedBucket createBucket(long bucketStart, long fetchedAt, long[] times, double[] values) {
+        return new CachedBucket(bucketStart, bucketStart + bucketSize, fetchedAt, times, values);
+    }
+
+    /**
+     * @param timeseriesId
+     *        the timeseries id.
+     * @param bucket
+     *        the bucket to cache, not cached if it is larger than the whole cache.
+     */
+    public synchronized void putBucket(String timeseriesId, CachedBucket bucket) {
+        if ( !isEnabled() || bucket.getSize() > maxBytes) {
+            return;
+        }
+        String key = createKey(timeseriesId, bucket.getStart());
+        remove(key);
+        buckets.put(key, bucket);
+        cachedBytes += bucket.getSize();
+        evictEldestBuckets();
+    }
+
+    private void evictEldestBuckets() {
+        Iterator<CachedBucket> iterator = buckets.values().iterator();
+        while (cachedBytes > maxBytes && iterator.hasNext()) {
+            cachedBytes -= iterator.next().getSize();
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    private void remove(String key) {
+        CachedBucket removed = buckets.remove(key);
+        if (removed != null) {
+            cachedBytes -= removed.getSize();
+        }
+    }
+
+    private boolean isFresh(CachedBucket bucket, long now) {
+        return bucket.isComplete() || now - bucket.getFetchedAt() < freshnessTtl;
+    }
+
+    private String createKey(String timeseriesId, long bucketStart) {
+        return timeseriesId + "@" + bucketStart;
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    public synchronized void clear() {
+        buckets.clear();
+        cachedBytes = 0;
+    }
+
+    public synchronized int size() {
+        return buckets.size();
+    }
+
+    /**
+     * @return the estimated memory of all cached buckets in bytes.
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("ObservationCache [");
+        sb.append("buckets: ").append(buckets.size()).append(", ");
+        sb.append("bytes: ").append(cachedBytes).append("/").append(maxBytes).append(", ");
+        sb.append("hits: ").append(hitCount).append(", ");
+        sb.append("misses: ").append(missCount).append(", ");
+        sb.append("evictions: ").append(evictionCount).append("]");
+        return sb.toString();
+    }
+
+    public static class CachedBucket {
+
+        private final long start;
+
+        private final long end;
+
+        private final long fetchedAt;
+
+        private final long[] times;
+
+        private final double[] values;
+
+        CachedBucket(long start, long end, long fetchedAt, long[] times, double[] values) {
+            if (times.length != values.length) {
+                throw new IllegalArgumentException("Times and values have to be of same length.");
+            }
+            this.start = start;
+            this.end = end;
+            this.fetchedAt = fetchedAt;
+            this.times = times;
+            this.values = values;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+
+        /**
+         * @return <code>true</code> if the bucket ended before it has been fetched, i.e. it can not grow
+         *         anymore.
+         */
+        public boolean isComplete() {
+            return end <= fetchedAt;
+        }
+
+        public long[] getTimes() {
+            return times;
+        }
+
+        public double[] getValues() {
+            return values;
+        }
+
+        /**
+         * @return the estimated memory of this bucket in bytes.
+         */
+        public long getSize() {
+            return BUCKET_OVERHEAD + times.length * OBSERVATION_SIZE;
+        }
+
+    }
+
+}
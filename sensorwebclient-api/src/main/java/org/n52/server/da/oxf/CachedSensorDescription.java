@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.da.oxf;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.xmlbeans.XmlException;
+import org.n52.oxf.OXFException;
+import org.n52.oxf.xmlbeans.parser.XMLHandlingException;
+import org.n52.server.parser.DescribeSensorParser;
+import org.n52.server.util.SensorMLToHtml;
+import org.n52.shared.serializable.pojos.ReferenceValue;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+import org.n52.shared.serializable.pojos.sos.SosTimeseries;
+import org.opengis.referencing.FactoryException;
+
+/**
+ * A cached sensor description of one procedure. Values derived from the SensorML are parsed on first access
+ * and remembered, so repeated metadata requests for the same procedure do not parse the SensorML again. The
+ * parsed document itself is only softly referenced and may be dropped when memory gets low.
+ */
+public class CachedSensorDescription {
+
+    private final byte[] sensorML;
+
+    private final SOSMetadata metadata;
+
+    private final Map<String, String> unitsOfMeasure = new HashMap<String, String>();
+
+    private final Map<String, String> htmlFilenames = new HashMap<String, String>();
+
+    private final Map<String, String> htmlUrls = new HashMap<String, String>();
+
+    private HashMap<String, ReferenceValue> referenceValues;
+
+    private SoftReference<DescribeSensorParser> parser = new SoftReference<DescribeSensorParser>(null);
+
+    CachedSensorDescription(byte[] sensorML, SOSMetadata metadata) {
+        this.sensorML = sensorML;
+        this.metadata = metadata;
+    }
+
+    /**
+     * @return the unparsed SensorML. Must not be modified.
+     */
+    byte[] getSensorML() {
+        return sensorML;
+    }
+
+    public synchronized String getUnitOfMeasure(String phenomenonId) throws XmlException,
+            IOException,
+            XMLHandlingException,
+            FactoryException {
+        if ( !unitsOfMeasure.containsKey(phenomenonId)) {
+            unitsOfMeasure.put(phenomenonId, getParser().buildUpSensorMetadataUom(phenomenonId));
+        }
+        return unitsOfMeasure.get(phenomenonId);
+    }
+
+    public synchronized HashMap<String, ReferenceValue> getReferenceValues() throws XmlException,
+            IOException,
+            XMLHandlingException,
+            FactoryException {
+        if (referenceValues == null) {
+            referenceValues = getParser().parseReferenceValues();
+        }
+        return new HashMap<String, ReferenceValue>(referenceValues);
+    }
+
+    /**
+     * @return the URL of the sensor description transformed to HTML. The transformation is redone if the
+     *         generated file has been cleaned up in the meantime.
+     */
+    public synchronized String getHtmlUrl(SosTimeseries timeseries) throws XmlException,
+            IOException,
+            XMLHandlingException,
+            FactoryException,
+            OXFException {
+        String phenomenonId = timeseries.getPhenomenonId();
+        String filename = htmlFilenames.get(phenomenonId);
+        if (filename == null || !SensorMLToHtml.getHtmlFile(filename).exists()) {
+            DescribeSensorParser sensorMLParser = getParser();
+            htmlFilenames.put(phenomenonId, sensorMLParser.createSensorDescriptionFileName(timeseries));
+            htmlUrls.put(phenomenonId, sensorMLParser.buildUpSensorMetadataHtmlUrl(timeseries));
+        }
+        return htmlUrls.get(phenomenonId);
+    }
+
+    private DescribeSensorParser getParser() throws XmlException, IOException, XMLHandlingException, FactoryException {
+        DescribeSensorParser sensorMLParser = parser.get();
+        if (sensorMLParser == null) {
+            sensorMLParser = new DescribeSensorParser(new ByteArrayInputStream(sensorML), metadata);
+            parser = new SoftReference<DescribeSensorParser>(sensorMLParser);
+        }
+        return sensorMLParser;
+    }
+
+}
@@ -28,7 +28,6 @@
 package org.n52.server.da.oxf;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import static org.n52.server.da.oxf.DescribeSensorAccessor.getSensorDescriptionAsSensorML;
 import static org.n52.server.mgmt.ConfigurationContext.SERVER_TIMEOUT;
 import static org.n52.server.mgmt.ConfigurationContext.getSOSMetadata;
 
@@ -56,7 +55,6 @@ import org.n52.oxf.sos.adapter.SOSAdapter;
 import org.n52.oxf.sos.util.SosUtil;
 import org.n52.oxf.xmlbeans.parser.XMLHandlingException;
 import org.n52.server.da.AccessorThreadPool;
-import org.n52.server.mgmt.ConfigurationContext;
 import org.n52.server.parser.DescribeSensorParser;
 import org.n52.server.parser.GetFeatureOfInterestParser;
 import org.n52.shared.serializable.pojos.TimeseriesProperties;
@@ -88,13 +86,13 @@ public class DefaultFOIMetadataHandler extends DefaultMetadataHandler {
     public void assembleTimeseriesMetadata(final TimeseriesProperties properties) throws Exception {
         final SosTimeseries timeseries = properties.getTimeseries();
         final SOSMetadata sosMetadata = getSOSMetadata(timeseries.getServiceUrl());
-        final XmlObject sml = getSensorDescriptionAsSensorML(timeseries.getProcedureId(), sosMetadata);
-        final DescribeSensorParser parser = new DescribeSensorParser(sml.newInputStream(), sosMetadata);
+        final SensorDescriptionCache cache = SensorDescriptionCache.getInstance();
+        final CachedSensorDescription description = cache.getSensorDescription(timeseries.getProcedureId(), sosMetadata);
         
         final String phenomenonId = timeseries.getPhenomenonId();
-        properties.setUnitOfMeasure(parser.buildUpSensorMetadataUom(phenomenonId));
-        final String url = parser.buildUpSensorMetadataHtmlUrl(properties.getTimeseries());
-        properties.addAllRefValues(parser.parseReferenceValues());
+        properties.setUnitOfMeasure(description.getUnitOfMeasure(phenomenonId));
+        final String url = description.getHtmlUrl(properties.getTimeseries());
+        properties.addAllRefValues(description.getReferenceValues());
         properties.setMetadataUrl(url);
     }
 
@@ -113,7 +111,7 @@ public class DefaultFOIMetadataHandler extends DefaultMetadataHandler {
         // XXX hack to get conjunctions between procedures and fois
         if ( !sosMetadata.hasDonePositionRequest()) {
             try {
-                performMetadataInterlinking(observingTimeseries);
+                performMetadataInterlinking(sosMetadata, observingTimeseries);
             }
             catch (final IOException e) {
                 LOGGER.warn("Could not retrieve relations between procedures and fois", e);
@@ -131,6 +129,8 @@ public class DefaultFOIMetadataHandler extends DefaultMetadataHandler {
      * <bf>Note:</bf> to create the associations between these key items the Sensor Web Client assumes that
      * the selected SOS provides the 52°North discovery profile.
      * 
+     * @param metadata
+     *        the metadata being completed.
      * @param observingTimeseries
      *        all timeseries being observed.
      * @throws OXFException
@@ -144,12 +144,12 @@ public class DefaultFOIMetadataHandler extends DefaultMetadataHandler {
      * @throws IllegalStateException
      *         if SOS version is not supported.
      */
-    private void performMetadataInterlinking(final Collection<SosTimeseries> observingTimeseries) throws OXFException,
+    private void performMetadataInterlinking(final SOSMetadata metadata,
+                                             final Collection<SosTimeseries> observingTimeseries) throws OXFException,
             InterruptedException,
             XMLHandlingException,
             IOException {
         final String sosUrl = getServiceUrl();
-        final SOSMetadata metadata = ConfigurationContext.getSOSMetadata(sosUrl);
         final TimeseriesParametersLookup lookup = metadata.getTimeseriesParametersLookup();
         final ArrayList<Procedure> procedures = lookup.getProcedures();
         final String sosVersion = metadata.getSosVersion();
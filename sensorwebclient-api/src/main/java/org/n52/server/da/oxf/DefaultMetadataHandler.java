@@ -27,8 +27,6 @@
  */
 package org.n52.server.da.oxf;
 
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import static org.n52.server.da.oxf.DescribeSensorAccessor.getSensorDescriptionAsSensorML;
 import static org.n52.server.mgmt.ConfigurationContext.*;
 
 import java.io.BufferedReader;
@@ -37,15 +35,14 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.xmlbeans.XmlException;
-import org.apache.xmlbeans.XmlObject;
 import org.n52.oxf.OXFException;
 import org.n52.oxf.adapter.OperationResult;
 import org.n52.oxf.adapter.ParameterContainer;
@@ -55,9 +52,11 @@ import org.n52.oxf.sos.adapter.SOSAdapter;
 import org.n52.oxf.sos.util.SosUtil;
 import org.n52.oxf.xmlbeans.parser.XMLHandlingException;
 import org.n52.server.da.AccessorThreadPool;
+import org.n52.server.da.BoundedCompletionExecutor;
+import org.n52.server.da.BoundedCompletionExecutor.CompletionHandler;
 import org.n52.server.da.MetadataHandler;
-import org.n52.server.mgmt.ConfigurationContext;
 import org.n52.server.parser.DescribeSensorParser;
+import org.n52.shared.serializable.pojos.ReferenceValue;
 import org.n52.shared.serializable.pojos.TimeseriesProperties;
 import org.n52.shared.serializable.pojos.sos.Feature;
 import org.n52.shared.serializable.pojos.sos.Phenomenon;
@@ -90,13 +89,13 @@ public class DefaultMetadataHandler extends MetadataHandler {
     public void assembleTimeseriesMetadata(final TimeseriesProperties properties) throws Exception {
         final SosTimeseries timeseries = properties.getTimeseries();
         final SOSMetadata sosMetadata = getSOSMetadata(timeseries.getServiceUrl());
-        final XmlObject sml = getSensorDescriptionAsSensorML(timeseries.getProcedureId(), sosMetadata);
-        final DescribeSensorParser parser = new DescribeSensorParser(sml.newInputStream(), sosMetadata);
+        final SensorDescriptionCache cache = SensorDescriptionCache.getInstance();
+        final CachedSensorDescription description = cache.getSensorDescription(timeseries.getProcedureId(), sosMetadata);
 
         final String phenomenonId = timeseries.getPhenomenonId();
-        properties.setUnitOfMeasure(parser.buildUpSensorMetadataUom(phenomenonId));
-        final String url = parser.buildUpSensorMetadataHtmlUrl(properties.getTimeseries());
-        properties.addAllRefValues(parser.parseReferenceValues());
+        properties.setUnitOfMeasure(description.getUnitOfMeasure(phenomenonId));
+        final String url = description.getHtmlUrl(properties.getTimeseries());
+        properties.addAllRefValues(description.getReferenceValues());
         properties.setMetadataUrl(url);
     }
 
@@ -115,7 +114,7 @@ public class DefaultMetadataHandler extends MetadataHandler {
         // XXX hack to get conjunctions between procedures and fois
         if ( !sosMetadata.hasDonePositionRequest()) {
             try {
-                performMetadataInterlinking(observingTimeseries);
+                performMetadataInterlinking(sosMetadata, observingTimeseries);
             }
             catch (final IOException e) {
                 LOGGER.warn("Could not retrieve relations between procedures and fois", e);
@@ -133,6 +132,8 @@ public class DefaultMetadataHandler extends MetadataHandler {
      * <bf>Note:</bf> to create the associations between these key items the Sensor Web Client assumes that
      * the selected SOS provides the 52°North discovery profile.
      *
+     * @param metadata
+     *        the metadata being completed.
      * @param observingTimeseries
      *        all timeseries being observed.
      * @throws OXFException
@@ -146,143 +147,78 @@ public class DefaultMetadataHandler extends MetadataHandler {
      * @throws IllegalStateException
      *         if SOS version is not supported.
      */
-    private void performMetadataInterlinking(final Collection<SosTimeseries> observingTimeseries) throws OXFException,
+    private void performMetadataInterlinking(final SOSMetadata metadata,
+                                             final Collection<SosTimeseries> observingTimeseries) throws OXFException,
             InterruptedException,
             XMLHandlingException,
             IOException {
         final String sosUrl = getServiceUrl();
-        final SOSMetadata metadata = ConfigurationContext.getSOSMetadata(sosUrl);
         final TimeseriesParametersLookup lookup = metadata.getTimeseriesParametersLookup();
         final ArrayList<Procedure> procedures = lookup.getProcedures();
 
         // do describe sensor for each procedure
         final String sosVersion = metadata.getSosVersion();
         final String smlVersion = metadata.getSensorMLVersion();
-        final Map<String, FutureTask<OperationResult>> futureTasks = new ConcurrentHashMap<String, FutureTask<OperationResult>>();
+        final Map<String, DescribeSensorTask> tasks = new LinkedHashMap<String, DescribeSensorTask>();
         for (final Procedure proc : procedures) {
             final OperationAccessor opAccessorCallable = createDescribeSensorAccessor(
                                                                                 sosUrl, sosVersion, smlVersion, proc);
-            futureTasks.put(proc.getProcedureId(), new FutureTask<OperationResult>(opAccessorCallable));
+            tasks.put(proc.getProcedureId(), new DescribeSensorTask(opAccessorCallable, metadata));
         }
 
-        int i = 1;
         final List<String> illegalProcedures = new ArrayList<String>();
-        LOGGER.debug("Going to send #{} DescribeSensor requests.", futureTasks.size());
-        for (final String procedureId : futureTasks.keySet()) {
-            ByteArrayInputStream incomingResultAsStream = null;
-            try {
-                LOGGER.trace("Sending request {}", i++);
-                final FutureTask<OperationResult> futureTask = futureTasks.get(procedureId);
-                AccessorThreadPool.execute(futureTask);
-                final OperationResult opResult = futureTask.get(SERVER_TIMEOUT, MILLISECONDS);
-                if (opResult == null) {
+        final int maxConcurrentRequests = metadata.getMaxConcurrentRequests();
+        LOGGER.debug("Going to send #{} DescribeSensor requests (max. {} at a time).", tasks.size(), maxConcurrentRequests);
+        final BoundedCompletionExecutor<String, SensorDescription> executor =
+                new BoundedCompletionExecutor<String, SensorDescription>(AccessorThreadPool.getExecutor(),
+                                                                         maxConcurrentRequests,
+                                                                         SERVER_TIMEOUT);
+        executor.execute(tasks, new CompletionHandler<String, SensorDescription>() {
+
+            private int remaining = tasks.size();
+
+            @Override
+            public void completed(final String procedureId, final SensorDescription description) {
+                if (description == null) {
                     illegalProcedures.add(procedureId);
                     LOGGER.debug("Got NO sensor description for '{}'", procedureId);
                 }
                 else {
-                    incomingResultAsStream = opResult.getIncomingResultAsStream();
-                    final DescribeSensorParser parser = new DescribeSensorParser(incomingResultAsStream, metadata);
-
-                    final Procedure procedure = lookup.getProcedure(procedureId);
-                    procedure.addAllRefValues(parser.parseReferenceValues());
-                    final List<String> phenomenons = parser.getPhenomenons();
-                    final List<String> fois = parser.parseFOIReferences();
-                    final Point point = parser.buildUpSensorMetadataPosition();
-
-                    if (fois.isEmpty()) {
-                        final Collection<Feature> features = lookup.getFeatures();
-                        LOGGER.warn("No FOI references found for procedure '{}'.", procedureId);
-                        LOGGER.warn("==> Reference all ({}) available.", features.size());
-                        for (final Feature foi : features) {
-                            fois.add(foi.getFeatureId());
-                        }
-                    }
-
-                    for (final String featureId : fois) {
-                        Station station = metadata.getStation(featureId);
-                        if (station == null) {
-                            station = new Station(featureId, sosUrl);
-                            station.setLocation(point);
-                            metadata.addStation(station);
-                        }
-
-                        for (final String phenomenon : phenomenons) {
-                            final String uom = parser.buildUpSensorMetadataUom(phenomenon);
-                            final Phenomenon lokupPhen = lookup.getPhenomenon(phenomenon);
-                            if (lokupPhen != null) {
-                            	lokupPhen.setUnitOfMeasure(uom);
-                            } else {
-                            	LOGGER.error("Could not find matching phenomenon in internal 'lookup' storage for '{}'",phenomenon);
-                            }
-                            final Collection<SosTimeseries> paramConstellations = getMatchingConstellations(observingTimeseries,
-                                                                                                      procedureId,
-                                                                                                      phenomenon);
-
-                            station.setLocation(point);
-                            for (final SosTimeseries timseries : paramConstellations) {
-                                final Feature feature = new Feature(featureId, sosUrl);
-                                if ( !lookup.containsFeature(featureId)) {
-                                    lookup.addFeature(feature);
-                                }
-                                timseries.setFeature(feature);
-                                station.addTimeseries(timseries);
-                            }
-                        }
-                    }
-                    LOGGER.trace("Got Procedure data for '{}'.", procedure);
+                    linkProcedure(procedureId, description, observingTimeseries, metadata);
                 }
+                LOGGER.debug("Still #{} responses to go ...", --remaining);
             }
-            catch (final TimeoutException e) {
-                LOGGER.warn("Could NOT connect to SOS '{}'.", sosUrl, e);
-                illegalProcedures.add(procedureId);
-            }
-            catch (final ExecutionException e) {
-                LOGGER.warn("Could NOT get OperationResult from SOS for '{}'.", procedureId, e.getCause());
-                illegalProcedures.add(procedureId);
-            }
-            catch (final XmlException e) {
-                LOGGER.warn("Could NOT parse OperationResult from '{}'", sosUrl, e);
-                if (LOGGER.isDebugEnabled()) {
-                    try {
-                        final XmlObject response = XmlObject.Factory.parse(incomingResultAsStream);
-                        final StringBuilder sb = new StringBuilder();
-                        sb.append(String.format("Error sending DescribeSensor for '%s'\n", procedureId));
-                        sb.append(String.format("Could NOT parse incoming OperationResult:\n %s", response));
-                        LOGGER.debug(sb.toString(), e);
-                        illegalProcedures.add(procedureId);
-                    }
-                    catch (final XmlException ex) {
-                        final BufferedReader reader = new BufferedReader(new InputStreamReader(incomingResultAsStream));
-                        LOGGER.warn("No XML response for procedure '{}'.", procedureId);
-                        LOGGER.debug("First line of response: {}", reader.readLine());
-                    }
-                    catch (final IOException ex) {
-                        LOGGER.warn("Could read result", ex);
-                    }
+
+            @Override
+            public void failed(final String procedureId, final Throwable cause) {
+                remaining--;
+                if (cause instanceof TimeoutException) {
+                    LOGGER.warn("Could NOT connect to SOS '{}'.", sosUrl, cause);
+                    illegalProcedures.add(procedureId);
                 }
-            }
-            catch (final IOException e) {
-                illegalProcedures.add(procedureId);
-                LOGGER.info("Could NOT parse sensorML for procedure '{}'.", procedureId, e);
-            }
-            catch (final IllegalStateException e) {
-                illegalProcedures.add(procedureId);
-                LOGGER.info("Could NOT link procedure '{}' appropriatly.", procedureId, e);
-            }
-            catch (final FactoryException e) {
-                LOGGER.info("Could not create intern CRS to transform coordinates.", e);
-            }
-            catch (final TransformException e) {
-                LOGGER.info("Could not transform to intern CRS.", e);
-            }
-            finally {
-                if (incomingResultAsStream != null) {
-                    incomingResultAsStream.close();
+                else if (cause instanceof XmlException) {
+                    LOGGER.warn("Could NOT parse OperationResult from '{}'", sosUrl, cause);
+                }
+                else if (cause instanceof XMLHandlingException || cause instanceof IOException) {
+                    illegalProcedures.add(procedureId);
+                    LOGGER.info("Could NOT parse sensorML for procedure '{}'.", procedureId, cause);
+                }
+                else if (cause instanceof IllegalStateException) {
+                    illegalProcedures.add(procedureId);
+                    LOGGER.info("Could NOT link procedure '{}' appropriatly.", procedureId, cause);
+                }
+                else if (cause instanceof FactoryException) {
+                    LOGGER.info("Could not create intern CRS to transform coordinates.", cause);
+                }
+                else if (cause instanceof TransformException) {
+                    LOGGER.info("Could not transform to intern CRS.", cause);
+                }
+                else {
+                    LOGGER.warn("Could NOT get OperationResult from SOS for '{}'.", procedureId, cause);
+                    illegalProcedures.add(procedureId);
                 }
-                futureTasks.remove(procedureId);
-                LOGGER.debug("Still #{} responses to go ...", futureTasks.size());
             }
-        }
+        });
 
         if ( !illegalProcedures.isEmpty()) {
             final StringBuilder sb = new StringBuilder();
@@ -300,6 +236,64 @@ public class DefaultMetadataHandler extends MetadataHandler {
         metadata.setHasDonePositionRequest(true);
     }
 
+    /**
+     * Merges a parsed sensor description into the lookup and the stations of the given metadata. Called for
+     * one procedure at a time on the harvesting thread.
+     */
+    private void linkProcedure(final String procedureId,
+                               final SensorDescription description,
+                               final Collection<SosTimeseries> observingTimeseries,
+                               final SOSMetadata metadata) {
+        final String sosUrl = metadata.getServiceUrl();
+        final TimeseriesParametersLookup lookup = metadata.getTimeseriesParametersLookup();
+        final Procedure procedure = lookup.getProcedure(procedureId);
+        procedure.addAllRefValues(description.referenceValues);
+        final List<String> fois = description.fois;
+        final Point point = description.position;
+
+        if (fois.isEmpty()) {
+            final Collection<Feature> features = lookup.getFeatures();
+            LOGGER.warn("No FOI references found for procedure '{}'.", procedureId);
+            LOGGER.warn("==> Reference all ({}) available.", features.size());
+            for (final Feature foi : features) {
+                fois.add(foi.getFeatureId());
+            }
+        }
+
+        for (final String featureId : fois) {
+            Station station = metadata.getStation(featureId);
+            if (station == null) {
+                station = new Station(featureId, sosUrl);
+                station.setLocation(point);
+                metadata.addStation(station);
+            }
+
+            for (final Map.Entry<String, String> phenomenonUom : description.uoms.entrySet()) {
+                final String phenomenon = phenomenonUom.getKey();
+                final Phenomenon lokupPhen = lookup.getPhenomenon(phenomenon);
+                if (lokupPhen != null) {
+                	lokupPhen.setUnitOfMeasure(phenomenonUom.getValue());
+                } else {
+                	LOGGER.error("Could not find matching phenomenon in internal 'lookup' storage for '{}'",phenomenon);
+                }
+                final Collection<SosTimeseries> paramConstellations = getMatchingConstellations(observingTimeseries,
+                                                                                          procedureId,
+                                                                                          phenomenon);
+
+                station.setLocation(point);
+                for (final SosTimeseries timseries : paramConstellations) {
+                    final Feature feature = new Feature(featureId, sosUrl);
+                    if ( !lookup.containsFeature(featureId)) {
+                        lookup.addFeature(feature);
+                    }
+                    timseries.setFeature(feature);
+                    station.addTimeseries(timseries);
+                }
+            }
+        }
+        LOGGER.trace("Got Procedure data for '{}'.", procedure);
+    }
+
     private OperationAccessor createDescribeSensorAccessor(final String sosUrl,
                                                            final String sosVersion, final String smlVersion, final Procedure proc)
             throws OXFException {
@@ -339,4 +333,65 @@ public class DefaultMetadataHandler extends MetadataHandler {
 		return null;
 	}
 
+    /**
+     * Sends a DescribeSensor request and parses the response on the worker thread.
+     */
+    private static final class DescribeSensorTask implements Callable<SensorDescription> {
+
+        private final OperationAccessor accessor;
+
+        private final SOSMetadata metadata;
+
+        DescribeSensorTask(final OperationAccessor accessor, final SOSMetadata metadata) {
+            this.accessor = accessor;
+            this.metadata = metadata;
+        }
+
+        @Override
+        public SensorDescription call() throws Exception {
+            final OperationResult opResult = accessor.call();
+            if (opResult == null) {
+                return null;
+            }
+            final ByteArrayInputStream incomingResultAsStream = opResult.getIncomingResultAsStream();
+            try {
+                return new SensorDescription(new DescribeSensorParser(incomingResultAsStream, metadata));
+            }
+            catch (final XmlException e) {
+                if (LOGGER.isDebugEnabled()) {
+                    incomingResultAsStream.reset();
+                    final BufferedReader reader = new BufferedReader(new InputStreamReader(incomingResultAsStream));
+                    LOGGER.debug("Could NOT parse DescribeSensor response. First line: {}", reader.readLine());
+                }
+                throw e;
+            }
+            finally {
+                incomingResultAsStream.close();
+            }
+        }
+    }
+
+    /**
+     * The parts of a sensor description needed to link a procedure.
+     */
+    private static final class SensorDescription {
+
+        private final HashMap<String, ReferenceValue> referenceValues;
+
+        private final List<String> fois;
+
+        private final Point position;
+
+        private final Map<String, String> uoms = new LinkedHashMap<String, String>();
+
+        SensorDescription(final DescribeSensorParser parser) throws FactoryException, TransformException {
+            referenceValues = parser.parseReferenceValues();
+            fois = parser.parseFOIReferences();
+            position = parser.buildUpSensorMetadataPosition();
+            for (final String phenomenon : parser.getPhenomenons()) {
+                uoms.put(phenomenon, parser.buildUpSensorMetadataUom(phenomenon));
+            }
+        }
+    }
+
 }
@@ -36,6 +36,7 @@ import static org.n52.oxf.sos.adapter.ISOSRequestBuilder.DESCRIBE_SENSOR_VERSION
 import static org.n52.oxf.sos.adapter.SOSAdapter.DESCRIBE_SENSOR;
 import static org.n52.server.mgmt.ConfigurationContext.SERVER_TIMEOUT;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
@@ -62,9 +63,10 @@ public class DescribeSensorAccessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(DescribeSensorAccessor.class);
 
     /**
-     * Requests the sensor description from an SOS instance. The sensor description is requested with respect
-     * to the {@link SOSMetadata#getVersion()} and {@link SOSMetadata#getSensorMLVersion()} set in the passed
-     * service metadata.<br>
+     * Gets the sensor description of a procedure from the {@link SensorDescriptionCache}, which requests it
+     * from the SOS instance if not cached yet. The sensor description is requested with respect to the
+     * {@link SOSMetadata#getVersion()} and {@link SOSMetadata#getSensorMLVersion()} set in the passed service
+     * metadata.<br>
      * <br>
      * Currently, only SensorML 1.0.1 is supported.
      * 
@@ -76,36 +78,12 @@ public class DescribeSensorAccessor {
      */
     public static XmlObject getSensorDescriptionAsSensorML(String procedure, SOSMetadata serviceMetadata) {
         String serviceUrl = serviceMetadata.getServiceUrl();
-        String sosVersion = serviceMetadata.getSosVersion();
-        String smlVersion = serviceMetadata.getSensorMLVersion();
-
         try {
-            ParameterContainer parameters = new ParameterContainer();
-            parameters.addParameterShell(DESCRIBE_SENSOR_SERVICE_PARAMETER, "SOS");
-            parameters.addParameterShell(DESCRIBE_SENSOR_VERSION_PARAMETER, sosVersion);
-            parameters.addParameterShell(DESCRIBE_SENSOR_PROCEDURE_PARAMETER, procedure);
-            if (SosUtil.isVersion100(sosVersion)) {
-                parameters.addParameterShell(DESCRIBE_SENSOR_OUTPUT_FORMAT, smlVersion);
-            }
-            else if (SosUtil.isVersion200(sosVersion)) {
-                parameters.addParameterShell(DESCRIBE_SENSOR_PROCEDURE_DESCRIPTION_FORMAT, smlVersion);
-            }
-            else {
-                throw new IllegalStateException("SOS Version (" + sosVersion + ") is not supported!");
-            }
-
-            Operation describeSensor = new Operation(DESCRIBE_SENSOR, serviceUrl, serviceUrl);
-            SOSAdapter adapter = SosAdapterFactory.createSosAdapter(serviceMetadata);
-
-            OperationAccessor accessor = new OperationAccessor(adapter, describeSensor, parameters);
-            FutureTask<OperationResult> task = new FutureTask<OperationResult>(accessor);
-            AccessorThreadPool.execute(task);
-
-            OperationResult result = task.get(SERVER_TIMEOUT, MILLISECONDS);
+            byte[] sensorDescription = SensorDescriptionCache.getInstance().getSensorML(procedure, serviceMetadata);
 
             // TODO check for different SML versions
 
-            return XmlObject.Factory.parse(result.getIncomingResultAsStream());
+            return XmlObject.Factory.parse(new ByteArrayInputStream(sensorDescription));
         }
         catch (OXFException e) {
             LOGGER.warn("Could not assemble parameters for request.", e);
@@ -132,4 +110,54 @@ public class DescribeSensorAccessor {
         LOGGER.warn("Failed to retrieve sensor description for '{}'. Return an empty description.", procedure);
         return SensorMLDocument.Factory.newInstance();
     }
+
+    /**
+     * Requests the sensor description from an SOS instance bypassing any cache.
+     * 
+     * @param procedure
+     *        the procedure id for which the sensor description shall be requested.
+     * @param serviceMetadata
+     *        the SOS service metadata.
+     * @return the unparsed DescribeSensor response.
+     * @throws OXFException
+     *         if assembling the request failed.
+     * @throws IllegalStateException
+     *         if the SOS version is not supported.
+     */
+    public static byte[] requestSensorDescription(String procedure, SOSMetadata serviceMetadata) throws OXFException,
+            InterruptedException,
+            ExecutionException,
+            TimeoutException,
+            IOException {
+        String serviceUrl = serviceMetadata.getServiceUrl();
+        String sosVersion = serviceMetadata.getSosVersion();
+        String smlVersion = serviceMetadata.getSensorMLVersion();
+
+        ParameterContainer parameters = new ParameterContainer();
+        parameters.addParameterShell(DESCRIBE_SENSOR_SERVICE_PARAMETER, "SOS");
+        parameters.addParameterShell(DESCRIBE_SENSOR_VERSION_PARAMETER, sosVersion);
+        parameters.addParameterShell(DESCRIBE_SENSOR_PROCEDURE_PARAMETER, procedure);
+        if (SosUtil.isVersion100(sosVersion)) {
+            parameters.addParameterShell(DESCRIBE_SENSOR_OUTPUT_FORMAT, smlVersion);
+        }
+        else if (SosUtil.isVersion200(sosVersion)) {
+            parameters.addParameterShell(DESCRIBE_SENSOR_PROCEDURE_DESCRIPTION_FORMAT, smlVersion);
+        }
+        else {
+            throw new IllegalStateException("SOS Version (" + sosVersion + ") is not supported!");
+        }
+
+        Operation describeSensor = new Operation(DESCRIBE_SENSOR, serviceUrl, serviceUrl);
+        SOSAdapter adapter = SosAdapterFactory.getSosAdapter(serviceMetadata);
+
+        OperationAccessor accessor = new OperationAccessor(adapter, describeSensor, parameters);
+        FutureTask<OperationResult> task = new FutureTask<OperationResult>(accessor);
+        AccessorThreadPool.execute(task);
+
+        OperationResult result = task.get(SERVER_TIMEOUT, MILLISECONDS);
+        if (result == null) {
+            throw new IOException("No DescribeSensor response for '" + procedure + "' from '" + serviceUrl + "'.");
+        }
+        return result.getIncomingResult();
+    }
 }
@@ -42,10 +42,14 @@ import static org.n52.oxf.sos.adapter.ISOSRequestBuilder.GET_OBSERVATION_VERSION
 import static org.n52.server.mgmt.ConfigurationContext.SERVER_TIMEOUT;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeoutException;
 
 import org.n52.oxf.OXFException;
@@ -61,8 +65,11 @@ import org.n52.oxf.util.JavaHelper;
 import org.n52.oxf.valueDomains.time.TemporalValueDomain;
 import org.n52.server.da.AccessException;
 import org.n52.server.da.AccessorThreadPool;
+import org.n52.server.da.BoundedCompletionExecutor;
+import org.n52.server.da.BoundedCompletionExecutor.CompletionHandler;
 import org.n52.server.io.RequestConfig;
 import org.n52.server.mgmt.ConfigurationContext;
+import org.n52.server.mgmt.MetadataUnavailableException;
 import org.n52.server.util.SosAdapterFactory;
 import org.n52.shared.Constants;
 import org.n52.shared.serializable.pojos.sos.SOSMetadata;
@@ -74,52 +81,86 @@ public class ObservationAccessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(ObservationAccessor.class);
 
     /**
+     * Sends all requests concurrently and merges the results per <code>offering@sosUrl</code>. All requests
+     * share one deadline of {@link ConfigurationContext#SERVER_TIMEOUT}. A failing request does not fail the
+     * whole result as long as at least one other request succeeded.
+     * 
      * @param requests
      *        the requests to send
-     * @return a List of OXFFeatureCollection objects. Each of those objects is the result of ONE SOS request.
+     * @return a Map of OXFFeatureCollection objects. Each of those objects is the merged result of the SOS
+     *         requests sharing the same offering and SOS URL.
      * @throws AccessException
-     *         if accessing or processing features failed.
+     *         if accessing or processing features failed for all requests.
+     * @see #sendRequests(List, Map)
      */
     public Map<String, OXFFeatureCollection> sendRequests(List<RequestConfig> requests) throws AccessException {
-    	
+        return sendRequests(requests, new HashMap<RequestConfig, AccessException>());
+    }
+
+    /**
+     * Sends all requests concurrently and merges the results per <code>offering@sosUrl</code>. All requests
+     * share one deadline of {@link ConfigurationContext#SERVER_TIMEOUT}. Requests which fail are put into the
+     * given failures map so that callers can report them per timeseries.
+     * 
+     * @param requests
+     *        the requests to send
+     * @param failures
+     *        a map to collect failed requests and their cause.
+     * @return a Map of OXFFeatureCollection objects. Each of those objects is the merged result of the SOS
+     *         requests sharing the same offering and SOS URL.
+     * @throws AccessException
+     *         if accessing or processing features failed for all requests.
+     */
+    public Map<String, OXFFeatureCollection> sendRequests(List<RequestConfig> requests,
+                                                          Map<RequestConfig, AccessException> failures) throws AccessException {
+        ObservationMerger merger = new ObservationMerger(requests, failures);
+        // keyed by position, as requests may equal each other
+        Map<Integer, Callable<OXFFeatureCollection>> tasks = new LinkedHashMap<Integer, Callable<OXFFeatureCollection>>();
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                // resolved on this thread: harvesting uninitialized metadata waits for the same pool
+                tasks.put(i, createCollector(requests.get(i)));
+            }
+            catch (OXFException e) {
+                merger.failed(i, e);
+            }
+            catch (MetadataUnavailableException e) {
+                merger.failed(i, e);
+            }
+        }
         try {
-			Map<String, OXFFeatureCollection> entireCollMap = new HashMap<String, OXFFeatureCollection>();
-			for (RequestConfig request : requests) {
-
-			    String sosUrl = request.getSosURL();
-			    String key = createObservationCollectionKey(request, sosUrl);
-			    OperationResult opResult = sendRequest(request);
-			    SOSObservationStore featureStore = new SOSObservationStore(opResult);
-			    OXFFeatureCollection featureColl = featureStore.unmarshalFeatures();
-			    LOGGER.debug("Received " + featureColl.size() + " observations for " + key);
-			    if (featureColl != null) {
-			        if (entireCollMap.containsKey(key)) {
-			            OXFFeatureCollection existingFeatureColl = entireCollMap.get(key);
-			            existingFeatureColl.add(featureColl.toList());
-			        }
-			        else {
-			            entireCollMap.put(key, featureColl);
-			        }
-			    }
-			}
-			return entireCollMap;
-		} catch (OXFException e) {
-			throw new AccessException("Could not process observations.", e);
-		}
+            // all requests are in flight at once, so they share one deadline
+            createExecutor(tasks.size()).execute(tasks, merger);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccessException("Thread got interrupted during GetObservation request.", e);
+        }
+        catch (RejectedExecutionException e) {
+            throw new AccessException("Could not schedule GetObservation requests.", e);
+        }
+        if ( !requests.isEmpty() && merger.failureCount == requests.size()) {
+            throw new AccessException("Could not process observations.", merger.firstFailure);
+        }
+        return merger.collections;
+    }
+
+    BoundedCompletionExecutor<Integer, OXFFeatureCollection> createExecutor(int requestCount) {
+        ExecutorService executor = AccessorThreadPool.getExecutor();
+        return new BoundedCompletionExecutor<Integer, OXFFeatureCollection>(executor, requestCount, SERVER_TIMEOUT);
+    }
+
+    /**
+     * Creates the task performing a request. Metadata and SOS adapter are resolved on the calling thread, so
+     * that tasks running on the {@link AccessorThreadPool} never wait for other tasks of that pool.
+     */
+    Callable<OXFFeatureCollection> createCollector(RequestConfig request) throws OXFException {
+        return new ObservationCollector(createOperationAccessor(request));
     }
-    
+
     public OperationResult sendRequest(RequestConfig request) throws AccessException {
         try {
-            String sosUrl = request.getSosURL();
-            SOSMetadata metadata = ConfigurationContext.getSOSMetadata(sosUrl);
-            String sosVersion = metadata.getSosVersion();
-            boolean waterML = metadata.isWaterML();
-
-            ParameterContainer paramters = createParameterContainer(request, sosVersion, waterML);
-            Operation operation = new Operation(SOSAdapter.GET_OBSERVATION, sosUrl + "?", sosUrl);
-            SOSAdapter adapter = SosAdapterFactory.createSosAdapter(metadata);
-            OperationAccessor callable = new OperationAccessor(adapter, operation, paramters);
-            FutureTask<OperationResult> task = new FutureTask<OperationResult>(callable);
+            FutureTask<OperationResult> task = new FutureTask<OperationResult>(createOperationAccessor(request));
             AccessorThreadPool.execute(task);
 
             OperationResult opResult = task.get(SERVER_TIMEOUT, MILLISECONDS);
@@ -128,6 +169,9 @@ public class ObservationAccessor {
         catch (OXFException e) {
             throw new AccessException("Could not process observations.", e);
         }
+        catch (MetadataUnavailableException e) {
+            throw new AccessException("No metadata available for " + request.getSosURL(), e);
+        }
         catch (TimeoutException e) {
             throw new AccessException("GetObservation request timed out.", e);
         }
@@ -142,6 +186,18 @@ public class ObservationAccessor {
         }
     }
 
+    private OperationAccessor createOperationAccessor(RequestConfig request) throws OXFException {
+        String sosUrl = request.getSosURL();
+        SOSMetadata metadata = ConfigurationContext.getSOSMetadata(sosUrl);
+        String sosVersion = metadata.getSosVersion();
+        boolean waterML = metadata.isWaterML();
+
+        ParameterContainer paramters = createParameterContainer(request, sosVersion, waterML);
+        Operation operation = new Operation(SOSAdapter.GET_OBSERVATION, sosUrl + "?", sosUrl);
+        SOSAdapter adapter = SosAdapterFactory.getSosAdapter(metadata);
+        return new OperationAccessor(adapter, operation, paramters);
+    }
+
     private String createObservationCollectionKey(RequestConfig request, String sosUrl) {
         return request.getOfferingID() + "@" + sosUrl;
     }
@@ -216,4 +272,79 @@ public class ObservationAccessor {
         return elements;
     }
 
+    /**
+     * Merges the collections received per <code>offering@sosUrl</code> and collects failed requests. Called
+     * on the thread sending the requests only.
+     */
+    private class ObservationMerger implements CompletionHandler<Integer, OXFFeatureCollection> {
+
+        private final Map<String, OXFFeatureCollection> collections = new HashMap<String, OXFFeatureCollection>();
+
+        private final List<RequestConfig> requests;
+
+        private final Map<RequestConfig, AccessException> failures;
+
+        private int failureCount = 0;
+
+        private AccessException firstFailure;
+
+        ObservationMerger(List<RequestConfig> requests, Map<RequestConfig, AccessException> failures) {
+            this.requests = requests;
+            this.failures = failures;
+        }
+
+        @Override
+        public void completed(Integer index, OXFFeatureCollection featureColl) {
+            RequestConfig request = requests.get(index);
+            String key = createObservationCollectionKey(request, request.getSosURL());
+            if (featureColl != null) {
+                LOGGER.debug("Received " + featureColl.size() + " observations for " + key);
+                if (collections.containsKey(key)) {
+                    OXFFeatureCollection existingFeatureColl = collections.get(key);
+                    existingFeatureColl.add(featureColl.toList());
+                }
+                else {
+                    collections.put(key, featureColl);
+                }
+            }
+        }
+
+        @Override
+        public void failed(Integer index, Throwable cause) {
+            if (cause instanceof ResponseExceedsSizeLimitException) {
+                throw (RuntimeException) cause;
+            }
+            AccessException failure = cause instanceof TimeoutException
+                ? new AccessException("GetObservation request timed out.", cause)
+                : new AccessException("Could not execute GetObservation request.", cause);
+            RequestConfig request = requests.get(index);
+            String key = createObservationCollectionKey(request, request.getSosURL());
+            LOGGER.warn("GetObservation request for '{}' failed.", key, failure);
+            failures.put(request, failure);
+            if (firstFailure == null) {
+                firstFailure = failure;
+            }
+            failureCount++;
+        }
+    }
+
+    /**
+     * Performs a GetObservation request and unmarshals the response on the executing (worker) thread.
+     */
+    private static class ObservationCollector implements Callable<OXFFeatureCollection> {
+
+        private final OperationAccessor operationAccessor;
+
+        ObservationCollector(OperationAccessor operationAccessor) {
+            this.operationAccessor = operationAccessor;
+        }
+
+        @Override
+        public OXFFeatureCollection call() throws Exception {
+            OperationResult opResult = operationAccessor.call();
+            SOSObservationStore featureStore = new SOSObservationStore(opResult);
+            return featureStore.unmarshalFeatures();
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,545 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.da.oxf;
+
+import static org.n52.server.mgmt.ConfigurationContext.CACHE_DIR;
+import static org.n52.server.mgmt.ConfigurationContext.SENSORML_CACHE_REFRESH_INTERVAL;
+import static org.n52.server.mgmt.ConfigurationContext.SENSORML_CACHE_SIZE;
+import static org.n52.server.mgmt.ConfigurationContext.SENSORML_DISK_CACHE_SIZE;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.n52.oxf.OXFException;
+import org.n52.shared.MD5HashGenerator;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches sensor descriptions by service URL, procedure and SensorML version. The cache is bounded by the
+ * size of the unparsed descriptions held in memory (least recently used ones are evicted first) and backed
+ * by files in the cache directory, so descriptions survive restarts. Descriptions older than the refresh
+ * interval are still served while a background thread requests them again; parsed values are only dropped
+ * if the SOS actually returns a different description.<br>
+ * <br>
+ * Concurrent misses of the same description wait for a single request, misses of other descriptions are
+ * not blocked by it. The files are bounded by size as well: when they exceed it, least recently written or
+ * refreshed files are deleted in the background.
+ */
+public class SensorDescriptionCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SensorDescriptionCache.class);
+
+    /**
+     * Files of descriptions neither requested nor refreshed for this time are deleted.
+     */
+    static final long DISK_RETENTION_TIME = 30L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Time to wait before a failed refresh is retried.
+     */
+    private static final long REFRESH_RETRY_DELAY = 5 * 60 * 1000;
+
+    /**
+     * Time after which outdated files are looked for again, even if the files do not exceed their size.
+     */
+    private static final long DISK_PRUNE_INTERVAL = 24 * 60 * 60 * 1000;
+
+    private static SensorDescriptionCache instance;
+
+    private final long maxSize;
+
+    private final long maxDiskSize;
+
+    private final long refreshInterval;
+
+    private final File directory;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    private long size;
+
+    private final ConcurrentMap<String, FutureTask<Entry>> loading = new ConcurrentHashMap<String, FutureTask<Entry>>();
+
+    private final Set<String> refreshing = Collections.synchronizedSet(new HashSet<String>());
+
+    private final AtomicBoolean pruning = new AtomicBoolean();
+
+    private final Object diskLock = new Object();
+
+    /**
+     * Estimated size of all files, guarded by <code>diskLock</code>.
+     */
+    private long diskSize;
+
+    private long nextPruneAt;
+
+    private ExecutorService refresher;
+
+    public static synchronized SensorDescriptionCache getInstance() {
+        if (instance == null) {
+            File directory = CACHE_DIR == null ? null : new File(CACHE_DIR, "sensorml");
+            instance = new SensorDescriptionCache(SENSORML_CACHE_SIZE,
+                                                  SENSORML_DISK_CACHE_SIZE,
+                                                  SENSORML_CACHE_REFRESH_INTERVAL,
+                                                  directory);
+        }
+        return instance;
+    }
+
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * @param maxSize
+     *        the maximum number of SensorML bytes held in memory (0 disables caching).
+     * @param maxDiskSize
+     *        the maximum number of SensorML bytes persisted to the directory.
+     * @param refreshInterval
+     *        time in milliseconds after which a cached description gets refreshed.
+     * @param directory
+     *        the directory to persist descriptions to, or <code>null</code> to keep them in memory only.
+     */
+    SensorDescriptionCache(long maxSize, long maxDiskSize, long refreshInterval, File directory) {
+        this.maxSize = maxSize;
+        this.maxDiskSize = maxDiskSize;
+        this.refreshInterval = refreshInterval;
+        this.directory = maxSize > 0 && maxDiskSize > 0 ? directory : null;
+        if (this.directory != null) {
+            prepareDirectory();
+        }
+    }
+
+    /**
+     * @return the unparsed SensorML of the given procedure. Must not be modified.
+     */
+    public byte[] getSensorML(String procedure, SOSMetadata metadata) throws OXFException,
+            InterruptedException,
+            ExecutionException,
+            TimeoutException,
+            IOException {
+        return getSensorDescription(procedure, metadata).getSensorML();
+    }
+
+    public CachedSensorDescription getSensorDescription(String procedure, SOSMetadata metadata) throws OXFException,
+            InterruptedException,
+            ExecutionException,
+            TimeoutException,
+            IOException {
+        if (maxSize <= 0) {
+            return new CachedSensorDescription(fetch(procedure, metadata), metadata);
+        }
+        String key = createKey(procedure, metadata);
+        Entry entry = get(key);
+        if (entry == null) {
+            entry = load(key, procedure, metadata);
+        }
+        if (entry.refreshAfter <= now()) {
+            scheduleRefresh(key, procedure, metadata);
+        }
+        return entry.description;
+    }
+
+    /**
+     * Loads a description which is not held in memory. Only the first of concurrent callers loads it, the
+     * others wait for its result.
+     */
+    private Entry load(final String key, final String procedure, final SOSMetadata metadata) throws OXFException,
+            InterruptedException,
+            ExecutionException,
+            TimeoutException,
+            IOException {
+        FutureTask<Entry> task = new FutureTask<Entry>(new Callable<Entry>() {
+            @Override
+            public Entry call() throws Exception {
+                Entry entry = get(key);
+                if (entry == null) {
+                    entry = readFile(key, metadata);
+                    if (entry == null) {
+                        entry = new Entry(new CachedSensorDescription(fetch(procedure, metadata), metadata));
+                        entry.refreshAfter = now() + refreshInterval;
+                        writeFile(key, entry.description.getSensorML());
+                    }
+                    put(key, entry);
+                }
+                return entry;
+            }
+        });
+        FutureTask<Entry> loadingTask = loading.putIfAbsent(key, task);
+        if (loadingTask == null) {
+            loadingTask = task;
+            try {
+                task.run();
+            }
+            finally {
+                loading.remove(key, task);
+            }
+        }
+        try {
+            return loadingTask.get();
+        }
+        catch (ExecutionException e) {
+            throw rethrowCause(e);
+        }
+    }
+
+    private ExecutionException rethrowCause(ExecutionException e) throws OXFException,
+            InterruptedException,
+            TimeoutException,
+            IOException {
+        Throwable cause = e.getCause();
+        if (cause instanceof OXFException) {
+            throw (OXFException) cause;
+        }
+        else if (cause instanceof InterruptedException) {
+            throw (InterruptedException) cause;
+        }
+        else if (cause instanceof TimeoutException) {
+            throw (TimeoutException) cause;
+        }
+        else if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        else if (cause instanceof ExecutionException) {
+            return (ExecutionException) cause;
+        }
+        else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return e;
+    }
+
+    private Entry get(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        synchronized (entries) {
+            Entry replaced = entries.put(key, entry);
+            if (replaced != null) {
+                size -= replaced.getSize();
+            }
+            size += entry.getSize();
+            Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+            while (size > maxSize && entries.size() > 1) {
+                Entry evicted = leastRecentlyUsed.next();
+                if (evicted != entry) {
+                    size -= evicted.getSize();
+                    leastRecentlyUsed.remove();
+                }
+            }
+        }
+    }
+
+    private void scheduleRefresh(final String key, final String procedure, final SOSMetadata metadata) {
+        if (refreshing.add(key)) {
+            runInBackground(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh(key, procedure, metadata);
+                    }
+                    finally {
+                        refreshing.remove(key);
+                    }
+                }
+            });
+        }
+    }
+
+    void refresh(String key, String procedure, SOSMetadata metadata) {
+        Entry entry = get(key);
+        if (entry == null) {
+            return; // evicted in the meantime
+        }
+        try {
+            byte[] sensorML = fetch(procedure, metadata);
+            if (Arrays.equals(sensorML, entry.description.getSensorML())) {
+                LOGGER.trace("Sensor description of '{}' is unchanged.", procedure);
+                entry.refreshAfter = now() + refreshInterval;
+                touchFile(key);
+            }
+            else {
+                LOGGER.debug("Sensor description of '{}' has changed.", procedure);
+                Entry refreshed = new Entry(new CachedSensorDescription(sensorML, metadata));
+                refreshed.refreshAfter = now() + refreshInterval;
+                writeFile(key, sensorML);
+                put(key, refreshed);
+            }
+        }
+        catch (Exception e) {
+            LOGGER.warn("Could not refresh sensor description of '{}'. Keep the cached one.", procedure, e);
+            entry.refreshAfter = now() + Math.min(REFRESH_RETRY_DELAY, refreshInterval);
+        }
+    }
+
+    synchronized void runInBackground(Runnable task) {
+        if (refresher == null) {
+            refresher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "sensorml-cache-refresher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        refresher.execute(task);
+    }
+
+    byte[] fetch(String procedure, SOSMetadata metadata) throws OXFException,
+            InterruptedException,
+            ExecutionException,
+            TimeoutException,
+            IOException {
+        return DescribeSensorAccessor.requestSensorDescription(procedure, metadata);
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    long getSize() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+        synchronized (entries) {
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    private String createKey(String procedure, SOSMetadata metadata) {
+        MD5HashGenerator generator = new MD5HashGenerator("sml_");
+        return generator.generate(new String[] {metadata.getServiceUrl(), procedure, metadata.getSensorMLVersion()});
+    }
+
+    private void prepareDirectory() {
+        if ( !directory.exists() && !directory.mkdirs()) {
+            LOGGER.warn("Could not create directory '{}'. Sensor descriptions are not persisted.", directory);
+            return;
+        }
+        pruneDirectory();
+    }
+
+    private void schedulePruning(long writtenBytes) {
+        boolean prune;
+        synchronized (diskLock) {
+            diskSize += writtenBytes;
+            prune = diskSize > maxDiskSize || nextPruneAt <= now();
+        }
+        if (prune && pruning.compareAndSet(false, true)) {
+            runInBackground(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        pruneDirectory();
+                    }
+                    finally {
+                        pruning.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Deletes outdated files, then least recently written or refreshed files until the remaining files fit
+     * into the maximum disk size.
+     */
+    void pruneDirectory() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long firstModified = first.lastModified();
+                long secondModified = second.lastModified();
+                return firstModified < secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+            }
+        });
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        long outdated = now() - DISK_RETENTION_TIME;
+        for (File file : files) {
+            if (file.lastModified() >= outdated && total <= maxDiskSize) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+            else {
+                LOGGER.debug("Could not delete sensor description '{}'.", file);
+            }
+        }
+        synchronized (diskLock) {
+            diskSize = total;
+            nextPruneAt = now() + DISK_PRUNE_INTERVAL;
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key + ".xml");
+    }
+
+    private Entry readFile(String key, SOSMetadata metadata) {
+        if (directory == null) {
+            return null;
+        }
+        File file = getFile(key);
+        if ( !file.exists()) {
+            return null;
+        }
+        InputStream in = null;
+        try {
+            byte[] sensorML = new byte[(int) file.length()];
+            in = new FileInputStream(file);
+            int offset = 0;
+            while (offset < sensorML.length) {
+                int read = in.read(sensorML, offset, sensorML.length - offset);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of file.");
+                }
+                offset += read;
+            }
+            Entry entry = new Entry(new CachedSensorDescription(sensorML, metadata));
+            entry.refreshAfter = file.lastModified() + refreshInterval;
+            return entry;
+        }
+        catch (IOException e) {
+            LOGGER.warn("Could not read cached sensor description '{}'.", file, e);
+            return null;
+        }
+        finally {
+            close(in);
+        }
+    }
+
+    private void writeFile(String key, byte[] sensorML) {
+        if (directory == null) {
+            return;
+        }
+        File file = getFile(key);
+        File tempFile = new File(directory, key + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tempFile);
+            out.write(sensorML);
+            out.close();
+            out = null;
+            if ( !tempFile.renameTo(file) && ( !file.delete() || !tempFile.renameTo(file))) {
+                LOGGER.warn("Could not persist sensor description to '{}'.", file);
+            }
+            touchFile(key);
+            schedulePruning(sensorML.length);
+        }
+        catch (IOException e) {
+            LOGGER.warn("Could not persist sensor description to '{}'.", file, e);
+        }
+        finally {
+            close(out);
+        }
+    }
+
+    private void touchFile(String key) {
+        if (directory != null && !getFile(key).setLastModified(now())) {
+            LOGGER.debug("Could not update modification time of '{}'.", getFile(key));
+        }
+    }
+
+    private void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            }
+            catch (IOException e) {
+                LOGGER.debug("Could not close stream.", e);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final CachedSensorDescription description;
+
+        private volatile long refreshAfter;
+
+        Entry(CachedSensorDescription description) {
+            this.description = description;
+        }
+
+        long getSize() {
+            return description.getSensorML().length;
+        }
+    }
+
+}
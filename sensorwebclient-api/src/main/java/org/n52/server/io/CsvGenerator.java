@@ -27,14 +27,16 @@
  */
 package org.n52.server.io;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Collection;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.n52.oxf.feature.OXFFeature;
@@ -43,6 +45,7 @@ import org.n52.oxf.feature.sos.ObservationSeriesCollection;
 import org.n52.oxf.feature.sos.ObservedValueTuple;
 import org.n52.oxf.util.JavaHelper;
 import org.n52.oxf.valueDomains.time.ITimePosition;
+import org.n52.server.da.AccessException;
 import org.n52.server.mgmt.ConfigurationContext;
 import org.n52.shared.responses.FileResponse;
 import org.n52.shared.responses.RepresentationResponse;
@@ -52,39 +55,27 @@ import org.n52.shared.serializable.pojos.sos.TimeseriesParametersLookup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class CsvGenerator extends Generator {
+public class CsvGenerator extends Generator implements FileGenerator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CsvGenerator.class);
 
-    private boolean zip;
+    private static final String ENCODING = "UTF-8";
 
-    // XXX zip is unused ATM
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * @param zip
+     *        ignored, CSV files are always written uncompressed.
+     * @param folder
+     *        the sub folder of the generation directory to write files to.
+     */
     public CsvGenerator(boolean zip, String folder) {
         this.folderPostfix = folder;
     }
 
     @Override
     public RepresentationResponse producePresentation(DesignOptions options) throws GeneratorException {
-
         LOGGER.debug("Starting producing representation with " + options);
-        Map<String, OXFFeatureCollection> entireCollMap = new HashMap<String, OXFFeatureCollection>();
-        try {
-            entireCollMap = getFeatureCollectionFor(options, false);
-        }
-        catch (Exception e) {
-            throw new GeneratorException("Error creating Csv data.", e);
-        }
-
-        Collection<OXFFeatureCollection> observationCollList = entireCollMap.values();
-
-        if (observationCollList.size() > 1) {
-            throw new IllegalArgumentException(
-                                               "Just ONE observation collection for ONE SOS-offering allowed.");
-        }
-
-        if (observationCollList.size() == 1) {
-        }
-
         TimeseriesProperties pc = options.getProperties().get(0);
         File csv = JavaHelper.genRndFile(ConfigurationContext.GEN_DIR + "/" + folderPostfix,
                                          pc.getProcedure().replaceAll("/", "_") + "_"
@@ -93,76 +84,16 @@ public class CsvGenerator extends Generator {
                                          "csv");
         OutputStream out;
         try {
-            out = new FileOutputStream(csv);
+            out = new BufferedOutputStream(new FileOutputStream(csv), BUFFER_SIZE);
         }
-        catch (FileNotFoundException e1) {
-            LOGGER.error("Could not produce presentation.", e1);
-            return null;
+        catch (IOException e) {
+            throw new GeneratorException("Could not create CSV file.", e);
         }
-
         try {
-            String csvString = "";
-
-            // set header:
-            csvString += "Sensor Station;Sensor Phenomenon;Date;Value\n";
-
-            // fill cells:
-            for (TimeseriesProperties prop : options.getProperties()) {
-
-                TimeseriesParametersLookup lookup = getParameterLookup(prop.getServiceUrl());
-                String featureId = prop.getFeature();
-                String phenomenonId = prop.getPhenomenon();
-
-                OXFFeatureCollection entireColl = (OXFFeatureCollection) observationCollList.toArray()[0];
-                if ( !entireColl.isEmpty()) {
-                    ObservationSeriesCollection seriesCollection = new ObservationSeriesCollection(
-                                                                                                   entireColl,
-                                                                                                   new String[] {featureId},
-                                                                                                   new String[] {phenomenonId},
-                                                                                                   false);
-                    ITimePosition timeArray[] = seriesCollection
-                            .getSortedTimeArray();
-
-                    if (timeArray.length > 0) {
-                        ObservedValueTuple nextObservation = seriesCollection
-                                .getTuple(
-                                          new OXFFeature(featureId, entireColl
-                                                  .getFeatureType()), timeArray[0]);
-                        ObservedValueTuple observation = nextObservation;
-
-                        for (int i = 0; i < timeArray.length; i++) {
-
-                            observation = nextObservation;
-
-                            if (i + 1 < timeArray.length) {
-                                nextObservation = seriesCollection.getTuple(
-                                                                            new OXFFeature(featureId, null),
-                                                                            timeArray[i + 1]);
-                            }
-
-                            csvString += lookup.getFeature(featureId).getLabel() + ";";
-                            csvString += lookup.getPhenomenon(phenomenonId).getLabel()
-                                    + " (" + prop.getUnitOfMeasure() + ")"
-                                    + ";";
-                            csvString += observation.getTime().toISO8601Format()
-                                    + ";";
-                            csvString += observation.getValue(0).toString() + "\n";
-                            // csvString +=
-                            // observation.getValue(0).toString().replace(".", ",")
-                            // + "\n";
-                        }
-                    }
-                }
-
-            }
-            out.write(csvString.getBytes());
-        }
-        catch (Exception e) {
-            throw new GeneratorException(e.getMessage(), e);
+            write(options, out);
         }
         finally {
             try {
-                out.flush();
                 out.close();
             }
             catch (IOException e) {
@@ -173,4 +104,95 @@ public class CsvGenerator extends Generator {
         LOGGER.debug("Produced CSV file url: " + ConfigurationContext.GEN_URL + "/" + csv.getName());
         return new FileResponse(ConfigurationContext.GEN_URL + "/" + csv.getName());
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the observations of all timeseries as CSV rows to the given stream, e.g. a file or an HTTP
+     * response. Rows are written one by one instead of concatenating the whole document in memory, the
+     * requested observations themselves are held in memory though. Timestamps are written as reported by
+     * the SOS, i.e. with their original offset. The stream is flushed but not closed.
+     * 
+     * @param options
+     *        the timeseries and timespan to export.
+     * @param out
+     *        the stream to write the UTF-8 encoded CSV to.
+     * @throws GeneratorException
+     *         if requesting observations or writing fails.
+     */
+    @Override
+    public void write(DesignOptions options, OutputStream out) throws GeneratorException {
+        Map<String, OXFFeatureCollection> entireCollMap;
+        try {
+            entireCollMap = getFeatureCollectionFor(options, false);
+        }
+        catch (AccessException e) {
+            throw new GeneratorException("Error creating Csv data.", e);
+        }
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, ENCODING), BUFFER_SIZE);
+            writer.write("Sensor Station;Sensor Phenomenon;Date;Value\n");
+            for (TimeseriesProperties prop : options.getProperties()) {
+                OXFFeatureCollection entireColl = entireCollMap.get(prop.getOffering() + "@" + prop.getServiceUrl());
+                if (entireColl == null || entireColl.isEmpty()) {
+                    continue;
+                }
+                String featureId = prop.getFeature();
+                ObservationSeriesCollection seriesCollection =
+                        new ObservationSeriesCollection(entireColl, new String[] {featureId},
+                                                        new String[] {prop.getPhenomenon()},
+                                                        new String[] {prop.getProcedure()}, true);
+                OXFFeature feature = new OXFFeature(featureId, null);
+                String rowPrefix = createRowPrefix(prop);
+                for (ITimePosition time : seriesCollection.getSortedTimeArray()) {
+                    ObservedValueTuple observation = seriesCollection.getTuple(feature, time);
+                    if (observation != null) {
+                        writeRow(writer, rowPrefix, observation.getTime().toISO8601Format(), observation.getValue(0));
+                    }
+                }
+            }
+            writer.flush();
+        }
+        catch (IOException e) {
+            throw new GeneratorException("Could not write CSV.", e);
+        }
+    }
+
+    static void writeRow(Writer writer, String rowPrefix, String time, Object value) throws IOException {
+        writer.write(rowPrefix);
+        writer.write(time);
+        writer.write(';');
+        writer.write(formatValue(value));
+        writer.write('\n');
+    }
+
+    /**
+     * @return the value as reported, but numbers which <code>toString()</code> renders in scientific
+     *         notation (e.g. <code>1.0E-4</code>) in plain notation.
+     */
+    static String formatValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String formatted = value.toString();
+        if (value instanceof Number && formatted.indexOf('E') >= 0) {
+            return new BigDecimal(formatted).stripTrailingZeros().toPlainString();
+        }
+        return formatted;
+    }
+
+    /**
+     * @return the station and phenomenon columns which are the same for all rows of a timeseries.
+     */
+    private String createRowPrefix(TimeseriesProperties prop) {
+        TimeseriesParametersLookup lookup = getParameterLookup(prop.getServiceUrl());
+        StringBuilder sb = new StringBuilder();
+        sb.append(lookup.getFeature(prop.getFeature()).getLabel()).append(";");
+        sb.append(lookup.getPhenomenon(prop.getPhenomenon()).getLabel());
+        sb.append(" (").append(prop.getUnitOfMeasure()).append(");");
+        return sb.toString();
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "csv";
+    }
+}
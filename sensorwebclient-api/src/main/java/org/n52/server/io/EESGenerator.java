@@ -32,11 +32,11 @@ import static org.n52.server.mgmt.ConfigurationContext.TOOLTIP_MIN_COUNT;
 
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -51,7 +51,10 @@ import org.jfree.chart.entity.XYItemEntity;
 import org.n52.oxf.OXFException;
 import org.n52.oxf.feature.OXFFeatureCollection;
 import org.n52.server.da.AccessException;
+import org.n52.server.io.render.ChartImageStore;
 import org.n52.server.io.render.DiagramRenderer;
+import org.n52.server.io.render.RenderedChart;
+import org.n52.server.io.render.RenderedChartCache;
 import org.n52.server.mgmt.ConfigurationContext;
 import org.n52.shared.responses.EESDataResponse;
 import org.n52.shared.responses.RepresentationResponse;
@@ -81,35 +84,68 @@ public class EESGenerator extends Generator {
 
     @Override
     public RepresentationResponse producePresentation(DesignOptions options) throws GeneratorException {
-        ChartRenderingInfo renderingInfo = new ChartRenderingInfo(new StandardEntityCollection());
-        String chartUrl = createChart(options, renderingInfo);
-        
-        Rectangle2D plotArea = renderingInfo.getPlotInfo().getDataArea();
-        for (Axis axis : renderer.getAxisMapping().values()) {
-            axis.setMaxY(plotArea.getMaxY());
-            axis.setMinY(plotArea.getMinY());
-        }
-
-        ImageEntity[] entities = {};
+        RenderedChart chart = renderChart(options);
+        String chartUrl = createChartUrl(chart);
         if (!this.isOverview) {
             LOGGER.debug("Produced EES diagram " + chartUrl);
-            entities = createImageEntities(renderingInfo.getEntityCollection());
         } else {
             LOGGER.debug("Produced EES Overview diagram " + chartUrl);
         }
+        return new EESDataResponse(chartUrl, options, chart.getPlotArea(), chart.getImageEntities(), chart.getAxisMapping());
+    }
+
+    public String createChart(DesignOptions options) throws GeneratorException {
+        return createChartUrl(renderChart(options));
+    }
 
-        Bounds chartArea = new Bounds(plotArea.getMinX(), plotArea.getMaxX(), plotArea.getMinY(), plotArea.getMaxY());
-        return new EESDataResponse(chartUrl, options, chartArea, entities, renderer.getAxisMapping());
+    /**
+     * Renders the chart for the given options or takes it from the {@link RenderedChartCache} if it has been
+     * rendered for equivalent options before. In the latter case axes and data availability are set to the
+     * options as if the chart had been rendered.
+     * 
+     * @param options
+     *        the options to render the chart with.
+     * @return the rendered chart.
+     * @throws GeneratorException
+     *         if requesting data or rendering fails.
+     */
+    public RenderedChart renderChart(DesignOptions options) throws GeneratorException {
+        RenderedChartCache cache = RenderedChartCache.getInstance();
+        String key = cache.createKey(options, isOverview);
+        RenderedChart chart = cache.get(key);
+        if (chart != null) {
+            LOGGER.debug("Take cached chart for {}", options);
+            chart.applyTo(options);
+            return chart;
+        }
+        chart = renderChartImage(options);
+        cache.put(key, options, chart);
+        return chart;
     }
 
-    public String createChart(DesignOptions options, ChartRenderingInfo renderingInfo) throws GeneratorException {
+    private RenderedChart renderChartImage(DesignOptions options) throws GeneratorException {
         try {
-            Map<String, OXFFeatureCollection> entireCollMap = getFeatureCollectionFor(options, true);
+            Map<RequestConfig, AccessException> failures = new HashMap<RequestConfig, AccessException>();
+            Map<String, OXFFeatureCollection> entireCollMap = getFeatureCollectionFor(options, true, failures);
             JFreeChart chart = producePresentation(entireCollMap, options);
             chart.removeLegend();
-            
-            String chartFileName = createAndSaveImage(options, chart, renderingInfo);
-            return ConfigurationContext.IMAGE_SERVICE + chartFileName;
+
+            ChartRenderingInfo renderingInfo = new ChartRenderingInfo(new StandardEntityCollection());
+            byte[] image = ChartUtilities.encodeAsPNG(renderImage(options, chart, renderingInfo));
+
+            Rectangle2D plotArea = renderingInfo.getPlotInfo().getDataArea();
+            for (Axis axis : renderer.getAxisMapping().values()) {
+                axis.setMaxY(plotArea.getMaxY());
+                axis.setMinY(plotArea.getMinY());
+            }
+
+            ImageEntity[] entities = {};
+            if (!this.isOverview) {
+                entities = createImageEntities(renderingInfo.getEntityCollection());
+            }
+
+            Bounds chartArea = new Bounds(plotArea.getMinX(), plotArea.getMaxX(), plotArea.getMinY(), plotArea.getMaxY());
+            return new RenderedChart(image, entities, chartArea, renderer.getAxisMapping(), options, failures.isEmpty());
         } catch (AccessException e) {
             throw new GeneratorException("Error requesting data.", e);
         } catch (IOException e) {
@@ -117,19 +153,18 @@ public class EESGenerator extends Generator {
         }
     }
 
-	public void createChartToOutputStream(DesignOptions options,
-			ChartRenderingInfo renderingInfo, OutputStream outputStream) {
-		try {
-            Map<String, OXFFeatureCollection> entireCollMap = getFeatureCollectionFor(options, true);
-            JFreeChart chart = producePresentation(entireCollMap, options);
-            chart.removeLegend();
-            int width = options.getWidth();
-            int height = options.getHeight();
-            ChartUtilities.writeChartAsPNG(outputStream, chart, width, height, renderingInfo);
-        } catch (Exception e) {
-            LOGGER.warn("Error while rendering chart.", e);
+    /**
+     * Stores the chart image under a file name of its own for each request, so that the URL handed out stays
+     * valid for the whole keeping time even if the chart is taken from the {@link RenderedChartCache}.
+     */
+    private String createChartUrl(RenderedChart chart) throws GeneratorException {
+        String chartFileName = ChartImageStore.getInstance().put(chart.getImage());
+        if (chartFileName == null) {
+            throw new GeneratorException("Chart image of " + chart.getImage().length
+                    + " bytes exceeds the chart image store size.");
         }
-	}
+        return ConfigurationContext.IMAGE_SERVICE + chartFileName;
+    }
 
 	/**
 	 * Creates the image entities.
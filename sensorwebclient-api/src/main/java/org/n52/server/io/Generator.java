@@ -30,14 +30,10 @@ package org.n52.server.io;
 import static org.n52.server.mgmt.ConfigurationContext.getSOSMetadata;
 import static org.n52.server.util.TimeUtil.createIso8601Formatter;
 
-import java.awt.Color;
-import java.awt.Graphics2D;
-import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -47,7 +43,6 @@ import javax.xml.bind.PropertyException;
 
 import org.jfree.chart.ChartRenderingInfo;
 import org.jfree.chart.JFreeChart;
-import org.jfree.chart.servlet.ServletUtilities;
 import org.n52.oxf.OXFRuntimeException;
 import org.n52.oxf.feature.OXFFeatureCollection;
 import org.n52.oxf.feature.sos.ObservationSeriesCollection;
@@ -70,7 +65,12 @@ public abstract class Generator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Generator.class);
 
-    private SimpleDateFormat dateFormat = createIso8601Formatter();
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return createIso8601Formatter();
+        }
+    };
 
     protected String folderPostfix;
 
@@ -108,6 +108,25 @@ public abstract class Generator {
      * @throws AccessException 
      */
     protected Map<String, OXFFeatureCollection> getFeatureCollectionFor(DesignOptions options, boolean generalize) throws AccessException {
+        return getFeatureCollectionFor(options, generalize, new HashMap<RequestConfig, AccessException>());
+    }
+
+    /**
+     * Like {@link #getFeatureCollectionFor(DesignOptions, boolean)} but collects the requests which failed.
+     * 
+     * @param options
+     *        the options
+     * @param generalize
+     *        if generalization shall be applied
+     * @param failures
+     *        collects the failed requests along with their cause.
+     * @return the map
+     * @throws AccessException
+     *         if no request could be performed at all.
+     */
+    protected Map<String, OXFFeatureCollection> getFeatureCollectionFor(DesignOptions options,
+                                                                        boolean generalize,
+                                                                        Map<RequestConfig, AccessException> failures) throws AccessException {
         ITime time = null;
         if (options.getTimeParam() == null) {
             time = getTimeFrom(options);
@@ -135,8 +154,9 @@ public abstract class Generator {
                 }
             }
         }
-        Map<String, OXFFeatureCollection> collectionResult = sendRequest(options, time);
+        Map<String, OXFFeatureCollection> collectionResult = sendRequest(options, time, failures);
         updateTimeSeriesPropertiesForHavingData(options, collectionResult);
+        updateTimeSeriesPropertiesForFailures(options, failures.keySet());
         return collectionResult;
     }
 
@@ -145,6 +165,10 @@ public abstract class Generator {
         for (TimeseriesProperties prop : options.getProperties()) {
 
             OXFFeatureCollection obsColl = entireCollMap.get(prop.getOffering() + "@" + prop.getServiceUrl());
+            if (obsColl == null) {
+                prop.setHasData(false);
+                continue;
+            }
 
             String foiID = prop.getFeature();
             String obsPropID = prop.getPhenomenon();
@@ -165,66 +189,66 @@ public abstract class Generator {
         }
     }
 
+    /**
+     * Timeseries of failed requests are reported as having no data, even if other requests for the same
+     * offering delivered observations.
+     */
+    private void updateTimeSeriesPropertiesForFailures(DesignOptions options, Collection<RequestConfig> failedRequests) {
+        for (RequestConfig failedRequest : failedRequests) {
+            for (TimeseriesProperties property : options.getProperties()) {
+                if (RequestPlanner.isRequestedBy(failedRequest, property)) {
+                    LOGGER.warn("No observations available for timeseries '{}'.", property.getTimeseriesId());
+                    property.setHasData(false);
+                }
+            }
+        }
+    }
+
     protected String formatDate(Date date) {
-        return dateFormat.format(date);
+        return DATE_FORMAT.get().format(date);
     }
 
     public String getFolderPostfix() {
         return this.folderPostfix;
     }
 
-    protected String createAndSaveImage(DesignOptions options, JFreeChart chart, ChartRenderingInfo renderingInfo) throws GeneratorException {
-        int width = options.getWidth();
-        int height = options.getHeight();
-        BufferedImage image = chart.createBufferedImage(width, height, renderingInfo);
-        Graphics2D chartGraphics = image.createGraphics();
-        chartGraphics.setColor(Color.white);
-        chartGraphics.fillRect(0, 0, width, height);
-        chart.draw(chartGraphics, new Rectangle2D.Float(0, 0, width, height));
-
-        try {
-            return ServletUtilities.saveChartAsPNG(chart, width, height, renderingInfo, null);
-        }
-        catch (IOException e) {
-            throw new GeneratorException("Could not save PNG!", e);
-        }
+    /**
+     * Renders the chart once. The given rendering info is filled within the same rendering pass.
+     * 
+     * @param options
+     *        the options defining the image size.
+     * @param chart
+     *        the chart to render.
+     * @param renderingInfo
+     *        collects the chart's entities and plot area while rendering.
+     * @return the rendered image.
+     */
+    protected BufferedImage renderImage(DesignOptions options, JFreeChart chart, ChartRenderingInfo renderingInfo) {
+        return chart.createBufferedImage(options.getWidth(), options.getHeight(), renderingInfo);
     }
 
-    private Map<String, OXFFeatureCollection> sendRequest(DesignOptions options, ITime time) throws AccessException {
+    private Map<String, OXFFeatureCollection> sendRequest(DesignOptions options,
+                                                          ITime time,
+                                                          Map<RequestConfig, AccessException> failures) throws AccessException {
         try {
             List<RequestConfig> requests = createRequestList(options, time);
-            return new ObservationAccessor().sendRequests(requests);
+            return new ObservationAccessor().sendRequests(requests, failures);
         } catch (OXFRuntimeException e) {
             throw new AccessException("Error during GetObservation request.", e);
         }
     }
 
     private List<RequestConfig> createRequestList(DesignOptions options, ITime time) {
-        List<RequestConfig> requests = new ArrayList<RequestConfig>();
-        for (TimeseriesProperties property : options.getProperties()) {
-            List<String> fois = new ArrayList<String>();
-            List<String> procedures = new ArrayList<String>();
-            List<String> observedProperties = new ArrayList<String>();
-
-            // extract request parameters from offering
-            observedProperties.add(property.getPhenomenon());
-            procedures.add(property.getProcedure());
-            fois.add(property.getFeature());
-
-            String sosUrl = property.getServiceUrl();
-            String offeringId = property.getOffering();
-            
-            ITime resultTime = getResultTimeFrom(options); 
-            requests.add(new RequestConfig(sosUrl, offeringId, fois, observedProperties, procedures, time, resultTime));
-        }
-        return requests;
+        ITime resultTime = getResultTimeFrom(options);
+        RequestPlanner planner = new RequestPlanner(time, resultTime);
+        return planner.createRequests(options.getProperties());
     }
     
     protected ITime getResultTimeFrom(DesignOptions options) {
         if (options.getResultTime() != null) {
             Calendar resTime = Calendar.getInstance();
             resTime.setTimeInMillis(options.getResultTime());
-            String resultTime = dateFormat.format(resTime.getTime());
+            String resultTime = DATE_FORMAT.get().format(resTime.getTime());
             return TimeFactory.createTime(resultTime);
         }
         return null;
@@ -240,8 +264,8 @@ public abstract class Generator {
         beginPos.setTimeInMillis(options.getBegin());
         Calendar endPos = Calendar.getInstance();
         endPos.setTimeInMillis(options.getEnd());
-        String begin = dateFormat.format(beginPos.getTime());
-        String end = dateFormat.format(endPos.getTime());
+        String begin = DATE_FORMAT.get().format(beginPos.getTime());
+        String end = DATE_FORMAT.get().format(endPos.getTime());
         return TimeFactory.createTime(begin + "/" + end);
     }
 
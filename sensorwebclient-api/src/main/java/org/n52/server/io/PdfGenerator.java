@@ -28,24 +28,20 @@
 package org.n52.server.io;
 
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Date;
 import java.util.Map;
 
 import javax.xml.namespace.QName;
-import javax.xml.transform.Result;
 import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.stream.StreamSource;
 
-import org.apache.fop.apps.Fop;
-import org.apache.fop.apps.FopFactory;
-import org.apache.fop.apps.MimeConstants;
 import org.apache.xmlbeans.XmlCursor;
 import org.apache.xmlbeans.XmlObject;
 import org.apache.xmlbeans.XmlOptions;
@@ -54,24 +50,19 @@ import org.n52.oxf.DocumentStructureType;
 import org.n52.oxf.DocumentStructureType.TimeSeries;
 import org.n52.oxf.MetadataType;
 import org.n52.oxf.MetadataType.GenericMetadataPair;
-import org.n52.oxf.OXFException;
 import org.n52.oxf.TableType;
 import org.n52.oxf.TableType.Entry;
-import org.n52.oxf.adapter.OperationResult;
-import org.n52.oxf.adapter.ParameterContainer;
 import org.n52.oxf.feature.OXFAbstractObservationType;
 import org.n52.oxf.feature.OXFFeature;
 import org.n52.oxf.feature.OXFFeatureCollection;
 import org.n52.oxf.feature.sos.ObservationSeriesCollection;
 import org.n52.oxf.feature.sos.ObservedValueTuple;
-import org.n52.oxf.ows.capabilities.Operation;
-import org.n52.oxf.sos.adapter.ISOSRequestBuilder;
-import org.n52.oxf.sos.adapter.SOSAdapter;
-import org.n52.oxf.sos.util.SosUtil;
 import org.n52.oxf.util.JavaHelper;
 import org.n52.oxf.valueDomains.time.ITimePosition;
+import org.n52.server.da.oxf.SensorDescriptionCache;
+import org.n52.server.io.render.ImageUriResolver;
+import org.n52.server.io.render.PdfRenderingEngine;
 import org.n52.server.mgmt.ConfigurationContext;
-import org.n52.server.util.SosAdapterFactory;
 import org.n52.shared.responses.FileResponse;
 import org.n52.shared.responses.RepresentationResponse;
 import org.n52.shared.serializable.pojos.DesignOptions;
@@ -81,18 +72,14 @@ import org.n52.shared.serializable.pojos.sos.TimeseriesParametersLookup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class PdfGenerator extends Generator {
+public class PdfGenerator extends Generator implements FileGenerator {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(PdfGenerator.class);
 
     private static String ENCODING = "UTF-8";
 
-    private String pdfURL;
-
     private boolean zip;
 
-    private File pdfFile;
-
 
     public PdfGenerator(boolean zip, String folder) {
         super();
@@ -151,24 +138,7 @@ public class PdfGenerator extends Generator {
     private MetadataType buildUpMetadata(String sosURL, String procedureID) throws Exception {
 
         SOSMetadata metadata = ConfigurationContext.getSOSMetadata(sosURL);
-        String sosVersion = metadata.getSosVersion();
-        String smlVersion = metadata.getSensorMLVersion();
-        ParameterContainer paramCon = new ParameterContainer();
-        paramCon.addParameterShell(ISOSRequestBuilder.DESCRIBE_SENSOR_SERVICE_PARAMETER, "SOS");
-        paramCon.addParameterShell(ISOSRequestBuilder.DESCRIBE_SENSOR_VERSION_PARAMETER, sosVersion);
-        paramCon.addParameterShell(ISOSRequestBuilder.DESCRIBE_SENSOR_PROCEDURE_PARAMETER, procedureID);
-        if (SosUtil.isVersion100(sosVersion)) {
-            paramCon.addParameterShell(ISOSRequestBuilder.DESCRIBE_SENSOR_OUTPUT_FORMAT, smlVersion);
-        } else if (SosUtil.isVersion200(sosVersion)) {
-            paramCon.addParameterShell(ISOSRequestBuilder.DESCRIBE_SENSOR_PROCEDURE_DESCRIPTION_FORMAT, smlVersion);
-        } else {
-            throw new IllegalStateException("SOS Version (" + sosVersion + ") is not supported!");
-        }
-
-        Operation descSensorOperation = new Operation(SOSAdapter.DESCRIBE_SENSOR, sosURL, sosURL);
-        SOSAdapter adapter = SosAdapterFactory.createSosAdapter(metadata);
-		
-        OperationResult opResult = adapter.doOperation(descSensorOperation, paramCon);
+        byte[] sensorML = SensorDescriptionCache.getInstance().getSensorML(procedureID, metadata);
 
         // parse resulting SensorML doc and store information in the
         // MetadataType object:
@@ -176,7 +146,7 @@ public class PdfGenerator extends Generator {
         xmlOpts.setCharacterEncoding(ENCODING);
 
         XmlObject xmlObject =
-                XmlObject.Factory.parse(opResult.getIncomingResultAsStream(), xmlOpts);
+                XmlObject.Factory.parse(new ByteArrayInputStream(sensorML), xmlOpts);
         MetadataType metadataType = MetadataType.Factory.newInstance();
 
         String namespaceDecl = "declare namespace sml='http://www.opengis.net/sensorML/1.0'; "; //$NON-NLS-1$
@@ -316,6 +286,52 @@ public class PdfGenerator extends Generator {
 
     @Override
     public RepresentationResponse producePresentation(DesignOptions options) throws GeneratorException {
+        File pdfFile;
+        String pdfURL;
+        if (this.zip) {
+            TimeseriesProperties pc = options.getProperties().get(0);
+            pdfFile =
+                JavaHelper.genRndFile(ConfigurationContext.GEN_DIR+"/"+folderPostfix, pc.getProcedure().replaceAll("/", "_")+"_"+formatDate(new Date(options.getBegin()))+
+                        "_"+formatDate(new Date(options.getEnd()))+"_", "pdf");
+            pdfURL = ConfigurationContext.GEN_URL + pdfFile.getName();
+        } else {
+            if (options.getProperties().size()>1) {
+                pdfFile =
+                    JavaHelper.genRndFile(ConfigurationContext.GEN_DIR+"/"+folderPostfix, "Cumulated_PDF_", "pdf");
+                pdfURL = ConfigurationContext.GEN_URL+folderPostfix +"/"+ pdfFile.getName();
+            } else {
+                TimeseriesProperties pc = options.getProperties().get(0);
+                pdfFile =
+                    JavaHelper.genRndFile(ConfigurationContext.GEN_DIR+"/"+folderPostfix, pc.getProcedure().replaceAll("/", "_")
+                    		+formatDate(new Date(options.getBegin()))+
+                            "_"+formatDate(new Date(options.getEnd()))+"_", "pdf");
+                pdfURL = ConfigurationContext.GEN_URL +folderPostfix +"/"+ pdfFile.getName();
+            }
+           
+        }
+
+        OutputStream outStream;
+        try {
+            outStream = new BufferedOutputStream(new FileOutputStream(pdfFile));
+        } catch (IOException e) {
+            throw new GeneratorException("Error creating PDF", e);
+        }
+        try {
+            write(options, outStream);
+            LOGGER.debug("PDF url: " + pdfURL);
+        } finally {
+            try {
+                outStream.close();
+            } catch (IOException e) {
+                LOGGER.error("Could not close PDF file.", e);
+            }
+            JavaHelper.cleanUpDir(ConfigurationContext.GEN_DIR, ConfigurationContext.FILE_KEEPING_TIME);
+        }
+        return new FileResponse(pdfURL);
+    }
+
+    @Override
+    public void write(DesignOptions options, OutputStream outStream) throws GeneratorException {
         try {
 
             Map<String, OXFFeatureCollection> observationCollMap = getFeatureCollectionFor(options, false);
@@ -329,118 +345,37 @@ public class PdfGenerator extends Generator {
             options.setHeight(700);
             options.setWidth(1000);
 
-            // produce chart image:
-            File imageFile =
-                    JavaHelper.genRndFile(ConfigurationContext.GEN_DIR, "chartImage_",
-                            DiagramGenerator.FORMAT);
-            File legendFile =
-                JavaHelper.genRndFile(ConfigurationContext.GEN_DIR, "legendImage_",
-                        DiagramGenerator.FORMAT);
-            FileOutputStream imageOut = new FileOutputStream(imageFile);
-            FileOutputStream legendOut = new FileOutputStream(legendFile);
+            // produce chart image and legend:
+            ByteArrayOutputStream imageOut = new ByteArrayOutputStream();
+            ByteArrayOutputStream legendOut = new ByteArrayOutputStream();
             try {
-                
                 diagramGen.producePresentation(observationCollMap, options, imageOut, false);
-                LOGGER.debug("imageFile: " + imageFile);
-    
-               
                 diagramGen.createLegend(options, legendOut);
-                LOGGER.debug("legendFile: " + legendFile);
-
             } catch (Exception e) {
                throw new Exception("Error producing legend.", e);
-                
-            } finally {
-                imageOut.flush();
-                imageOut.close();
-                legendOut.flush();
-                legendOut.close();
             }
-            // set chart image and legend URL in document:
-            // String imageURL = genURL + "/" + imageFile.getName();
-            String imageURL = imageFile.getAbsolutePath();
-            docStructureDoc.getDocumentStructure().setDiagramURL(imageURL);
 
-            // String legendURL = genURL + "/" + legendFile.getName();
-            String legendURL = legendFile.getAbsolutePath();
+            // reference chart image and legend from document:
+            ImageUriResolver imageResolver = new ImageUriResolver();
+            String imageURL = imageResolver.addImage("chart." + DiagramGenerator.FORMAT, imageOut.toByteArray());
+            docStructureDoc.getDocumentStructure().setDiagramURL(imageURL);
+            String legendURL = imageResolver.addImage("legend." + DiagramGenerator.FORMAT, legendOut.toByteArray());
             docStructureDoc.getDocumentStructure().setLegendURL(legendURL);
 
-            // store the docStructureDocument as an XML file in the
-            // cocoonXslDir:
-            File docStructureFile =
-                    JavaHelper.genRndFile(ConfigurationContext.GEN_DIR, "pdfDoc_", "xml");
-
-            docStructureDoc.save(docStructureFile);
-
-            File xsltFile;
-
-            if (options.getLanguage().equalsIgnoreCase("de")) {
-                xsltFile = new File(ConfigurationContext.XSL_DIR + "/Document_2_PDF_de.xslt");
-            } else if (options.getLanguage().equalsIgnoreCase("nl")) {
-                xsltFile = new File(ConfigurationContext.XSL_DIR + "/Document_2_PDF_nl.xslt");
-            } else {
-                xsltFile = new File(ConfigurationContext.XSL_DIR + "/Document_2_PDF_en.xslt");
-            }
-
-            if (this.zip) {
-                TimeseriesProperties pc = options.getProperties().get(0);
-                this.pdfFile =
-                    JavaHelper.genRndFile(ConfigurationContext.GEN_DIR+"/"+folderPostfix, pc.getProcedure().replaceAll("/", "_")+"_"+formatDate(new Date(options.getBegin()))+
-                            "_"+formatDate(new Date(options.getEnd()))+"_", "pdf");
-                this.pdfURL = ConfigurationContext.GEN_URL + this.pdfFile.getName();
-            } else {
-                if (options.getProperties().size()>1) {
-                    this.pdfFile =
-                        JavaHelper.genRndFile(ConfigurationContext.GEN_DIR+"/"+folderPostfix, "Cumulated_PDF_", "pdf");
-                    this.pdfURL = ConfigurationContext.GEN_URL+folderPostfix +"/"+ this.pdfFile.getName();
-                } else {
-                    TimeseriesProperties pc = options.getProperties().get(0);
-                    this.pdfFile =
-                        JavaHelper.genRndFile(ConfigurationContext.GEN_DIR+"/"+folderPostfix, pc.getProcedure().replaceAll("/", "_")
-                        		+formatDate(new Date(options.getBegin()))+
-                                "_"+formatDate(new Date(options.getEnd()))+"_", "pdf");
-                    this.pdfURL = ConfigurationContext.GEN_URL +folderPostfix +"/"+ this.pdfFile.getName();
-                }
-               
-            }
-
             LOGGER.debug("Transforming content to PDF.");
-
-            OutputStream outStream = new java.io.FileOutputStream(this.pdfFile);
-            outStream = new java.io.BufferedOutputStream(outStream);
-
-            try {
-
-                // new instance of FopFactory
-                FopFactory fopFactory = FopFactory.newInstance();
-
-                // creating a Fop with the needed output format
-                Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, outStream);
-
-                // TransformerFactory for the transformation with .xslt input
-                TransformerFactory transFact = TransformerFactory.newInstance();
-                Transformer transformer = transFact.newTransformer(new StreamSource(xsltFile));
-
-                // sourcefile
-                Source source = new StreamSource(docStructureFile);
-
-                // the created FO as a SAX event
-                Result result = new SAXResult(fop.getDefaultHandler());
-
-                // begin transformation
-                transformer.transform(source, result);
-                LOGGER.debug("PDF url: " + this.pdfURL);
-                LOGGER.info("PDF File created.");
-            } catch (TransformerException e) {
-                throw new OXFException("Error transforming xml", e);
-            } finally {
-                outStream.flush();
-                outStream.close();
-                JavaHelper.cleanUpDir(ConfigurationContext.GEN_DIR, ConfigurationContext.FILE_KEEPING_TIME);
-            }
+            Source source = new StreamSource(docStructureDoc.newInputStream());
+            PdfRenderingEngine.getInstance().render(source, options.getLanguage(), imageResolver, outStream);
+            outStream.flush();
+            LOGGER.info("PDF File created.");
+        } catch (GeneratorException e) {
+            throw e;
         } catch (Exception e) {
             throw new GeneratorException("Error creating PDF", e);
         }
-        return new FileResponse(this.pdfURL);
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getFileExtension() {
+        return "pdf";
+    }
+}
@@ -99,6 +99,17 @@ public class RequestConfig {
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 31 * hash + (sosURL != null ? sosURL.hashCode() : 0);
+        hash = 31 * hash + (offeringID != null ? offeringID.hashCode() : 0);
+        hash = 31 * hash + (stations != null ? stations.hashCode() : 0);
+        hash = 31 * hash + (phenomenons != null ? phenomenons.hashCode() : 0);
+        hash = 31 * hash + (procedures != null ? procedures.hashCode() : 0);
+        return hash;
+    }
+
     public String getOfferingID() {
         return this.offeringID;
     }
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io;
+
+import static org.n52.server.mgmt.ConfigurationContext.getSOSMetadata;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.n52.oxf.ows.capabilities.ITime;
+import org.n52.shared.serializable.pojos.TimeseriesProperties;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+
+/**
+ * Plans the GetObservation requests needed to retrieve data for a set of timeseries. Timeseries sharing
+ * the same SOS and offering are coalesced into one {@link RequestConfig} whose feature, procedure and
+ * phenomenon sets are the union of the parameters of all coalesced timeseries. The number of timeseries
+ * per request is limited by the service's configured {@link SOSMetadata#getRequestChunk() request chunk}.<br>
+ * <br>
+ * As a coalesced request may return more observations than requested (the SOS combines all parameter
+ * values), consumers have to demultiplex the response per timeseries by filtering feature, procedure and
+ * phenomenon, e.g. via {@link #isRequestedBy(RequestConfig, TimeseriesProperties)}.
+ */
+public class RequestPlanner {
+
+    private final ITime time;
+
+    private final ITime resultTime;
+
+    public RequestPlanner(ITime time, ITime resultTime) {
+        this.time = time;
+        this.resultTime = resultTime;
+    }
+
+    public List<RequestConfig> createRequests(List<TimeseriesProperties> properties) {
+        List<RequestConfig> requests = new ArrayList<RequestConfig>();
+        Map<String, List<TimeseriesProperties>> groups = groupByOffering(properties);
+        for (List<TimeseriesProperties> group : groups.values()) {
+            String sosUrl = group.get(0).getServiceUrl();
+            int chunkSize = getChunkSize(sosUrl);
+            for (int from = 0; from < group.size(); from += chunkSize) {
+                int to = Math.min(group.size(), from + chunkSize);
+                requests.add(createRequest(group.subList(from, to)));
+            }
+        }
+        return requests;
+    }
+
+    private Map<String, List<TimeseriesProperties>> groupByOffering(List<TimeseriesProperties> properties) {
+        Map<String, List<TimeseriesProperties>> groups = new LinkedHashMap<String, List<TimeseriesProperties>>();
+        for (TimeseriesProperties property : properties) {
+            String key = property.getOffering() + "@" + property.getServiceUrl();
+            if ( !groups.containsKey(key)) {
+                groups.put(key, new ArrayList<TimeseriesProperties>());
+            }
+            groups.get(key).add(property);
+        }
+        return groups;
+    }
+
+    private int getChunkSize(String sosUrl) {
+        int requestChunk = getSOSMetadata(sosUrl).getRequestChunk();
+        return requestChunk > 0 ? requestChunk : 1;
+    }
+
+    private RequestConfig createRequest(List<TimeseriesProperties> properties) {
+        Set<String> fois = new LinkedHashSet<String>();
+        Set<String> procedures = new LinkedHashSet<String>();
+        Set<String> observedProperties = new LinkedHashSet<String>();
+        for (TimeseriesProperties property : properties) {
+            fois.add(property.getFeature());
+            procedures.add(property.getProcedure());
+            observedProperties.add(property.getPhenomenon());
+        }
+        TimeseriesProperties first = properties.get(0);
+        return new RequestConfig(first.getServiceUrl(),
+                                 first.getOffering(),
+                                 new ArrayList<String>(fois),
+                                 new ArrayList<String>(observedProperties),
+                                 new ArrayList<String>(procedures),
+                                 time,
+                                 resultTime);
+    }
+
+    /**
+     * @param request
+     *        a (probably coalesced) request.
+     * @param property
+     *        the timeseries to check.
+     * @return <code>true</code> if the observations of the given timeseries are retrieved by the given
+     *         request.
+     */
+    public static boolean isRequestedBy(RequestConfig request, TimeseriesProperties property) {
+        return request.getSosURL().equals(property.getServiceUrl())
+                && request.getOfferingID().equals(property.getOffering())
+                && request.getStationsSet().contains(property.getFeature())
+                && request.getProcedureSet().contains(property.getProcedure())
+                && request.getPhenomenonsSet().contains(property.getPhenomenon());
+    }
+
+}
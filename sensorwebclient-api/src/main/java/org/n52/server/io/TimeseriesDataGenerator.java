@@ -32,8 +32,9 @@ package org.n52.server.io;
 import static org.n52.oxf.feature.OXFAbstractObservationType.FEATURE_OF_INTEREST;
 import static org.n52.oxf.feature.OXFAbstractObservationType.OBSERVED_PROPERTY;
 import static org.n52.oxf.feature.OXFAbstractObservationType.PROCEDURE;
+import static org.n52.server.io.downsampling.DownsamplingAlgorithm.fromName;
+import static org.n52.server.mgmt.ConfigurationContext.DOWNSAMPLING_ALGORITHM;
 
-import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -45,10 +46,14 @@ import org.n52.oxf.feature.OXFFeatureCollection;
 import org.n52.oxf.feature.dataTypes.OXFPhenomenonPropertyType;
 import org.n52.oxf.feature.sos.ObservationSeriesCollection;
 import org.n52.server.da.AccessException;
+import org.n52.server.da.ObservationCache;
+import org.n52.server.da.ObservationCache.CachedBucket;
+import org.n52.server.io.downsampling.DownsamplingAlgorithm;
 import org.n52.shared.responses.RepresentationResponse;
 import org.n52.shared.responses.TimeSeriesDataResponse;
 import org.n52.shared.serializable.pojos.DesignOptions;
 import org.n52.shared.serializable.pojos.TimeseriesProperties;
+import org.n52.shared.serializable.pojos.TimeseriesValues;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,17 +64,168 @@ public class TimeseriesDataGenerator extends Generator {
     @Override
     public RepresentationResponse producePresentation(DesignOptions options) throws GeneratorException {
         LOGGER.debug("Starting producing representation with " + options);
-        Map<String, OXFFeatureCollection> entireCollMap = new HashMap<String, OXFFeatureCollection>();
+        Map<String, TimeseriesValues> timeseries = getTimeseriesValues(options);
+        return new TimeSeriesDataResponse(downsample(timeseries, options));
+    }
+
+    /**
+     * @param options
+     *        the timeseries and timespan to get values for.
+     * @return the complete (not downsampled) values per timeseries id. Timeseries without data are mapped to
+     *         empty values.
+     * @throws GeneratorException
+     *         if requesting or decoding observations fails.
+     */
+    public Map<String, TimeseriesValues> getTimeseriesValues(DesignOptions options) throws GeneratorException {
+        ObservationCache cache = ObservationCache.getInstance();
+        return cache.isEnabled() && isCacheable(options)
+            ? getCachedTimeseries(options, cache)
+            : getTimeseries(options);
+    }
+
+    /**
+     * Downsamples the values to the requested width if a downsampling algorithm was requested explicitly.
+     */
+    private Map<String, TimeseriesValues> downsample(Map<String, TimeseriesValues> timeseries, DesignOptions options) {
+        if (options.getDownsampling() == null || options.getWidth() <= 0) {
+            return timeseries;
+        }
+        DownsamplingAlgorithm algorithm = fromName(options.getDownsampling(), DOWNSAMPLING_ALGORITHM);
+        for (Map.Entry<String, TimeseriesValues> entry : timeseries.entrySet()) {
+            entry.setValue(algorithm.downsample(entry.getValue(), options.getWidth()));
+        }
+        return timeseries;
+    }
+
+    private boolean isCacheable(DesignOptions options) {
+        return options.getTimeParam() == null && options.getResultTime() == null;
+    }
+
+    private Map<String, TimeseriesValues> getTimeseries(DesignOptions options) throws GeneratorException {
+        Map<String, OXFFeatureCollection> entireCollMap = fetchFeatureCollections(options);
+        Map<String, TimeseriesValues> allTimeSeries = decodeTimeseries(entireCollMap, options);
+
+        // check if some TS did not get data and fill blank spots
+        for (TimeseriesProperties prop : options.getProperties()) {
+            if (!allTimeSeries.containsKey(prop.getTimeseriesId())) {
+                allTimeSeries.put(prop.getTimeseriesId(), TimeseriesValues.empty());
+            }
+        }
+        return allTimeSeries;
+    }
+
+    /**
+     * Assembles the requested timeseries from cached time buckets. Missing buckets are fetched by one
+     * GetObservation request per offering covering all missing buckets.
+     */
+    private Map<String, TimeseriesValues> getCachedTimeseries(DesignOptions options, ObservationCache cache) throws GeneratorException {
+        List<Long> bucketStarts = cache.getBucketStarts(options.getBegin(), options.getEnd());
+        Map<String, Map<Long, CachedBucket>> availableBuckets = new HashMap<String, Map<Long, CachedBucket>>();
+        ArrayList<TimeseriesProperties> missingProperties = new ArrayList<TimeseriesProperties>();
+        long fetchBegin = Long.MAX_VALUE;
+        long fetchEnd = Long.MIN_VALUE;
+        for (TimeseriesProperties property : options.getProperties()) {
+            String timeseriesId = property.getTimeseriesId();
+            Map<Long, CachedBucket> timeseriesBuckets = new HashMap<Long, CachedBucket>();
+            availableBuckets.put(timeseriesId, timeseriesBuckets);
+            for (Long bucketStart : bucketStarts) {
+                CachedBucket bucket = cache.getBucket(timeseriesId, bucketStart);
+                if (bucket != null) {
+                    timeseriesBuckets.put(bucketStart, bucket);
+                } else {
+                    if ( !missingProperties.contains(property)) {
+                        missingProperties.add(property);
+                    }
+                    fetchBegin = Math.min(fetchBegin, bucketStart);
+                    fetchEnd = Math.max(fetchEnd, bucketStart + cache.getBucketSize() - 1);
+                }
+            }
+        }
+
+        if ( !missingProperties.isEmpty()) {
+            DesignOptions fetchOptions = new DesignOptions(missingProperties, fetchBegin, fetchEnd, options.getGrid());
+            Map<RequestConfig, AccessException> failures = new HashMap<RequestConfig, AccessException>();
+            // observations made while fetching may be missing in the response
+            long fetchedAt = System.currentTimeMillis();
+            Map<String, OXFFeatureCollection> entireCollMap = fetchFeatureCollections(fetchOptions, failures);
+            Map<String, TimeseriesValues> fetchedTimeseries = decodeTimeseries(entireCollMap, fetchOptions);
+            for (TimeseriesProperties property : missingProperties) {
+                String timeseriesId = property.getTimeseriesId();
+                boolean cacheable = !isRequestedByAny(failures.keySet(), property);
+                if ( !cacheable) {
+                    LOGGER.debug("Do not cache observations of timeseries '{}' as request failed.", timeseriesId);
+                }
+                TimeseriesValues fetchedData = fetchedTimeseries.get(timeseriesId);
+                Map<Long, CachedBucket> timeseriesBuckets = availableBuckets.get(timeseriesId);
+                for (CachedBucket bucket : createBuckets(cache, fetchBegin, fetchEnd, fetchedAt, fetchedData)) {
+                    timeseriesBuckets.put(bucket.getStart(), bucket);
+                    if (cacheable) {
+                        cache.putBucket(timeseriesId, bucket);
+                    }
+                }
+            }
+        }
+
+        Map<String, TimeseriesValues> allTimeSeries = new HashMap<String, TimeseriesValues>();
+        for (TimeseriesProperties property : options.getProperties()) {
+            String timeseriesId = property.getTimeseriesId();
+            Map<Long, CachedBucket> timeseriesBuckets = availableBuckets.get(timeseriesId);
+            TimeseriesValues.Builder data = new TimeseriesValues.Builder();
+            for (Long bucketStart : bucketStarts) {
+                CachedBucket bucket = timeseriesBuckets.get(bucketStart);
+                if (bucket != null) {
+                    TimeseriesValues bucketValues = new TimeseriesValues(bucket.getTimes(), bucket.getValues());
+                    data.addAll(bucketValues.subRange(options.getBegin(), options.getEnd()));
+                }
+            }
+            allTimeSeries.put(timeseriesId, data.build());
+        }
+        return allTimeSeries;
+    }
+
+    private boolean isRequestedByAny(Collection<RequestConfig> requests, TimeseriesProperties property) {
+        for (RequestConfig request : requests) {
+            if (RequestPlanner.isRequestedBy(request, property)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<CachedBucket> createBuckets(ObservationCache cache,
+                                             long fetchBegin,
+                                             long fetchEnd,
+                                             long fetchedAt,
+                                             TimeseriesValues fetchedData) {
+        List<CachedBucket> buckets = new ArrayList<CachedBucket>();
+        TimeseriesValues data = fetchedData == null ? TimeseriesValues.empty() : fetchedData;
+        for (Long bucketStart : cache.getBucketStarts(fetchBegin, fetchEnd)) {
+            long bucketEnd = bucketStart + cache.getBucketSize();
+            TimeseriesValues bucketValues = data.subRange(bucketStart, bucketEnd - 1);
+            buckets.add(cache.createBucket(bucketStart, fetchedAt, bucketValues.getTimes(), bucketValues.getValues()));
+        }
+        return buckets;
+    }
+
+    private Map<String, OXFFeatureCollection> fetchFeatureCollections(DesignOptions options) throws GeneratorException {
+        return fetchFeatureCollections(options, new HashMap<RequestConfig, AccessException>());
+    }
+
+    private Map<String, OXFFeatureCollection> fetchFeatureCollections(DesignOptions options,
+                                                                      Map<RequestConfig, AccessException> failures) throws GeneratorException {
         try {
-            entireCollMap = getFeatureCollectionFor(options, false);
+            return getFeatureCollectionFor(options, false, failures);
         } catch (AccessException e) {
             throw new GeneratorException("Error creating TimeSeriesDataResponse.", e);
         }
+    }
 
+    private Map<String, TimeseriesValues> decodeTimeseries(Map<String, OXFFeatureCollection> entireCollMap,
+                                                           DesignOptions options) throws GeneratorException {
         Collection<OXFFeatureCollection> observationCollList = entireCollMap.values();
 
 
-        HashMap<String, HashMap<Long, Double>> allTimeSeries = new HashMap<String, HashMap<Long, Double>>();
+        Map<String, TimeseriesValues> allTimeSeries = new HashMap<String, TimeseriesValues>();
 
         for (OXFFeatureCollection coll : observationCollList) {
 
@@ -115,7 +271,8 @@ public class TimeseriesDataGenerator extends Generator {
                         ObservationSeriesCollection txCollection =
                                 new ObservationSeriesCollection(coll,
                                         new String[] { foi },
-                                        new String[] { obsProp.getURN() }, false);
+                                        new String[] { obsProp.getURN() },
+                                        new String[] { procedure }, false);
 
                         TimeseriesProperties selectedProperties = null;
                         for (TimeseriesProperties property : options.getProperties()) {
@@ -126,15 +283,9 @@ public class TimeseriesDataGenerator extends Generator {
                                     && property.getPhenomenon().equals(obsProp.getURN())
                                     && property.getProcedure().equals(procedure)) {
                                 selectedProperties = property;
-                                String phenomenonId = selectedProperties.getPhenomenon();
-                                try {
-                                    TimeseriesFactory factory = new TimeseriesFactory(txCollection);
-                                    HashMap<Long, Double> data = factory.compressToHashMap(foi, phenomenonId, procedure);
-                                    allTimeSeries.put(selectedProperties.getTimeseriesId(), data);
-                                }
-                                catch (ParseException e) {
-                                    throw new GeneratorException("Could not parse data.", e);
-                                }
+                                TimeseriesFactory factory = new TimeseriesFactory(txCollection);
+                                TimeseriesValues data = factory.createTimeseriesValues(foi);
+                                allTimeSeries.put(selectedProperties.getTimeseriesId(), data);
                                 break;
                             } else {
                                 if (LOGGER.isDebugEnabled()) {
@@ -157,18 +308,7 @@ public class TimeseriesDataGenerator extends Generator {
             }
         }
 
-        // check if some TS did not get data and fill blank spots
-        for (TimeseriesProperties prop : options.getProperties()) {
-            if (!allTimeSeries.containsKey(prop.getTimeseriesId())) {
-                allTimeSeries.put(prop.getTimeseriesId(), new HashMap<Long, Double>());
-            }
-        }
-
-        return new TimeSeriesDataResponse(allTimeSeries);
-//            return new TimeSeriesDataResponse(new HashMap<String, HashMap<Long,Double>>());
-
-
-
+        return allTimeSeries;
     }
 
-}
+}
\ No newline at end of file
@@ -28,9 +28,12 @@
 package org.n52.server.io;
 
 import static java.lang.Double.parseDouble;
-import java.text.ParseException;
+import static org.n52.server.mgmt.ConfigurationContext.DOWNSAMPLING_ALGORITHM;
+import static org.n52.server.mgmt.ConfigurationContext.NO_DATA_VALUES;
+
 import java.util.HashMap;
 import java.util.TimeZone;
+
 import org.jfree.data.time.FixedMillisecond;
 import org.jfree.data.time.TimeSeries;
 import org.joda.time.DateTime;
@@ -38,13 +41,17 @@ import org.n52.oxf.feature.OXFFeature;
 import org.n52.oxf.feature.sos.ObservationSeriesCollection;
 import org.n52.oxf.feature.sos.ObservedValueTuple;
 import org.n52.oxf.valueDomains.time.ITimePosition;
-import org.n52.oxf.valueDomains.time.TimePosition;
-import static org.n52.server.mgmt.ConfigurationContext.FACADE_COMPRESSION;
-import static org.n52.server.mgmt.ConfigurationContext.NO_DATA_VALUES;
+import org.n52.server.io.downsampling.DownsamplingAlgorithm;
+import org.n52.shared.serializable.pojos.TimeseriesValues;
 import org.n52.shared.serializable.pojos.sos.SosTimeseries;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Creates chart and data representations of the observations held by an {@link ObservationSeriesCollection}.
+ * The collection's sorted time index is walked exactly once per timeseries; chart creation and downsampling
+ * operate on the resulting {@link TimeseriesValues} arrays.
+ */
 public class TimeseriesFactory {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TimeseriesFactory.class);
@@ -63,333 +70,122 @@ public class TimeseriesFactory {
     }
 
     public TimeSeries createTimeSeries(SosTimeseries timeseries, String seriesType) {
-        TimeSeries timeSeries = new TimeSeries(timeseries.getTimeseriesId());
-
-        ITimePosition timeArray[] = collection.getSortedTimeArray();
-        ObservedValueTuple prevObservation;
-        ObservedValueTuple nextObservation = collection.getTuple(new OXFFeature(timeseries.getFeatureId(), null), timeArray[0]);
-        ObservedValueTuple observation = nextObservation;
-
-        int counter = 0;
-        Double sum = 0.0;
-
-        // all obs
-        LOGGER.debug("Compressionlevel none");
-        for (int i = 0; i < timeArray.length; i++) {
-
-            prevObservation = observation;
-            observation = nextObservation;
-
-            if (i + 1 < timeArray.length) {
-                nextObservation = collection.getTuple(new OXFFeature(timeseries.getFeatureId(), null), timeArray[i + 1]);
-            }
-
-            // String obsVal = observation.getValue(0).toString();
-            // String prevObsVal = prevObservation.getValue(0).toString();
-            // String nextObsVal = nextObservation.getValue(0).toString();
-
-            // if ((i == 0) || // first observation --> in
-            // (i == timeArray.length - 1) || // last observation --> in
-            // (!(prevObsVal.equals(obsVal) && nextObsVal.equals(obsVal)))) {
-
-            counter++;
-
-            Double resultVal = getValidData(observation.getValue(0).toString());
-
-            if (seriesType.equals("1")) {
-                // nothing
-            } else if (seriesType.equals("2")) {
-                if (resultVal != null) {
-                    resultVal += sum;
-                } else {
-                    resultVal = sum;
-                }
-            } else {
-                // nothing
-            }
-
-            sum = resultVal;
+        TimeseriesValues values = createTimeseriesValues(timeseries.getFeatureId(), seriesType);
+        return createTimeSeries(timeseries.getTimeseriesId(), values);
+    }
 
-            ITimePosition timePos = (ITimePosition) observation.getTime();
-            DateTime time = DateTime.parse(timePos.toISO8601Format());
-            timeSeries.add(new FixedMillisecond(time.getMillis()), resultVal);
+    /**
+     * Creates a chart timeseries which is downsampled whenever it contains more values than can be drawn on
+     * the given width.
+     * 
+     * @param timeseries
+     *        the timeseries to create.
+     * @param force
+     *        if downsampling shall be applied even if {@link DownsamplingAlgorithm#NONE} was requested (the
+     *        configured default algorithm is used instead).
+     * @param seriesType
+     *        the series type, <code>"2"</code> creates a sum line.
+     * @param downsampling
+     *        the algorithm to downsample with.
+     * @param width
+     *        the width of the chart in pixels.
+     * @return the (downsampled) chart timeseries.
+     */
+    public TimeSeries compressToTimeSeries(SosTimeseries timeseries, boolean force, String seriesType,
+            DownsamplingAlgorithm downsampling, int width) {
+        TimeseriesValues values = createTimeseriesValues(timeseries.getFeatureId(), seriesType);
+        DownsamplingAlgorithm algorithm = selectDownsampling(downsampling, force);
+        if (algorithm.isDownsamplingRequired(values.size(), width)) {
+            int size = values.size();
+            values = algorithm.downsample(values, width);
+            LOGGER.debug("Downsampled observations from {} to {} ({})", new Object[] {size, values.size(), algorithm});
         }
-
-        // }
-
-        LOGGER.debug("Compressed observations from " + timeArray.length + " to " + counter);
-
-        return timeSeries;
-
+        return createTimeSeries(timeseries.getTimeseriesId(), values);
     }
 
-    public TimeSeries compressToTimeSeries(SosTimeseries timeseries, boolean force, String seriesType) {
-
-        TimeSeries timeSeries = new TimeSeries(timeseries.getTimeseriesId());
-
-        ITimePosition timeArray[] = collection.getSortedTimeArray();
-        ObservedValueTuple prevObservation;
-        ObservedValueTuple nextObservation = collection.getTuple(new OXFFeature(timeseries.getFeatureId(), null), timeArray[0]);
-        ObservedValueTuple observation = nextObservation;
-
-        int counter = 0;
-        Double sum = 0.0;
-
-        if (FACADE_COMPRESSION || (timeArray.length > 6000 && force)) {
-            // just %6
-            LOGGER.debug("Compressionlevel 6");
-            for (int i = 0; i < timeArray.length; i += 6) {
-
-                prevObservation = observation;
-                observation = nextObservation;
-
-                if (i + 1 < timeArray.length) {
-                    nextObservation = collection.getTuple(new OXFFeature(timeseries.getFeatureId(), null), timeArray[i + 1]);
-                }
-
-                String obsVal = observation.getValue(0).toString();
-                String prevObsVal = prevObservation.getValue(0).toString();
-                String nextObsVal = nextObservation.getValue(0).toString();
-
-                if ((i == 0) || // first observation --> in
-                        (i == timeArray.length - 1) || // last
-                        // observation
-                        // -->
-                        // in
-                        (!(prevObsVal.equals(obsVal)) || !(nextObsVal.equals(obsVal)))) {
-
-                    counter++;
-
-                    Double resultVal = getValidData(observation.getValue(0).toString());
-                    // line or sumline
-                    if (seriesType.equals("1")) {
-                        // nothing
-                    } else if (seriesType.equals("2")) {
-                        if (resultVal != null) {
-                            resultVal += sum;
-                        } else {
-                            resultVal = sum;
-                        }
-                    } else {
-                        // nothing
-                    }
-                    sum = resultVal;
-
-                    ITimePosition timePos = (ITimePosition) observation.getTime();
-                    DateTime time = DateTime.parse(timePos.toISO8601Format());
-            timeSeries.add(new FixedMillisecond(time.getMillis()), resultVal);
-                }
-
-            }
-
-        } else if (FACADE_COMPRESSION && timeArray.length > 4000) {
-            // just %4
-            LOGGER.debug("Compressionlevel 4");
-            for (int i = 0; i < timeArray.length; i += 4) {
-
-                prevObservation = observation;
-                observation = nextObservation;
-
-                if (i + 1 < timeArray.length) {
-                    nextObservation = collection.getTuple(new OXFFeature(timeseries.getFeatureId(), null), timeArray[i + 1]);
-                }
-
-                String obsVal = observation.getValue(0).toString();
-                String prevObsVal = prevObservation.getValue(0).toString();
-                String nextObsVal = nextObservation.getValue(0).toString();
-
-                if ((i == 0) || // first observation --> in
-                        (i == timeArray.length - 1) || // last
-                        // observation
-                        // -->
-                        // in
-                        (!(prevObsVal.equals(obsVal)) || !(nextObsVal.equals(obsVal)))) {
-
-                    counter++;
-
-                    Double resultVal = getValidData(observation.getValue(0).toString());
-
-                    // line or sumline
-                    if (seriesType.equals("1")) {
-                        // nothing
-                    } else if (seriesType.equals("2")) {
-                        if (resultVal != null) {
-                            resultVal += sum;
-                        } else {
-                            resultVal = sum;
-                        }
-                    } else {
-                        // nothing
-                    }
-                    sum = resultVal;
-
-                    ITimePosition timePos = (ITimePosition) observation.getTime();
-                    DateTime time = DateTime.parse(timePos.toISO8601Format());
-            timeSeries.add(new FixedMillisecond(time.getMillis()), resultVal);
-                }
-
-            }
-
-        } else if (FACADE_COMPRESSION && timeArray.length > 2000) {
-            // just %2
-            LOGGER.debug("Compressionlevel 2");
-            for (int i = 0; i < timeArray.length; i += 2) {
-
-                prevObservation = observation;
-                observation = nextObservation;
-
-                if (i + 1 < timeArray.length) {
-                    nextObservation = collection.getTuple(new OXFFeature(timeseries.getFeatureId(), null), timeArray[i + 1]);
-                }
-
-                String obsVal = observation.getValue(0).toString();
-                String prevObsVal = prevObservation.getValue(0).toString();
-                String nextObsVal = nextObservation.getValue(0).toString();
-
-                if ((i == 0) || // first observation --> in
-                        (i == timeArray.length - 1) || // last
-                        // observation
-                        // -->
-                        // in
-                        (!(prevObsVal.equals(obsVal)) || !(nextObsVal.equals(obsVal)))) {
-
-                    counter++;
-
-                    Double resultVal = getValidData(observation.getValue(0).toString());
-
-                    // line or sumline
-                    if (seriesType.equals("1")) {
-                        // nothing
-                    } else if (seriesType.equals("2")) {
-                        if (resultVal != null) {
-                            resultVal += sum;
-                        } else {
-                            resultVal = sum;
-                        }
-                    } else {
-                        // nothing
-                    }
-                    sum = resultVal;
-
-                    ITimePosition timePos = (ITimePosition) observation.getTime();
-                    DateTime time = DateTime.parse(timePos.toISO8601Format());
-            timeSeries.add(new FixedMillisecond(time.getMillis()), resultVal);
-                }
-            }
-
-        } else {
-            // all obs
-            LOGGER.debug("Compressionlevel none");
-            for (int i = 0; i < timeArray.length; i++) {
-
-                prevObservation = observation;
-                observation = nextObservation;
-
-                if (i + 1 < timeArray.length) {
-                    nextObservation = collection.getTuple(new OXFFeature(timeseries.getFeatureId(), null), timeArray[i + 1]);
-                }
-
-                String obsVal = observation.getValue(0).toString();
-
-                // if ((i == 0) || // first observation --> in
-                // (i == timeArray.length - 1) || // last observation --> in
-                // (!(prevObsVal.equals(obsVal) &&
-                // nextObsVal.equals(obsVal)))
-                // ) {
-
-                counter++;
-
-                Double resultVal = getValidData(observation.getValue(0).toString());
-
-                // line or sumline
-                if (seriesType.equals("1")) {
-                    // nothing
-                } else if (seriesType.equals("2")) {
-                    if (resultVal != null) {
-                        resultVal += sum;
-                    } else {
-                        resultVal = sum;
-                    }
-                } else {
-                    // nothing
-                }
-                sum = resultVal;
+    static DownsamplingAlgorithm selectDownsampling(DownsamplingAlgorithm requested, boolean force) {
+        return force && requested == DownsamplingAlgorithm.NONE ? DOWNSAMPLING_ALGORITHM : requested;
+    }
 
-                ITimePosition timePos = (ITimePosition) observation.getTime();
-                DateTime time = DateTime.parse(timePos.toISO8601Format());
-                timeSeries.add(new FixedMillisecond(time.getMillis()), resultVal);
-                // }
+    private TimeseriesValues createTimeseriesValues(String featureId, String seriesType) {
+        TimeseriesValues values = createTimeseriesValues(featureId);
+        return "2".equals(seriesType) ? toSumLine(values) : values;
+    }
 
+    /**
+     * @return the running sum of the given values, no-data values do not change the sum.
+     */
+    static TimeseriesValues toSumLine(TimeseriesValues values) {
+        double[] sums = new double[values.size()];
+        double sum = 0.0;
+        for (int i = 0; i < sums.length; i++) {
+            if (values.hasValue(i)) {
+                sum += values.getValue(i);
             }
+            sums[i] = sum;
         }
+        return new TimeseriesValues(values.getTimes(), sums);
+    }
 
-        LOGGER.debug("Compressed observations from " + timeArray.length + " to " + counter);
-
+    static TimeSeries createTimeSeries(String timeseriesId, TimeseriesValues values) {
+        TimeSeries timeSeries = new TimeSeries(timeseriesId);
+        for (int i = 0; i < values.size(); i++) {
+            Double value = values.hasValue(i) ? Double.valueOf(values.getValue(i)) : null;
+            timeSeries.add(new FixedMillisecond(values.getTime(i)), value, false);
+        }
+        timeSeries.fireSeriesChanged();
         return timeSeries;
-
     }
 
-    private Double getValidData(String obsVal) {
-        if (NO_DATA_VALUES.contains(obsVal)) {
+    private Double getValidData(Object obsVal) {
+        String value = obsVal.toString();
+        if (NO_DATA_VALUES.contains(value)) {
             return null;
         }
-        return parseDouble(obsVal);
+        return obsVal instanceof Number ? ((Number) obsVal).doubleValue() : parseDouble(value);
     }
 
-    public HashMap<Long, Double> compressToHashMap(String foiID,
-            String phenID, String procID) throws ParseException {
-
-        HashMap<Long, Double> data = new HashMap<Long, Double>();
-
-        if (collection.getAllTuples().size() > 0) {
-
-            //
-            // now lets put in the date-value pairs.
-            // ! But put it only in if it differs from the
-            // previous one !
-            //
-
-            ITimePosition timeArray[] = collection.getSortedTimeArray();
-
-            ObservedValueTuple prevObservation;
-            ObservedValueTuple nextObservation =
-            // FIXME aufräumen in der compression wenn benötigt
-            collection.getTuple(new OXFFeature(foiID, null), timeArray[0]);
-            ObservedValueTuple observation = nextObservation;
-
-            int counter = 0;
-
-            for (int i = 0; i < timeArray.length; i++) {
-
-                prevObservation = observation;
-                observation = nextObservation;
+    /**
+     * @deprecated use {@link #createTimeseriesValues(String)} which avoids boxing
+     */
+    @Deprecated
+    public HashMap<Long, Double> compressToHashMap(String foiID) {
+        return createTimeseriesValues(foiID).toMap();
+    }
 
-                if (i + 1 < timeArray.length) {
-                    nextObservation = collection.getTuple(new OXFFeature(foiID, null), timeArray[i + 1]);
-                }
+    /**
+     * @param foiID
+     *        the feature of the timeseries. The collection is expected to be filtered by phenomenon and
+     *        procedure already.
+     * @return the time sorted values of the timeseries.
+     */
+    public TimeseriesValues createTimeseriesValues(String foiID) {
+        ITimePosition timeArray[] = collection.getSortedTimeArray();
+        if (timeArray.length == 0) {
+            return TimeseriesValues.empty();
+        }
 
-                Double obsVal = null;
-                try {
-                    obsVal = getValidData(observation.getValue(0).toString());
-                } catch (NullPointerException e) {
-                    LOGGER.debug("Missing observation value: {}.", obsVal, e);
-                    continue;
-                } catch (NumberFormatException e) {
-                    LOGGER.error("Not a number value: {}.", obsVal, e);
-                    continue;
-                }
+        OXFFeature feature = new OXFFeature(foiID, null);
+        TimeseriesValues.Builder data = new TimeseriesValues.Builder(timeArray.length);
+        for (ITimePosition timePosition : timeArray) {
+            ObservedValueTuple observation = collection.getTuple(feature, timePosition);
+            if (observation == null || observation.getValue(0) == null) {
+                LOGGER.debug("Missing observation value at {}.", timePosition);
+                continue;
+            }
 
-                TimePosition timePos = (TimePosition) observation.getTime();
-                DateTime time = DateTime.parse(timePos.toISO8601Format());
-                data.put(time.getMillis(), obsVal);
-                counter++;
+            Double obsVal;
+            try {
+                obsVal = getValidData(observation.getValue(0));
+            } catch (NumberFormatException e) {
+                LOGGER.error("Not a number value: {}.", observation.getValue(0), e);
+                continue;
             }
-            // }
 
+            ITimePosition time = (ITimePosition) observation.getTime();
+            data.add(time.getCalendar().getTimeInMillis(), obsVal);
         }
-
-        return data;
-
+        return data.build();
     }
 
 }
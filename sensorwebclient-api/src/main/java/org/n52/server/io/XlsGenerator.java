@@ -28,13 +28,16 @@
 package org.n52.server.io;
 
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.util.Collection;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 
 import jxl.Workbook;
+import jxl.WorkbookSettings;
 import jxl.write.DateFormat;
 import jxl.write.DateTime;
 import jxl.write.Label;
@@ -42,27 +45,30 @@ import jxl.write.NumberFormats;
 import jxl.write.WritableCellFormat;
 import jxl.write.WritableSheet;
 import jxl.write.WritableWorkbook;
+import jxl.write.WriteException;
 
-import org.n52.oxf.feature.OXFFeature;
-import org.n52.oxf.feature.OXFFeatureCollection;
-import org.n52.oxf.feature.sos.ObservationSeriesCollection;
-import org.n52.oxf.feature.sos.ObservedValueTuple;
 import org.n52.oxf.util.JavaHelper;
-import org.n52.oxf.valueDomains.time.ITimePosition;
-import org.n52.server.da.AccessException;
 import org.n52.server.mgmt.ConfigurationContext;
 import org.n52.shared.responses.FileResponse;
 import org.n52.shared.responses.RepresentationResponse;
 import org.n52.shared.serializable.pojos.DesignOptions;
 import org.n52.shared.serializable.pojos.TimeseriesProperties;
+import org.n52.shared.serializable.pojos.TimeseriesValues;
 import org.n52.shared.serializable.pojos.sos.TimeseriesParametersLookup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class XlsGenerator extends Generator {
+public class XlsGenerator extends Generator implements FileGenerator {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(XlsGenerator.class);
 
+    /**
+     * Maximum number of rows of an XLS sheet, further rows are continued on a new sheet.
+     */
+    static final int MAX_ROWS_PER_SHEET = 65536;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     /** The zip. */
     private boolean zip;
 
@@ -88,122 +94,130 @@ public class XlsGenerator extends Generator {
     @Override
     public RepresentationResponse producePresentation(DesignOptions options) throws GeneratorException {
         LOGGER.debug("Starting producing representation with " + options);
-        Map<String, OXFFeatureCollection> entireCollMap = new HashMap<String, OXFFeatureCollection>();
-        try {
-            entireCollMap = getFeatureCollectionFor(options, false);
-        } catch (AccessException e) {
-            throw new GeneratorException("Error creating TimeSeriesDataResponse.", e);
-        }
-        
-        Collection<OXFFeatureCollection> observationCollList = entireCollMap.values();
-
-        if (observationCollList.size() != 1) {
-            throw new IllegalArgumentException(
-                    "Just ONE observation collection for ONE SOS-offering allowed."); //$NON-NLS-1$
-        }
-
-        OXFFeatureCollection entireColl =
-                (OXFFeatureCollection) observationCollList.toArray()[0];
-        
         TimeseriesProperties pc = options.getProperties().get(0);
         File xls = JavaHelper.genRndFile(ConfigurationContext.GEN_DIR+"/"+folderPostfix, pc.getProcedure().replaceAll("/", "_")+"_"+formatDate(new Date(options.getBegin()))+"_"+formatDate(
                         new Date(options.getEnd()))+"_", "xls");
+        OutputStream out;
         try {
+            out = new BufferedOutputStream(new FileOutputStream(xls), BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new GeneratorException("Could not create XLS file.", e);
+        }
+        try {
+            write(options, out);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                LOGGER.error("Could not produce presentation.", e);
+            }
+        }
+        LOGGER.debug("Produced XLS file url '{}'.", ConfigurationContext.GEN_URL + "/" + xls.getName());
+        JavaHelper.cleanUpDir(ConfigurationContext.GEN_DIR, ConfigurationContext.FILE_KEEPING_TIME);
+        return new FileResponse(ConfigurationContext.GEN_URL + "/" + xls.getName());
+    }
 
-            WritableWorkbook workbook = Workbook.createWorkbook(xls);
-            WritableSheet sheet = workbook.createSheet("Export", 0); //$NON-NLS-1$
-
-            //
-            // set header:
-            //
-            sheet.addCell(new Label(0, 0, "Sensor Station")); //$NON-NLS-1$
-            sheet.addCell(new Label(1, 0, "Sensor Phenomenon")); //$NON-NLS-1$
-            sheet.addCell(new Label(2, 0, "Date")); //$NON-NLS-1$
-            sheet.addCell(new Label(3, 0, "Value")); //$NON-NLS-1$
-
-            //
-            // fill cells:
-            // //
+    /**
+     * Writes the observations of all timeseries as XLS workbook to the given stream, e.g. a file or an HTTP
+     * response. Cell formats and label texts are created once per workbook and timeseries. Rows exceeding
+     * the XLS row limit are continued on further sheets. The stream is not closed.
+     * 
+     * @param options
+     *        the timeseries and timespan to export.
+     * @param out
+     *        the stream to write the workbook to.
+     * @throws GeneratorException
+     *         if requesting observations or writing fails.
+     */
+    @Override
+    public void write(DesignOptions options, OutputStream out) throws GeneratorException {
+        Map<String, TimeseriesValues> timeseries = new TimeseriesDataGenerator().getTimeseriesValues(options);
+        try {
+            WorkbookSettings settings = new WorkbookSettings();
+            settings.setGCDisabled(true);
+            WritableWorkbook workbook = Workbook.createWorkbook(out, settings);
+            SheetWriter sheets = new SheetWriter(workbook, MAX_ROWS_PER_SHEET);
             for (TimeseriesProperties prop : options.getProperties()) {
+                TimeseriesValues values = timeseries.get(prop.getTimeseriesId());
+                if (values == null || values.isEmpty()) {
+                    continue;
+                }
                 TimeseriesParametersLookup lookup = getParameterLookup(prop.getServiceUrl());
-                String feature = prop.getFeature();
-                String phenomenon = prop.getPhenomenon();
-
-                ObservationSeriesCollection seriesCollection =
-                        new ObservationSeriesCollection(entireColl, new String[] { feature },
-                                new String[] { phenomenon }, false);
-                ITimePosition timeArray[] = seriesCollection.getSortedTimeArray();
-                
-
-                int counter = 0;
-                if (timeArray.length > 0) {
-					ObservedValueTuple prevObservation;
-					ObservedValueTuple nextObservation = seriesCollection
-							.getTuple(
-									new OXFFeature(feature, entireColl
-											.getFeatureType()), timeArray[0]);
-					ObservedValueTuple observation = nextObservation;
-					
-					DateFormat customDateFormat = new DateFormat(
-							"dd MMM yyyy hh:mm:ss");
-					WritableCellFormat dateFormat = new WritableCellFormat(
-							customDateFormat);
-					for (int i = 0; i < timeArray.length; i++) {
-
-						prevObservation = observation;
-						observation = nextObservation;
-
-						if (i + 1 < timeArray.length) {
-							nextObservation = seriesCollection.getTuple(
-									new OXFFeature(feature, null),
-									timeArray[i + 1]);
-						}
-
-						String obsVal = observation.getValue(0).toString();
-						String prevObsVal = prevObservation.getValue(0).toString();
-						String nextObsVal = nextObservation.getValue(0).toString();
-
-						
-						// FOI
-						sheet.addCell(new Label(0, counter + 1, lookup.getFeature(feature).getLabel()));
-
-						// ObservedProperty
-						sheet.addCell(new Label(1, counter + 1, lookup.getPhenomenon(phenomenon).getLabel()
-								+ " ("
-								+ prop.getUnitOfMeasure() + ")"));
-
-						// Time
-						ITimePosition timePos = (ITimePosition) observation.getTime();
-						Date date = timePos.getCalendar().getTime();
-
-						sheet.addCell(new DateTime(2, counter + 1, date, dateFormat));
-
-						// Value
-						Object value = observation.getValue(0);
-						if (value instanceof Double) {
-							WritableCellFormat customFormat = new WritableCellFormat(
-									NumberFormats.FLOAT);
-							sheet.addCell(new jxl.write.Number(3, counter + 1,
-									(Double) value, customFormat));
-						} else {
-							sheet.addCell(new Label(3, counter + 1, value
-									.toString()));
-						}
-
-						counter++;
-						//                    }
-					}
-				}
-				LOGGER.info("Reduced timeArray from {} to {}", timeArray.length, counter);
-
+                String station = lookup.getFeature(prop.getFeature()).getLabel();
+                String phenomenon = lookup.getPhenomenon(prop.getPhenomenon()).getLabel()
+                        + " (" + prop.getUnitOfMeasure() + ")";
+                for (int i = 0; i < values.size(); i++) {
+                    Double value = values.hasValue(i) ? Double.valueOf(values.getValue(i)) : null;
+                    sheets.addRow(station, phenomenon, values.getTime(i), value);
+                }
             }
             workbook.write();
             workbook.close();
-        } catch (Exception e) {
+        } catch (IOException e) {
+            throw new GeneratorException("Error creating XLS!", e);
+        } catch (WriteException e) {
             throw new GeneratorException("Error creating XLS!", e);
         }
-        LOGGER.debug("Produced XLS file url '{}'.", ConfigurationContext.GEN_URL + "/" + xls.getName());
-        JavaHelper.cleanUpDir(ConfigurationContext.GEN_DIR, ConfigurationContext.FILE_KEEPING_TIME);
-        return new FileResponse(ConfigurationContext.GEN_URL + "/" + xls.getName());
     }
-}
\ No newline at end of file
+
+    /**
+     * Adds rows to the sheets of a workbook and continues on a new sheet once a sheet is full.
+     */
+    static class SheetWriter {
+
+        private final WritableWorkbook workbook;
+
+        private final int maxRowsPerSheet;
+
+        private final WritableCellFormat dateFormat;
+
+        private final WritableCellFormat valueFormat;
+
+        private WritableSheet sheet;
+
+        private int row;
+
+        SheetWriter(WritableWorkbook workbook, int maxRowsPerSheet) throws WriteException {
+            this.workbook = workbook;
+            this.maxRowsPerSheet = maxRowsPerSheet;
+            this.dateFormat = new WritableCellFormat(new DateFormat("dd MMM yyyy hh:mm:ss"));
+            this.valueFormat = new WritableCellFormat(NumberFormats.FLOAT);
+            this.sheet = createSheet();
+            this.row = 1;
+        }
+
+        /**
+         * @param value
+         *        the value or <code>null</code> to leave the value cell empty.
+         */
+        void addRow(String station, String phenomenon, long time, Double value) throws WriteException {
+            if (row == maxRowsPerSheet) {
+                sheet = createSheet();
+                row = 1;
+            }
+            sheet.addCell(new Label(0, row, station));
+            sheet.addCell(new Label(1, row, phenomenon));
+            sheet.addCell(new DateTime(2, row, new Date(time), dateFormat));
+            if (value != null) {
+                sheet.addCell(new jxl.write.Number(3, row, value.doubleValue(), valueFormat));
+            }
+            row++;
+        }
+
+        private WritableSheet createSheet() throws WriteException {
+            int index = workbook.getNumberOfSheets();
+            String name = index == 0 ? "Export" : "Export " + (index + 1); //$NON-NLS-1$
+            WritableSheet newSheet = workbook.createSheet(name, index);
+            newSheet.addCell(new Label(0, 0, "Sensor Station")); //$NON-NLS-1$
+            newSheet.addCell(new Label(1, 0, "Sensor Phenomenon")); //$NON-NLS-1$
+            newSheet.addCell(new Label(2, 0, "Date")); //$NON-NLS-1$
+            newSheet.addCell(new Label(3, 0, "Value")); //$NON-NLS-1$
+            return newSheet;
+        }
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "xls";
+    }
+}
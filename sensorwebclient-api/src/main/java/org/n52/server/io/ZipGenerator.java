@@ -28,14 +28,22 @@
 package org.n52.server.io;
 
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.URI;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -48,7 +56,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Produces a zip File of a folder or a file given by its path.
+ * Produces a zip file bundling several entries. Entries are written in the order they have been added. Their
+ * content is produced concurrently on the {@link ExportThreadPool}, but at most as many entries as the pool
+ * has threads are produced ahead of the entry being written. So memory is bounded by the entries in
+ * production rather than by the whole bundle, and entries are not staged as files.
  * 
  * @author <a href="mailto:p.verhoeven@52north.de">Philipp Verhoeven</a>
  */
@@ -56,94 +67,88 @@ public class ZipGenerator extends Generator {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(ZipGenerator.class);
 
-    /** The buffer. */
-    static byte[] buffer = new byte[8192];
+    private final String folder;
 
-    /** The len. */
-    static int len = 0;
+    private final ExecutorService executor;
 
-    private String folder;
+    private final int maxBufferedEntries;
+
+    private final List<BundleEntry> entries = new ArrayList<BundleEntry>();
+
+    private final Set<String> entryNames = new HashSet<String>();
 
     /**
      * Instantiates a new zip generator.
      *
-     * @param folder the folder
+     * @param folder the folder all entries are placed in within the zip file
      */
     public ZipGenerator(String folder) {
+        this(folder, ExportThreadPool.getExecutor(), ConfigurationContext.EXPORT_THREAD_POOL_SIZE);
+    }
+
+    ZipGenerator(String folder, ExecutorService executor, int maxBufferedEntries) {
         super();
         this.folder = folder;
+        this.executor = executor;
+        this.maxBufferedEntries = Math.max(1, maxBufferedEntries);
     }
 
     /**
-     * Does the actual zipping.
+     * Adds an entry to the bundle. If the name is already taken, a counter is appended.
      * 
-     * @param file
-     *            The file or folder to zip
-     * @param relateTo
-     *            The path to folder or file
-     * @param zipOutputStream
-     *            The path of the zip file
-     * @throws Exception
-     *             the exception
+     * @param fileName
+     *        the file name of the entry.
+     * @param writer
+     *        writes the content of the entry.
      */
-    private static void treeWalkAndCompressTo(File file, URI relateTo,
-            ZipOutputStream zipOutputStream) throws Exception {
-
-        /*
-         * if the path leads not to a folder
-         */
-        if (!file.isDirectory()) {
-            URI relativePath = relateTo.relativize(file.toURI());
-            ZipEntry entry = new ZipEntry(relativePath.toString());
-            zipOutputStream.putNextEntry(entry);
-
-            FileInputStream fis = new FileInputStream(file);
-            while ((len = fis.read(buffer)) > 0) {
-                zipOutputStream.write(buffer, 0, len);
-            }
-            fis.close();
-            zipOutputStream.closeEntry();
+    public void addEntry(String fileName, EntryWriter writer) {
+        String name = fileName;
+        int counter = 1;
+        while ( !entryNames.add(name)) {
+            int extensionIndex = fileName.lastIndexOf('.');
+            name = extensionIndex < 0
+                ? fileName + "_" + counter
+                : fileName.substring(0, extensionIndex) + "_" + counter + fileName.substring(extensionIndex);
+            counter++;
         }
-        /*
-         * if the path leads to a folder the method is called again with the
-         * folders children
-         */
-        else {
-            File[] children = file.listFiles();
-            for (int i = 0; i < children.length; i++) {
-                File child = children[i];
-                treeWalkAndCompressTo(child, relateTo, zipOutputStream);
+        entries.add(new BundleEntry(name, writer));
+    }
+
+    /**
+     * Adds an entry containing the given timeseries written by the given generator.
+     */
+    public void addEntry(final DesignOptions options, final FileGenerator generator) {
+        String procedure = options.getProperties().get(0).getProcedure();
+        String fileName = procedure.replaceAll("/", "_") + "_" + formatDate(new Date(options.getBegin())) + "_"
+                + formatDate(new Date(options.getEnd())) + "." + generator.getFileExtension();
+        addEntry(fileName, new EntryWriter() {
+            @Override
+            public void write(OutputStream out) throws Exception {
+                generator.write(options, out);
             }
-        }
+        });
     }
 
     @Override
     public RepresentationResponse producePresentation(DesignOptions options) throws GeneratorException {
-        ZipOutputStream zipOutputStream = null;
-        File file = new File(ConfigurationContext.GEN_DIR+"/"+folder);
         SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss");
         String filename = format.format(new Date()) + ConfigurationContext.ZIP_POSTFIX + ".zip";
         File f = new File(ConfigurationContext.GEN_DIR+"/"+filename);
-        try {
-            zipOutputStream =
-                    new ZipOutputStream(new FileOutputStream(f.getAbsolutePath()));
-
-            treeWalkAndCompressTo(file, file.getParentFile().toURI(), zipOutputStream);
 
-        } catch (FileNotFoundException e2) {
-            LOGGER.error("Could not write to file.", e2);
-            return null;
-        } catch (Exception e) {
-            LOGGER.error("Could not produce zip file.", e);
-            return null;
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(f));
+            write(out);
+        } catch (IOException e) {
+            throw new GeneratorException("Could not write zip file.", e);
         } finally {
-            try {
-                zipOutputStream.flush();
-                zipOutputStream.close();
-            } catch (IOException e) {
-                LOGGER.error("Could not close zip stream accordingly.", e);
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    LOGGER.error("Could not close zip stream accordingly.", e);
+                }
             }
-           
         }
 
         JavaHelper.cleanUpDir(ConfigurationContext.GEN_DIR, ConfigurationContext.FILE_KEEPING_TIME);
@@ -151,4 +156,88 @@ public class ZipGenerator extends Generator {
         LOGGER.debug("Produced zip file: " + filename);
         return new FileResponse(ConfigurationContext.GEN_URL + "/" + f.getName());
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the zip to the given stream. If an entry can not be produced, entries not written yet are
+     * cancelled.
+     * 
+     * @param out
+     *        the stream to write the zip to. It is not closed.
+     * @throws GeneratorException
+     *         if an entry can not be produced or the zip can not be written.
+     */
+    public void write(OutputStream out) throws GeneratorException {
+        List<Future<BundleEntry>> futures = new ArrayList<Future<BundleEntry>>();
+        ZipOutputStream zipOutputStream = new ZipOutputStream(out);
+        try {
+            for (int i = 0; i < entries.size(); i++) {
+                while (futures.size() < entries.size() && futures.size() < i + maxBufferedEntries) {
+                    futures.add(executor.submit(entries.get(futures.size())));
+                }
+                BundleEntry entry = futures.get(i).get();
+                zipOutputStream.putNextEntry(new ZipEntry(folder + "/" + entry.getName()));
+                entry.writeContentTo(zipOutputStream);
+                zipOutputStream.closeEntry();
+            }
+            zipOutputStream.finish();
+        } catch (IOException e) {
+            throw new GeneratorException("Could not write zip file.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeneratorException("Interrupted while producing zip file.", e);
+        } catch (ExecutionException e) {
+            throw new GeneratorException("Could not produce zip file entry.", e.getCause());
+        } finally {
+            for (Future<BundleEntry> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Writes the content of a zip file entry.
+     */
+    public interface EntryWriter {
+
+        /**
+         * @param out
+         *        the stream to write the entry's content to. It is not closed.
+         * @throws Exception
+         *         if producing the content fails.
+         */
+        void write(OutputStream out) throws Exception;
+
+    }
+
+    private static class BundleEntry implements Callable<BundleEntry> {
+
+        private final String name;
+
+        private final EntryWriter writer;
+
+        private ByteArrayOutputStream content;
+
+        BundleEntry(String name, EntryWriter writer) {
+            this.name = name;
+            this.writer = writer;
+        }
+
+        @Override
+        public BundleEntry call() throws Exception {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writer.write(out);
+            content = out;
+            return this;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        void writeContentTo(OutputStream out) throws IOException {
+            content.writeTo(out);
+            content = null;
+        }
+
+    }
+}
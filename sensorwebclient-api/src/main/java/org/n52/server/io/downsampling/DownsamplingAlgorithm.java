@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.downsampling;
+
+import java.util.Locale;
+
+import org.n52.shared.serializable.pojos.TimeseriesValues;
+
+/**
+ * The available downsampling algorithms.
+ */
+public enum DownsamplingAlgorithm {
+
+    /**
+     * Keeps all values.
+     */
+    NONE(null, 0),
+
+    /**
+     * @see LargestTriangleThreeBucketsDownsampler
+     */
+    LTTB(new LargestTriangleThreeBucketsDownsampler(), 1),
+
+    /**
+     * @see MinMaxDownsampler
+     */
+    MINMAX(new MinMaxDownsampler(), 2);
+
+    private final Downsampler downsampler;
+
+    private final int valuesPerPixel;
+
+    private DownsamplingAlgorithm(Downsampler downsampler, int valuesPerPixel) {
+        this.downsampler = downsampler;
+        this.valuesPerPixel = valuesPerPixel;
+    }
+
+    /**
+     * @param size
+     *        the number of values of a timeseries.
+     * @param width
+     *        the number of pixels available to draw the timeseries.
+     * @return <code>true</code> if the timeseries has more values than the algorithm keeps for the given
+     *         width (one value per pixel, two for {@link #MINMAX}).
+     */
+    public boolean isDownsamplingRequired(int size, int width) {
+        return downsampler != null && width > 0 && size > valuesPerPixel * width;
+    }
+
+    /**
+     * @param values
+     *        the time sorted values to downsample.
+     * @param width
+     *        the number of pixels available to draw the timeseries.
+     * @return the downsampled values.
+     * @see Downsampler#downsample(TimeseriesValues, int)
+     */
+    public TimeseriesValues downsample(TimeseriesValues values, int width) {
+        return downsampler == null ? values : downsampler.downsample(values, width);
+    }
+
+    /**
+     * @param name
+     *        the algorithm's name (case insensitive, e.g. <code>lttb</code> or <code>min-max</code>).
+     * @return the matching algorithm.
+     * @throws IllegalArgumentException
+     *         if no algorithm matches the given name.
+     * @throws NullPointerException
+     *         if name is <code>null</code>.
+     */
+    public static DownsamplingAlgorithm fromName(String name) {
+        String normalized = name.trim().replace("-", "").replace("_", "");
+        return valueOf(normalized.toUpperCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @param name
+     *        the algorithm's name, may be <code>null</code>.
+     * @param defaultAlgorithm
+     *        the algorithm to use if name is <code>null</code> or unknown.
+     * @return the matching algorithm or the given default.
+     */
+    public static DownsamplingAlgorithm fromName(String name, DownsamplingAlgorithm defaultAlgorithm) {
+        if (name == null) {
+            return defaultAlgorithm;
+        }
+        try {
+            return fromName(name);
+        }
+        catch (IllegalArgumentException e) {
+            return defaultAlgorithm;
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.downsampling;
+
+import org.n52.shared.serializable.pojos.TimeseriesValues;
+
+/**
+ * Implements the Largest-Triangle-Three-Buckets algorithm as described by Sveinn Steinarsson ("Downsampling
+ * Time Series for Visual Representation", 2013). The values are divided into one bucket per pixel; from
+ * each bucket the value forming the largest triangle with the previously selected value and the average of
+ * the next bucket is kept. First and last value are always kept.<br>
+ * <br>
+ * Buckets without any valid value are represented by a single no-data value so that gaps remain visible.
+ */
+public class LargestTriangleThreeBucketsDownsampler implements Downsampler {
+
+    @Override
+    public TimeseriesValues downsample(TimeseriesValues values, int width) {
+        int size = values.size();
+        if (width < 3 || size <= width) {
+            return values;
+        }
+
+        long[] times = values.getTimes();
+        double[] data = values.getValues();
+        long offset = times[0];
+        TimeseriesValues.Builder result = new TimeseriesValues.Builder(width);
+        result.add(times[0], data[0]);
+
+        int selected = Double.isNaN(data[0]) ? -1 : 0;
+        double bucketSize = (double) (size - 2) / (width - 2);
+        for (int bucket = 0; bucket < width - 2; bucket++) {
+            int bucketStart = (int) Math.floor(bucket * bucketSize) + 1;
+            int bucketEnd = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextBucketEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, size);
+
+            // average of next bucket (last value if it is the last bucket)
+            double averageTime = 0;
+            double averageValue = 0;
+            int validCount = 0;
+            for (int i = bucketEnd; i < nextBucketEnd; i++) {
+                if ( !Double.isNaN(data[i])) {
+                    averageTime += times[i] - offset;
+                    averageValue += data[i];
+                    validCount++;
+                }
+            }
+
+            int candidate = -1;
+            double maxArea = -1;
+            for (int i = bucketStart; i < bucketEnd; i++) {
+                if (Double.isNaN(data[i])) {
+                    continue;
+                }
+                if (selected < 0 || validCount == 0) {
+                    // no reference triangle available: keep first valid value of this bucket
+                    candidate = i;
+                    break;
+                }
+                double selectedTime = times[selected] - offset;
+                double selectedValue = data[selected];
+                double nextTime = averageTime / validCount;
+                double nextValue = averageValue / validCount;
+                double area = Math.abs((selectedTime - nextTime) * (data[i] - selectedValue)
+                        - (selectedTime - (times[i] - offset)) * (nextValue - selectedValue));
+                if (area > maxArea) {
+                    maxArea = area;
+                    candidate = i;
+                }
+            }
+
+            if (candidate < 0) {
+                result.add(times[bucketStart], Double.NaN);
+            }
+            else {
+                result.add(times[candidate], data[candidate]);
+                selected = candidate;
+            }
+        }
+
+        result.add(times[size - 1], data[size - 1]);
+        return result.build();
+    }
+
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.downsampling;
+
+import java.util.Arrays;
+
+import org.n52.shared.serializable.pojos.TimeseriesValues;
+
+/**
+ * Divides the timespan of a timeseries into one interval per pixel and keeps the minimum and the maximum
+ * value of each interval, so that no peak gets lost when drawing the timeseries. First and last value are
+ * always kept.<br>
+ * <br>
+ * Intervals containing no-data values keep one no-data value so that gaps remain visible.
+ */
+public class MinMaxDownsampler implements Downsampler {
+
+    @Override
+    public TimeseriesValues downsample(TimeseriesValues values, int width) {
+        int size = values.size();
+        if (width < 1 || size <= 2 * width + 2) {
+            return values;
+        }
+
+        long[] times = values.getTimes();
+        double[] data = values.getValues();
+        long begin = times[0];
+        long timespan = times[size - 1] - begin + 1;
+
+        TimeseriesValues.Builder result = new TimeseriesValues.Builder(2 * width + 2);
+        result.add(times[0], data[0]);
+
+        int[] selection = new int[3];
+        int index = 1;
+        while (index < size - 1) {
+            long pixel = (times[index] - begin) * width / timespan;
+            int min = -1;
+            int max = -1;
+            int gap = -1;
+            for (; index < size - 1 && (times[index] - begin) * width / timespan == pixel; index++) {
+                if (Double.isNaN(data[index])) {
+                    gap = gap < 0 ? index : gap;
+                }
+                else {
+                    min = min < 0 || data[index] < data[min] ? index : min;
+                    max = max < 0 || data[index] > data[max] ? index : max;
+                }
+            }
+
+            int count = 0;
+            if (min >= 0) {
+                selection[count++] = min;
+                if (max != min) {
+                    selection[count++] = max;
+                }
+            }
+            if (gap >= 0) {
+                selection[count++] = gap;
+            }
+            Arrays.sort(selection, 0, count);
+            for (int i = 0; i < count; i++) {
+                result.add(times[selection[i]], data[selection[i]]);
+            }
+        }
+
+        result.add(times[size - 1], data[size - 1]);
+        return result.build();
+    }
+
+}
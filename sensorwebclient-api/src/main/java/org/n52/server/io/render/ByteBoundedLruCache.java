@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.render;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A least recently used cache bounded by the total size of its values. The size of each value is given when
+ * it is put and summed up in a running counter, so that eviction never has to iterate all values. Values
+ * larger than the whole cache are rejected instead of evicting everything else. Each value expires at a given
+ * time; expired values are removed when they are accessed or when they become least recently used.<br>
+ * <br>
+ * Instances are thread-safe.
+ * 
+ * @param <V>
+ *        the type of cached values.
+ */
+class ByteBoundedLruCache<V> {
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true);
+
+    private long bytes;
+
+    /**
+     * @param maxBytes
+     *        the maximum size of all cached values. A value less or equal to zero disables caching.
+     */
+    ByteBoundedLruCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Puts a value, replacing the value cached under the same key. Least recently used and expired values are
+     * evicted until the values fit into the cache.
+     * 
+     * @param key
+     *        the key.
+     * @param value
+     *        the value to cache.
+     * @param size
+     *        the size of the value in bytes.
+     * @param expiresAt
+     *        the time the value expires.
+     * @param now
+     *        the current time.
+     * @return <code>false</code> if the value is larger than the cache and has not been cached.
+     */
+    synchronized boolean put(String key, V value, long size, long expiresAt, long now) {
+        if (maxBytes <= 0 || size > maxBytes) {
+            return false;
+        }
+        remove(key);
+        entries.put(key, new Entry<V>(value, size, expiresAt));
+        bytes += size;
+        evict(now);
+        return true;
+    }
+
+    /**
+     * @param key
+     *        the key.
+     * @param now
+     *        the current time.
+     * @return the cached value or <code>null</code> if not cached or expired.
+     */
+    synchronized V get(String key, long now) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(now)) {
+            remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    private void evict(long now) {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry<V> eldest = iterator.next();
+            if (bytes <= maxBytes && !eldest.isExpired(now)) {
+                return;
+            }
+            bytes -= eldest.size;
+            iterator.remove();
+        }
+    }
+
+    private void remove(String key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.size;
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total size of all cached values in bytes.
+     */
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+
+        private final long size;
+
+        private final long expiresAt;
+
+        Entry(V value, long size, long expiresAt) {
+            this.value = value;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.render;
+
+import static org.n52.server.mgmt.ConfigurationContext.CHART_IMAGE_STORE_SIZE;
+import static org.n52.server.mgmt.ConfigurationContext.FILE_KEEPING_TIME;
+
+import java.util.UUID;
+
+/**
+ * Keeps rendered chart images in memory until they are fetched by the client via the URL handed out with a
+ * chart response. Images are kept for a limited time. The total size of all stored images is bounded, least
+ * recently used images are evicted first.
+ */
+public class ChartImageStore {
+
+    private static final String IMAGE_PREFIX = "chart-";
+
+    private static final String IMAGE_POSTFIX = ".png";
+
+    private static ChartImageStore instance;
+
+    private final long keepingTime;
+
+    private final ByteBoundedLruCache<byte[]> images;
+
+    /**
+     * @return the shared store instance configured via {@link org.n52.server.mgmt.ConfigurationContext}.
+     */
+    public static synchronized ChartImageStore getInstance() {
+        if (instance == null) {
+            instance = new ChartImageStore(CHART_IMAGE_STORE_SIZE, FILE_KEEPING_TIME);
+        }
+        return instance;
+    }
+
+    /**
+     * @param maxBytes
+     *        the maximum number of bytes of all stored images.
+     * @param keepingTime
+     *        milliseconds an image is kept after it has been stored.
+     */
+    public ChartImageStore(long maxBytes, long keepingTime) {
+        this.keepingTime = keepingTime;
+        this.images = new ByteBoundedLruCache<byte[]>(maxBytes);
+    }
+
+    /**
+     * @param image
+     *        the encoded PNG image.
+     * @return a unique file name under which the image can be fetched or <code>null</code> if the image is
+     *         larger than the whole store.
+     */
+    public String put(byte[] image) {
+        String fileName = IMAGE_PREFIX + UUID.randomUUID() + IMAGE_POSTFIX;
+        long now = now();
+        return images.put(fileName, image, image.length, now + keepingTime, now) ? fileName : null;
+    }
+
+    /**
+     * @param fileName
+     *        the file name returned when the image has been stored.
+     * @return the encoded PNG image or <code>null</code> if unknown or expired.
+     */
+    public byte[] get(String fileName) {
+        return images.get(fileName, now());
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    public int size() {
+        return images.size();
+    }
+
+    public long getStoredBytes() {
+        return images.getBytes();
+    }
+
+}
@@ -27,6 +27,9 @@
  */
 package org.n52.server.io.render;
 
+import static org.n52.server.io.downsampling.DownsamplingAlgorithm.fromName;
+import static org.n52.server.mgmt.ConfigurationContext.DOWNSAMPLING_ALGORITHM;
+
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
@@ -64,13 +67,18 @@ import org.n52.oxf.feature.sos.ObservationSeriesCollection;
 import org.n52.oxf.util.JavaHelper;
 import org.n52.server.io.MetadataInURLGenerator;
 import org.n52.server.io.TimeseriesFactory;
+import org.n52.server.io.downsampling.DownsamplingAlgorithm;
 import org.n52.server.mgmt.ConfigurationContext;
 import org.n52.shared.serializable.pojos.Axis;
 import org.n52.shared.serializable.pojos.DesignOptions;
 import org.n52.shared.serializable.pojos.TimeseriesProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class DiagramRenderer {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiagramRenderer.class);
+
     private static final String DOTTED = "3";
 
     private static final String AREA = "2";
@@ -155,6 +163,8 @@ public class DiagramRenderer {
      * @param end
      *            the end
      * @param compress
+     *            forces downsampling even if the client requested none (large timeseries get downsampled
+     *            to the chart width anyway)
      * @return the j free chart
      */
     public JFreeChart renderChart(Map<String, OXFFeatureCollection> entireCollMap,
@@ -211,7 +221,7 @@ public class DiagramRenderer {
 
             String phenomenonId = prop.getPhenomenon();
 
-            TimeSeriesCollection dataset = createDataset(entireCollMap, prop, phenomenonId, compress);
+            TimeSeriesCollection dataset = createDataset(entireCollMap, prop, phenomenonId, compress, options);
             dataset.setGroup(new DatasetGroup(prop.getTimeseriesId()));
             XYDataset additionalDataset = dataset;
 
@@ -487,7 +497,7 @@ public class DiagramRenderer {
         return chart;
     }
 
-    public TimeSeriesCollection createDataset(Map<String, OXFFeatureCollection> entireCollMap, TimeseriesProperties prop, String observedProperty, boolean compress) {
+    public TimeSeriesCollection createDataset(Map<String, OXFFeatureCollection> entireCollMap, TimeseriesProperties prop, String observedProperty, boolean compress, DesignOptions options) {
 
         TimeSeriesCollection dataset = new TimeSeriesCollection();
         OXFFeatureCollection obsColl = entireCollMap.get(prop.getOffering() + "@" + prop.getServiceUrl());
@@ -500,31 +510,29 @@ public class DiagramRenderer {
         // will be added to the dataset
         if (obsPropID.equals(observedProperty)) {
 
-            String[] foiIds = new String[] { foiID };
-            String[] procedureIds = new String[] { procID };
-            String[] observedPropertyIds = new String[] { obsPropID };
-            ObservationSeriesCollection seriesCollection = new ObservationSeriesCollection(obsColl, foiIds, observedPropertyIds, procedureIds, true);
-
-
-            //
-            // now let's put in the date-value pairs.
-            // ! But put it only in if it differs from the previous
-            // one !
-            //
-
-
-
             TimeSeries timeSeries = new TimeSeries(prop.getTimeseriesId(), FixedMillisecond.class);
 
-
-
-
-            TimeseriesFactory factory = new TimeseriesFactory(seriesCollection);
-            if (seriesCollection.getSortedTimeArray().length > 0) {
-                if (compress) {
-                    timeSeries = factory.compressToTimeSeries(prop.getTimeseries(), isOverview, prop.getGraphStyle());
-                } else {
-                    timeSeries = factory.createTimeSeries(prop.getTimeseries(), prop.getGraphStyle());
+            if (obsColl == null) {
+                // request failed or timed out, render an empty series
+                LOGGER.warn("No observations available for timeseries '{}'.", prop.getTimeseriesId());
+                prop.setHasData(false);
+            } else {
+                String[] foiIds = new String[] { foiID };
+                String[] procedureIds = new String[] { procID };
+                String[] observedPropertyIds = new String[] { obsPropID };
+                ObservationSeriesCollection seriesCollection = new ObservationSeriesCollection(obsColl, foiIds, observedPropertyIds, procedureIds, true);
+
+                //
+                // now let's put in the date-value pairs.
+                // ! But put it only in if it differs from the previous
+                // one !
+                //
+
+                TimeseriesFactory factory = new TimeseriesFactory(seriesCollection);
+                if (seriesCollection.getSortedTimeArray().length > 0) {
+                    DownsamplingAlgorithm downsampling = fromName(options.getDownsampling(), DOWNSAMPLING_ALGORITHM);
+                    timeSeries = factory.compressToTimeSeries(prop.getTimeseries(), compress || isOverview,
+                                                              prop.getGraphStyle(), downsampling, options.getWidth());
                 }
             }
             dataset.addSeries(timeSeries);
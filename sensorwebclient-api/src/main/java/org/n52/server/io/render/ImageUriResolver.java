@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.render;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * Resolves URIs of images held in memory, so that rendered images can be referenced from a document without
+ * writing them to files. URIs are unique per resolver instance. Unknown URIs are left to the default
+ * resolution by returning <code>null</code>.
+ */
+public class ImageUriResolver implements URIResolver {
+
+    private static final String SCHEME = "image:";
+
+    private final String prefix = SCHEME + UUID.randomUUID() + "/";
+
+    private final Map<String, byte[]> images = new HashMap<String, byte[]>();
+
+    /**
+     * @param name
+     *        the name of the image.
+     * @param image
+     *        the encoded image.
+     * @return the URI under which the image is resolved.
+     */
+    public String addImage(String name, byte[] image) {
+        String uri = prefix + name;
+        images.put(uri, image);
+        return uri;
+    }
+
+    @Override
+    public Source resolve(String href, String base) {
+        byte[] image = images.get(href);
+        if (image == null) {
+            return null;
+        }
+        return new StreamSource(new ByteArrayInputStream(image), href);
+    }
+
+}
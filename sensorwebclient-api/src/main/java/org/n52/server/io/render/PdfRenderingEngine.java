@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.render;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.n52.server.mgmt.ConfigurationContext.PDF_RENDERING_LIMIT;
+import static org.n52.server.mgmt.ConfigurationContext.SERVER_TIMEOUT;
+import static org.n52.server.mgmt.ConfigurationContext.XSL_DIR;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.n52.server.io.GeneratorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Renders PDF documents from document structures via XSL-FO. The stylesheets are compiled once per language
+ * and a single {@link FopFactory} is shared by all documents. The number of documents rendered concurrently
+ * is limited, as FOP holds the whole document in memory while rendering.
+ */
+public class PdfRenderingEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PdfRenderingEngine.class);
+
+    private static PdfRenderingEngine instance;
+
+    private final FopFactory fopFactory = FopFactory.newInstance();
+
+    private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+    private final ConcurrentMap<String, Templates> templates = new ConcurrentHashMap<String, Templates>();
+
+    private final String xslDirectory;
+
+    private final Semaphore renderingPermits;
+
+    private final long timeout;
+
+    /**
+     * @return the shared engine instance configured via {@link org.n52.server.mgmt.ConfigurationContext}.
+     */
+    public static synchronized PdfRenderingEngine getInstance() {
+        if (instance == null) {
+            instance = new PdfRenderingEngine(XSL_DIR, PDF_RENDERING_LIMIT, SERVER_TIMEOUT);
+        }
+        return instance;
+    }
+
+    /**
+     * @param xslDirectory
+     *        the directory containing the <code>Document_2_PDF_{language}.xslt</code> stylesheets.
+     * @param concurrencyLimit
+     *        the maximum number of documents rendered at the same time.
+     * @param timeout
+     *        milliseconds to wait for rendering to start before giving up.
+     */
+    public PdfRenderingEngine(String xslDirectory, int concurrencyLimit, long timeout) {
+        this.xslDirectory = xslDirectory;
+        this.renderingPermits = new Semaphore(Math.max(1, concurrencyLimit), true);
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param document
+     *        the document structure to render.
+     * @param language
+     *        the language of the document, <code>de</code>, <code>nl</code> or <code>en</code> (default).
+     * @param imageResolver
+     *        resolves the images referenced by the document.
+     * @param out
+     *        the stream to write the PDF to. It is not closed.
+     * @throws GeneratorException
+     *         if rendering fails or does not start in time.
+     */
+    public void render(Source document, String language, ImageUriResolver imageResolver, OutputStream out) throws GeneratorException {
+        acquirePermit();
+        try {
+            FOUserAgent userAgent = fopFactory.newFOUserAgent();
+            userAgent.setURIResolver(imageResolver);
+            Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, userAgent, out);
+            Transformer transformer = getTemplates(language).newTransformer();
+            Result result = new SAXResult(fop.getDefaultHandler());
+            transformer.transform(document, result);
+        } catch (FOPException e) {
+            throw new GeneratorException("Could not create FOP instance.", e);
+        } catch (TransformerException e) {
+            throw new GeneratorException("Error transforming xml", e);
+        } finally {
+            renderingPermits.release();
+        }
+    }
+
+    private void acquirePermit() throws GeneratorException {
+        try {
+            if ( !renderingPermits.tryAcquire(timeout, MILLISECONDS)) {
+                throw new GeneratorException("Too many PDF documents are rendered at the moment.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeneratorException("Interrupted while waiting to render PDF.", e);
+        }
+    }
+
+    private Templates getTemplates(String language) throws TransformerException {
+        String xsltFileName = "Document_2_PDF_" + getSupportedLanguage(language) + ".xslt";
+        Templates compiled = templates.get(xsltFileName);
+        if (compiled == null) {
+            LOGGER.debug("Compile stylesheet '{}'.", xsltFileName);
+            compiled = compileTemplates(new File(xslDirectory, xsltFileName));
+            Templates concurrentlyCompiled = templates.putIfAbsent(xsltFileName, compiled);
+            if (concurrentlyCompiled != null) {
+                compiled = concurrentlyCompiled;
+            }
+        }
+        return compiled;
+    }
+
+    private Templates compileTemplates(File xsltFile) throws TransformerException {
+        // TransformerFactory is not thread safe
+        synchronized (transformerFactory) {
+            return transformerFactory.newTemplates(new StreamSource(xsltFile));
+        }
+    }
+
+    private static String getSupportedLanguage(String language) {
+        if ("de".equalsIgnoreCase(language)) {
+            return "de";
+        } else if ("nl".equalsIgnoreCase(language)) {
+            return "nl";
+        } else {
+            return "en";
+        }
+    }
+
+}
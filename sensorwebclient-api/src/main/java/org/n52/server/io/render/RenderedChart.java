@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.render;
+
+import static org.n52.shared.MD5HashGenerator.hash;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eesgmbh.gimv.shared.util.Bounds;
+import org.eesgmbh.gimv.shared.util.ImageEntity;
+import org.n52.shared.serializable.pojos.Axis;
+import org.n52.shared.serializable.pojos.DesignOptions;
+import org.n52.shared.serializable.pojos.TimeseriesProperties;
+
+/**
+ * A rendered chart as kept by the {@link RenderedChartCache}: the PNG encoded image along with the tooltip
+ * entities, the plot area and the axes determined while rendering. Instances are immutable and shared
+ * between requests, axes are copied whenever they are handed out.
+ */
+public class RenderedChart {
+
+    private final byte[] image;
+
+    private final ImageEntity[] imageEntities;
+
+    private final Bounds plotArea;
+
+    private final HashMap<String, Axis> axisMapping;
+
+    private final HashMap<String, Boolean> dataAvailability;
+
+    private final String etag;
+
+    private final boolean complete;
+
+    /**
+     * @param image
+     *        the PNG encoded chart image.
+     * @param imageEntities
+     *        the tooltip entities of the chart.
+     * @param plotArea
+     *        the data area of the chart in image coordinates.
+     * @param axisMapping
+     *        the axes per timeseries id.
+     * @param options
+     *        the options the chart has been rendered with, carrying data availability of each timeseries.
+     * @param complete
+     *        <code>false</code> if data of any timeseries could not be requested.
+     */
+    public RenderedChart(byte[] image,
+                         ImageEntity[] imageEntities,
+                         Bounds plotArea,
+                         HashMap<String, Axis> axisMapping,
+                         DesignOptions options,
+                         boolean complete) {
+        this.image = image;
+        this.imageEntities = imageEntities;
+        this.plotArea = plotArea;
+        this.axisMapping = copyAxes(axisMapping);
+        this.complete = complete;
+        this.dataAvailability = new HashMap<String, Boolean>();
+        for (TimeseriesProperties properties : options.getProperties()) {
+            dataAvailability.put(properties.getTimeseriesId(), properties.hasData());
+        }
+        this.etag = "\"" + hash(image) + "\"";
+    }
+
+    /**
+     * Sets axes and data availability determined while rendering to the given options as it would have been
+     * done when rendering the chart with them.
+     * 
+     * @param options
+     *        options matching the ones the chart has been rendered with.
+     */
+    public void applyTo(DesignOptions options) {
+        for (TimeseriesProperties properties : options.getProperties()) {
+            String timeseriesId = properties.getTimeseriesId();
+            if (dataAvailability.containsKey(timeseriesId)) {
+                properties.setHasData(dataAvailability.get(timeseriesId).booleanValue());
+            }
+            properties.setAxisData(copyAxis(axisMapping.get(timeseriesId)));
+        }
+    }
+
+    private static HashMap<String, Axis> copyAxes(Map<String, Axis> axes) {
+        HashMap<String, Axis> copy = new HashMap<String, Axis>();
+        for (Map.Entry<String, Axis> entry : axes.entrySet()) {
+            copy.put(entry.getKey(), copyAxis(entry.getValue()));
+        }
+        return copy;
+    }
+
+    private static Axis copyAxis(Axis axis) {
+        return axis == null ? null : new Axis(axis);
+    }
+
+    public byte[] getImage() {
+        return image;
+    }
+
+    public ImageEntity[] getImageEntities() {
+        return imageEntities;
+    }
+
+    public Bounds getPlotArea() {
+        return plotArea;
+    }
+
+    /**
+     * @return a copy of the axes per timeseries id.
+     */
+    public HashMap<String, Axis> getAxisMapping() {
+        return copyAxes(axisMapping);
+    }
+
+    /**
+     * @return a quoted entity tag derived from the image content.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * @return <code>false</code> if data of any timeseries could not be requested, so that the chart shows
+     *         less than it should.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return the approximate number of bytes the chart occupies in memory.
+     */
+    long getSize() {
+        return image.length + imageEntities.length * 256L;
+    }
+
+}
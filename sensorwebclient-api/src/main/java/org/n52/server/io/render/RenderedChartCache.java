@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.render;
+
+import static org.n52.server.mgmt.ConfigurationContext.CHART_CACHE_SIZE;
+import static org.n52.server.mgmt.ConfigurationContext.CHART_CACHE_TIME_GRANULARITY;
+import static org.n52.server.mgmt.ConfigurationContext.FILE_KEEPING_TIME;
+import static org.n52.server.mgmt.ConfigurationContext.OBSERVATION_CACHE_TTL;
+
+import java.util.TreeSet;
+
+import org.n52.shared.MD5HashGenerator;
+import org.n52.shared.serializable.pojos.DesignOptions;
+import org.n52.shared.serializable.pojos.ReferenceValue;
+import org.n52.shared.serializable.pojos.TimeseriesProperties;
+import org.n52.shared.serializable.pojos.TimeseriesRenderingOptions;
+
+/**
+ * Caches rendered charts by a key derived from all options affecting the rendered image. The requested
+ * timespan is rounded to a configurable granularity, so that charts requested within a short time share one
+ * rendering. Charts showing recent data expire as fast as cached observations do, charts of past timespans
+ * are kept longer. Charts missing data of a failed request are not cached. The total size of all cached
+ * charts is bounded, least recently used charts are evicted first.
+ */
+public class RenderedChartCache {
+
+    private static final String KEY_PREFIX = "chart_";
+
+    private static RenderedChartCache instance;
+
+    private final long granularity;
+
+    private final long liveTtl;
+
+    private final long historicTtl;
+
+    private final ByteBoundedLruCache<RenderedChart> charts;
+
+    /**
+     * @return the shared cache instance configured via {@link org.n52.server.mgmt.ConfigurationContext}.
+     */
+    public static synchronized RenderedChartCache getInstance() {
+        if (instance == null) {
+            instance = new RenderedChartCache(CHART_CACHE_SIZE,
+                                              CHART_CACHE_TIME_GRANULARITY,
+                                              OBSERVATION_CACHE_TTL,
+                                              FILE_KEEPING_TIME);
+        }
+        return instance;
+    }
+
+    /**
+     * @param maxBytes
+     *        the maximum number of bytes of all cached charts. A value less or equal to zero disables caching.
+     * @param granularity
+     *        milliseconds the begin and end of requested timespans are rounded down to.
+     * @param liveTtl
+     *        milliseconds a chart is cached when its timespan reaches to the current time.
+     * @param historicTtl
+     *        milliseconds a chart is cached when its timespan lies in the past.
+     */
+    public RenderedChartCache(long maxBytes, long granularity, long liveTtl, long historicTtl) {
+        this.granularity = granularity > 0 ? granularity : 1;
+        this.liveTtl = liveTtl;
+        this.historicTtl = historicTtl;
+        this.charts = new ByteBoundedLruCache<RenderedChart>(maxBytes);
+    }
+
+    /**
+     * Creates a cache key from all options which affect the rendered chart. Properties not affecting the
+     * image (e.g. station or metadata information) are ignored.
+     * 
+     * @param options
+     *        the options to render the chart with.
+     * @param overview
+     *        if the chart is rendered as overview.
+     * @return the cache key.
+     */
+    public String createKey(DesignOptions options, boolean overview) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(overview).append('|');
+        sb.append(round(options.getBegin())).append('|');
+        sb.append(round(options.getEnd())).append('|');
+        sb.append(options.getWidth()).append('x').append(options.getHeight()).append('|');
+        sb.append(options.getGrid()).append('|');
+        sb.append(options.getLanguage()).append('|');
+        sb.append(options.getTimeParam()).append('|');
+        sb.append(options.getResultTime()).append('|');
+        sb.append(options.getDownsampling());
+        for (TimeseriesProperties properties : options.getProperties()) {
+            sb.append("|ts:").append(properties.getTimeseriesId());
+            TimeseriesRenderingOptions renderingOptions = properties.getRenderingOptions();
+            if (renderingOptions != null) {
+                sb.append('|').append(renderingOptions.getColor());
+                sb.append('|').append(renderingOptions.getLineWidth());
+            }
+            sb.append('|').append(properties.getLineStyle());
+            sb.append('|').append(properties.getGraphStyle());
+            sb.append('|').append(properties.getOpacity());
+            sb.append('|').append(properties.getUnitOfMeasure());
+            sb.append('|').append(properties.showYAxis());
+            sb.append('|').append(properties.isZeroScaled());
+            sb.append('|').append(properties.isAutoScale());
+            if ( !properties.isAutoScale()) {
+                sb.append('|').append(properties.getAxisLowerBound());
+                sb.append('|').append(properties.getAxisUpperBound());
+            }
+            for (String refValueId : new TreeSet<String>(properties.getReferenceValues())) {
+                ReferenceValue refValue = properties.getRefValue(refValueId);
+                if (refValue.show()) {
+                    sb.append("|ref:").append(refValueId);
+                    sb.append('|').append(refValue.getValue());
+                    sb.append('|').append(refValue.getColor());
+                }
+            }
+        }
+        return new MD5HashGenerator(KEY_PREFIX).generate(new String[] {sb.toString()});
+    }
+
+    private long round(long time) {
+        return time - (time % granularity);
+    }
+
+    /**
+     * @param key
+     *        the key created for the chart's options.
+     * @return the cached chart or <code>null</code> if not cached or expired.
+     */
+    public RenderedChart get(String key) {
+        return charts.get(key, now());
+    }
+
+    /**
+     * @param key
+     *        the key created for the chart's options.
+     * @param options
+     *        the options the chart has been rendered with.
+     * @param chart
+     *        the rendered chart, not cached if it is incomplete or larger than the whole cache.
+     */
+    public void put(String key, DesignOptions options, RenderedChart chart) {
+        if ( !chart.isComplete()) {
+            return;
+        }
+        long now = now();
+        boolean live = options.getEnd() >= now - granularity;
+        charts.put(key, chart, chart.getSize(), now + (live ? liveTtl : historicTtl), now);
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    public int size() {
+        return charts.size();
+    }
+
+    public long getCachedBytes() {
+        return charts.getBytes();
+    }
+
+}
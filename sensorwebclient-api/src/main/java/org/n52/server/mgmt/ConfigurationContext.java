@@ -34,10 +34,10 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeoutException;
 
 import javax.servlet.ServletContext;
@@ -46,6 +46,10 @@ import javax.xml.parsers.SAXParserFactory;
 
 import org.n52.server.da.MetadataHandler;
 import org.n52.server.da.oxf.DefaultMetadataHandler;
+import org.n52.server.da.oxf.SensorDescriptionCache;
+import org.n52.server.io.ExportThreadPool;
+import org.n52.server.io.downsampling.DownsamplingAlgorithm;
+import org.n52.server.util.SosAdapterFactory;
 import org.n52.server.util.Statistics;
 import org.n52.shared.serializable.pojos.sos.SOSMetadata;
 import org.slf4j.Logger;
@@ -63,7 +67,7 @@ public class ConfigurationContext implements ServletContextAware {
 
 
 
-    private static Map<String, SOSMetadata> serviceMetadatas = Collections.synchronizedMap(new HashMap<String, SOSMetadata>());
+    private static final SosMetadataRegistry serviceMetadatas = new SosMetadataRegistry();
 
     public static int STARTUP_DELAY;
 
@@ -103,6 +107,38 @@ public class ConfigurationContext implements ServletContextAware {
 
     public static List<String> NO_DATA_VALUES;
 
+    public static long OBSERVATION_CACHE_SIZE = 64 * 1024 * 1024;
+
+    public static long OBSERVATION_CACHE_BUCKET_SIZE = 24 * 60 * 60 * 1000;
+
+    public static long OBSERVATION_CACHE_TTL = 60 * 1000;
+
+    public static DownsamplingAlgorithm DOWNSAMPLING_ALGORITHM = DownsamplingAlgorithm.LTTB;
+
+    public static int SEARCH_RESULT_LIMIT = 100;
+
+    public static long CHART_IMAGE_STORE_SIZE = 64 * 1024 * 1024;
+
+    public static long CHART_CACHE_SIZE = 32 * 1024 * 1024;
+
+    public static long CHART_CACHE_TIME_GRANULARITY = 60 * 1000;
+
+    public static int EXPORT_THREAD_POOL_SIZE = 4;
+
+    public static int PDF_RENDERING_LIMIT = 2;
+
+    public static long HTTP_IDLE_CONNECTION_TIMEOUT = 30 * 1000;
+
+    public static long SENSORML_CACHE_SIZE = 16 * 1024 * 1024;
+
+    public static long SENSORML_DISK_CACHE_SIZE = 64 * 1024 * 1024;
+
+    public static long SENSORML_CACHE_REFRESH_INTERVAL = 24 * 60 * 60 * 1000;
+
+    public static int STATION_CLUSTER_LIMIT = 200;
+
+    public static int STATION_TILE_MAX_AGE = 300;
+
     public ConfigurationContext() {
         LOGGER.debug("Create ConfigurationContext ...");
     }
@@ -138,6 +174,29 @@ public class ConfigurationContext implements ServletContextAware {
         catch (Exception e) {
             LOGGER.error("Could not read context parameter", e);
         }
+        try {
+            // optional parameters which have to be parsed
+            OBSERVATION_CACHE_SIZE = getOptionalLongValue("OBSERVATION_CACHE_SIZE", OBSERVATION_CACHE_SIZE);
+            OBSERVATION_CACHE_BUCKET_SIZE = getOptionalLongValue("OBSERVATION_CACHE_BUCKET_SIZE", OBSERVATION_CACHE_BUCKET_SIZE);
+            OBSERVATION_CACHE_TTL = getOptionalLongValue("OBSERVATION_CACHE_TTL", OBSERVATION_CACHE_TTL);
+            String downsampling = getOptionalParameterValue("DOWNSAMPLING_ALGORITHM");
+            DOWNSAMPLING_ALGORITHM = DownsamplingAlgorithm.fromName(downsampling, DOWNSAMPLING_ALGORITHM);
+            SEARCH_RESULT_LIMIT = Math.max(1, getOptionalIntValue("SEARCH_RESULT_LIMIT", SEARCH_RESULT_LIMIT));
+            CHART_IMAGE_STORE_SIZE = getOptionalLongValue("CHART_IMAGE_STORE_SIZE", CHART_IMAGE_STORE_SIZE);
+            CHART_CACHE_SIZE = getOptionalLongValue("CHART_CACHE_SIZE", CHART_CACHE_SIZE);
+            CHART_CACHE_TIME_GRANULARITY = getOptionalLongValue("CHART_CACHE_TIME_GRANULARITY", CHART_CACHE_TIME_GRANULARITY);
+            EXPORT_THREAD_POOL_SIZE = getOptionalIntValue("EXPORT_THREAD_POOL_SIZE", EXPORT_THREAD_POOL_SIZE);
+            PDF_RENDERING_LIMIT = getOptionalIntValue("PDF_RENDERING_LIMIT", PDF_RENDERING_LIMIT);
+            HTTP_IDLE_CONNECTION_TIMEOUT = getOptionalLongValue("HTTP_IDLE_CONNECTION_TIMEOUT", HTTP_IDLE_CONNECTION_TIMEOUT);
+            SENSORML_CACHE_SIZE = getOptionalLongValue("SENSORML_CACHE_SIZE", SENSORML_CACHE_SIZE);
+            SENSORML_DISK_CACHE_SIZE = getOptionalLongValue("SENSORML_DISK_CACHE_SIZE", SENSORML_DISK_CACHE_SIZE);
+            SENSORML_CACHE_REFRESH_INTERVAL = getOptionalLongValue("SENSORML_CACHE_REFRESH_INTERVAL", SENSORML_CACHE_REFRESH_INTERVAL);
+            STATION_CLUSTER_LIMIT = getOptionalIntValue("STATION_CLUSTER_LIMIT", STATION_CLUSTER_LIMIT);
+            STATION_TILE_MAX_AGE = getOptionalIntValue("STATION_TILE_MAX_AGE", STATION_TILE_MAX_AGE);
+        }
+        catch (Exception e) {
+            LOGGER.error("Could not read optional context parameter", e);
+        }
 
         GEN_DIR_ZIP = GEN_DIR + "/zipped";
         // USE_DEVEL_CACHING = IS_DEV_MODE;
@@ -154,6 +213,9 @@ public class ConfigurationContext implements ServletContextAware {
      */
     public void shutdown() {
         Statistics.shutdown();
+        ExportThreadPool.shutdown();
+        SosAdapterFactory.shutdown();
+        SensorDescriptionCache.shutdown();
     }
 
     private void parsePreConfiguredServices(String dsDirectory) {
@@ -204,6 +266,7 @@ public class ConfigurationContext implements ServletContextAware {
         String value = servletContext.getInitParameter(parameter);
         if (value == null) {
             LOGGER.info("Using default of parameter {}.", parameter);
+            return null;
         }
         if (value.isEmpty()) {
             LOGGER.warn("Empty parameter value for parameter {}.", parameter);
@@ -212,6 +275,20 @@ public class ConfigurationContext implements ServletContextAware {
         return value;
     }
 
+    private int getOptionalIntValue(String parameter, int defaultValue) {
+        String value = getOptionalParameterValue(parameter);
+        return value == null || value.trim().isEmpty()
+            ? defaultValue
+            : Integer.parseInt(value.trim());
+    }
+
+    private long getOptionalLongValue(String parameter, long defaultValue) {
+        String value = getOptionalParameterValue(parameter);
+        return value == null || value.trim().isEmpty()
+            ? defaultValue
+            : Long.parseLong(value.trim());
+    }
+
     private List<String> getNoDataValues(String noDatas) {
         List<String> values = new ArrayList<String>();
         if (noDatas.length() > 1) {
@@ -236,47 +313,105 @@ public class ConfigurationContext implements ServletContextAware {
 
 
 
-    public synchronized static Map<String, SOSMetadata> getServiceMetadatas() {
-        return serviceMetadatas;
+    /**
+     * @return a live view on all known SOS metadata, safe to be iterated concurrently.
+     */
+    public static Map<String, SOSMetadata> getServiceMetadatas() {
+        return serviceMetadatas.asMap();
     }
 
-    public synchronized static Collection<SOSMetadata> getSOSMetadatas() {
-        List<SOSMetadata> sosMetadatas = new ArrayList<SOSMetadata>();
-        for (SOSMetadata metadata : serviceMetadatas.values()) {
-            sosMetadatas.add(metadata);
-        }
-        return sosMetadatas;
+    public static Collection<SOSMetadata> getSOSMetadatas() {
+        return serviceMetadatas.getAll();
     }
 
-    public synchronized static SOSMetadata getSOSMetadata(String url) {
-        url = url.trim();
-        if (isMetadataAvailable(url)) {
-            return (SOSMetadata) getServiceMetadatas().get(url);
-        }
+    /**
+     * @return an index resolving the ids of all known timeseries in constant time.
+     */
+    public static TimeseriesIdIndex getTimeseriesIdIndex() {
+        return serviceMetadatas.getTimeseriesIdIndex();
+    }
+
+    /**
+     * @return a full text index over all known services, stations, parameters and timeseries.
+     */
+    public static MetadataSearchIndex getSearchIndex() {
+        return serviceMetadatas.getSearchIndex();
+    }
+
+    /**
+     * @return a spatial index over the stations of all known services.
+     */
+    public static StationIndex getStationIndex() {
+        return serviceMetadatas.getStationIndex();
+    }
+
+    /**
+     * Gets the initialized metadata of an SOS. If not initialized yet, metadata gets completed from the
+     * service. Initialization runs only once per service; readers of other (or already initialized) services
+     * are never blocked.
+     * 
+     * @param url
+     *        the service URL.
+     * @return the initialized metadata.
+     * @throws MetadataUnavailableException
+     *         if initialization failed or timed out.
+     */
+    public static SOSMetadata getSOSMetadata(String url) {
+        final String serviceUrl = url.trim();
         try {
-            if (containsServiceMetadata(url)) {
-                SOSMetadata metadata = getServiceMetadatas().get(url);
-                MetadataHandler handler = createSosMetadataHandler(metadata);
-                handler.performMetadataCompletion();
-                if ( !metadata.hasDonePositionRequest()) {
-                    SosMetadataUpdate.updateService(url);
+            return serviceMetadatas.getInitialized(serviceUrl, new Callable<SOSMetadata>() {
+                @Override
+                public SOSMetadata call() throws Exception {
+                    return initializeSOSMetadata(serviceUrl);
                 }
-                return metadata;
-            } else {
-                // try to get metadata with default SOS version.
-                SOSMetadata metadata = new SOSMetadata(url, url, DEFAULT_SOS_VERSION);
-                SosMetadataUpdate.updateService(url);
-                serviceMetadatas.put(url, metadata);
-                return metadata;
-            }
+            }, SERVER_TIMEOUT);
+        }
+        catch (TimeoutException e) {
+            LOGGER.warn("Timeout while waiting for initialization of SOS metadata for '{}'.", serviceUrl);
+            throw new MetadataUnavailableException("Timeout while initializing metadata of " + serviceUrl, e);
         }
         catch (Exception e) {
-            // throw new RuntimeException("Error building server metadata", e);
             LOGGER.error("Error building server metadata", e);
-            return null; // TODO do not return null
+            throw new MetadataUnavailableException("Could not initialize metadata of " + serviceUrl, e);
         }
     }
 
+    private static SOSMetadata initializeSOSMetadata(String serviceUrl) throws Exception {
+        if (containsServiceMetadata(serviceUrl)) {
+            SOSMetadata metadata = harvestSOSMetadata(serviceUrl);
+            initializeMetadata(metadata);
+            if ( !metadata.hasDonePositionRequest()) {
+                SosMetadataUpdate.cacheSnapshot(metadata);
+            }
+            return metadata;
+        } else {
+            // try to get metadata with default SOS version.
+            SOSMetadata metadata = new SOSMetadata(serviceUrl, serviceUrl, DEFAULT_SOS_VERSION);
+            serviceMetadatas.put(metadata);
+            SosMetadataUpdate.updateService(serviceUrl);
+            return serviceMetadatas.get(serviceUrl);
+        }
+    }
+
+    /**
+     * Completes a fresh copy of the registered metadata from the service. The registered metadata stays
+     * untouched so that readers keep a consistent snapshot while the harvest is running.
+     * 
+     * @param serviceUrl
+     *        the service URL.
+     * @return the completed metadata which has not been registered yet.
+     * @throws Exception
+     *         if completing metadata fails.
+     */
+    public static SOSMetadata harvestSOSMetadata(String serviceUrl) throws Exception {
+        SOSMetadata registered = serviceMetadatas.get(serviceUrl);
+        SOSMetadata snapshot = registered != null
+            ? registered.clone()
+            : new SOSMetadata(serviceUrl, serviceUrl, DEFAULT_SOS_VERSION);
+        MetadataHandler handler = createSosMetadataHandler(snapshot);
+        return handler.performMetadataCompletion();
+    }
+
     @SuppressWarnings("unchecked")
     public static MetadataHandler createSosMetadataHandler(SOSMetadata metadata) {
         String handler = metadata.getSosMetadataHandler();
@@ -309,11 +444,12 @@ public class ConfigurationContext implements ServletContextAware {
     }
 
     public static boolean isMetadataAvailable(String sosURL) {
-        return containsServiceMetadata(sosURL) && serviceMetadatas.get(sosURL).isInitialized();
+        SOSMetadata metadata = serviceMetadatas.get(sosURL);
+        return metadata != null && metadata.isInitialized() && !serviceMetadatas.isInitializing(sosURL);
     }
 
     public static boolean containsServiceMetadata(String sosURL) {
-        return serviceMetadatas.containsKey(sosURL) && serviceMetadatas.get(sosURL) != null;
+        return serviceMetadatas.contains(sosURL);
     }
 
     public static boolean containsServiceInstance(String instance) {
@@ -345,16 +481,25 @@ public class ConfigurationContext implements ServletContextAware {
     }
 
     public static void initializeMetadata(SOSMetadata metadata) {
-        SOSMetadata old = serviceMetadatas.put(metadata.getServiceUrl(), metadata);
-        LOGGER.debug(old == null ? "SOS metadata initialized." : "SOS metadata replaced with " + metadata);
         metadata.setInitialized(true);
+        SOSMetadata old = serviceMetadatas.put(metadata);
+        LOGGER.debug(old == null ? "SOS metadata initialized." : "SOS metadata replaced with " + metadata);
+    }
+
+    /**
+     * @param serviceUrl
+     *        the URL of the service to remove.
+     * @return the removed metadata or <code>null</code> if no metadata was registered.
+     */
+    public static SOSMetadata removeSOSMetadata(String serviceUrl) {
+        return serviceMetadatas.remove(serviceUrl);
     }
 
     public static void addNewSOSMetadata(SOSMetadata metadata) {
         try {
             String serviceURL = metadata.getServiceUrl();
             LOGGER.debug(String.format("Add new SOS metadata for '%s' ", serviceURL));
-            serviceMetadatas.put(serviceURL, metadata);
+            serviceMetadatas.put(metadata);
             // SosMetadataUpdate.loadLocation(metadata.getId());
         }
         catch (Exception e) {
@@ -362,15 +507,26 @@ public class ConfigurationContext implements ServletContextAware {
         }
     }
 
+    /**
+     * Updates the metadata of all protected services. Each update is performed on a copy of the registered
+     * metadata which replaces (and gets re-indexed) once the update has been finished.
+     * 
+     * @return the updated metadata by service URL.
+     */
     public static Map<String, SOSMetadata> updateSOSMetadata() {
         LOGGER.debug("Update protected services");
         Map<String, SOSMetadata> updatedMetadatas = new HashMap<String, SOSMetadata>();
-        for (String metadataKey : serviceMetadatas.keySet()) {
-            SOSMetadata sosMetadata = serviceMetadatas.get(metadataKey);
+        for (SOSMetadata sosMetadata : serviceMetadatas.getAll()) {
             if (sosMetadata.isProtectedService()) {
                 try {
-                    MetadataHandler metadataHandler = ConfigurationContext.createSosMetadataHandler(sosMetadata);
-                    SOSMetadata updatedMetadata = metadataHandler.updateMetadata(sosMetadata);
+                    SOSMetadata snapshot = sosMetadata.clone();
+                    MetadataHandler metadataHandler = ConfigurationContext.createSosMetadataHandler(snapshot);
+                    SOSMetadata updatedMetadata = metadataHandler.updateMetadata(snapshot);
+                    if (updatedMetadata == null) {
+                        LOGGER.debug("No update for service with url '{}'", sosMetadata.getServiceUrl());
+                        continue;
+                    }
+                    initializeMetadata(updatedMetadata);
                     updatedMetadatas.put(updatedMetadata.getServiceUrl(), updatedMetadata);
                     LOGGER.debug("Update metadata for service with url '{}'", updatedMetadata.getServiceUrl());
                 }
@@ -0,0 +1,468 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.mgmt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.n52.shared.serializable.pojos.sos.Category;
+import org.n52.shared.serializable.pojos.sos.Feature;
+import org.n52.shared.serializable.pojos.sos.Offering;
+import org.n52.shared.serializable.pojos.sos.Phenomenon;
+import org.n52.shared.serializable.pojos.sos.Procedure;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+import org.n52.shared.serializable.pojos.sos.SosTimeseries;
+import org.n52.shared.serializable.pojos.sos.Station;
+import org.n52.shared.serializable.pojos.sos.TimeseriesParametersLookup;
+
+/**
+ * An in-memory full text index over the labels and ids of services, stations, timeseries parameters and
+ * timeseries. A search term matches a resource if one of the resource's texts contains the term (ignoring
+ * case).<br>
+ * <br>
+ * Each distinct (lower case) text is indexed once by its trigrams, so candidate texts of a search term are
+ * found by intersecting the posting lists of the term's trigrams. Terms shorter than three characters are
+ * matched against the distinct texts only. The index of a service is rebuilt completely and replaced
+ * atomically each time its metadata is (re)loaded.
+ */
+public class MetadataSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private static final Comparator<Hit> RANKING = new Comparator<Hit>() {
+        @Override
+        public int compare(Hit first, Hit second) {
+            int byScore = Double.compare(second.getScore(), first.getScore());
+            if (byScore != 0) {
+                return byScore;
+            }
+            int byType = first.getType().compareTo(second.getType());
+            return byType != 0 ? byType : first.getId().compareTo(second.getId());
+        }
+    };
+
+    public enum Type {
+        SERVICE, STATION, OFFERING, FEATURE, PROCEDURE, PHENOMENON, CATEGORY, TIMESERIES
+    }
+
+    private final ConcurrentMap<String, ServiceIndex> serviceIndexes = new ConcurrentHashMap<String, ServiceIndex>();
+
+    /**
+     * (Re)indexes the given metadata, replacing the index of the same service built before.
+     * 
+     * @param metadata
+     *        the metadata to index.
+     */
+    public void index(SOSMetadata metadata) {
+        serviceIndexes.put(metadata.getServiceUrl(), new ServiceIndex(metadata));
+    }
+
+    public void remove(String serviceUrl) {
+        serviceIndexes.remove(serviceUrl);
+    }
+
+    /**
+     * Searches all indexed resources matching each of the given terms. Hits are ranked by how well the terms
+     * match the resource's label (exact, prefix, word prefix, contained) over matches of other texts (like
+     * ids). Equally ranked hits are ordered by their type and id. Blank terms are ignored, if no term is left
+     * nothing is found. Only the best <code>limit</code> hits are kept while searching.
+     * 
+     * @param searchTerms
+     *        the terms which all have to match (AND).
+     * @param limit
+     *        the maximum number of hits to return.
+     * @return the ranked hits.
+     * @throws IllegalArgumentException
+     *         if limit is less than one.
+     */
+    public List<Hit> search(String[] searchTerms, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Search result limit has to be positive: " + limit);
+        }
+        List<String> terms = normalize(searchTerms);
+        if (terms.isEmpty()) {
+            return new ArrayList<Hit>();
+        }
+        Collection<ServiceIndex> indexes = serviceIndexes.values();
+        int candidates = 0;
+        for (ServiceIndex serviceIndex : indexes) {
+            candidates += serviceIndex.size();
+        }
+        int capacity = Math.max(1, Math.min(limit, candidates));
+        PriorityQueue<Hit> best = new PriorityQueue<Hit>(capacity, Collections.reverseOrder(RANKING));
+        for (ServiceIndex serviceIndex : indexes) {
+            serviceIndex.search(terms, best, limit);
+        }
+        List<Hit> hits = new ArrayList<Hit>(best);
+        Collections.sort(hits, RANKING);
+        return hits;
+    }
+
+    private static List<String> normalize(String[] searchTerms) {
+        List<String> terms = new ArrayList<String>();
+        if (searchTerms != null) {
+            for (String searchTerm : searchTerms) {
+                if (searchTerm != null && !searchTerm.trim().isEmpty()) {
+                    terms.add(searchTerm.trim().toLowerCase());
+                }
+            }
+        }
+        return terms;
+    }
+
+    private static Set<String> createGrams(String text) {
+        Set<String> grams = new LinkedHashSet<String>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    public static class Hit {
+
+        private final Type type;
+
+        private final String id;
+
+        private final String label;
+
+        private final double score;
+
+        Hit(Type type, String id, String label, double score) {
+            this.type = type;
+            this.id = id;
+            this.label = label;
+            this.score = score;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+    }
+
+    private static class Document {
+
+        private final Type type;
+
+        private final String id;
+
+        private final String label;
+
+        private final int labelText;
+
+        Document(Type type, String id, String label, int labelText) {
+            this.type = type;
+            this.id = id;
+            this.label = label;
+            this.labelText = labelText;
+        }
+
+    }
+
+    /**
+     * Immutable index of a single service.
+     */
+    private static class ServiceIndex {
+
+        private final List<Document> documents = new ArrayList<Document>();
+
+        private final List<String> texts = new ArrayList<String>();
+
+        private final Map<String, int[]> textsByGram = new HashMap<String, int[]>();
+
+        private final int[][] documentsByText;
+
+        ServiceIndex(SOSMetadata metadata) {
+            Builder builder = new Builder();
+            builder.add(Type.SERVICE, metadata.getGlobalId(), metadata.getTitle());
+            List<SosTimeseries> allTimeseries = new ArrayList<SosTimeseries>();
+            for (Station station : metadata.getStations()) {
+                if (station.getLocation() != null) {
+                    // stations are identified by their location
+                    builder.add(Type.STATION, station.getGlobalId(), station.getLabel());
+                }
+                for (SosTimeseries timeseries : station.getObservedTimeseries()) {
+                    if (timeseries.parametersComplete()) {
+                        allTimeseries.add(timeseries);
+                    }
+                }
+            }
+            TimeseriesParametersLookup lookup = metadata.getTimeseriesParametersLookup();
+            for (Offering offering : lookup.getOfferings()) {
+                builder.add(Type.OFFERING, offering.getGlobalId(), offering.getLabel());
+            }
+            for (Feature feature : lookup.getFeatures()) {
+                builder.add(Type.FEATURE, feature.getGlobalId(), feature.getLabel());
+            }
+            for (Procedure procedure : lookup.getProcedures()) {
+                builder.add(Type.PROCEDURE, procedure.getGlobalId(), procedure.getLabel());
+            }
+            for (Phenomenon phenomenon : lookup.getPhenomenons()) {
+                builder.add(Type.PHENOMENON, phenomenon.getGlobalId(), phenomenon.getLabel());
+            }
+            Map<String, Category> categories = new LinkedHashMap<String, Category>();
+            for (SosTimeseries timeseries : allTimeseries) {
+                Category category = timeseries.getCategory();
+                categories.put(category.getGlobalId(), category);
+            }
+            for (Category category : categories.values()) {
+                builder.add(Type.CATEGORY, category.getGlobalId(), category.getLabel());
+            }
+            for (SosTimeseries timeseries : allTimeseries) {
+                builder.add(Type.TIMESERIES, timeseries.getTimeseriesId(), timeseries.getLabel(),
+                            timeseries.getFeatureId(),
+                            timeseries.getPhenomenonId(),
+                            timeseries.getProcedureId(),
+                            timeseries.getOfferingId(),
+                            timeseries.getFeature().getLabel(),
+                            timeseries.getPhenomenon().getLabel(),
+                            timeseries.getProcedure().getLabel(),
+                            timeseries.getOffering().getLabel(),
+                            timeseries.getCategory().getLabel(),
+                            timeseries.getServiceUrl());
+            }
+            documentsByText = builder.build();
+        }
+
+        int size() {
+            return documents.size();
+        }
+
+        /**
+         * Adds the hits of this service to the given hits, keeping the best <code>limit</code> hits only.
+         */
+        void search(List<String> terms, PriorityQueue<Hit> hits, int limit) {
+            Map<Integer, Double> scores = null;
+            for (String term : terms) {
+                Map<Integer, Double> termScores = scoreDocuments(term);
+                if (scores == null) {
+                    scores = termScores;
+                }
+                else {
+                    Iterator<Map.Entry<Integer, Double>> iterator = scores.entrySet().iterator();
+                    while (iterator.hasNext()) {
+                        Map.Entry<Integer, Double> entry = iterator.next();
+                        Double termScore = termScores.get(entry.getKey());
+                        if (termScore == null) {
+                            iterator.remove();
+                        }
+                        else {
+                            entry.setValue(entry.getValue() + termScore);
+                        }
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return;
+                }
+            }
+            if (scores != null) {
+                for (Map.Entry<Integer, Double> match : scores.entrySet()) {
+                    Document document = documents.get(match.getKey());
+                    hits.offer(new Hit(document.type, document.id, document.label, match.getValue()));
+                    if (hits.size() > limit) {
+                        hits.poll();
+                    }
+                }
+            }
+        }
+
+        private Map<Integer, Double> scoreDocuments(String term) {
+            Map<Integer, Double> termScores = new HashMap<Integer, Double>();
+            for (int textId : findTexts(term)) {
+                String text = texts.get(textId);
+                for (int documentId : documentsByText[textId]) {
+                    Document document = documents.get(documentId);
+                    double score = document.labelText == textId
+                        ? scoreLabel(text, term)
+                        : 0.5;
+                    Double current = termScores.get(documentId);
+                    if (current == null || current < score) {
+                        termScores.put(documentId, score);
+                    }
+                }
+            }
+            return termScores;
+        }
+
+        private double scoreLabel(String label, String term) {
+            if (label.equals(term)) {
+                return 4;
+            }
+            if (label.startsWith(term)) {
+                return 3;
+            }
+            int index = label.indexOf(term);
+            while (index > 0) {
+                if ( !Character.isLetterOrDigit(label.charAt(index - 1))) {
+                    return 2;
+                }
+                index = label.indexOf(term, index + 1);
+            }
+            return 1;
+        }
+
+        private Collection<Integer> findTexts(String term) {
+            List<Integer> matches = new ArrayList<Integer>();
+            if (term.length() < GRAM_LENGTH) {
+                for (int textId = 0; textId < texts.size(); textId++) {
+                    if (texts.get(textId).contains(term)) {
+                        matches.add(textId);
+                    }
+                }
+                return matches;
+            }
+            int[] candidates = null;
+            for (String gram : createGrams(term)) {
+                int[] postings = textsByGram.get(gram);
+                if (postings == null) {
+                    return matches;
+                }
+                candidates = candidates == null ? postings : intersect(candidates, postings);
+            }
+            for (int textId : candidates) {
+                if (texts.get(textId).contains(term)) {
+                    matches.add(textId);
+                }
+            }
+            return matches;
+        }
+
+        private static int[] intersect(int[] first, int[] second) {
+            int[] result = new int[Math.min(first.length, second.length)];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < first.length && j < second.length) {
+                if (first[i] < second[j]) {
+                    i++;
+                }
+                else if (first[i] > second[j]) {
+                    j++;
+                }
+                else {
+                    result[size++] = first[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, size);
+        }
+
+        private class Builder {
+
+            private final Map<String, Integer> textIds = new HashMap<String, Integer>();
+
+            private final List<List<Integer>> documentsByText = new ArrayList<List<Integer>>();
+
+            private final Map<String, List<Integer>> textsByGram = new HashMap<String, List<Integer>>();
+
+            void add(Type type, String id, String label, String... otherTexts) {
+                int documentId = documents.size();
+                int labelText = addText(label, documentId);
+                documents.add(new Document(type, id, label, labelText));
+                for (String text : otherTexts) {
+                    addText(text, documentId);
+                }
+            }
+
+            private int addText(String text, int documentId) {
+                if (text == null) {
+                    return -1;
+                }
+                String normalized = text.toLowerCase();
+                Integer textId = textIds.get(normalized);
+                if (textId == null) {
+                    textId = texts.size();
+                    texts.add(normalized);
+                    textIds.put(normalized, textId);
+                    documentsByText.add(new ArrayList<Integer>());
+                    for (String gram : createGrams(normalized)) {
+                        List<Integer> postings = textsByGram.get(gram);
+                        if (postings == null) {
+                            postings = new ArrayList<Integer>();
+                            textsByGram.put(gram, postings);
+                        }
+                        postings.add(textId);
+                    }
+                }
+                List<Integer> documentIds = documentsByText.get(textId);
+                if (documentIds.isEmpty() || documentIds.get(documentIds.size() - 1) != documentId) {
+                    documentIds.add(documentId);
+                }
+                return textId;
+            }
+
+            int[][] build() {
+                for (Map.Entry<String, List<Integer>> postings : textsByGram.entrySet()) {
+                    ServiceIndex.this.textsByGram.put(postings.getKey(), toArray(postings.getValue()));
+                }
+                int[][] documentIds = new int[documentsByText.size()][];
+                for (int textId = 0; textId < documentIds.length; textId++) {
+                    documentIds[textId] = toArray(documentsByText.get(textId));
+                }
+                return documentIds;
+            }
+
+            private int[] toArray(List<Integer> values) {
+                int[] array = new int[values.size()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = values.get(i);
+                }
+                return array;
+            }
+        }
+
+    }
+
+}
@@ -41,7 +41,7 @@ public class SosInstanceContentHandler extends DefaultHandler {
 
     enum TagNames {
 
-        INSTANCE, ITEMNAME, URL, VERSION, METADATAHANDLER, ADAPTER, WATERML, TIMEOUT, LLEASTING, LLNORTHING, UREASTING, URNORTHING, DEFAULTZOOM, AUTOZOOM, REQUESTCHUNK, FORCEXYAXISORDER, PROTECTEDSERVICE, NOELEMENT, SUPPORTSFIRSTLATEST, ENABLEEVENTING, GDAPREFINAL, HTTPCONNECTIONPOOLSIZE;
+        INSTANCE, ITEMNAME, URL, VERSION, METADATAHANDLER, ADAPTER, WATERML, TIMEOUT, LLEASTING, LLNORTHING, UREASTING, URNORTHING, DEFAULTZOOM, AUTOZOOM, REQUESTCHUNK, FORCEXYAXISORDER, PROTECTEDSERVICE, NOELEMENT, SUPPORTSFIRSTLATEST, ENABLEEVENTING, GDAPREFINAL, HTTPCONNECTIONPOOLSIZE, MAXCONCURRENTREQUESTS;
     }
 
     private SOSMetadataBuilder currentBuilder = new SOSMetadataBuilder();
@@ -97,6 +97,8 @@ public class SosInstanceContentHandler extends DefaultHandler {
             currentElement = TagNames.GDAPREFINAL;
         } else if (TagNames.HTTPCONNECTIONPOOLSIZE.name().equalsIgnoreCase(qName)) {
             currentElement = TagNames.HTTPCONNECTIONPOOLSIZE;
+        } else if (TagNames.MAXCONCURRENTREQUESTS.name().equalsIgnoreCase(qName)) {
+            currentElement = TagNames.MAXCONCURRENTREQUESTS;
         }
     }
 
@@ -204,6 +206,10 @@ public class SosInstanceContentHandler extends DefaultHandler {
                         int httpConnectionPoolSize = Integer.parseInt(parsedCharacters);
                         currentBuilder.setHttpConnectionPoolSize(httpConnectionPoolSize);
                         break;
+                    case MAXCONCURRENTREQUESTS:
+                        int maxConcurrentRequests = Integer.parseInt(parsedCharacters);
+                        currentBuilder.setMaxConcurrentRequests(maxConcurrentRequests);
+                        break;
                     default:
                         currentElement = TagNames.NOELEMENT; // reset
                 }
@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.mgmt;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeoutException;
+
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+
+/**
+ * Holds the {@link SOSMetadata} of all known services without any global lock. Initialized metadata is
+ * read lock-free, a missing initialization is performed only once per service URL (concurrent callers for
+ * the same service wait for the running initialization, callers for other services are not affected).
+ * Replacing metadata (e.g. by a cache update) swaps the complete snapshot atomically.<br>
+ * <br>
+ * All registered timeseries are kept in a {@link TimeseriesIdIndex}, a {@link MetadataSearchIndex} and a
+ * {@link StationIndex} which are rebuilt for a service each time its metadata is registered or has been
+ * initialized. Registered metadata must therefore not be changed in place: changes (harvests, updates) are
+ * made on a {@link SOSMetadata#clone() clone} which is registered via {@link #put(SOSMetadata)} afterwards.
+ * Indexing is serialized per service and always indexes the metadata registered at that time, so that the
+ * indexes of concurrently replaced metadata end up with the last registered snapshot.
+ */
+public class SosMetadataRegistry {
+
+    private final ConcurrentMap<String, SOSMetadata> metadatas = new ConcurrentHashMap<String, SOSMetadata>();
+
+    private final ConcurrentMap<String, Initialization> initializations = new ConcurrentHashMap<String, Initialization>();
+
+    private final ConcurrentMap<String, Object> indexLocks = new ConcurrentHashMap<String, Object>();
+
+    private final TimeseriesIdIndex timeseriesIdIndex = new TimeseriesIdIndex();
+
+    private final MetadataSearchIndex searchIndex = new MetadataSearchIndex();
+
+    private final StationIndex stationIndex = new StationIndex();
+
+    /**
+     * @param serviceUrl
+     *        the service URL.
+     * @return the registered metadata (initialized or not) or <code>null</code> if service is unknown.
+     */
+    public SOSMetadata get(String serviceUrl) {
+        return metadatas.get(serviceUrl);
+    }
+
+    /**
+     * Atomically registers the given metadata, replacing metadata registered for the same service URL.
+     * 
+     * @param metadata
+     *        the metadata to register.
+     * @return the replaced metadata or <code>null</code> if none was registered before.
+     */
+    public SOSMetadata put(SOSMetadata metadata) {
+        SOSMetadata old = metadatas.put(metadata.getServiceUrl(), metadata);
+        reindex(metadata.getServiceUrl());
+        return old;
+    }
+
+    public SOSMetadata remove(String serviceUrl) {
+        SOSMetadata removed = metadatas.remove(serviceUrl);
+        reindex(serviceUrl);
+        return removed;
+    }
+
+    public boolean contains(String serviceUrl) {
+        return metadatas.containsKey(serviceUrl);
+    }
+
+    /**
+     * @return a live view on all registered metadata which is safe to be iterated concurrently.
+     */
+    public Map<String, SOSMetadata> asMap() {
+        return metadatas;
+    }
+
+    /**
+     * @return a copy of all registered metadata.
+     */
+    public Collection<SOSMetadata> getAll() {
+        return new ArrayList<SOSMetadata>(metadatas.values());
+    }
+
+    /**
+     * @return the index of all timeseries registered so far.
+     */
+    public TimeseriesIdIndex getTimeseriesIdIndex() {
+        return timeseriesIdIndex;
+    }
+
+    /**
+     * @return the search index of all resources registered so far.
+     */
+    public MetadataSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * @return the spatial index of all stations registered so far.
+     */
+    public StationIndex getStationIndex() {
+        return stationIndex;
+    }
+
+    /**
+     * Returns initialized metadata of the given service. If the service has not been initialized yet, the
+     * given initializer is run. Only one initializer runs per service at a time; other callers wait for its
+     * result. A call made by the initializing thread itself (re-entrant) returns the registered metadata
+     * without waiting. Successfully initialized metadata gets registered (if the initializer did not register
+     * it itself) and indexed.
+     * 
+     * @param serviceUrl
+     *        the service URL.
+     * @param initializer
+     *        creates the initialized metadata.
+     * @param timeout
+     *        milliseconds to wait for an initialization running in another thread.
+     * @return the initialized metadata.
+     * @throws TimeoutException
+     *         if an initialization running in another thread did not finish in time.
+     * @throws Exception
+     *         if initialization failed.
+     */
+    public SOSMetadata getInitialized(String serviceUrl, Callable<SOSMetadata> initializer, long timeout) throws Exception {
+        SOSMetadata metadata = metadatas.get(serviceUrl);
+        Initialization running = initializations.get(serviceUrl);
+        if (running == null) {
+            if (metadata != null && metadata.isInitialized()) {
+                return metadata;
+            }
+            Initialization initialization = new Initialization(registering(initializer));
+            running = initializations.putIfAbsent(serviceUrl, initialization);
+            if (running == null) {
+                try {
+                    initialization.run();
+                }
+                finally {
+                    initializations.remove(serviceUrl, initialization);
+                }
+                return getResult(initialization, timeout);
+            }
+        }
+        if (running.isRunByCurrentThread()) {
+            return metadatas.get(serviceUrl);
+        }
+        return getResult(running, timeout);
+    }
+
+    /**
+     * @return <code>true</code> if an initialization of the given service is running.
+     */
+    public boolean isInitializing(String serviceUrl) {
+        return initializations.containsKey(serviceUrl);
+    }
+
+    private Callable<SOSMetadata> registering(final Callable<SOSMetadata> initializer) {
+        return new Callable<SOSMetadata>() {
+            @Override
+            public SOSMetadata call() throws Exception {
+                SOSMetadata metadata = initializer.call();
+                if (metadata != null && metadatas.get(metadata.getServiceUrl()) != metadata) {
+                    put(metadata);
+                }
+                return metadata;
+            }
+        };
+    }
+
+    /**
+     * Brings the indexes of a service in line with its currently registered metadata. A writer racing with
+     * another one may thus index the other's snapshot, but never leaves an outdated one behind.
+     */
+    private void reindex(String serviceUrl) {
+        synchronized (getIndexLock(serviceUrl)) {
+            SOSMetadata metadata = metadatas.get(serviceUrl);
+            if (metadata != null) {
+                timeseriesIdIndex.index(metadata);
+                searchIndex.index(metadata);
+                stationIndex.index(metadata);
+            }
+            else {
+                timeseriesIdIndex.remove(serviceUrl);
+                searchIndex.remove(serviceUrl);
+                stationIndex.remove(serviceUrl);
+            }
+        }
+    }
+
+    private Object getIndexLock(String serviceUrl) {
+        Object lock = indexLocks.get(serviceUrl);
+        if (lock == null) {
+            Object newLock = new Object();
+            lock = indexLocks.putIfAbsent(serviceUrl, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
+    private SOSMetadata getResult(Initialization initialization, long timeout) throws Exception {
+        try {
+            return initialization.get(timeout, MILLISECONDS);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new IllegalStateException("Could not initialize SOS metadata.", cause);
+        }
+    }
+
+    private static class Initialization extends FutureTask<SOSMetadata> {
+
+        private volatile Thread runner;
+
+        Initialization(Callable<SOSMetadata> initializer) {
+            super(initializer);
+        }
+
+        @Override
+        public void run() {
+            runner = Thread.currentThread();
+            try {
+                super.run();
+            }
+            finally {
+                runner = null;
+            }
+        }
+
+        boolean isRunByCurrentThread() {
+            return runner == Thread.currentThread();
+        }
+    }
+
+}
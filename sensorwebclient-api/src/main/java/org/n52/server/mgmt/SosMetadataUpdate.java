@@ -27,8 +27,6 @@
  */
 package org.n52.server.mgmt;
 
-import static org.n52.server.mgmt.ConfigurationContext.getSOSMetadata;
-
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -136,11 +134,36 @@ public class SosMetadataUpdate {
         }
     }
 
+    /**
+     * Harvests a new metadata snapshot of the given service, registers it (replacing the old snapshot
+     * atomically) and writes it to the cache.
+     *
+     * @param cache the cache file to write.
+     * @param serviceUrl the service url.
+     * @throws Exception if harvesting or writing the cache fails.
+     */
     protected static void cacheMetadata(File cache, String serviceUrl) throws Exception {
+        SOSMetadata snapshot = ConfigurationContext.harvestSOSMetadata(serviceUrl);
+        ConfigurationContext.initializeMetadata(snapshot);
+        writeMetadata(cache, snapshot);
+    }
+
+    /**
+     * Writes an already harvested metadata snapshot to the cache.
+     *
+     * @param metadata the metadata to cache.
+     * @throws IOException if writing the cache fails.
+     */
+    protected static void cacheSnapshot(SOSMetadata metadata) throws IOException {
+        prepareCacheTargetDirectory();
+        writeMetadata(getCacheTarget(metadata.getServiceUrl()), metadata);
+    }
+
+    private static void writeMetadata(File cache, SOSMetadata metadata) throws IOException {
         OutputStream os = new FileOutputStream(cache);
         ObjectOutput serializer = new ObjectOutputStream(new BufferedOutputStream(os));
         try {
-            serializer.writeObject(getSOSMetadata(serviceUrl));
+            serializer.writeObject(metadata);
         } finally {
             serializer.close();
             os.close();
@@ -0,0 +1,536 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.mgmt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.n52.io.crs.BoundingBox;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+import org.n52.shared.serializable.pojos.sos.SosTimeseries;
+import org.n52.shared.serializable.pojos.sos.Station;
+
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * Spatial index over the stations of all services. Stations are packed into a static R-tree per service and
+ * into one over all services, so bounding box queries only visit the tree nodes intersecting the requested
+ * area instead of testing every station. Stations are also resolvable by their global id in constant time.
+ * Like the {@link TimeseriesIdIndex} a service is indexed completely each time its metadata is registered.
+ * Only the tree of that service is packed again, the tree over all services just references the trees of
+ * all services. Readers see the new trees atomically.<br>
+ * <br>
+ * Each tree node also holds the number, the coordinate sums and the category mix of all stations below it.
+ * Stations can thus be clustered on a grid by descending only until a node falls into a single grid cell.
+ */
+public class StationIndex {
+
+    /**
+     * The maximum number of children of a tree node.
+     */
+    private static final int NODE_CAPACITY = 16;
+
+    private final Map<String, List<Entry>> entriesByService = new HashMap<String, List<Entry>>();
+
+    private volatile Map<String, Node> treesByService = Collections.emptyMap();
+
+    private final ConcurrentMap<String, Entry> entriesById = new ConcurrentHashMap<String, Entry>();
+
+    private volatile Node tree = Node.EMPTY;
+
+    private volatile long version = System.currentTimeMillis();
+
+    /**
+     * @param bounds
+     *        the area to query.
+     * @return the stations of all services located within the given bounds.
+     */
+    public List<Entry> getStations(BoundingBox bounds) {
+        return query(tree, bounds);
+    }
+
+    /**
+     * @param serviceUrl
+     *        the service to query.
+     * @param bounds
+     *        the area to query.
+     * @return the stations of the given service located within the given bounds.
+     */
+    public List<Station> getStations(String serviceUrl, BoundingBox bounds) {
+        Node serviceTree = treesByService.get(serviceUrl);
+        List<Station> stations = new ArrayList<Station>();
+        if (serviceTree != null) {
+            for (Entry entry : query(serviceTree, bounds)) {
+                stations.add(entry.getStation());
+            }
+        }
+        return stations;
+    }
+
+    /**
+     * @param stationId
+     *        the global id of the station.
+     * @return the indexed entry or <code>null</code> if station id is unknown.
+     */
+    public Entry getStation(String stationId) {
+        return stationId == null ? null : entriesById.get(stationId);
+    }
+
+    /**
+     * @param serviceUrl
+     *        the service to query.
+     * @param minX
+     *        the western bound (inclusive).
+     * @param minY
+     *        the southern bound (inclusive).
+     * @param maxX
+     *        the eastern bound (exclusive).
+     * @param maxY
+     *        the northern bound (exclusive).
+     * @return the stations of the given service located within the given half-open area.
+     */
+    public List<Station> getStations(String serviceUrl, double minX, double minY, double maxX, double maxY) {
+        Node serviceTree = treesByService.get(serviceUrl);
+        List<Station> stations = new ArrayList<Station>();
+        if (serviceTree != null) {
+            List<Entry> entries = new ArrayList<Entry>();
+            serviceTree.collect(minX, minY, maxX, maxY, entries);
+            for (Entry entry : entries) {
+                if (entry.getX() < maxX && entry.getY() < maxY) {
+                    stations.add(entry.getStation());
+                }
+            }
+        }
+        return stations;
+    }
+
+    /**
+     * Clusters the stations of a service within the given half-open area on a grid of square cells. The grid
+     * is anchored at -180/-90, so that a station falls into the same cell no matter which area is requested.
+     * 
+     * @param serviceUrl
+     *        the service to query.
+     * @param minX
+     *        the western bound (inclusive).
+     * @param minY
+     *        the southern bound (inclusive).
+     * @param maxX
+     *        the eastern bound (exclusive).
+     * @param maxY
+     *        the northern bound (exclusive).
+     * @param cellSize
+     *        the edge length of a grid cell in degrees.
+     * @return a cluster for each grid cell containing at least one station.
+     */
+    public List<Cluster> getClusters(String serviceUrl,
+                                     double minX,
+                                     double minY,
+                                     double maxX,
+                                     double maxY,
+                                     double cellSize) {
+        Node serviceTree = treesByService.get(serviceUrl);
+        Map<Long, Cluster> cells = new HashMap<Long, Cluster>();
+        if (serviceTree != null) {
+            serviceTree.cluster(minX, minY, maxX, maxY, cellSize, cells);
+        }
+        return new ArrayList<Cluster>(cells.values());
+    }
+
+    /**
+     * @return a value which changes each time a service has been (re)indexed or removed.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return entriesById.size();
+    }
+
+    /**
+     * (Re)indexes all stations of the given metadata, replacing stations indexed for the same service before.
+     * Stations without location are not indexed as they have no global id and never match a spatial query.
+     * 
+     * @param metadata
+     *        the metadata to index.
+     */
+    public void index(SOSMetadata metadata) {
+        String serviceUrl = metadata.getServiceUrl();
+        List<Entry> serviceEntries = new ArrayList<Entry>();
+        for (Station station : metadata.getStations()) {
+            if (station.getLocation() != null) {
+                serviceEntries.add(new Entry(metadata, station));
+            }
+        }
+        synchronized (entriesByService) {
+            Set<String> stationIds = new HashSet<String>();
+            for (Entry entry : serviceEntries) {
+                String stationId = entry.getStation().getGlobalId();
+                stationIds.add(stationId);
+                entriesById.put(stationId, entry);
+            }
+            List<Entry> replaced = entriesByService.put(serviceUrl, serviceEntries);
+            if (replaced != null) {
+                removeEntries(serviceUrl, replaced, stationIds);
+            }
+            Map<String, Node> trees = new HashMap<String, Node>(treesByService);
+            trees.put(serviceUrl, Node.pack(serviceEntries));
+            publish(trees);
+        }
+    }
+
+    /**
+     * @param serviceUrl
+     *        the URL of the service which stations shall be removed from the index.
+     */
+    public void remove(String serviceUrl) {
+        synchronized (entriesByService) {
+            List<Entry> removed = entriesByService.remove(serviceUrl);
+            if (removed != null) {
+                removeEntries(serviceUrl, removed, Collections.<String> emptySet());
+                Map<String, Node> trees = new HashMap<String, Node>(treesByService);
+                trees.remove(serviceUrl);
+                publish(trees);
+            }
+        }
+    }
+
+    private void removeEntries(String serviceUrl, List<Entry> entries, Set<String> keptStationIds) {
+        for (Entry entry : entries) {
+            String stationId = entry.getStation().getGlobalId();
+            Entry current = entriesById.get(stationId);
+            if ( !keptStationIds.contains(stationId) && current != null
+                    && serviceUrl.equals(current.getMetadata().getServiceUrl())) {
+                entriesById.remove(stationId, current);
+            }
+        }
+    }
+
+    private void publish(Map<String, Node> trees) {
+        treesByService = trees;
+        tree = Node.combine(trees.values());
+        version = Math.max(System.currentTimeMillis(), version + 1);
+    }
+
+    private List<Entry> query(Node root, BoundingBox bounds) {
+        List<Entry> result = new ArrayList<Entry>();
+        Point lowerLeft = bounds.getLowerLeft();
+        Point upperRight = bounds.getUpperRight();
+        root.collect(lowerLeft.getX(), lowerLeft.getY(), upperRight.getX(), upperRight.getY(), result);
+
+        // keep exact semantics of the bounding box for candidates on the border
+        List<Entry> contained = new ArrayList<Entry>(result.size());
+        for (Entry entry : result) {
+            if (bounds.contains(entry.getStation().getLocation())) {
+                contained.add(entry);
+            }
+        }
+        return contained;
+    }
+
+    public static class Entry {
+
+        private final SOSMetadata metadata;
+
+        private final Station station;
+
+        private final Set<String> categories = new HashSet<String>();
+
+        Entry(SOSMetadata metadata, Station station) {
+            this.metadata = metadata;
+            this.station = station;
+            for (SosTimeseries timeseries : station.getObservedTimeseries()) {
+                if (timeseries.getCategory() != null) {
+                    categories.add(timeseries.getCategory().getLabel());
+                }
+            }
+        }
+
+        public SOSMetadata getMetadata() {
+            return metadata;
+        }
+
+        public Station getStation() {
+            return station;
+        }
+
+        double getX() {
+            return station.getLocation().getX();
+        }
+
+        double getY() {
+            return station.getLocation().getY();
+        }
+
+    }
+
+    /**
+     * Stations aggregated within a grid cell.
+     */
+    public static class Cluster {
+
+        private final Map<String, Integer> categories = new HashMap<String, Integer>();
+
+        private int count;
+
+        private double sumX;
+
+        private double sumY;
+
+        void add(int stations, double xSum, double ySum, Map<String, Integer> stationsPerCategory) {
+            count += stations;
+            sumX += xSum;
+            sumY += ySum;
+            for (Map.Entry<String, Integer> category : stationsPerCategory.entrySet()) {
+                Integer sum = categories.get(category.getKey());
+                categories.put(category.getKey(), sum == null ? category.getValue() : sum + category.getValue());
+            }
+        }
+
+        void add(Entry entry) {
+            count++;
+            sumX += entry.getX();
+            sumY += entry.getY();
+            for (String category : entry.categories) {
+                Integer sum = categories.get(category);
+                categories.put(category, sum == null ? 1 : sum + 1);
+            }
+        }
+
+        /**
+         * @return the number of stations within the cluster.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return the longitude of the stations' centroid.
+         */
+        public double getX() {
+            return sumX / count;
+        }
+
+        /**
+         * @return the latitude of the stations' centroid.
+         */
+        public double getY() {
+            return sumY / count;
+        }
+
+        /**
+         * @return the number of stations observing each category.
+         */
+        public Map<String, Integer> getCategories() {
+            return Collections.unmodifiableMap(categories);
+        }
+
+    }
+
+    /**
+     * An immutable R-tree node bulk loaded via Sort-Tile-Recursive packing. Leaf nodes hold entries, inner
+     * nodes hold child nodes.
+     */
+    private static final class Node {
+
+        static final Node EMPTY = new Node(new Node[0], new Entry[0]);
+
+        private static final Comparator<Object> BY_X = new Comparator<Object>() {
+            @Override
+            public int compare(Object o1, Object o2) {
+                return Double.compare(centerX(o1), centerX(o2));
+            }
+        };
+
+        private static final Comparator<Object> BY_Y = new Comparator<Object>() {
+            @Override
+            public int compare(Object o1, Object o2) {
+                return Double.compare(centerY(o1), centerY(o2));
+            }
+        };
+
+        private final Node[] children;
+
+        private final Entry[] entries;
+
+        private double minX = Double.POSITIVE_INFINITY;
+
+        private double minY = Double.POSITIVE_INFINITY;
+
+        private double maxX = Double.NEGATIVE_INFINITY;
+
+        private double maxY = Double.NEGATIVE_INFINITY;
+
+        private final Cluster aggregate = new Cluster();
+
+        private Node(Node[] children, Entry[] entries) {
+            this.children = children;
+            this.entries = entries;
+            for (Node child : children) {
+                expand(child.minX, child.minY, child.maxX, child.maxY);
+                Cluster stations = child.aggregate;
+                aggregate.add(stations.count, stations.sumX, stations.sumY, stations.categories);
+            }
+            for (Entry entry : entries) {
+                expand(entry.getX(), entry.getY(), entry.getX(), entry.getY());
+                aggregate.add(entry);
+            }
+        }
+
+        private void expand(double x1, double y1, double x2, double y2) {
+            minX = Math.min(minX, x1);
+            minY = Math.min(minY, y1);
+            maxX = Math.max(maxX, x2);
+            maxY = Math.max(maxY, y2);
+        }
+
+        static Node pack(List<Entry> entries) {
+            List<Object> items = new ArrayList<Object>(entries);
+            if (items.isEmpty()) {
+                return EMPTY;
+            }
+            boolean leafLevel = true;
+            while (leafLevel || items.size() > 1) {
+                items = packLevel(items, leafLevel);
+                leafLevel = false;
+            }
+            return (Node) items.get(0);
+        }
+
+        /**
+         * @return a node having the given trees as children, so that the trees do not have to be packed again.
+         */
+        static Node combine(Collection<Node> trees) {
+            return trees.isEmpty() ? EMPTY : new Node(trees.toArray(new Node[trees.size()]), new Entry[0]);
+        }
+
+        private static List<Object> packLevel(List<Object> items, boolean leafLevel) {
+            int nodeCount = (int) Math.ceil(items.size() / (double) NODE_CAPACITY);
+            int sliceCount = (int) Math.ceil(Math.sqrt(nodeCount));
+            int sliceSize = sliceCount * NODE_CAPACITY;
+            List<Object> sortedByX = new ArrayList<Object>(items);
+            Collections.sort(sortedByX, BY_X);
+            List<Object> nodes = new ArrayList<Object>(nodeCount);
+            for (int sliceStart = 0; sliceStart < sortedByX.size(); sliceStart += sliceSize) {
+                int sliceEnd = Math.min(sliceStart + sliceSize, sortedByX.size());
+                List<Object> slice = new ArrayList<Object>(sortedByX.subList(sliceStart, sliceEnd));
+                Collections.sort(slice, BY_Y);
+                for (int start = 0; start < slice.size(); start += NODE_CAPACITY) {
+                    List<Object> group = slice.subList(start, Math.min(start + NODE_CAPACITY, slice.size()));
+                    nodes.add(leafLevel
+                        ? new Node(new Node[0], group.toArray(new Entry[0]))
+                        : new Node(group.toArray(new Node[0]), new Entry[0]));
+                }
+            }
+            return nodes;
+        }
+
+        private static double centerX(Object item) {
+            if (item instanceof Entry) {
+                return ((Entry) item).getX();
+            }
+            Node node = (Node) item;
+            return (node.minX + node.maxX) / 2;
+        }
+
+        private static double centerY(Object item) {
+            if (item instanceof Entry) {
+                return ((Entry) item).getY();
+            }
+            Node node = (Node) item;
+            return (node.minY + node.maxY) / 2;
+        }
+
+        void collect(double x1, double y1, double x2, double y2, List<Entry> result) {
+            if (maxX < x1 || minX > x2 || maxY < y1 || minY > y2) {
+                return;
+            }
+            for (Entry entry : entries) {
+                double x = entry.getX();
+                double y = entry.getY();
+                if (x >= x1 && x <= x2 && y >= y1 && y <= y2) {
+                    result.add(entry);
+                }
+            }
+            for (Node child : children) {
+                child.collect(x1, y1, x2, y2, result);
+            }
+        }
+
+        /**
+         * Adds the stations within the half-open area to the clusters of their grid cells. A node lying
+         * completely within the area and within one grid cell is added as a whole.
+         */
+        void cluster(double x1, double y1, double x2, double y2, double cellSize, Map<Long, Cluster> cells) {
+            if (maxX < x1 || minX >= x2 || maxY < y1 || minY >= y2) {
+                return;
+            }
+            boolean withinArea = minX >= x1 && maxX < x2 && minY >= y1 && maxY < y2;
+            long cell = getCell(minX, minY, cellSize);
+            if (withinArea && cell == getCell(maxX, maxY, cellSize)) {
+                getCluster(cell, cells).add(aggregate.count, aggregate.sumX, aggregate.sumY, aggregate.categories);
+                return;
+            }
+            for (Entry entry : entries) {
+                double x = entry.getX();
+                double y = entry.getY();
+                if (x >= x1 && x < x2 && y >= y1 && y < y2) {
+                    getCluster(getCell(x, y, cellSize), cells).add(entry);
+                }
+            }
+            for (Node child : children) {
+                child.cluster(x1, y1, x2, y2, cellSize, cells);
+            }
+        }
+
+        private static long getCell(double x, double y, double cellSize) {
+            long column = (long) Math.floor((x + 180) / cellSize);
+            long row = (long) Math.floor((y + 90) / cellSize);
+            return (column << 32) | (row & 0xffffffffL);
+        }
+
+        private static Cluster getCluster(long cell, Map<Long, Cluster> cells) {
+            Cluster cluster = cells.get(cell);
+            if (cluster == null) {
+                cluster = new Cluster();
+                cells.put(cell, cluster);
+            }
+            return cluster;
+        }
+    }
+
+}
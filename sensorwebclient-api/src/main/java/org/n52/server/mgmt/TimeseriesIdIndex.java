@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.mgmt;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+import org.n52.shared.serializable.pojos.sos.SosTimeseries;
+import org.n52.shared.serializable.pojos.sos.Station;
+
+/**
+ * Resolves timeseries ids to their {@link SOSMetadata}, {@link Station} and {@link SosTimeseries} across all
+ * services in constant time. Each timeseries id is computed only once while (re)indexing a service. Indexing
+ * merges the entries of a service into the lookup table instead of rebuilding the table for all services:
+ * new entries are added before outdated entries of the service are removed, so timeseries kept by a
+ * re-indexed service stay resolvable all the time and readers are never blocked.
+ */
+public class TimeseriesIdIndex {
+
+    private final Map<String, Set<String>> idsByService = new HashMap<String, Set<String>>();
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * @param timeseriesId
+     *        the timeseries id to look up.
+     * @return the indexed entry or <code>null</code> if timeseries id is unknown.
+     */
+    public Entry get(String timeseriesId) {
+        return timeseriesId == null ? null : entries.get(timeseriesId);
+    }
+
+    public boolean contains(String timeseriesId) {
+        return get(timeseriesId) != null;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * (Re)indexes all timeseries of the given metadata, replacing entries indexed for the same service
+     * before.
+     * 
+     * @param metadata
+     *        the metadata to index.
+     */
+    public void index(SOSMetadata metadata) {
+        String serviceUrl = metadata.getServiceUrl();
+        Map<String, Entry> serviceEntries = new HashMap<String, Entry>();
+        for (Station station : metadata.getStations()) {
+            for (SosTimeseries timeseries : station.getObservedTimeseries()) {
+                String timeseriesId = timeseries.getTimeseriesId();
+                serviceEntries.put(timeseriesId, new Entry(metadata, station, timeseries));
+            }
+        }
+        synchronized (idsByService) {
+            entries.putAll(serviceEntries);
+            Set<String> replaced = idsByService.put(serviceUrl, new HashSet<String>(serviceEntries.keySet()));
+            if (replaced != null) {
+                replaced.removeAll(serviceEntries.keySet());
+                removeEntries(serviceUrl, replaced);
+            }
+        }
+    }
+
+    /**
+     * @param serviceUrl
+     *        the URL of the service which entries shall be removed from the index.
+     */
+    public void remove(String serviceUrl) {
+        synchronized (idsByService) {
+            Set<String> removed = idsByService.remove(serviceUrl);
+            if (removed != null) {
+                removeEntries(serviceUrl, removed);
+            }
+        }
+    }
+
+    private void removeEntries(String serviceUrl, Set<String> timeseriesIds) {
+        for (String timeseriesId : timeseriesIds) {
+            Entry entry = entries.get(timeseriesId);
+            if (entry != null && serviceUrl.equals(entry.getMetadata().getServiceUrl())) {
+                entries.remove(timeseriesId, entry);
+            }
+        }
+    }
+
+    public static class Entry {
+
+        private final SOSMetadata metadata;
+
+        private final Station station;
+
+        private final SosTimeseries timeseries;
+
+        Entry(SOSMetadata metadata, Station station, SosTimeseries timeseries) {
+            this.metadata = metadata;
+            this.station = station;
+            this.timeseries = timeseries;
+        }
+
+        public SOSMetadata getMetadata() {
+            return metadata;
+        }
+
+        public Station getStation() {
+            return station;
+        }
+
+        public SosTimeseries getTimeseries() {
+            return timeseries;
+        }
+
+    }
+
+}
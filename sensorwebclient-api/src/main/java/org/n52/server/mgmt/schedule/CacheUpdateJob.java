@@ -28,6 +28,7 @@
 package org.n52.server.mgmt.schedule;
 
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Set;
 import org.joda.time.DateTime;
 import org.n52.server.mgmt.ConfigurationContext;
@@ -72,7 +73,7 @@ public class CacheUpdateJob extends ScheduledJob implements Job {
 
         ConfigurationContext.UPDATE_TASK_RUNNING = true;
         try {
-            Set<String> sosUrls = ConfigurationContext.getServiceMetadatas().keySet();
+            Set<String> sosUrls = new HashSet<String>(ConfigurationContext.getServiceMetadatas().keySet());
             LOGGER.info("Do metadata update for #{} data sources: [{}]", sosUrls.size(), sosUrls);
 
             if (shallRewriteAtStartup(context)) {
@@ -96,6 +96,8 @@ public class DescribeSensorParser {
 
     private CRSUtils referenceHelper = CRSUtils.createEpsgStrictAxisOrder();
 
+    private final String smlVersion;
+
     /**
      * Creates a SensorML Parser considering individual service settings contained by the {@link SOSMetadata},
      * e.g. if coordinate axes ordering shall be considered strict or classic XY ordering shall be used.
@@ -118,6 +120,7 @@ public class DescribeSensorParser {
             XMLHandlingException,
             FactoryException {
         setDataStreamToParse(inputStream);
+        smlVersion = metadata.getSensorMLVersion();
         if (metadata.isForceXYAxisOrder()) {
             referenceHelper = CRSUtils.createEpsgForcedXYAxisOrder();
         }
@@ -146,8 +149,6 @@ public class DescribeSensorParser {
 
     public String buildUpSensorMetadataHtmlUrl(final SosTimeseries timeseries) throws OXFException {
         try {
-        	final String serviceUrl = timeseries.getServiceUrl();
-            final String smlVersion = ConfigurationContext.getSOSMetadata(serviceUrl).getSensorMLVersion();
             final String filename = createSensorDescriptionFileName(timeseries);
             final File sensorMLFile = saveFile(filename);
             return SensorMLToHtml.createFromSensorML(sensorMLFile, smlVersion).transformSMLtoHTML(filename);
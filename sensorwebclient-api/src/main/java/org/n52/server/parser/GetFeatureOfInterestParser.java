@@ -28,6 +28,8 @@
 package org.n52.server.parser;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.xml.namespace.QName;
 
@@ -81,8 +83,18 @@ public class GetFeatureOfInterestParser {
 	}
 	
 	public void createFeatures() throws XmlException, IOException, OXFException {
+	    addFeatures(parseFeatures(), metadata);
+	}
+
+	/**
+	 * Parses the features of the GetFeatureOfInterest response without modifying the metadata, so it can be
+	 * called concurrently for several responses.
+	 * 
+	 * @return the parsed features having a valid location, mapped to their location.
+	 */
+	public Map<Feature, Point> parseFeatures() throws XmlException, IOException, OXFException {
         GetFeatureOfInterestResponseDocument foiResDoc = getFOIResponseOfOpResult(getFoiResult);
-        TimeseriesParametersLookup lookup = metadata.getTimeseriesParametersLookup();
+        Map<Feature, Point> features = new LinkedHashMap<Feature, Point>();
         String id = null;
         String label = null;
         for (FeaturePropertyType featurePropertyType : foiResDoc.getGetFeatureOfInterestResponse().getFeatureMemberArray()) {
@@ -120,18 +132,36 @@ public class GetFeatureOfInterestParser {
                 LOGGER.warn("The foi with ID {} has no valid point", id);
             }
             else {
-                // add feature
                 Feature feature = new Feature(id, metadata.getServiceUrl());
                 feature.setLabel(label);
-                lookup.addFeature(feature);
+                features.put(feature, point);
+            }
+        }
+        return features;
+	}
 
-                // create station if not exists
-                Station station = metadata.getStation(id);
-                if (station == null) {
-                    station = new Station(id, metadata.getServiceUrl());
-                    station.setLocation(point);
-                    metadata.addStation(station);
-                }
+	/**
+	 * Adds parsed features to the lookup and creates a station for each feature not known yet.
+	 * 
+	 * @param features
+	 *        the features as returned by {@link #parseFeatures()}.
+	 * @param metadata
+	 *        the metadata of the SOS the features belong to.
+	 */
+	public static void addFeatures(Map<Feature, Point> features, SOSMetadata metadata) {
+        TimeseriesParametersLookup lookup = metadata.getTimeseriesParametersLookup();
+        for (Map.Entry<Feature, Point> entry : features.entrySet()) {
+            // add feature
+            Feature feature = entry.getKey();
+            lookup.addFeature(feature);
+
+            // create station if not exists
+            String id = feature.getFeatureId();
+            Station station = metadata.getStation(id);
+            if (station == null) {
+                station = new Station(id, metadata.getServiceUrl());
+                station.setLocation(entry.getValue());
+                metadata.addStation(station);
             }
         }
 	}
@@ -124,7 +124,7 @@ public class SensorMLToHtml {
         }
     }
 
-    private File getHtmlFile(String filename) {
+    public static File getHtmlFile(String filename) {
         return new File(ConfigurationContext.GEN_DIR + filename + ".html");
     }
 
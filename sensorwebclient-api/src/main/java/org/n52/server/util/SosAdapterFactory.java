@@ -27,12 +27,21 @@
  */
 package org.n52.server.util;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.n52.server.mgmt.ConfigurationContext.HTTP_IDLE_CONNECTION_TIMEOUT;
+
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import org.apache.http.HttpHost;
-import org.apache.http.conn.routing.HttpRoute;
-import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.n52.oxf.sos.adapter.SOSAdapter;
 import org.n52.oxf.util.web.GzipEnabledHttpClient;
 import org.n52.oxf.util.web.HttpClient;
@@ -42,23 +51,133 @@ import org.n52.shared.serializable.pojos.sos.SOSMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Registry of long-lived SOS adapters. Each SOS instance (identified by its service URL) gets one adapter
+ * backed by its own pooled HTTP client, so connections are kept alive and reused across requests. A
+ * background task evicts expired and idle connections. Call {@link #shutdown()} when the application stops.<br>
+ * <br>
+ * Looking up an adapter does not lock; only creating or replacing an adapter is synchronized.
+ */
 public class SosAdapterFactory {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SosAdapterFactory.class);
 
+    private static final ConcurrentMap<String, PooledSosAdapter> adapters = new ConcurrentHashMap<String, PooledSosAdapter>();
+
+    /**
+     * Pools of adapters replaced after a configuration change; shut down as soon as no connection is leased.
+     * Guarded by the class lock.
+     */
+    private static final List<PooledSosAdapter> retiredAdapters = new ArrayList<PooledSosAdapter>();
+
+    private static ScheduledExecutorService idleConnectionMonitor;
+
     /**
-     * Creates an adapter to make requests to an SOS instance. If the given metadata does not contain a full qualified
-     * class name defining the adapter implementation the default one is returned.
+     * Gets the adapter to make requests to an SOS instance. If the given metadata does not contain a full
+     * qualified class name defining the adapter implementation the default one is returned. The adapter is
+     * shared by all concurrent requests to the same SOS instance and is recreated only if the adapter
+     * relevant metadata (adapter class, version, pool size or timeout) changes.
      *
      * @param metadata the SOS metadata where to create the SOS adapter implementation from.
      * @return the custom adapter implementation, or the default {@link SOSAdapter}.
      */
-    public static SOSAdapter createSosAdapter(SOSMetadata metadata) {
+    public static SOSAdapter getSosAdapter(SOSMetadata metadata) {
+        return getPooledAdapter(metadata).getAdapter();
+    }
+
+    static PooledSosAdapter getPooledAdapter(SOSMetadata metadata) {
+        PooledSosAdapter pooledAdapter = adapters.get(metadata.getServiceUrl());
+        if (pooledAdapter != null && pooledAdapter.isCreatedFrom(metadata)) {
+            return pooledAdapter;
+        }
+        return replacePooledAdapter(metadata);
+    }
+
+    private static synchronized PooledSosAdapter replacePooledAdapter(SOSMetadata metadata) {
+        String serviceUrl = metadata.getServiceUrl();
+        PooledSosAdapter pooledAdapter = adapters.get(serviceUrl);
+        if (pooledAdapter != null && pooledAdapter.isCreatedFrom(metadata)) {
+            // created concurrently while waiting for the lock
+            return pooledAdapter;
+        }
+        PooledSosAdapter newAdapter = new PooledSosAdapter(metadata);
+        if (pooledAdapter != null) {
+            LOGGER.debug("Configuration of '{}' changed. Replace SOS adapter.", serviceUrl);
+            retiredAdapters.add(pooledAdapter);
+        }
+        adapters.put(serviceUrl, newAdapter);
+        scheduleIdleConnectionMonitor();
+        return newAdapter;
+    }
+
+    static synchronized int getRetiredAdapterCount() {
+        return retiredAdapters.size();
+    }
+
+    /**
+     * Closes all pooled connections. Adapters requested afterwards get new connection pools.
+     */
+    public static synchronized void shutdown() {
+        if (idleConnectionMonitor != null) {
+            idleConnectionMonitor.shutdownNow();
+            idleConnectionMonitor = null;
+        }
+        for (PooledSosAdapter pooledAdapter : adapters.values()) {
+            pooledAdapter.shutdown();
+        }
+        for (PooledSosAdapter pooledAdapter : retiredAdapters) {
+            pooledAdapter.shutdown();
+        }
+        adapters.clear();
+        retiredAdapters.clear();
+    }
+
+    private static void scheduleIdleConnectionMonitor() {
+        if (idleConnectionMonitor == null) {
+            idleConnectionMonitor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "sos-idle-connection-monitor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            long interval = Math.max(1000, HTTP_IDLE_CONNECTION_TIMEOUT / 2);
+            idleConnectionMonitor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    evictConnections();
+                }
+            }, interval, interval, MILLISECONDS);
+        }
+    }
+
+    static synchronized void evictConnections() {
+        try {
+            for (PooledSosAdapter pooledAdapter : adapters.values()) {
+                pooledAdapter.evictConnections();
+            }
+            Iterator<PooledSosAdapter> iterator = retiredAdapters.iterator();
+            while (iterator.hasNext()) {
+                PooledSosAdapter pooledAdapter = iterator.next();
+                pooledAdapter.evictConnections();
+                if ( !pooledAdapter.hasLeasedConnections()) {
+                    pooledAdapter.shutdown();
+                    iterator.remove();
+                }
+            }
+        }
+        catch (RuntimeException e) {
+            LOGGER.warn("Could not evict idle connections.", e);
+        }
+    }
+
+    private static SOSAdapter createSosAdapter(SOSMetadata metadata, HttpClient httpClient) {
         String adapter = metadata.getAdapter();
         String sosVersion = metadata.getSosVersion();
         try {
             SOSAdapter sosAdapter = new SOSAdapter(sosVersion);
-            sosAdapter.setHttpClient(createHttpClient(metadata));
+            sosAdapter.setHttpClient(httpClient);
             if (adapter == null) {
                 return sosAdapter;
             } else {
@@ -72,7 +191,7 @@ public class SosAdapterFactory {
                 Class< ?>[] arguments = new Class< ?>[]{String.class};
                 Constructor<SOSAdapter> constructor = clazz.getConstructor(arguments);
                 sosAdapter = constructor.newInstance(sosVersion);
-                sosAdapter.setHttpClient(createHttpClient(metadata));
+                sosAdapter.setHttpClient(httpClient);
                 return sosAdapter;
             }
         } catch (ClassNotFoundException e) {
@@ -88,13 +207,71 @@ public class SosAdapterFactory {
         }
     }
 
-    private static HttpClient createHttpClient(SOSMetadata metadata) {
-        PoolingClientConnectionManager cm = new PoolingClientConnectionManager();
-        cm.setMaxTotal(metadata.getHttpConnectionPoolSize());
+    static final class PooledSosAdapter {
+
+        private final String adapterClass;
+
+        private final String sosVersion;
+
+        private final int poolSize;
+
+        private final int timeout;
+
+        private final PoolingClientConnectionManager connectionManager;
+
+        private final SOSAdapter adapter;
+
+        PooledSosAdapter(SOSMetadata metadata) {
+            adapterClass = metadata.getAdapter();
+            sosVersion = metadata.getSosVersion();
+            poolSize = metadata.getHttpConnectionPoolSize();
+            timeout = metadata.getTimeout();
+            connectionManager = new PoolingClientConnectionManager();
+            connectionManager.setMaxTotal(poolSize);
+            // all connections of a pool go to the same SOS, so do not keep the default limit of 2 per route
+            connectionManager.setDefaultMaxPerRoute(poolSize);
+            SimpleHttpClient simpleClient = new SimpleHttpClient(timeout, timeout, connectionManager);
+            HttpClient httpClient = new GzipEnabledHttpClient(new ProxyAwareHttpClient(simpleClient));
+            try {
+                adapter = createSosAdapter(metadata, httpClient);
+            }
+            catch (RuntimeException e) {
+                connectionManager.shutdown();
+                throw e;
+            }
+        }
+
+        boolean isCreatedFrom(SOSMetadata metadata) {
+            return equal(adapterClass, metadata.getAdapter())
+                    && equal(sosVersion, metadata.getSosVersion())
+                    && poolSize == metadata.getHttpConnectionPoolSize()
+                    && timeout == metadata.getTimeout();
+        }
+
+        private static boolean equal(String first, String second) {
+            return first == null ? second == null : first.equals(second);
+        }
+
+        SOSAdapter getAdapter() {
+            return adapter;
+        }
+
+        PoolingClientConnectionManager getConnectionManager() {
+            return connectionManager;
+        }
+
+        void evictConnections() {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(HTTP_IDLE_CONNECTION_TIMEOUT, MILLISECONDS);
+        }
+
+        boolean hasLeasedConnections() {
+            return connectionManager.getTotalStats().getLeased() > 0;
+        }
 
-        int timeout = metadata.getTimeout();
-        SimpleHttpClient simpleClient = new SimpleHttpClient(timeout, timeout, cm);
-        return new GzipEnabledHttpClient(new ProxyAwareHttpClient(simpleClient));
+        void shutdown() {
+            connectionManager.shutdown();
+        }
     }
 
 }
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
+import org.n52.server.da.ObservationCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -82,6 +83,7 @@ public class Statistics {
             LOGGER.info("********** LAST "+Statistics.hours/60+" HOURS ***********");
             logHosts(Statistics.hostsInterval);
             Statistics.hostsInterval = new HashMap<String, Integer>();
+            LOGGER.info(ObservationCache.getInstance().toString());
         }
         
         private static void logHosts(Map<String, Integer> hosts) {
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.da;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.server.da.BoundedCompletionExecutor.CompletionHandler;
+
+public class BoundedCompletionExecutorTest {
+
+    private ExecutorService threadPool;
+
+    private RecordingHandler handler;
+
+    @Before
+    public void setUp() {
+        threadPool = Executors.newFixedThreadPool(4);
+        handler = new RecordingHandler();
+    }
+
+    @After
+    public void tearDown() {
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    public void shouldNotExceedMaximumInFlightTasks() throws InterruptedException {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        Map<String, Callable<Integer>> tasks = new LinkedHashMap<String, Callable<Integer>>();
+        for (int i = 0; i < 20; i++) {
+            final int value = i;
+            tasks.put("task" + i, new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int current = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), current));
+                    }
+                    Thread.sleep(5);
+                    running.decrementAndGet();
+                    return value;
+                }
+            });
+        }
+        new BoundedCompletionExecutor<String, Integer>(threadPool, 2, 10000).execute(tasks, handler);
+        assertThat(handler.completed.size(), is(20));
+        assertThat(maxRunning.get() <= 2, is(true));
+    }
+
+    @Test
+    public void shouldHandleResultsInCompletionOrder() throws InterruptedException {
+        final CountDownLatch fastTaskDone = new CountDownLatch(1);
+        Map<String, Callable<Integer>> tasks = new LinkedHashMap<String, Callable<Integer>>();
+        tasks.put("slow", new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                fastTaskDone.await();
+                return 1;
+            }
+        });
+        tasks.put("fast", new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                fastTaskDone.countDown();
+                return 2;
+            }
+        });
+        new BoundedCompletionExecutor<String, Integer>(threadPool, 2, 10000).execute(tasks, handler);
+        assertThat(handler.completed.get(0), is("fast"));
+        assertThat(handler.completed.get(1), is("slow"));
+    }
+
+    @Test
+    public void shouldReportFailuresAndTimeouts() throws InterruptedException {
+        Map<String, Callable<Integer>> tasks = new LinkedHashMap<String, Callable<Integer>>();
+        tasks.put("failing", new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                throw new IllegalStateException();
+            }
+        });
+        tasks.put("hanging", new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                Thread.sleep(10000);
+                return 1;
+            }
+        });
+        new BoundedCompletionExecutor<String, Integer>(threadPool, 2, 50).execute(tasks, handler);
+        assertThat(handler.completed.size(), is(0));
+        assertThat(handler.failures.get("failing") instanceof IllegalStateException, is(true));
+        assertThat(handler.failures.get("hanging") instanceof TimeoutException, is(true));
+    }
+
+    private static class RecordingHandler implements CompletionHandler<String, Integer> {
+
+        private List<String> completed = new ArrayList<String>();
+
+        private Map<String, Throwable> failures = new LinkedHashMap<String, Throwable>();
+
+        @Override
+        public void completed(String key, Integer result) {
+            completed.add(key);
+        }
+
+        @Override
+        public void failed(String key, Throwable cause) {
+            failures.put(key, cause);
+        }
+    }
+
+}
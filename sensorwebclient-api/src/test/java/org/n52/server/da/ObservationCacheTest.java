@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.da;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ObservationCacheTest {
+
+    private static final long BUCKET_SIZE = 1000;
+
+    private static final long TTL = 100;
+
+    private ObservationCacheSeam cache;
+
+    @Before
+    public void setUp() {
+        cache = new ObservationCacheSeam(BUCKET_SIZE, 2 * ObservationCache.BUCKET_OVERHEAD, TTL);
+    }
+
+    @Test
+    public void shouldAlignBucketStarts() {
+        assertThat(cache.getBucketStart(1500), is(1000L));
+        assertThat(cache.getBucketStarts(1500, 3000).size(), is(3));
+    }
+
+    @Test
+    public void shouldReturnCompleteBucketRegardlessOfTtl() {
+        cache.time = 5000;
+        cache.putBucket("ts", cache.createBucket(1000, new long[] {1100}, new double[] {1.0}));
+        cache.time = 50000;
+        assertThat(cache.getBucket("ts", 1000), is(notNullValue()));
+        assertThat(cache.getHitCount(), is(1L));
+    }
+
+    @Test
+    public void shouldExpireGrowingBucketAfterTtl() {
+        cache.time = 1500;
+        cache.putBucket("ts", cache.createBucket(1000, new long[] {1100}, new double[] {1.0}));
+        cache.time = 1500 + TTL - 1;
+        assertThat(cache.getBucket("ts", 1000), is(notNullValue()));
+        cache.time = 1500 + TTL;
+        assertThat(cache.getBucket("ts", 1000), is(nullValue()));
+        assertThat(cache.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void shouldExpireBucketRequestedBeforeItsEnd() {
+        cache.time = 1950;
+        cache.putBucket("ts", cache.createBucket(1000, 1900, new long[] {1100}, new double[] {1.0}));
+        assertThat(cache.getBucket("ts", 1000).isComplete(), is(false));
+        cache.time = 1900 + TTL;
+        assertThat(cache.getBucket("ts", 1000), is(nullValue()));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedBucket() {
+        cache.time = 10000;
+        cache.putBucket("ts", cache.createBucket(1000, new long[0], new double[0]));
+        cache.putBucket("ts", cache.createBucket(2000, new long[0], new double[0]));
+        cache.getBucket("ts", 1000);
+        cache.putBucket("ts", cache.createBucket(3000, new long[0], new double[0]));
+        assertThat(cache.size(), is(2));
+        assertThat(cache.getEvictionCount(), is(1L));
+        assertThat(cache.getBucket("ts", 2000), is(nullValue()));
+        assertThat(cache.getBucket("ts", 1000), is(notNullValue()));
+    }
+
+    @Test
+    public void shouldEvictBucketsByEstimatedSize() {
+        cache.time = 10000;
+        cache.putBucket("ts", cache.createBucket(1000, new long[0], new double[0]));
+        cache.putBucket("ts", cache.createBucket(2000, new long[0], new double[0]));
+        long[] times = new long[ (int) (ObservationCache.BUCKET_OVERHEAD / ObservationCache.OBSERVATION_SIZE)];
+        cache.putBucket("ts", cache.createBucket(3000, times, new double[times.length]));
+        assertThat(cache.size(), is(1));
+        assertThat(cache.getEvictionCount(), is(2L));
+        assertThat(cache.getCachedBytes(), is(2 * ObservationCache.BUCKET_OVERHEAD));
+    }
+
+    @Test
+    public void shouldNotCacheBucketLargerThanCache() {
+        cache.time = 10000;
+        cache.putBucket("ts", cache.createBucket(1000, new long[0], new double[0]));
+        long[] times = new long[ (int) (ObservationCache.BUCKET_OVERHEAD / ObservationCache.OBSERVATION_SIZE) + 1];
+        cache.putBucket("ts", cache.createBucket(2000, times, new double[times.length]));
+        assertThat(cache.getBucket("ts", 2000), is(nullValue()));
+        assertThat(cache.getBucket("ts", 1000), is(notNullValue()));
+        assertThat(cache.getEvictionCount(), is(0L));
+    }
+
+    private static class ObservationCacheSeam extends ObservationCache {
+
+        private long time;
+
+        public ObservationCacheSeam(long bucketSize, long maxBytes, long freshnessTtl) {
+            super(bucketSize, maxBytes, freshnessTtl);
+        }
+
+        @Override
+        long now() {
+            return time;
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.da.oxf;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.oxf.feature.OXFFeatureCollection;
+import org.n52.oxf.ows.capabilities.ITime;
+import org.n52.oxf.valueDomains.time.TimeFactory;
+import org.n52.server.da.AccessException;
+import org.n52.server.io.GetObservationResponseToOxfFeatureCollectionReader;
+import org.n52.server.io.RequestConfig;
+import org.n52.server.mgmt.ConfigurationContext;
+import org.n52.server.mgmt.MetadataUnavailableException;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+import org.n52.shared.serializable.pojos.sos.SOSMetadataBuilder;
+
+public class ObservationAccessorTest {
+
+    private static final String FICTIVE_SOS_URL = "http://localhost/sos";
+
+    private static final String GET_OBSERVATION_RESPONSE = "/files/getObservationResponse_with_daylight_saving_timeshift.xml";
+
+    private static final ITime TIME = TimeFactory.createTime("2007-10-27T10:00:00.000+02:00/2007-10-28T09:00:00.000+01:00");
+
+    private long serverTimeout;
+
+    @Before
+    public void setUp() {
+        serverTimeout = ConfigurationContext.SERVER_TIMEOUT;
+        SOSMetadataBuilder builder = new SOSMetadataBuilder();
+        SOSMetadata metadata = builder.addServiceURL(FICTIVE_SOS_URL)
+                .addServiceVersion("2.0.0")
+                .build();
+        ConfigurationContext.initializeMetadata(metadata);
+    }
+
+    @After
+    public void tearDown() {
+        ConfigurationContext.SERVER_TIMEOUT = serverTimeout;
+        ConfigurationContext.removeSOSMetadata(FICTIVE_SOS_URL);
+    }
+
+    @Test
+    public void shouldMergeCollectionsOfSameOffering() throws Exception {
+        int observationCount = readCollection().size();
+        List<RequestConfig> requests = new ArrayList<RequestConfig>();
+        requests.add(createRequest("offering", "sensor1"));
+        requests.add(createRequest("offering", "sensor2"));
+        requests.add(createRequest("other", "sensor1"));
+        ObservationAccessor accessor = new ObservationAccessorSeam(Collections.<String, Callable<OXFFeatureCollection>> emptyMap());
+
+        Map<String, OXFFeatureCollection> collections = accessor.sendRequests(requests);
+        assertThat(collections.size(), is(2));
+        assertThat(collections.get("offering@" + FICTIVE_SOS_URL).size(), is(2 * observationCount));
+        assertThat(collections.get("other@" + FICTIVE_SOS_URL).size(), is(observationCount));
+    }
+
+    @Test
+    public void shouldReturnCollectionsDespitePartialFailure() throws Exception {
+        List<RequestConfig> requests = new ArrayList<RequestConfig>();
+        requests.add(createRequest("offering", "sensor1"));
+        RequestConfig failingRequest = createRequest("offering", "sensor2");
+        requests.add(failingRequest);
+        Map<String, Callable<OXFFeatureCollection>> collectors = new HashMap<String, Callable<OXFFeatureCollection>>();
+        collectors.put("sensor2", failing());
+        ObservationAccessor accessor = new ObservationAccessorSeam(collectors);
+
+        Map<RequestConfig, AccessException> failures = new HashMap<RequestConfig, AccessException>();
+        Map<String, OXFFeatureCollection> collections = accessor.sendRequests(requests, failures);
+        assertThat(collections.get("offering@" + FICTIVE_SOS_URL).size(), is(readCollection().size()));
+        assertThat(failures.size(), is(1));
+        assertThat(failures.containsKey(failingRequest), is(true));
+    }
+
+    @Test(expected = AccessException.class)
+    public void shouldFailWhenAllOfEqualRequestsFail() throws Exception {
+        List<RequestConfig> requests = new ArrayList<RequestConfig>();
+        requests.add(createRequest("offering", "sensor1"));
+        requests.add(createRequest("offering", "sensor1"));
+        Map<String, Callable<OXFFeatureCollection>> collectors = new HashMap<String, Callable<OXFFeatureCollection>>();
+        collectors.put("sensor1", failing());
+        new ObservationAccessorSeam(collectors).sendRequests(requests);
+    }
+
+    @Test
+    public void shouldTimeOutAllRequestsAtSharedDeadline() throws Exception {
+        ConfigurationContext.SERVER_TIMEOUT = 200;
+        List<RequestConfig> requests = new ArrayList<RequestConfig>();
+        Map<String, Callable<OXFFeatureCollection>> collectors = new HashMap<String, Callable<OXFFeatureCollection>>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(createRequest("offering", "sensor" + i));
+            collectors.put("sensor" + i, blocking());
+        }
+        requests.add(createRequest("offering", "fast"));
+        Map<RequestConfig, AccessException> failures = new HashMap<RequestConfig, AccessException>();
+
+        long start = System.currentTimeMillis();
+        Map<String, OXFFeatureCollection> collections = new ObservationAccessorSeam(collectors).sendRequests(requests, failures);
+        long elapsed = System.currentTimeMillis() - start;
+        assertThat(elapsed < 2 * ConfigurationContext.SERVER_TIMEOUT, is(true));
+        assertThat(failures.size(), is(3));
+        for (AccessException failure : failures.values()) {
+            assertThat(failure.getCause(), instanceOf(TimeoutException.class));
+        }
+        assertThat(collections.size(), is(1));
+    }
+
+    @Test
+    public void shouldPrepareRequestsOnCallingThread() throws Exception {
+        List<RequestConfig> requests = new ArrayList<RequestConfig>();
+        requests.add(createRequest("offering", "sensor1"));
+        requests.add(createRequest("other", "sensor2"));
+        ObservationAccessorSeam accessor = new ObservationAccessorSeam(Collections.<String, Callable<OXFFeatureCollection>> emptyMap());
+        accessor.sendRequests(requests);
+        assertThat(accessor.collectorThreads.size(), is(2));
+        for (Thread thread : accessor.collectorThreads) {
+            assertThat(thread, is(Thread.currentThread()));
+        }
+    }
+
+    @Test
+    public void shouldReportRequestsOfUnavailableServicesAsFailed() throws Exception {
+        List<RequestConfig> requests = new ArrayList<RequestConfig>();
+        requests.add(createRequest("offering", "sensor1"));
+        RequestConfig unavailableRequest = createRequest("offering", "unavailable");
+        requests.add(unavailableRequest);
+        ObservationAccessor accessor = new ObservationAccessorSeam(Collections.<String, Callable<OXFFeatureCollection>> emptyMap());
+
+        Map<RequestConfig, AccessException> failures = new HashMap<RequestConfig, AccessException>();
+        Map<String, OXFFeatureCollection> collections = accessor.sendRequests(requests, failures);
+        assertThat(collections.get("offering@" + FICTIVE_SOS_URL).size(), is(readCollection().size()));
+        assertThat(failures.get(unavailableRequest).getCause(), instanceOf(MetadataUnavailableException.class));
+    }
+
+    private RequestConfig createRequest(String offering, String procedure) {
+        List<String> features = Collections.singletonList("feature");
+        List<String> phenomena = Collections.singletonList("phenomenon");
+        List<String> procedures = Collections.singletonList(procedure);
+        return new RequestConfig(FICTIVE_SOS_URL, offering, features, phenomena, procedures, TIME, null);
+    }
+
+    private static OXFFeatureCollection readCollection() throws Exception {
+        return new GetObservationResponseToOxfFeatureCollectionReader(GET_OBSERVATION_RESPONSE).getFeatureCollection();
+    }
+
+    private static Callable<OXFFeatureCollection> failing() {
+        return new Callable<OXFFeatureCollection>() {
+            @Override
+            public OXFFeatureCollection call() throws Exception {
+                throw new IllegalStateException("failing request");
+            }
+        };
+    }
+
+    private static Callable<OXFFeatureCollection> blocking() {
+        return new Callable<OXFFeatureCollection>() {
+            @Override
+            public OXFFeatureCollection call() throws Exception {
+                Thread.sleep(10000);
+                fail("request should have been cancelled.");
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Answers requests with the collectors given per procedure, all others with observations read from file.
+     */
+    private static class ObservationAccessorSeam extends ObservationAccessor {
+
+        private final Map<String, Callable<OXFFeatureCollection>> collectors;
+
+        private final List<Thread> collectorThreads = new ArrayList<Thread>();
+
+        ObservationAccessorSeam(Map<String, Callable<OXFFeatureCollection>> collectors) {
+            this.collectors = collectors;
+        }
+
+        @Override
+        Callable<OXFFeatureCollection> createCollector(RequestConfig request) {
+            collectorThreads.add(Thread.currentThread());
+            String procedure = request.getProcedureSet().get(0);
+            if ("unavailable".equals(procedure)) {
+                throw new MetadataUnavailableException("Metadata of " + request.getSosURL() + " unavailable.");
+            }
+            if (collectors.containsKey(procedure)) {
+                return collectors.get(procedure);
+            }
+            return new Callable<OXFFeatureCollection>() {
+                @Override
+                public OXFFeatureCollection call() throws Exception {
+                    return readCollection();
+                }
+            };
+        }
+    }
+
+}
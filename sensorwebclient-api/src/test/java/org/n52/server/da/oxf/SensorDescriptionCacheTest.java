@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.da.oxf;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+
+public class SensorDescriptionCacheTest {
+
+    private static final long REFRESH_INTERVAL = 60 * 1000;
+
+    private static final SOSMetadata METADATA = new SOSMetadata("http://localhost/sos",
+                                                                "1.0.0",
+                                                                "http://www.opengis.net/sensorML/1.0.1",
+                                                                "http://www.opengis.net/om/1.0.0",
+                                                                "test");
+
+    private File directory;
+
+    private Map<String, String> descriptions;
+
+    private Map<String, Integer> requests;
+
+    private Map<String, CountDownLatch> releases;
+
+    private CountDownLatch fetching;
+
+    private volatile long time;
+
+    private Thread lastRequest;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("sensorml", "");
+        directory.delete();
+        descriptions = new HashMap<String, String>();
+        requests = new HashMap<String, Integer>();
+        releases = new ConcurrentHashMap<String, CountDownLatch>();
+        fetching = new CountDownLatch(1);
+        time = System.currentTimeMillis();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void shouldRequestDescriptionOnlyOnce() throws Exception {
+        descriptions.put("proc1", "<sml/>");
+        SensorDescriptionCache cache = new TestCache(1024, directory);
+        cache.getSensorML("proc1", METADATA);
+        cache.getSensorML("proc1", METADATA);
+        assertThat(requests.get("proc1"), is(1));
+        assertThat(cache.getSensorDescription("proc1", METADATA) == cache.getSensorDescription("proc1", METADATA), is(true));
+    }
+
+    @Test
+    public void shouldReadPersistedDescriptionAfterRestart() throws Exception {
+        descriptions.put("proc1", "<sml/>");
+        new TestCache(1024, directory).getSensorML("proc1", METADATA);
+        byte[] sensorML = new TestCache(1024, directory).getSensorML("proc1", METADATA);
+        assertThat(new String(sensorML, "UTF-8"), is("<sml/>"));
+        assertThat(requests.get("proc1"), is(1));
+    }
+
+    @Test
+    public void shouldKeepParsedDescriptionWhenRefreshReturnsSameSensorML() throws Exception {
+        descriptions.put("proc1", "<sml/>");
+        SensorDescriptionCache cache = new TestCache(1024, directory);
+        CachedSensorDescription description = cache.getSensorDescription("proc1", METADATA);
+        time += REFRESH_INTERVAL;
+        assertThat(cache.getSensorDescription("proc1", METADATA) == description, is(true));
+        assertThat(requests.get("proc1"), is(2));
+        assertThat(cache.getSensorDescription("proc1", METADATA) == description, is(true));
+        assertThat(requests.get("proc1"), is(2));
+    }
+
+    @Test
+    public void shouldReplaceChangedDescriptionOnRefresh() throws Exception {
+        descriptions.put("proc1", "<sml/>");
+        SensorDescriptionCache cache = new TestCache(1024, directory);
+        cache.getSensorML("proc1", METADATA);
+        descriptions.put("proc1", "<sml version=\"2\"/>");
+        time += REFRESH_INTERVAL;
+        cache.getSensorML("proc1", METADATA);
+        byte[] sensorML = cache.getSensorML("proc1", METADATA);
+        assertThat(new String(sensorML, "UTF-8"), is("<sml version=\"2\"/>"));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedDescriptions() throws Exception {
+        descriptions.put("proc1", "<sml>1</sml>");
+        descriptions.put("proc2", "<sml>2</sml>");
+        descriptions.put("proc3", "<sml>3</sml>");
+        SensorDescriptionCache cache = new TestCache(30, null);
+        cache.getSensorML("proc1", METADATA);
+        cache.getSensorML("proc2", METADATA);
+        cache.getSensorML("proc1", METADATA);
+        cache.getSensorML("proc3", METADATA);
+        assertThat(cache.getSize(), is(24L));
+        cache.getSensorML("proc1", METADATA);
+        assertThat(requests.get("proc1"), is(1));
+        cache.getSensorML("proc2", METADATA);
+        assertThat(requests.get("proc2"), is(2));
+    }
+
+    @Test
+    public void shouldRequestConcurrentlyMissedDescriptionOnlyOnce() throws Exception {
+        descriptions.put("proc1", "<sml/>");
+        CountDownLatch release = new CountDownLatch(1);
+        releases.put("proc1", release);
+        SensorDescriptionCache cache = new TestCache(1024, null);
+        Future<byte[]> first = requestInBackground(cache, "proc1");
+        fetching.await();
+        Future<byte[]> second = requestInBackground(cache, "proc1");
+        while (lastRequest.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        assertThat(new String(first.get(1, SECONDS), "UTF-8"), is("<sml/>"));
+        assertThat(new String(second.get(1, SECONDS), "UTF-8"), is("<sml/>"));
+        assertThat(requests.get("proc1"), is(1));
+    }
+
+    @Test
+    public void shouldNotWaitForOtherDescriptionBeingRequested() throws Exception {
+        descriptions.put("proc1", "<sml>1</sml>");
+        descriptions.put("proc2", "<sml>2</sml>");
+        CountDownLatch release = new CountDownLatch(1);
+        releases.put("proc1", release);
+        SensorDescriptionCache cache = new TestCache(1024, null);
+        Future<byte[]> slow = requestInBackground(cache, "proc1");
+        fetching.await();
+        Future<byte[]> other = requestInBackground(cache, "proc2");
+        assertThat(new String(other.get(1, SECONDS), "UTF-8"), is("<sml>2</sml>"));
+        assertThat(slow.isDone(), is(false));
+        release.countDown();
+        slow.get(1, SECONDS);
+    }
+
+    @Test
+    public void shouldDeleteLeastRecentlyWrittenFilesWhenDiskIsFull() throws Exception {
+        descriptions.put("proc1", "<sml>1</sml>");
+        descriptions.put("proc2", "<sml>2</sml>");
+        descriptions.put("proc3", "<sml>3</sml>");
+        SensorDescriptionCache cache = new TestCache(1024, 30, directory);
+        cache.getSensorML("proc1", METADATA);
+        time += 2000;
+        cache.getSensorML("proc2", METADATA);
+        time += 2000;
+        cache.getSensorML("proc3", METADATA);
+        assertThat(directory.listFiles().length, is(2));
+
+        SensorDescriptionCache restarted = new TestCache(1024, 30, directory);
+        restarted.getSensorML("proc3", METADATA);
+        restarted.getSensorML("proc1", METADATA);
+        assertThat(requests.get("proc3"), is(1));
+        assertThat(requests.get("proc1"), is(2));
+    }
+
+    @Test
+    public void shouldDeleteOutdatedFilesWhileRunning() throws Exception {
+        descriptions.put("proc1", "<sml>1</sml>");
+        descriptions.put("proc2", "<sml>2</sml>");
+        SensorDescriptionCache cache = new TestCache(1024, directory);
+        cache.getSensorML("proc1", METADATA);
+        time += SensorDescriptionCache.DISK_RETENTION_TIME + 1000;
+        cache.getSensorML("proc2", METADATA);
+        assertThat(directory.listFiles().length, is(1));
+    }
+
+    private Future<byte[]> requestInBackground(final SensorDescriptionCache cache, final String procedure) {
+        FutureTask<byte[]> request = new FutureTask<byte[]>(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return cache.getSensorML(procedure, METADATA);
+            }
+        });
+        lastRequest = new Thread(request);
+        lastRequest.start();
+        return request;
+    }
+
+    private class TestCache extends SensorDescriptionCache {
+
+        TestCache(long maxSize, File directory) {
+            this(maxSize, 1024, directory);
+        }
+
+        TestCache(long maxSize, long maxDiskSize, File directory) {
+            super(maxSize, maxDiskSize, REFRESH_INTERVAL, directory);
+        }
+
+        @Override
+        byte[] fetch(String procedure, SOSMetadata metadata) throws IOException, InterruptedException {
+            synchronized (requests) {
+                Integer count = requests.get(procedure);
+                requests.put(procedure, count == null ? 1 : count + 1);
+            }
+            CountDownLatch release = releases.get(procedure);
+            if (release != null) {
+                fetching.countDown();
+                release.await();
+            }
+            return descriptions.get(procedure).getBytes("UTF-8");
+        }
+
+        @Override
+        void runInBackground(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        long now() {
+            return time;
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class CsvGeneratorTest {
+
+    @Test
+    public void shouldWriteDecimalsInPlainNotation() {
+        assertThat(CsvGenerator.formatValue(Double.valueOf(0.0001)), is("0.0001"));
+        assertThat(CsvGenerator.formatValue(Double.valueOf(12345678901.5)), is("12345678901.5"));
+        assertThat(CsvGenerator.formatValue(Double.valueOf(1.0E10)), is("10000000000"));
+    }
+
+    @Test
+    public void shouldKeepValuesWhichAreNotInScientificNotation() {
+        assertThat(CsvGenerator.formatValue(Double.valueOf(12.5)), is("12.5"));
+        assertThat(CsvGenerator.formatValue(Double.valueOf(Double.NaN)), is("NaN"));
+        assertThat(CsvGenerator.formatValue(Integer.valueOf(3)), is("3"));
+        assertThat(CsvGenerator.formatValue("n/a"), is("n/a"));
+        assertThat(CsvGenerator.formatValue(null), is(""));
+    }
+
+    @Test
+    public void shouldWriteTimestampAsReportedWithItsOffset() throws IOException {
+        StringWriter writer = new StringWriter();
+        CsvGenerator.writeRow(writer, "Station;Temperature (degC);", "2014-03-01T12:00:00.000+01:00", Double.valueOf(3.2));
+        assertThat(writer.toString(), is("Station;Temperature (degC);2014-03-01T12:00:00.000+01:00;3.2\n"));
+    }
+
+}
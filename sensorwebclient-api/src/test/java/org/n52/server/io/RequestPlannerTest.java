@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.server.mgmt.ConfigurationContext;
+import org.n52.shared.serializable.pojos.TimeseriesProperties;
+import org.n52.shared.serializable.pojos.sos.Category;
+import org.n52.shared.serializable.pojos.sos.Feature;
+import org.n52.shared.serializable.pojos.sos.Offering;
+import org.n52.shared.serializable.pojos.sos.Phenomenon;
+import org.n52.shared.serializable.pojos.sos.Procedure;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+import org.n52.shared.serializable.pojos.sos.SOSMetadataBuilder;
+import org.n52.shared.serializable.pojos.sos.SosService;
+import org.n52.shared.serializable.pojos.sos.SosTimeseries;
+import org.n52.shared.serializable.pojos.sos.Station;
+
+public class RequestPlannerTest {
+
+    private static final String FICTIVE_SOS_URL = "http://localhost/sos";
+
+    private RequestPlanner planner;
+
+    @Before
+    public void setUp() {
+        SOSMetadataBuilder builder = new SOSMetadataBuilder();
+        SOSMetadata metadata = builder.addServiceURL(FICTIVE_SOS_URL)
+                .addServiceVersion("1.0.0")
+                .setRequestChunk(2)
+                .build();
+        ConfigurationContext.initializeMetadata(metadata);
+        planner = new RequestPlanner(null, null);
+    }
+
+    @After
+    public void tearDown() {
+        ConfigurationContext.removeSOSMetadata(FICTIVE_SOS_URL);
+    }
+
+    @Test
+    public void shouldCoalesceTimeseriesOfSameOffering() {
+        List<TimeseriesProperties> properties = new ArrayList<TimeseriesProperties>();
+        properties.add(createProperties("offering", "sensor1", "feature1"));
+        properties.add(createProperties("offering", "sensor2", "feature1"));
+        List<RequestConfig> requests = planner.createRequests(properties);
+        assertThat(requests.size(), is(1));
+        assertThat(requests.get(0).getProcedureSet().size(), is(2));
+        assertThat(requests.get(0).getStationsSet().size(), is(1));
+        for (TimeseriesProperties property : properties) {
+            assertTrue(RequestPlanner.isRequestedBy(requests.get(0), property));
+        }
+    }
+
+    @Test
+    public void shouldNotCoalesceTimeseriesOfDifferentOfferings() {
+        List<TimeseriesProperties> properties = new ArrayList<TimeseriesProperties>();
+        properties.add(createProperties("offering1", "sensor1", "feature1"));
+        properties.add(createProperties("offering2", "sensor1", "feature1"));
+        assertThat(planner.createRequests(properties).size(), is(2));
+    }
+
+    @Test
+    public void shouldSplitCoalescedRequestsByRequestChunk() {
+        List<TimeseriesProperties> properties = new ArrayList<TimeseriesProperties>();
+        properties.add(createProperties("offering", "sensor1", "feature1"));
+        properties.add(createProperties("offering", "sensor2", "feature2"));
+        properties.add(createProperties("offering", "sensor3", "feature3"));
+        assertThat(planner.createRequests(properties).size(), is(2));
+    }
+
+    private TimeseriesProperties createProperties(String offering, String procedure, String feature) {
+        SosTimeseries timeseries = new SosTimeseries();
+        timeseries.setSosService(new SosService(FICTIVE_SOS_URL, "1.0.0"));
+        timeseries.setOffering(new Offering(offering, FICTIVE_SOS_URL));
+        timeseries.setProcedure(new Procedure(procedure, FICTIVE_SOS_URL));
+        timeseries.setFeature(new Feature(feature, FICTIVE_SOS_URL));
+        timeseries.setPhenomenon(new Phenomenon("Abfluss", FICTIVE_SOS_URL));
+        timeseries.setCategory(new Category("Abfluss", FICTIVE_SOS_URL));
+        return new TimeseriesProperties(timeseries, new Station(feature, FICTIVE_SOS_URL), -1, -1);
+    }
+
+}
@@ -35,12 +35,16 @@ package org.n52.server.io;
 import java.util.ArrayList;
 import static org.hamcrest.CoreMatchers.is;
 import org.jfree.data.time.TimeSeries;
+import org.joda.time.DateTime;
 import static org.junit.Assert.assertThat;
 import org.junit.Before;
 import org.junit.Test;
 import org.n52.oxf.feature.OXFFeatureCollection;
 import org.n52.oxf.feature.sos.ObservationSeriesCollection;
+import org.n52.oxf.valueDomains.time.ITimePosition;
+import org.n52.server.io.downsampling.DownsamplingAlgorithm;
 import org.n52.server.mgmt.ConfigurationContext;
+import org.n52.shared.serializable.pojos.TimeseriesValues;
 import org.n52.shared.serializable.pojos.sos.Category;
 import org.n52.shared.serializable.pojos.sos.Feature;
 import org.n52.shared.serializable.pojos.sos.Offering;
@@ -86,6 +90,60 @@ public class TimeseriesFactoryTest {
         assertThat(chartTimeseries.getItemCount(), is(277));
     }
 
+    @Test
+    public void shouldCreateSameValuesForChartAndDataOutput() throws Exception {
+        SosTimeseries timeseries = createSosTimeseries();
+        OXFFeatureCollection obsColl = createReader().getFeatureCollection();
+        ObservationSeriesCollection seriesCollection = new ObservationSeriesCollection(obsColl,
+                new String[]{timeseries.getFeatureId()},
+                new String[]{timeseries.getPhenomenonId()},
+                new String[]{timeseries.getProcedureId()}, true);
+
+        TimeseriesFactory factory = new TimeseriesFactory(seriesCollection);
+        TimeSeries chartTimeseries = factory.createTimeSeries(timeseries, "1");
+        TimeseriesValues values = factory.createTimeseriesValues(timeseries.getFeatureId());
+
+        assertThat(values.size(), is(chartTimeseries.getItemCount()));
+        for (int i = 0; i < values.size(); i++) {
+            assertThat(chartTimeseries.getTimePeriod(i).getFirstMillisecond(), is(values.getTime(i)));
+            assertThat(chartTimeseries.getValue(i).doubleValue(), is(values.getValue(i)));
+        }
+    }
+
+    @Test
+    public void shouldKeepInstantOfObservationTimes() throws Exception {
+        SosTimeseries timeseries = createSosTimeseries();
+        OXFFeatureCollection obsColl = createReader().getFeatureCollection();
+        ObservationSeriesCollection seriesCollection = new ObservationSeriesCollection(obsColl,
+                new String[]{timeseries.getFeatureId()},
+                new String[]{timeseries.getPhenomenonId()},
+                new String[]{timeseries.getProcedureId()}, true);
+
+        TimeseriesValues values = new TimeseriesFactory(seriesCollection).createTimeseriesValues(timeseries.getFeatureId());
+        ITimePosition[] timeArray = seriesCollection.getSortedTimeArray();
+        assertThat(values.size(), is(timeArray.length));
+        for (int i = 0; i < timeArray.length; i++) {
+            assertThat(values.getTime(i), is(DateTime.parse(timeArray[i].toISO8601Format()).getMillis()));
+        }
+    }
+
+    @Test
+    public void shouldCreateSumLine() {
+        TimeseriesValues values = new TimeseriesValues(new long[]{1, 2, 3, 4}, new double[]{1, Double.NaN, 2, 3});
+        TimeSeries sumLine = TimeseriesFactory.createTimeSeries("id", TimeseriesFactory.toSumLine(values));
+        assertThat(sumLine.getItemCount(), is(4));
+        assertThat(sumLine.getValue(1).doubleValue(), is(1d));
+        assertThat(sumLine.getValue(3).doubleValue(), is(6d));
+    }
+
+    @Test
+    public void shouldUseDefaultDownsamplingOnlyWhenForced() {
+        DownsamplingAlgorithm none = DownsamplingAlgorithm.NONE;
+        assertThat(TimeseriesFactory.selectDownsampling(none, true), is(ConfigurationContext.DOWNSAMPLING_ALGORITHM));
+        assertThat(TimeseriesFactory.selectDownsampling(none, false), is(none));
+        assertThat(TimeseriesFactory.selectDownsampling(DownsamplingAlgorithm.MINMAX, true), is(DownsamplingAlgorithm.MINMAX));
+    }
+
     private GetObservationResponseToOxfFeatureCollectionReader createReader() throws Exception {
         return new GetObservationResponseToOxfFeatureCollectionReader(GET_OBSERVATION_RESPONSE_CONTAINING_DAYLIGHT_SAVING_TIMESHIFT);
     }
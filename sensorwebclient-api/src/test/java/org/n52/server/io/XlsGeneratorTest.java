@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import jxl.Sheet;
+import jxl.Workbook;
+import jxl.write.WritableWorkbook;
+
+import org.junit.Test;
+import org.n52.server.io.XlsGenerator.SheetWriter;
+
+public class XlsGeneratorTest {
+
+    @Test
+    public void shouldContinueOnNewSheetWhenRowLimitIsReached() throws Exception {
+        int dataRowsPerSheet = XlsGenerator.MAX_ROWS_PER_SHEET - 1;
+        Workbook workbook = writeRows(dataRowsPerSheet + 2);
+        assertThat(workbook.getNumberOfSheets(), is(2));
+        assertThat(workbook.getSheet(0).getRows(), is(XlsGenerator.MAX_ROWS_PER_SHEET));
+        Sheet continued = workbook.getSheet(1);
+        assertThat(continued.getName(), is("Export 2"));
+        assertThat(continued.getRows(), is(3));
+        assertThat(continued.getCell(0, 0).getContents(), is("Sensor Station"));
+        assertThat(continued.getCell(0, 2).getContents(), is("Station"));
+    }
+
+    @Test
+    public void shouldNotCreateEmptySheetWhenRowsFitExactly() throws Exception {
+        Workbook workbook = writeRows(XlsGenerator.MAX_ROWS_PER_SHEET - 1);
+        assertThat(workbook.getNumberOfSheets(), is(1));
+        assertThat(workbook.getSheet(0).getRows(), is(XlsGenerator.MAX_ROWS_PER_SHEET));
+    }
+
+    @Test
+    public void shouldLeaveValueCellEmptyForMissingValues() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableWorkbook workbook = Workbook.createWorkbook(out);
+        SheetWriter sheets = new SheetWriter(workbook, XlsGenerator.MAX_ROWS_PER_SHEET);
+        sheets.addRow("Station", "Temperature (degC)", 0L, null);
+        workbook.write();
+        workbook.close();
+
+        Sheet sheet = Workbook.getWorkbook(new ByteArrayInputStream(out.toByteArray())).getSheet(0);
+        assertThat(sheet.getCell(3, 1).getContents(), is(""));
+    }
+
+    private Workbook writeRows(int count) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableWorkbook workbook = Workbook.createWorkbook(out);
+        SheetWriter sheets = new SheetWriter(workbook, XlsGenerator.MAX_ROWS_PER_SHEET);
+        for (int i = 0; i < count; i++) {
+            sheets.addRow("Station", "Temperature (degC)", i * 60000L, Double.valueOf(i));
+        }
+        workbook.write();
+        workbook.close();
+        return Workbook.getWorkbook(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.server.io.ZipGenerator.EntryWriter;
+
+public class ZipGeneratorTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldWriteEntriesInOrderOfAddition() throws Exception {
+        final CountDownLatch lastEntryWritten = new CountDownLatch(1);
+        ZipGenerator generator = new ZipGenerator("folder", executor, 3);
+        generator.addEntry("first.txt", new EntryWriter() {
+            @Override
+            public void write(OutputStream out) throws Exception {
+                lastEntryWritten.await(1, SECONDS);
+                out.write('1');
+            }
+        });
+        generator.addEntry("first.txt", new ContentWriter('2'));
+        generator.addEntry("last.txt", new EntryWriter() {
+            @Override
+            public void write(OutputStream out) throws Exception {
+                out.write('3');
+                lastEntryWritten.countDown();
+            }
+        });
+        List<String> entries = readEntries(write(generator));
+        assertThat(entries.size(), is(3));
+        assertThat(entries.get(0), is("folder/first.txt:1"));
+        assertThat(entries.get(1), is("folder/first_1.txt:2"));
+        assertThat(entries.get(2), is("folder/last.txt:3"));
+    }
+
+    @Test
+    public void shouldNotProduceMoreEntriesAheadThanBuffered() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        ZipGenerator generator = new ZipGenerator("folder", executor, 1);
+        for (int i = 0; i < 5; i++) {
+            generator.addEntry(i + ".txt", new EntryWriter() {
+                @Override
+                public void write(OutputStream out) throws Exception {
+                    int current = running.incrementAndGet();
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                    Thread.sleep(10);
+                    running.decrementAndGet();
+                }
+            });
+        }
+        assertThat(readEntries(write(generator)).size(), is(5));
+        assertThat(maxRunning.get(), is(1));
+    }
+
+    @Test
+    public void shouldFailAndCancelPendingEntriesWhenAnEntryFails() throws Exception {
+        final CountDownLatch pendingEntryStarted = new CountDownLatch(1);
+        final CountDownLatch pendingEntryCancelled = new CountDownLatch(1);
+        ZipGenerator generator = new ZipGenerator("folder", executor, 3);
+        generator.addEntry("failing.txt", new EntryWriter() {
+            @Override
+            public void write(OutputStream out) throws Exception {
+                pendingEntryStarted.await(1, SECONDS);
+                throw new IllegalStateException("entry failed");
+            }
+        });
+        generator.addEntry("pending.txt", new EntryWriter() {
+            @Override
+            public void write(OutputStream out) throws Exception {
+                pendingEntryStarted.countDown();
+                try {
+                    Thread.sleep(10000);
+                }
+                catch (InterruptedException e) {
+                    pendingEntryCancelled.countDown();
+                }
+            }
+        });
+        try {
+            write(generator);
+            fail("Expected the zip to fail.");
+        }
+        catch (GeneratorException e) {
+            assertThat(e.getCause().getMessage(), is("entry failed"));
+        }
+        assertThat(pendingEntryCancelled.await(1, SECONDS), is(true));
+    }
+
+    private byte[] write(ZipGenerator generator) throws GeneratorException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.write(out);
+        return out.toByteArray();
+    }
+
+    private List<String> readEntries(byte[] zip) throws Exception {
+        List<String> entries = new ArrayList<String>();
+        ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip));
+        ZipEntry entry = in.getNextEntry();
+        while (entry != null) {
+            StringBuilder content = new StringBuilder();
+            int read = in.read();
+            while (read >= 0) {
+                content.append((char) read);
+                read = in.read();
+            }
+            entries.add(entry.getName() + ":" + content);
+            entry = in.getNextEntry();
+        }
+        in.close();
+        return entries;
+    }
+
+    private static class ContentWriter implements EntryWriter {
+
+        private final char content;
+
+        ContentWriter(char content) {
+            this.content = content;
+        }
+
+        @Override
+        public void write(OutputStream out) throws Exception {
+            out.write(content);
+        }
+    }
+
+}
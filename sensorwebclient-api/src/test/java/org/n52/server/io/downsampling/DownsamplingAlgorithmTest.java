@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.downsampling;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.n52.shared.serializable.pojos.TimeseriesValues;
+
+public class DownsamplingAlgorithmTest {
+
+    @Test
+    public void shouldResolveAlgorithmsByName() {
+        assertThat(DownsamplingAlgorithm.fromName("lttb"), is(DownsamplingAlgorithm.LTTB));
+        assertThat(DownsamplingAlgorithm.fromName("min-max"), is(DownsamplingAlgorithm.MINMAX));
+        assertThat(DownsamplingAlgorithm.fromName("unknown", DownsamplingAlgorithm.NONE), is(DownsamplingAlgorithm.NONE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailOnUnknownAlgorithm() {
+        DownsamplingAlgorithm.fromName("stride");
+    }
+
+    @Test
+    public void shouldNotDownsampleSmallTimeseries() {
+        TimeseriesValues values = createSineWithPeak(100, 50);
+        assertThat(DownsamplingAlgorithm.LTTB.downsample(values, 200).size(), is(100));
+        assertThat(DownsamplingAlgorithm.MINMAX.downsample(values, 200).size(), is(100));
+    }
+
+    @Test
+    public void shouldRequireDownsamplingBeyondChartWidth() {
+        assertThat(DownsamplingAlgorithm.LTTB.isDownsamplingRequired(500, 500), is(false));
+        assertThat(DownsamplingAlgorithm.LTTB.isDownsamplingRequired(501, 500), is(true));
+        assertThat(DownsamplingAlgorithm.MINMAX.isDownsamplingRequired(1000, 500), is(false));
+        assertThat(DownsamplingAlgorithm.MINMAX.isDownsamplingRequired(1001, 500), is(true));
+        assertThat(DownsamplingAlgorithm.NONE.isDownsamplingRequired(100000, 500), is(false));
+    }
+
+    @Test
+    public void shouldKeepPeakWhenDownsamplingWithLttb() {
+        TimeseriesValues values = createSineWithPeak(10000, 4321);
+        TimeseriesValues downsampled = DownsamplingAlgorithm.LTTB.downsample(values, 500);
+        assertThat(downsampled.size(), is(500));
+        assertPeakAndBoundsKept(values, downsampled, 4321);
+    }
+
+    @Test
+    public void shouldKeepPeakWhenDownsamplingWithMinMax() {
+        TimeseriesValues values = createSineWithPeak(10000, 4321);
+        TimeseriesValues downsampled = DownsamplingAlgorithm.MINMAX.downsample(values, 500);
+        assertTrue(downsampled.size() <= 2 * 500 + 2);
+        assertPeakAndBoundsKept(values, downsampled, 4321);
+    }
+
+    @Test
+    public void shouldKeepGapsWhenDownsampling() {
+        TimeseriesValues values = createSineWithPeak(10000, 4321);
+        double[] data = values.getValues();
+        for (int i = 2000; i < 2100; i++) {
+            data[i] = Double.NaN;
+        }
+        assertTrue(containsNoData(DownsamplingAlgorithm.LTTB.downsample(values, 500)));
+        assertTrue(containsNoData(DownsamplingAlgorithm.MINMAX.downsample(values, 500)));
+    }
+
+    private void assertPeakAndBoundsKept(TimeseriesValues values, TimeseriesValues downsampled, int peakIndex) {
+        assertThat(downsampled.getTime(0), is(values.getTime(0)));
+        assertThat(downsampled.getTime(downsampled.size() - 1), is(values.getTime(values.size() - 1)));
+        int index = downsampled.indexOf(values.getTime(peakIndex));
+        assertThat(downsampled.getTime(index), is(values.getTime(peakIndex)));
+        assertThat(downsampled.getValue(index), is(values.getValue(peakIndex)));
+    }
+
+    private boolean containsNoData(TimeseriesValues values) {
+        for (int i = 0; i < values.size(); i++) {
+            if ( !values.hasValue(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private TimeseriesValues createSineWithPeak(int size, int peakIndex) {
+        long[] times = new long[size];
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            times[i] = 1000000L + i * 60000L;
+            values[i] = Math.sin(i / 100d);
+        }
+        values[peakIndex] = 100;
+        return new TimeseriesValues(times, values);
+    }
+
+}
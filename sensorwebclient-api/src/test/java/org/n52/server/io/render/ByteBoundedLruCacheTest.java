@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.render;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ByteBoundedLruCacheTest {
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private ByteBoundedLruCache<String> cache;
+
+    @Before
+    public void setUp() {
+        cache = new ByteBoundedLruCache<String>(10);
+    }
+
+    @Test
+    public void shouldRejectValuesLargerThanCache() {
+        cache.put("small", "small", 4, NEVER, 0);
+        assertThat(cache.put("huge", "huge", 11, NEVER, 0), is(false));
+        assertThat(cache.get("huge", 0), is(nullValue()));
+        assertThat(cache.get("small", 0), is("small"));
+        assertThat(cache.getBytes(), is(4L));
+    }
+
+    @Test
+    public void shouldKeepRunningSizeWhenReplacingValues() {
+        cache.put("key", "first", 6, NEVER, 0);
+        cache.put("key", "second", 3, NEVER, 0);
+        assertThat(cache.get("key", 0), is("second"));
+        assertThat(cache.size(), is(1));
+        assertThat(cache.getBytes(), is(3L));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedUntilValueFits() {
+        cache.put("first", "first", 4, NEVER, 0);
+        cache.put("second", "second", 4, NEVER, 0);
+        cache.get("first", 0);
+        cache.put("third", "third", 6, NEVER, 0);
+        assertThat(cache.get("second", 0), is(nullValue()));
+        assertThat(cache.get("first", 0), is("first"));
+        assertThat(cache.getBytes(), is(10L));
+    }
+
+    @Test
+    public void shouldEvictExpiredLeastRecentlyUsedValues() {
+        cache.put("expiring", "expiring", 2, 5, 0);
+        cache.put("other", "other", 2, NEVER, 5);
+        assertThat(cache.size(), is(1));
+        assertThat(cache.getBytes(), is(2L));
+    }
+
+    @Test
+    public void shouldNotCacheWhenDisabled() {
+        ByteBoundedLruCache<String> disabled = new ByteBoundedLruCache<String>(0);
+        assertThat(disabled.put("key", "value", 1, NEVER, 0), is(false));
+        assertThat(disabled.size(), is(0));
+    }
+
+}
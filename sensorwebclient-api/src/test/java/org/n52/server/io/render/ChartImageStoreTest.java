@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.render;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChartImageStoreTest {
+
+    private static final long KEEPING_TIME = 1000;
+
+    private ChartImageStoreSeam store;
+
+    @Before
+    public void setUp() {
+        store = new ChartImageStoreSeam(10, KEEPING_TIME);
+    }
+
+    @Test
+    public void shouldReturnStoredImage() {
+        String fileName = store.put(new byte[] {1, 2, 3});
+        assertThat(store.get(fileName).length, is(3));
+        assertThat(store.get("unknown.png"), is(nullValue()));
+    }
+
+    @Test
+    public void shouldExpireImageAfterKeepingTime() {
+        String fileName = store.put(new byte[] {1});
+        store.time = KEEPING_TIME - 1;
+        assertThat(store.get(fileName), is(notNullValue()));
+        store.time = KEEPING_TIME;
+        assertThat(store.get(fileName), is(nullValue()));
+        assertThat(store.getStoredBytes(), is(0L));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedImagesWhenFull() {
+        String first = store.put(new byte[4]);
+        String second = store.put(new byte[4]);
+        store.get(first);
+        String third = store.put(new byte[4]);
+        assertThat(store.get(second), is(nullValue()));
+        assertThat(store.get(first), is(notNullValue()));
+        assertThat(store.get(third), is(notNullValue()));
+        assertThat(store.getStoredBytes(), is(8L));
+    }
+
+    @Test
+    public void shouldRejectImagesLargerThanStore() {
+        String stored = store.put(new byte[4]);
+        assertThat(store.put(new byte[11]), is(nullValue()));
+        assertThat(store.get(stored), is(notNullValue()));
+        assertThat(store.getStoredBytes(), is(4L));
+    }
+
+    private static class ChartImageStoreSeam extends ChartImageStore {
+
+        private long time;
+
+        public ChartImageStoreSeam(long maxBytes, long keepingTime) {
+            super(maxBytes, keepingTime);
+        }
+
+        @Override
+        long now() {
+            return time;
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.render;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+public class ImageUriResolverTest {
+
+    @Test
+    public void shouldResolveAddedImage() throws IOException {
+        ImageUriResolver resolver = new ImageUriResolver();
+        String uri = resolver.addImage("chart.jpg", new byte[] {1, 2, 3});
+        StreamSource source = (StreamSource) resolver.resolve(uri, null);
+        assertThat(source.getSystemId(), is(uri));
+        assertThat(source.getInputStream().available(), is(3));
+    }
+
+    @Test
+    public void shouldLeaveUnknownUrisToDefaultResolution() {
+        ImageUriResolver resolver = new ImageUriResolver();
+        resolver.addImage("chart.jpg", new byte[1]);
+        assertThat(resolver.resolve("file:/tmp/chart.jpg", null), is(nullValue()));
+    }
+
+    @Test
+    public void shouldCreateUniqueUrisPerResolver() {
+        String uri = new ImageUriResolver().addImage("chart.jpg", new byte[1]);
+        ImageUriResolver other = new ImageUriResolver();
+        assertThat(other.addImage("chart.jpg", new byte[1]), is(not(uri)));
+        assertThat(other.resolve(uri, null), is(nullValue()));
+    }
+
+}
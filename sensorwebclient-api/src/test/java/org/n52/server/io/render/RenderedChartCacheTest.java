@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.io.render;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.eesgmbh.gimv.shared.util.Bounds;
+import org.eesgmbh.gimv.shared.util.ImageEntity;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shared.serializable.pojos.Axis;
+import org.n52.shared.serializable.pojos.DesignOptions;
+import org.n52.shared.serializable.pojos.TimeseriesProperties;
+import org.n52.shared.serializable.pojos.TimeseriesRenderingOptions;
+import org.n52.shared.serializable.pojos.sos.Feature;
+import org.n52.shared.serializable.pojos.sos.Offering;
+import org.n52.shared.serializable.pojos.sos.Phenomenon;
+import org.n52.shared.serializable.pojos.sos.Procedure;
+import org.n52.shared.serializable.pojos.sos.SosService;
+import org.n52.shared.serializable.pojos.sos.SosTimeseries;
+
+public class RenderedChartCacheTest {
+
+    private static final String FICTIVE_SOS_URL = "http://localhost/sos";
+
+    private static final long GRANULARITY = 60 * 1000;
+
+    private static final long LIVE_TTL = 1000;
+
+    private static final long HISTORIC_TTL = 10000;
+
+    private static final long NOW = 100 * GRANULARITY;
+
+    private RenderedChartCacheSeam cache;
+
+    @Before
+    public void setUp() {
+        cache = new RenderedChartCacheSeam(1000, GRANULARITY, LIVE_TTL, HISTORIC_TTL);
+        cache.time = NOW;
+    }
+
+    @Test
+    public void shouldCreateSameKeyForTimespansWithinGranularity() {
+        String key = cache.createKey(createOptions(10 * GRANULARITY, 20 * GRANULARITY, "#ff0000"), false);
+        String shifted = cache.createKey(createOptions(10 * GRANULARITY + 59000, 20 * GRANULARITY + 1, "#ff0000"), false);
+        assertThat(shifted, is(key));
+    }
+
+    @Test
+    public void shouldCreateDifferentKeysForDifferentRendering() {
+        DesignOptions options = createOptions(0, GRANULARITY, "#ff0000");
+        String key = cache.createKey(options, false);
+        assertThat(cache.createKey(options, true), is(not(key)));
+        assertThat(cache.createKey(createOptions(0, GRANULARITY, "#00ff00"), false), is(not(key)));
+        assertThat(cache.createKey(createOptions(0, 2 * GRANULARITY, "#ff0000"), false), is(not(key)));
+    }
+
+    @Test
+    public void shouldExpireLiveChartsEarlierThanHistoricOnes() {
+        DesignOptions live = createOptions(NOW - 10 * GRANULARITY, NOW, "#ff0000");
+        DesignOptions historic = createOptions(0, GRANULARITY, "#ff0000");
+        cache.put("live", live, createChart(10, live));
+        cache.put("historic", historic, createChart(10, historic));
+        cache.time = NOW + LIVE_TTL;
+        assertThat(cache.get("live"), is(nullValue()));
+        assertThat(cache.get("historic"), is(notNullValue()));
+        cache.time = NOW + HISTORIC_TTL;
+        assertThat(cache.get("historic"), is(nullValue()));
+        assertThat(cache.getCachedBytes(), is(0L));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedChartsWhenFull() {
+        DesignOptions options = createOptions(0, GRANULARITY, "#ff0000");
+        cache.put("first", options, createChart(400, options));
+        cache.put("second", options, createChart(400, options));
+        cache.get("first");
+        cache.put("third", options, createChart(400, options));
+        assertThat(cache.get("second"), is(nullValue()));
+        assertThat(cache.get("first"), is(notNullValue()));
+        assertThat(cache.get("third"), is(notNullValue()));
+    }
+
+    @Test
+    public void shouldNotCacheChartsLargerThanCache() {
+        DesignOptions options = createOptions(0, GRANULARITY, "#ff0000");
+        cache.put("small", options, createChart(400, options));
+        cache.put("huge", options, createChart(1001, options));
+        assertThat(cache.get("huge"), is(nullValue()));
+        assertThat(cache.get("small"), is(notNullValue()));
+    }
+
+    @Test
+    public void shouldNotCacheWhenDisabled() {
+        RenderedChartCache disabled = new RenderedChartCache(0, GRANULARITY, LIVE_TTL, HISTORIC_TTL);
+        DesignOptions options = createOptions(0, GRANULARITY, "#ff0000");
+        disabled.put("key", options, createChart(10, options));
+        assertThat(disabled.get("key"), is(nullValue()));
+    }
+
+    @Test
+    public void shouldApplyAxesAndDataAvailabilityOfCachedChart() {
+        DesignOptions rendered = createOptions(0, GRANULARITY, "#ff0000");
+        TimeseriesProperties properties = rendered.getProperties().get(0);
+        properties.setHasData(false);
+        HashMap<String, Axis> axes = new HashMap<String, Axis>();
+        axes.put(properties.getTimeseriesId(), new Axis(10, 2));
+        RenderedChart chart = new RenderedChart(new byte[1], new ImageEntity[0], new Bounds(0, 1, 0, 1), axes, rendered, true);
+
+        DesignOptions requested = createOptions(0, GRANULARITY, "#ff0000");
+        chart.applyTo(requested);
+        assertThat(requested.getProperties().get(0).hasData(), is(false));
+        assertThat(requested.getProperties().get(0).getAxisUpperBound(), is(10d));
+        assertThat(requested.getProperties().get(0).getAxisLowerBound(), is(2d));
+    }
+
+    @Test
+    public void shouldNotShareAxesOfCachedChart() {
+        DesignOptions rendered = createOptions(0, GRANULARITY, "#ff0000");
+        String timeseriesId = rendered.getProperties().get(0).getTimeseriesId();
+        HashMap<String, Axis> axes = new HashMap<String, Axis>();
+        axes.put(timeseriesId, new Axis(10, 2));
+        RenderedChart chart = new RenderedChart(new byte[1], new ImageEntity[0], new Bounds(0, 1, 0, 1), axes, rendered, true);
+
+        DesignOptions requested = createOptions(0, GRANULARITY, "#ff0000");
+        chart.applyTo(requested);
+        requested.getProperties().get(0).getAxis().setUpperBound(20);
+        chart.getAxisMapping().get(timeseriesId).setUpperBound(30);
+        axes.get(timeseriesId).setUpperBound(40);
+        assertThat(chart.getAxisMapping().get(timeseriesId).getUpperBound(), is(10d));
+    }
+
+    @Test
+    public void shouldNotCacheIncompleteCharts() {
+        DesignOptions options = createOptions(0, GRANULARITY, "#ff0000");
+        HashMap<String, Axis> axes = new HashMap<String, Axis>();
+        cache.put("key", options, new RenderedChart(new byte[10], new ImageEntity[0], new Bounds(0, 1, 0, 1), axes, options, false));
+        assertThat(cache.get("key"), is(nullValue()));
+        assertThat(cache.getCachedBytes(), is(0L));
+    }
+
+    private RenderedChart createChart(int imageSize, DesignOptions options) {
+        HashMap<String, Axis> axes = new HashMap<String, Axis>();
+        return new RenderedChart(new byte[imageSize], new ImageEntity[0], new Bounds(0, 1, 0, 1), axes, options, true);
+    }
+
+    private DesignOptions createOptions(long begin, long end, String color) {
+        SosTimeseries timeseries = new SosTimeseries();
+        timeseries.setSosService(new SosService(FICTIVE_SOS_URL, "1.0.0"));
+        timeseries.setOffering(new Offering("offering", FICTIVE_SOS_URL));
+        timeseries.setProcedure(new Procedure("procedure", FICTIVE_SOS_URL));
+        timeseries.setFeature(new Feature("feature", FICTIVE_SOS_URL));
+        timeseries.setPhenomenon(new Phenomenon("phenomenon", FICTIVE_SOS_URL));
+        TimeseriesProperties properties = new TimeseriesProperties(timeseries, null, 400, 300);
+        TimeseriesRenderingOptions renderingOptions = new TimeseriesRenderingOptions();
+        renderingOptions.setColor(color);
+        properties.setRenderingOptions(renderingOptions);
+        ArrayList<TimeseriesProperties> propertiesList = new ArrayList<TimeseriesProperties>();
+        propertiesList.add(properties);
+        return new DesignOptions(propertiesList, begin, end, true);
+    }
+
+    private static class RenderedChartCacheSeam extends RenderedChartCache {
+
+        private long time;
+
+        public RenderedChartCacheSeam(long maxBytes, long granularity, long liveTtl, long historicTtl) {
+            super(maxBytes, granularity, liveTtl, historicTtl);
+        }
+
+        @Override
+        long now() {
+            return time;
+        }
+    }
+
+}
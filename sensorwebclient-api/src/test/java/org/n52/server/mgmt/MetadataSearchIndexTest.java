@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.mgmt;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.server.mgmt.MetadataSearchIndex.Hit;
+import org.n52.server.mgmt.MetadataSearchIndex.Type;
+import org.n52.shared.serializable.pojos.sos.Category;
+import org.n52.shared.serializable.pojos.sos.Feature;
+import org.n52.shared.serializable.pojos.sos.Offering;
+import org.n52.shared.serializable.pojos.sos.Phenomenon;
+import org.n52.shared.serializable.pojos.sos.Procedure;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+import org.n52.shared.serializable.pojos.sos.SosService;
+import org.n52.shared.serializable.pojos.sos.SosTimeseries;
+import org.n52.shared.serializable.pojos.sos.Station;
+import org.n52.shared.serializable.pojos.sos.TimeseriesParametersLookup;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class MetadataSearchIndexTest {
+
+    private static final String FICTIVE_SOS_URL = "http://localhost/sos";
+
+    private static final int LIMIT = 100;
+
+    private MetadataSearchIndex index;
+
+    @Before
+    public void setUp() {
+        SOSMetadata metadata = new SOSMetadata(FICTIVE_SOS_URL, "1.0.0", null, null, "Water Levels");
+        addTimeseries(metadata, "Wasserstand", "Pegel Muenster");
+        addTimeseries(metadata, "Abfluss", "Pegel Muenster");
+        addTimeseries(metadata, "Wasserstand", "Muensterland Nord");
+        index = new MetadataSearchIndex();
+        index.index(metadata);
+    }
+
+    @Test
+    public void shouldFindLabelsContainingTermIgnoringCase() {
+        List<Hit> hits = index.search(new String[] {"WASSER"}, LIMIT);
+        assertThat(countHits(hits, Type.PHENOMENON), is(1));
+        assertThat(countHits(hits, Type.CATEGORY), is(1));
+        assertThat(countHits(hits, Type.TIMESERIES), is(2));
+    }
+
+    @Test
+    public void shouldFindTermsShorterThanGramLength() {
+        assertThat(countHits(index.search(new String[] {"ab"}, LIMIT), Type.TIMESERIES), is(1));
+    }
+
+    @Test
+    public void shouldMatchAllTermsOfMultiTermQuery() {
+        List<Hit> hits = index.search(new String[] {"wasserstand", " pegel "}, LIMIT);
+        assertThat(hits.size(), is(1));
+        assertThat(hits.get(0).getLabel(), is("Wasserstand@Pegel Muenster"));
+    }
+
+    @Test
+    public void shouldRankLabelPrefixMatchesFirst() {
+        List<Hit> hits = index.search(new String[] {"muenster"}, LIMIT);
+        assertThat(hits.get(0).getLabel(), is("Muensterland Nord"));
+        assertThat(hits.get(0).getType(), is(Type.STATION));
+    }
+
+    @Test
+    public void shouldLimitResults() {
+        assertThat(index.search(new String[] {"muenster"}, 2).size(), is(2));
+    }
+
+    @Test
+    public void shouldKeepBestHitsWhenLimitingResults() {
+        List<Hit> all = index.search(new String[] {"muenster"}, LIMIT);
+        List<Hit> limited = index.search(new String[] {"muenster"}, 3);
+        for (int i = 0; i < limited.size(); i++) {
+            assertThat(limited.get(i).getId(), is(all.get(i).getId()));
+        }
+    }
+
+    @Test
+    public void shouldIgnoreBlankTerms() {
+        assertThat(index.search(new String[] {"", "  "}, LIMIT).isEmpty(), is(true));
+        assertThat(index.search(new String[] {"abfluss", " "}, LIMIT).isEmpty(), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnlimitedSearch() {
+        index.search(new String[] {"muenster"}, 0);
+    }
+
+    @Test
+    public void shouldNotFindRemovedService() {
+        index.remove(FICTIVE_SOS_URL);
+        assertThat(index.search(new String[] {"water"}, LIMIT).isEmpty(), is(true));
+    }
+
+    private int countHits(List<Hit> hits, Type type) {
+        int count = 0;
+        for (Hit hit : hits) {
+            if (hit.getType() == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void addTimeseries(SOSMetadata metadata, String phenomenon, String feature) {
+        SosTimeseries timeseries = new SosTimeseries();
+        timeseries.setSosService(new SosService(FICTIVE_SOS_URL, "1.0.0"));
+        timeseries.setOffering(new Offering("offering", FICTIVE_SOS_URL));
+        timeseries.setProcedure(new Procedure("sensor", FICTIVE_SOS_URL));
+        timeseries.setFeature(new Feature(feature, FICTIVE_SOS_URL));
+        timeseries.setPhenomenon(new Phenomenon(phenomenon, FICTIVE_SOS_URL));
+        timeseries.setCategory(new Category(phenomenon, FICTIVE_SOS_URL));
+        TimeseriesParametersLookup lookup = metadata.getTimeseriesParametersLookup();
+        lookup.addOffering(timeseries.getOffering());
+        lookup.addProcedure(timeseries.getProcedure());
+        lookup.addFeature(timeseries.getFeature());
+        lookup.addPhenomenon(timeseries.getPhenomenon());
+        Station station = metadata.getStation(feature);
+        if (station == null) {
+            station = new Station(feature, FICTIVE_SOS_URL);
+            station.setLocation(new GeometryFactory().createPoint(new Coordinate(feature.length(), 51.9)));
+            metadata.addStation(station);
+        }
+        station.addTimeseries(timeseries);
+    }
+
+}
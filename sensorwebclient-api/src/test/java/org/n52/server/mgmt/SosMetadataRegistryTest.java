@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.mgmt;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+
+public class SosMetadataRegistryTest {
+
+    private static final String SLOW_SOS_URL = "http://localhost/slow-sos";
+
+    private static final String FAST_SOS_URL = "http://localhost/fast-sos";
+
+    private static final long TIMEOUT = 5000;
+
+    private SosMetadataRegistry registry;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        registry = new SosMetadataRegistry();
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldInitializeOnlyOncePerService() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger initializations = new AtomicInteger();
+        final Callable<SOSMetadata> initializer = new Callable<SOSMetadata>() {
+            @Override
+            public SOSMetadata call() throws Exception {
+                initializations.incrementAndGet();
+                release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+                return createInitializedMetadata(SLOW_SOS_URL);
+            }
+        };
+        Callable<SOSMetadata> reader = new Callable<SOSMetadata>() {
+            @Override
+            public SOSMetadata call() throws Exception {
+                return registry.getInitialized(SLOW_SOS_URL, initializer, TIMEOUT);
+            }
+        };
+        Future<SOSMetadata> first = executor.submit(reader);
+        Future<SOSMetadata> second = executor.submit(reader);
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(first.get(), is(sameInstance(second.get())));
+        assertThat(initializations.get(), is(1));
+    }
+
+    @Test
+    public void shouldNotBlockReadersOfInitializedServices() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.submit(new Callable<SOSMetadata>() {
+            @Override
+            public SOSMetadata call() throws Exception {
+                return registry.getInitialized(SLOW_SOS_URL, new Callable<SOSMetadata>() {
+                    @Override
+                    public SOSMetadata call() throws Exception {
+                        started.countDown();
+                        release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+                        return createInitializedMetadata(SLOW_SOS_URL);
+                    }
+                }, TIMEOUT);
+            }
+        });
+        started.await(TIMEOUT, TimeUnit.MILLISECONDS);
+
+        SOSMetadata fastMetadata = createInitializedMetadata(FAST_SOS_URL);
+        registry.put(fastMetadata);
+        assertThat(registry.isInitializing(SLOW_SOS_URL), is(true));
+        assertThat(registry.getInitialized(FAST_SOS_URL, null, 1), is(sameInstance(fastMetadata)));
+        release.countDown();
+    }
+
+    @Test
+    public void shouldReturnRegisteredMetadataOnReentrantCall() throws Exception {
+        final SOSMetadata uninitialized = new SOSMetadata(SLOW_SOS_URL, SLOW_SOS_URL, "1.0.0");
+        registry.put(uninitialized);
+        SOSMetadata metadata = registry.getInitialized(SLOW_SOS_URL, new Callable<SOSMetadata>() {
+            @Override
+            public SOSMetadata call() throws Exception {
+                SOSMetadata reentrant = registry.getInitialized(SLOW_SOS_URL, this, TIMEOUT);
+                assertThat(reentrant, is(sameInstance(uninitialized)));
+                reentrant.setInitialized(true);
+                return reentrant;
+            }
+        }, TIMEOUT);
+        assertThat(metadata, is(sameInstance(uninitialized)));
+    }
+
+    @Test
+    public void shouldRegisterSnapshotReturnedByInitializer() throws Exception {
+        final SOSMetadata uninitialized = new SOSMetadata(SLOW_SOS_URL, SLOW_SOS_URL, "1.0.0");
+        registry.put(uninitialized);
+        final SOSMetadata snapshot = createInitializedMetadata(SLOW_SOS_URL);
+        SOSMetadata metadata = registry.getInitialized(SLOW_SOS_URL, new Callable<SOSMetadata>() {
+            @Override
+            public SOSMetadata call() throws Exception {
+                assertThat(registry.get(SLOW_SOS_URL), is(sameInstance(uninitialized)));
+                return snapshot;
+            }
+        }, TIMEOUT);
+        assertThat(metadata, is(sameInstance(snapshot)));
+        assertThat(registry.get(SLOW_SOS_URL), is(sameInstance(snapshot)));
+    }
+
+    @Test
+    public void shouldSwapMetadataAtomically() {
+        SOSMetadata old = createInitializedMetadata(FAST_SOS_URL);
+        SOSMetadata update = createInitializedMetadata(FAST_SOS_URL);
+        registry.put(old);
+        assertThat(registry.put(update), is(sameInstance(old)));
+        assertThat(registry.get(FAST_SOS_URL), is(sameInstance(update)));
+    }
+
+    private SOSMetadata createInitializedMetadata(String url) {
+        SOSMetadata metadata = new SOSMetadata(url, url, "1.0.0");
+        metadata.setInitialized(true);
+        return metadata;
+    }
+
+}
@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.mgmt;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.io.crs.BoundingBox;
+import org.n52.server.mgmt.StationIndex.Cluster;
+import org.n52.shared.serializable.pojos.sos.Category;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+import org.n52.shared.serializable.pojos.sos.SosTimeseries;
+import org.n52.shared.serializable.pojos.sos.Station;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+public class StationIndexTest {
+
+    private static final String FIRST_SOS_URL = "http://localhost/first-sos";
+
+    private static final String SECOND_SOS_URL = "http://localhost/second-sos";
+
+    private static final GeometryFactory FACTORY = new GeometryFactory();
+
+    private SosMetadataRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new SosMetadataRegistry();
+    }
+
+    @Test
+    public void shouldFindAllStationsWithinBounds() {
+        SOSMetadata first = createMetadata(FIRST_SOS_URL, 0);
+        SOSMetadata second = createMetadata(SECOND_SOS_URL, 5);
+        registry.put(first);
+        registry.put(second);
+
+        BoundingBox bounds = createBounds(7.25, 51.5, 8.5, 52.25);
+        Set<Station> expected = new HashSet<Station>();
+        for (SOSMetadata metadata : new SOSMetadata[] {first, second}) {
+            for (Station station : metadata.getStations()) {
+                if (bounds.contains(station.getLocation())) {
+                    expected.add(station);
+                }
+            }
+        }
+
+        Set<Station> found = new HashSet<Station>();
+        for (StationIndex.Entry entry : registry.getStationIndex().getStations(bounds)) {
+            found.add(entry.getStation());
+        }
+        assertThat(found.isEmpty(), is(false));
+        assertThat(found, is(expected));
+    }
+
+    @Test
+    public void shouldOnlyFindStationsOfRequestedService() {
+        registry.put(createMetadata(FIRST_SOS_URL, 0));
+        registry.put(createMetadata(SECOND_SOS_URL, 0));
+        List<Station> stations = registry.getStationIndex().getStations(FIRST_SOS_URL, createBounds(7, 51, 7.5, 51.5));
+        assertThat(stations.size(), is(36));
+        assertThat(registry.getStationIndex().getStations(createBounds(7, 51, 7.5, 51.5)).size(), is(72));
+    }
+
+    @Test
+    public void shouldResolveStationById() {
+        SOSMetadata metadata = createMetadata(FIRST_SOS_URL, 0);
+        registry.put(metadata);
+        Station station = metadata.getStation("station_3_4");
+        StationIndex.Entry entry = registry.getStationIndex().getStation(station.getGlobalId());
+        assertThat(entry.getStation(), is(sameInstance(station)));
+        assertThat(entry.getMetadata(), is(sameInstance(metadata)));
+    }
+
+    @Test
+    public void shouldRemoveStationsOfRemovedService() {
+        SOSMetadata metadata = createMetadata(FIRST_SOS_URL, 0);
+        registry.put(metadata);
+        registry.remove(FIRST_SOS_URL);
+        StationIndex index = registry.getStationIndex();
+        assertThat(index.getStation(metadata.getStation("station_0_0").getGlobalId()), is(nullValue()));
+        assertThat(index.getStations(createBounds(0, 0, 90, 90)).isEmpty(), is(true));
+        assertThat(index.size(), is(0));
+    }
+
+    @Test
+    public void shouldKeepStationsOfOtherServicesWhenReindexingService() {
+        SOSMetadata second = createMetadata(SECOND_SOS_URL, 0);
+        registry.put(createMetadata(FIRST_SOS_URL, 0));
+        registry.put(second);
+        SOSMetadata update = createMetadata(FIRST_SOS_URL, 0);
+        registry.put(update);
+
+        StationIndex index = registry.getStationIndex();
+        assertThat(index.size(), is(5000));
+        Station station = second.getStation("station_3_4");
+        assertThat(index.getStation(station.getGlobalId()).getMetadata(), is(sameInstance(second)));
+        assertThat(index.getStation(update.getStation("station_3_4").getGlobalId()).getMetadata(), is(sameInstance(update)));
+        assertThat(index.getStations(createBounds(7, 51, 7.5, 51.5)).size(), is(72));
+    }
+
+    @Test
+    public void shouldClusterStationsPerGridCell() {
+        registry.put(createMetadata(FIRST_SOS_URL, 0));
+        List<Cluster> clusters = registry.getStationIndex().getClusters(FIRST_SOS_URL, 7, 51, 9, 53, 1);
+        assertThat(clusters.size(), is(4));
+        for (Cluster cluster : clusters) {
+            assertThat(cluster.getCount(), is(100));
+        }
+        assertThat(registry.getStationIndex().getStations(FIRST_SOS_URL, 7, 51, 9, 53).size(), is(400));
+    }
+
+    @Test
+    public void shouldClusterLikeSingleStations() {
+        registry.put(createMetadata(FIRST_SOS_URL, 0));
+        double cellSize = 0.35;
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (Station station : registry.getStationIndex().getStations(FIRST_SOS_URL, 7.2, 51.1, 10, 53.3)) {
+            double x = station.getLocation().getX();
+            double y = station.getLocation().getY();
+            String cell = Math.floor((x + 180) / cellSize) + "/" + Math.floor((y + 90) / cellSize);
+            expected.put(cell, expected.containsKey(cell) ? expected.get(cell) + 1 : 1);
+        }
+        Map<String, Integer> clustered = new HashMap<String, Integer>();
+        for (Cluster cluster : registry.getStationIndex().getClusters(FIRST_SOS_URL, 7.2, 51.1, 10, 53.3, cellSize)) {
+            String cell = Math.floor((cluster.getX() + 180) / cellSize) + "/" + Math.floor((cluster.getY() + 90) / cellSize);
+            clustered.put(cell, cluster.getCount());
+        }
+        assertThat(clustered, is(expected));
+    }
+
+    @Test
+    public void shouldAggregateCentroidAndCategories() {
+        SOSMetadata metadata = new SOSMetadata(FIRST_SOS_URL, FIRST_SOS_URL, "1.0.0");
+        metadata.addStation(createStation("station1", 7.1, 51.1, "Abfluss", "Wasserstand"));
+        metadata.addStation(createStation("station2", 7.3, 51.3, "Abfluss"));
+        registry.put(metadata);
+        List<Cluster> clusters = registry.getStationIndex().getClusters(FIRST_SOS_URL, 7, 51, 8, 52, 1);
+        assertThat(clusters.size(), is(1));
+        Cluster cluster = clusters.get(0);
+        assertThat(cluster.getCount(), is(2));
+        assertThat(Math.abs(cluster.getX() - 7.2) < 1e-9, is(true));
+        assertThat(Math.abs(cluster.getY() - 51.2) < 1e-9, is(true));
+        assertThat(cluster.getCategories().get("Abfluss"), is(2));
+        assertThat(cluster.getCategories().get("Wasserstand"), is(1));
+    }
+
+    private Station createStation(String label, double x, double y, String... categories) {
+        Station station = new Station(label, FIRST_SOS_URL);
+        station.setLocation(createPoint(x, y));
+        for (String category : categories) {
+            SosTimeseries timeseries = new SosTimeseries();
+            timeseries.setCategory(new Category(category, FIRST_SOS_URL));
+            station.addTimeseries(timeseries);
+        }
+        return station;
+    }
+
+    private BoundingBox createBounds(double llX, double llY, double urX, double urY) {
+        return new BoundingBox(createPoint(llX, llY), createPoint(urX, urY), "CRS:84");
+    }
+
+    private Point createPoint(double x, double y) {
+        return FACTORY.createPoint(new Coordinate(x, y));
+    }
+
+    /**
+     * Creates a grid of 50x50 stations with a spacing of 0.1 degrees starting at 7/51 (shifted by the given
+     * number of grid cells).
+     */
+    private SOSMetadata createMetadata(String url, int shift) {
+        SOSMetadata metadata = new SOSMetadata(url, url, "1.0.0");
+        for (int i = 0; i < 50; i++) {
+            for (int j = 0; j < 50; j++) {
+                Station station = new Station("station_" + i + "_" + j, url);
+                station.setLocation(createPoint(7 + (i + shift) / 10d, 51 + (j + shift) / 10d));
+                metadata.addStation(station);
+            }
+        }
+        metadata.setInitialized(true);
+        return metadata;
+    }
+
+}
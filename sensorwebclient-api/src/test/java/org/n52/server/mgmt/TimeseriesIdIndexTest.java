@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.mgmt;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shared.serializable.pojos.sos.Category;
+import org.n52.shared.serializable.pojos.sos.Feature;
+import org.n52.shared.serializable.pojos.sos.Offering;
+import org.n52.shared.serializable.pojos.sos.Phenomenon;
+import org.n52.shared.serializable.pojos.sos.Procedure;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+import org.n52.shared.serializable.pojos.sos.SosService;
+import org.n52.shared.serializable.pojos.sos.SosTimeseries;
+import org.n52.shared.serializable.pojos.sos.Station;
+
+public class TimeseriesIdIndexTest {
+
+    private static final String FIRST_SOS_URL = "http://localhost/first-sos";
+
+    private static final String SECOND_SOS_URL = "http://localhost/second-sos";
+
+    private SosMetadataRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new SosMetadataRegistry();
+    }
+
+    @Test
+    public void shouldResolveTimeseriesOfAllServices() {
+        SOSMetadata first = createMetadata(FIRST_SOS_URL, "station1", "sensor1");
+        SOSMetadata second = createMetadata(SECOND_SOS_URL, "station2", "sensor2");
+        registry.put(first);
+        registry.put(second);
+
+        Station station = first.getStation("station1");
+        SosTimeseries timeseries = station.getObservedTimeseries().get(0);
+        TimeseriesIdIndex.Entry entry = registry.getTimeseriesIdIndex().get(timeseries.getTimeseriesId());
+        assertThat(entry.getMetadata(), is(sameInstance(first)));
+        assertThat(entry.getStation(), is(sameInstance(station)));
+        assertThat(entry.getTimeseries(), is(sameInstance(timeseries)));
+        assertThat(registry.getTimeseriesIdIndex().size(), is(2));
+    }
+
+    @Test
+    public void shouldReplaceEntriesWhenMetadataIsReloaded() {
+        SOSMetadata old = createMetadata(FIRST_SOS_URL, "station1", "sensor1");
+        String oldTimeseriesId = getFirstTimeseriesId(old, "station1");
+        registry.put(old);
+
+        SOSMetadata update = createMetadata(FIRST_SOS_URL, "station1", "sensor2");
+        String updatedTimeseriesId = getFirstTimeseriesId(update, "station1");
+        registry.put(update);
+
+        TimeseriesIdIndex index = registry.getTimeseriesIdIndex();
+        assertThat(index.get(oldTimeseriesId), is(nullValue()));
+        assertThat(index.get(updatedTimeseriesId).getMetadata(), is(sameInstance(update)));
+    }
+
+    @Test
+    public void shouldKeepEntriesOfOtherServicesWhenServiceIsReindexed() {
+        SOSMetadata second = createMetadata(SECOND_SOS_URL, "station2", "sensor2");
+        registry.put(createMetadata(FIRST_SOS_URL, "station1", "sensor1"));
+        registry.put(second);
+        SOSMetadata update = createMetadata(FIRST_SOS_URL, "station1", "sensor1");
+        registry.put(update);
+
+        TimeseriesIdIndex index = registry.getTimeseriesIdIndex();
+        assertThat(index.size(), is(2));
+        assertThat(index.get(getFirstTimeseriesId(second, "station2")).getMetadata(), is(sameInstance(second)));
+        assertThat(index.get(getFirstTimeseriesId(update, "station1")).getMetadata(), is(sameInstance(update)));
+    }
+
+    @Test
+    public void shouldRemoveEntriesOfRemovedService() {
+        SOSMetadata metadata = createMetadata(FIRST_SOS_URL, "station1", "sensor1");
+        registry.put(metadata);
+        registry.remove(FIRST_SOS_URL);
+        assertThat(registry.getTimeseriesIdIndex().contains(getFirstTimeseriesId(metadata, "station1")), is(false));
+    }
+
+    private String getFirstTimeseriesId(SOSMetadata metadata, String stationLabel) {
+        return metadata.getStation(stationLabel).getObservedTimeseries().get(0).getTimeseriesId();
+    }
+
+    private SOSMetadata createMetadata(String url, String stationLabel, String procedure) {
+        SOSMetadata metadata = new SOSMetadata(url, url, "1.0.0");
+        SosTimeseries timeseries = new SosTimeseries();
+        timeseries.setSosService(new SosService(url, "1.0.0"));
+        timeseries.setOffering(new Offering("offering", url));
+        timeseries.setProcedure(new Procedure(procedure, url));
+        timeseries.setFeature(new Feature(stationLabel, url));
+        timeseries.setPhenomenon(new Phenomenon("Abfluss", url));
+        timeseries.setCategory(new Category("Abfluss", url));
+        Station station = new Station(stationLabel, url);
+        station.addTimeseries(timeseries);
+        metadata.addStation(station);
+        metadata.setInitialized(true);
+        return metadata;
+    }
+
+}
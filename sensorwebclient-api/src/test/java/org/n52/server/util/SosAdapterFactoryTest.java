@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.util;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.net.ServerSocket;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.server.mgmt.ConfigurationContext;
+import org.n52.server.util.SosAdapterFactory.PooledSosAdapter;
+import org.n52.shared.serializable.pojos.sos.SOSMetadata;
+import org.n52.shared.serializable.pojos.sos.SOSMetadataBuilder;
+
+public class SosAdapterFactoryTest {
+
+    private static final String FICTIVE_SOS_URL = "http://localhost/sos";
+
+    private long idleConnectionTimeout;
+
+    private ServerSocket server;
+
+    @Before
+    public void setUp() throws Exception {
+        idleConnectionTimeout = ConfigurationContext.HTTP_IDLE_CONNECTION_TIMEOUT;
+        server = new ServerSocket(0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SosAdapterFactory.shutdown();
+        ConfigurationContext.HTTP_IDLE_CONNECTION_TIMEOUT = idleConnectionTimeout;
+        server.close();
+    }
+
+    @Test
+    public void shouldReuseAdapterOfSameService() {
+        PooledSosAdapter adapter = SosAdapterFactory.getPooledAdapter(createMetadata(FICTIVE_SOS_URL, 5));
+        assertThat(SosAdapterFactory.getPooledAdapter(createMetadata(FICTIVE_SOS_URL, 5)), is(sameInstance(adapter)));
+        assertThat(SosAdapterFactory.getPooledAdapter(createMetadata("http://localhost/other", 5)),
+                   is(not(sameInstance(adapter))));
+    }
+
+    @Test
+    public void shouldAllowWholePoolPerRoute() {
+        PooledSosAdapter adapter = SosAdapterFactory.getPooledAdapter(createMetadata(FICTIVE_SOS_URL, 5));
+        assertThat(adapter.getConnectionManager().getMaxTotal(), is(5));
+        assertThat(adapter.getConnectionManager().getDefaultMaxPerRoute(), is(5));
+    }
+
+    @Test
+    public void shouldRetireReplacedAdapterWhenNoConnectionIsLeased() throws Exception {
+        PooledSosAdapter adapter = SosAdapterFactory.getPooledAdapter(createMetadata(FICTIVE_SOS_URL, 5));
+        ManagedClientConnection connection = leaseConnection(adapter.getConnectionManager());
+        PooledSosAdapter replaced = SosAdapterFactory.getPooledAdapter(createMetadata(FICTIVE_SOS_URL, 10));
+        assertThat(replaced, is(not(sameInstance(adapter))));
+        assertThat(SosAdapterFactory.getRetiredAdapterCount(), is(1));
+
+        SosAdapterFactory.evictConnections();
+        assertThat(SosAdapterFactory.getRetiredAdapterCount(), is(1));
+
+        adapter.getConnectionManager().releaseConnection(connection, 0, MILLISECONDS);
+        SosAdapterFactory.evictConnections();
+        assertThat(SosAdapterFactory.getRetiredAdapterCount(), is(0));
+    }
+
+    @Test
+    public void shouldEvictIdleConnections() throws Exception {
+        PooledSosAdapter adapter = SosAdapterFactory.getPooledAdapter(createMetadata(FICTIVE_SOS_URL, 5));
+        PoolingClientConnectionManager connectionManager = adapter.getConnectionManager();
+        ManagedClientConnection connection = leaseConnection(connectionManager);
+        connection.markReusable();
+        connectionManager.releaseConnection(connection, 0, MILLISECONDS);
+        assertThat(connectionManager.getTotalStats().getAvailable(), is(1));
+
+        ConfigurationContext.HTTP_IDLE_CONNECTION_TIMEOUT = 1;
+        Thread.sleep(10);
+        SosAdapterFactory.evictConnections();
+        assertThat(connectionManager.getTotalStats().getAvailable(), is(0));
+    }
+
+    private ManagedClientConnection leaseConnection(PoolingClientConnectionManager connectionManager) throws Exception {
+        HttpRoute route = new HttpRoute(new HttpHost("localhost", server.getLocalPort()));
+        ManagedClientConnection connection = connectionManager.requestConnection(route, null).getConnection(1000, MILLISECONDS);
+        connection.open(route, new BasicHttpContext(), new BasicHttpParams());
+        return connection;
+    }
+
+    private SOSMetadata createMetadata(String serviceUrl, int poolSize) {
+        SOSMetadataBuilder builder = new SOSMetadataBuilder();
+        builder.addServiceURL(serviceUrl)
+                .addServiceVersion("1.0.0")
+                .setHttpConnectionPoolSize(poolSize)
+                .setTimeout(1000);
+        return new SOSMetadata(builder);
+    }
+
+}
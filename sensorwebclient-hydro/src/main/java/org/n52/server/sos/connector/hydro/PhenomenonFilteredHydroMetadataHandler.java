@@ -27,7 +27,6 @@
  */
 package org.n52.server.sos.connector.hydro;
 
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.n52.oxf.sos.adapter.ISOSRequestBuilder.GET_FOI_SERVICE_PARAMETER;
 import static org.n52.oxf.sos.adapter.ISOSRequestBuilder.GET_FOI_VERSION_PARAMETER;
 import static org.n52.oxf.sos.adapter.SOSAdapter.GET_FEATURE_OF_INTEREST;
@@ -45,7 +44,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.xmlbeans.XmlException;
@@ -57,6 +55,8 @@ import org.n52.oxf.ows.capabilities.Contents;
 import org.n52.oxf.ows.capabilities.Operation;
 import org.n52.oxf.sos.capabilities.ObservationOffering;
 import org.n52.server.da.AccessorThreadPool;
+import org.n52.server.da.BoundedCompletionExecutor;
+import org.n52.server.da.BoundedCompletionExecutor.CompletionHandler;
 import org.n52.server.da.oxf.OperationAccessor;
 import org.n52.server.parser.GetFeatureOfInterestParser;
 import org.n52.shared.serializable.pojos.sos.Category;
@@ -72,6 +72,8 @@ import org.n52.shared.serializable.pojos.sos.TimeseriesParametersLookup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vividsolutions.jts.geom.Point;
+
 public class PhenomenonFilteredHydroMetadataHandler extends HydroMetadataHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PhenomenonFilteredHydroMetadataHandler.class);
@@ -91,20 +93,18 @@ public class PhenomenonFilteredHydroMetadataHandler extends HydroMetadataHandler
 
         Collection<SosTimeseries> observingTimeseries = createObservingTimeseries(metadata);
 
-        Map<String, FutureTask<OperationResult>> getDataAvailabilityTasks = new HashMap<String, FutureTask<OperationResult>>();
-        Map<String, FutureTask<OperationResult>> getFoiAccessTasks = new HashMap<String, FutureTask<OperationResult>>();
+        Map<String, Callable<OperationResult>> getDataAvailabilityTasks = new HashMap<String, Callable<OperationResult>>();
+        Map<String, Callable<OperationResult>> getFoiAccessTasks = new HashMap<String, Callable<OperationResult>>();
 
         // create tasks by iteration over procedures
         for (SosTimeseries timeserie : observingTimeseries) {
             String phenomenonID = timeserie.getPhenomenonId();
-            getFoiAccessTasks.put(phenomenonID,
-                                  new FutureTask<OperationResult>(createGetFoiAccess(metadata.getServiceUrl(),
-                                                                                     metadata.getVersion(),
-                                                                                     phenomenonID)));
-            getDataAvailabilityTasks.put(phenomenonID,
-                                         new FutureTask<OperationResult>(createGDAAccess(metadata.getServiceUrl(),
-                                                                                         metadata.getVersion(),
-                                                                                         timeserie)));
+            getFoiAccessTasks.put(phenomenonID, createGetFoiAccess(metadata.getServiceUrl(),
+                                                                   metadata.getVersion(),
+                                                                   phenomenonID));
+            getDataAvailabilityTasks.put(phenomenonID, createGDAAccess(metadata.getServiceUrl(),
+                                                                       metadata.getVersion(),
+                                                                       timeserie));
         }
 
         // create list of timeseries of GDA requests
@@ -190,57 +190,83 @@ public class PhenomenonFilteredHydroMetadataHandler extends HydroMetadataHandler
     	return allObservedTimeseries;
     }
 
-    private Collection<SosTimeseries> executeGDATasks(Map<String, FutureTask<OperationResult>> getDataAvailabilityTasks,
-                                                      SOSMetadata metadata, Collection<SosTimeseries> observingTimeseries) throws InterruptedException,
-            ExecutionException,
-            TimeoutException,
-            XmlException,
-            IOException {
-        int counter = getDataAvailabilityTasks.size();
-        LOGGER.debug("Sending " + counter + " GetDataAvailability requests");
-        Collection<SosTimeseries> timeseries = new ArrayList<SosTimeseries>();
-        for (String phenomenon : getDataAvailabilityTasks.keySet()) {
-            LOGGER.debug("Sending #{} GetDataAvailability request for phenomenon " + phenomenon,
-                         counter--);
-            FutureTask<OperationResult> futureTask = getDataAvailabilityTasks.get(phenomenon);
-            AccessorThreadPool.execute(futureTask);
-            OperationResult result = null;
-			try {
-				result = futureTask.get(SERVER_TIMEOUT, MILLISECONDS);
-			} catch (Exception e) {
-				LOGGER.error("Get no result for GetDataAvailability with parameter constellation: " + phenomenon + "!");
-			}
-            if (result == null) {
-                LOGGER.error("Get no result for GetDataAvailability with parameter constellation: " + phenomenon + "!");
-            } else {
-            	XmlObject result_xb = XmlObject.Factory.parse(result.getIncomingResultAsStream());
-                timeseries.addAll(getAvailableTimeseries(result_xb, phenomenon, metadata, observingTimeseries));
-            }
+    private Collection<SosTimeseries> executeGDATasks(Map<String, Callable<OperationResult>> getDataAvailabilityTasks,
+                                                      final SOSMetadata metadata,
+                                                      final Collection<SosTimeseries> observingTimeseries) throws InterruptedException {
+        LOGGER.debug("Sending " + getDataAvailabilityTasks.size() + " GetDataAvailability requests");
+        Map<String, Callable<Collection<SosTimeseries>>> tasks = new HashMap<String, Callable<Collection<SosTimeseries>>>();
+        for (final Map.Entry<String, Callable<OperationResult>> task : getDataAvailabilityTasks.entrySet()) {
+            // parse responses on the worker threads
+            tasks.put(task.getKey(), new Callable<Collection<SosTimeseries>>() {
+                @Override
+                public Collection<SosTimeseries> call() throws Exception {
+                    OperationResult result = task.getValue().call();
+                    if (result == null) {
+                        return null;
+                    }
+                    XmlObject result_xb = XmlObject.Factory.parse(result.getIncomingResultAsStream());
+                    return getAvailableTimeseries(result_xb, task.getKey(), metadata, observingTimeseries);
+                }
+            });
         }
+
+        final Collection<SosTimeseries> timeseries = new ArrayList<SosTimeseries>();
+        BoundedCompletionExecutor<String, Collection<SosTimeseries>> executor = createExecutor(metadata);
+        executor.execute(tasks, new CompletionHandler<String, Collection<SosTimeseries>>() {
+            @Override
+            public void completed(String phenomenon, Collection<SosTimeseries> result) {
+                if (result == null) {
+                    LOGGER.error("Get no result for GetDataAvailability with parameter constellation: " + phenomenon + "!");
+                } else {
+                    timeseries.addAll(result);
+                }
+            }
+
+            @Override
+            public void failed(String phenomenon, Throwable cause) {
+                LOGGER.error("Get no result for GetDataAvailability with parameter constellation: " + phenomenon + "!", cause);
+            }
+        });
         return timeseries;
     }
 
-    private void executeFoiTasks(Map<String, FutureTask<OperationResult>> getFoiAccessTasks, SOSMetadata metadata) throws InterruptedException,
-            ExecutionException,
-            XmlException,
-            IOException,
-            OXFException {
-        int counter;
-        counter = getFoiAccessTasks.size();
-        LOGGER.debug("Sending {} GetFeatureOfInterest requests", counter);
-        for (String phenomenonID : getFoiAccessTasks.keySet()) {
-            LOGGER.debug("Sending #{} GetFeatureOfInterest request for procedure '{}'", counter--, phenomenonID);
-            FutureTask<OperationResult> futureTask = getFoiAccessTasks.get(phenomenonID);
-            AccessorThreadPool.execute(futureTask);
-            try {
-                OperationResult opsRes = futureTask.get(SERVER_TIMEOUT, MILLISECONDS);
-                GetFeatureOfInterestParser getFoiParser = new GetFeatureOfInterestParser(opsRes, metadata);
-                getFoiParser.createFeatures();
+    private void executeFoiTasks(Map<String, Callable<OperationResult>> getFoiAccessTasks, final SOSMetadata metadata) throws InterruptedException {
+        LOGGER.debug("Sending {} GetFeatureOfInterest requests", getFoiAccessTasks.size());
+        Map<String, Callable<Map<Feature, Point>>> tasks = new HashMap<String, Callable<Map<Feature, Point>>>();
+        for (final Map.Entry<String, Callable<OperationResult>> task : getFoiAccessTasks.entrySet()) {
+            // parse responses on the worker threads
+            tasks.put(task.getKey(), new Callable<Map<Feature, Point>>() {
+                @Override
+                public Map<Feature, Point> call() throws Exception {
+                    OperationResult opsRes = task.getValue().call();
+                    return new GetFeatureOfInterestParser(opsRes, metadata).parseFeatures();
+                }
+            });
+        }
+
+        BoundedCompletionExecutor<String, Map<Feature, Point>> executor = createExecutor(metadata);
+        executor.execute(tasks, new CompletionHandler<String, Map<Feature, Point>>() {
+            @Override
+            public void completed(String phenomenonID, Map<Feature, Point> features) {
+                GetFeatureOfInterestParser.addFeatures(features, metadata);
             }
-            catch (TimeoutException e) {
-                LOGGER.error("Timeout occured.", e);
+
+            @Override
+            public void failed(String phenomenonID, Throwable cause) {
+                if (cause instanceof TimeoutException) {
+                    LOGGER.error("Timeout occured.", cause);
+                }
+                else {
+                    LOGGER.error("GetFeatureOfInterest request failed for phenomenon '{}'.", phenomenonID, cause);
+                }
             }
-        }
+        });
+    }
+
+    private <V> BoundedCompletionExecutor<String, V> createExecutor(SOSMetadata metadata) {
+        return new BoundedCompletionExecutor<String, V>(AccessorThreadPool.getExecutor(),
+                                                        metadata.getMaxConcurrentRequests(),
+                                                        SERVER_TIMEOUT);
     }
 
     private Collection<SosTimeseries> getAvailableTimeseries(XmlObject result_xb,
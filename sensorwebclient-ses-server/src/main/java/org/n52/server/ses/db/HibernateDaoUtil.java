@@ -39,15 +39,19 @@ public abstract class HibernateDaoUtil {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(HibernateDaoUtil.class);
     
-    private static SessionFactory sessionFactory;
+    private static volatile SessionFactory sessionFactory;
     
     protected static SessionFactory getSessionFactory() {
         if (sessionFactory == null) {
-            try {
-                sessionFactory = new Configuration().configure().buildSessionFactory();
-            }
-            catch (Exception e) {
-                LOGGER.error("Initial SessionFactory creation failed.", e);
+            synchronized (HibernateDaoUtil.class) {
+                if (sessionFactory == null) {
+                    try {
+                        sessionFactory = new Configuration().configure().buildSessionFactory();
+                    }
+                    catch (Exception e) {
+                        LOGGER.error("Initial SessionFactory creation failed.", e);
+                    }
+                }
             }
         }
         return sessionFactory;
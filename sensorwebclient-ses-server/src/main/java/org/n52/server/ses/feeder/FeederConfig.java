@@ -29,9 +29,18 @@ package org.n52.server.ses.feeder;
 
 import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_GETOBSERVATIONS_UPDATE_INTERVAL;
 import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_LAST_CONSIDERED_TIME_INTERVAL;
+import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_MAX_FEEDS_PER_REQUEST;
+import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_MAX_FEED_LAG_PER_REQUEST;
 import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_MINIMAL_UPDATE_INTERVAL_RANGE;
+import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_NOTIFY_BATCH_SIZE;
+import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_NOTIFY_BURST;
+import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_NOTIFY_QUEUE_CAPACITY;
+import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_NOTIFY_RATE;
+import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_NOTIFY_WORKERS;
 import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_NO_DATA_VALUES;
 import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_ONLY_YOUNGEST_OBSERVATION;
+import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_PROGRESS_BATCH_SIZE;
+import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_PROGRESS_FLUSH_INTERVAL;
 import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_SES_DEFAULT_TOPIC;
 import static org.n52.server.ses.feeder.FeederConfig.ConfigurationKeys.KEY_SES_LIFETIME_DURATION;
 
@@ -79,6 +88,24 @@ public class FeederConfig {
 
     private long firstConsideredTimeIntervalInMillis;
 
+    private int maxFeedsPerRequest;
+
+    private long maxFeedLagPerRequest;
+
+    private long progressFlushInterval;
+
+    private int progressBatchSize;
+
+    private double notifyRate;
+
+    private int notifyBurst;
+
+    private int notifyBatchSize;
+
+    private int notifyQueueCapacity;
+
+    private int notifyWorkers;
+
     public static FeederConfig getFeederConfig() {
         if (instance == null) {
             instance = new FeederConfig();
@@ -94,6 +121,9 @@ public class FeederConfig {
         minimalUpdateIntervalRange = parseLongValue(KEY_MINIMAL_UPDATE_INTERVAL_RANGE, 120000);
         elapseTimeOfGetObservationsUpdateInMillis = parseLongValue(KEY_GETOBSERVATIONS_UPDATE_INTERVAL, 60000);
 
+        maxFeedsPerRequest = (int) parseLongValue(KEY_MAX_FEEDS_PER_REQUEST, 50);
+        maxFeedLagPerRequest = parseLongValue(KEY_MAX_FEED_LAG_PER_REQUEST, 3600000);
+
         noDataValues = parseCommaSeparatedValues(KEY_NO_DATA_VALUES);
 
         sesDefaultTopic = parseStringValue(KEY_SES_DEFAULT_TOPIC, SES_DEFAULT_TOPIC);
@@ -101,6 +131,15 @@ public class FeederConfig {
 
         onlyYoungestName = Boolean.parseBoolean(getValue(KEY_ONLY_YOUNGEST_OBSERVATION));
 
+        progressFlushInterval = parseLongValue(KEY_PROGRESS_FLUSH_INTERVAL, 10000);
+        progressBatchSize = (int) parseLongValue(KEY_PROGRESS_BATCH_SIZE, 100);
+
+        notifyRate = parseDoubleValue(KEY_NOTIFY_RATE, 2.0);
+        notifyBurst = (int) parseLongValue(KEY_NOTIFY_BURST, 10);
+        notifyBatchSize = (int) parseLongValue(KEY_NOTIFY_BATCH_SIZE, 1);
+        notifyQueueCapacity = (int) parseLongValue(KEY_NOTIFY_QUEUE_CAPACITY, 1000);
+        notifyWorkers = (int) parseLongValue(KEY_NOTIFY_WORKERS, 2);
+
         LOGGER.info("Feeder configuration has been loaded successfully.");
     }
 
@@ -113,6 +152,29 @@ public class FeederConfig {
             LOGGER.warn("Could not parse setting for '{}'-Key. Using default value: {}.", configKey, defaultValue);
             return defaultValue;
         }
+        catch (NullPointerException e) {
+            LOGGER.warn("Missing Parameter '{}'. Default value is now '{}'", configKey, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private double parseDoubleValue(String configKey, double defaultValue) {
+        try {
+            double value = Double.parseDouble(getValue(configKey).trim());
+            if (value > 0) {
+                return value;
+            }
+            LOGGER.warn("Setting for '{}'-Key has to be positive. Using default value: {}.", configKey, defaultValue);
+            return defaultValue;
+        }
+        catch (NumberFormatException e) {
+            LOGGER.warn("Could not parse setting for '{}'-Key. Using default value: {}.", configKey, defaultValue);
+            return defaultValue;
+        }
+        catch (NullPointerException e) {
+            LOGGER.warn("Missing Parameter '{}'. Default value is now '{}'", configKey, defaultValue);
+            return defaultValue;
+        }
     }
 
     private List<String> parseCommaSeparatedValues(String configKey) {
@@ -165,6 +227,21 @@ public class FeederConfig {
         return this.elapseTimeOfGetObservationsUpdateInMillis;
     }
 
+    /**
+     * @return how many timeseries of the same offering may be requested within one GetObservation request.
+     */
+    public int getMaxFeedsPerRequest() {
+        return maxFeedsPerRequest;
+    }
+
+    /**
+     * @return how far (in milliseconds) the last feeded times of timeseries requested within one
+     *         GetObservation request may differ.
+     */
+    public long getMaxFeedLagPerRequest() {
+        return maxFeedLagPerRequest;
+    }
+
     public List<String> getNoDataValues() {
         return noDataValues;
     }
@@ -189,6 +266,56 @@ public class FeederConfig {
         return onlyYoungestName;
     }
 
+    /**
+     * @return the interval in milliseconds in which the feeding progress gets written to database.
+     */
+    public long getProgressFlushInterval() {
+        return progressFlushInterval;
+    }
+
+    /**
+     * @return how many feeds may wait for their progress being written before it gets written immediately.
+     */
+    public int getProgressBatchSize() {
+        return progressBatchSize;
+    }
+
+    /**
+     * @return how many notify requests may be sent to a broker per second.
+     */
+    public double getNotifyRate() {
+        return notifyRate;
+    }
+
+    /**
+     * @return how many notify requests may be sent at once after the feeder has been idle.
+     */
+    public int getNotifyBurst() {
+        return notifyBurst;
+    }
+
+    /**
+     * @return how many observation values shall be sent within one notify request.
+     */
+    public int getNotifyBatchSize() {
+        return notifyBatchSize;
+    }
+
+    /**
+     * @return how many notify requests may wait to be sent before feeding gets blocked.
+     */
+    public int getNotifyQueueCapacity() {
+        return notifyQueueCapacity;
+    }
+
+    /**
+     * @return how many threads send notify requests to a broker in parallel. The notifications of one
+     *         timeseries are always sent by the same thread.
+     */
+    public int getNotifyWorkers() {
+        return notifyWorkers;
+    }
+
     class ConfigurationKeys {
 
         /** Key for a list of no data values. */
@@ -197,6 +324,12 @@ public class FeederConfig {
         /** Key for the period to collect the new observations in milliseconds. */
         static final String KEY_GETOBSERVATIONS_UPDATE_INTERVAL = "getobservations_update_time";
 
+        /** Key for the maximum count of timeseries requested within one GetObservation request. */
+        static final String KEY_MAX_FEEDS_PER_REQUEST = "getobservations_max_timeseries_per_request";
+
+        /** Key for the maximum difference of last feeded times within one GetObservation request in milliseconds. */
+        static final String KEY_MAX_FEED_LAG_PER_REQUEST = "getobservations_max_lag_per_request";
+
         /** Key for the minimum update time of an observation in milliseconds. */
         static final String KEY_MINIMAL_UPDATE_INTERVAL_RANGE = "minimal_update_interval_range";
 
@@ -212,6 +345,27 @@ public class FeederConfig {
         /** Key for the youngest new observation sended to the ses */
         static final String KEY_ONLY_YOUNGEST_OBSERVATION = "only_youngest_observation";
 
+        /** Key for the interval in milliseconds to write the feeding progress to database */
+        static final String KEY_PROGRESS_FLUSH_INTERVAL = "progress_flush_interval";
+
+        /** Key for the count of feeds waiting to be written before writing immediately */
+        static final String KEY_PROGRESS_BATCH_SIZE = "progress_batch_size";
+
+        /** Key for the maximum count of notify requests per second */
+        static final String KEY_NOTIFY_RATE = "ses_notify_rate";
+
+        /** Key for the count of notify requests which may be sent at once */
+        static final String KEY_NOTIFY_BURST = "ses_notify_burst";
+
+        /** Key for the count of observation values sent within one notify request */
+        static final String KEY_NOTIFY_BATCH_SIZE = "ses_notify_batch_size";
+
+        /** Key for the count of notify requests waiting to be sent */
+        static final String KEY_NOTIFY_QUEUE_CAPACITY = "ses_notify_queue_capacity";
+
+        /** Key for the count of threads sending notify requests */
+        static final String KEY_NOTIFY_WORKERS = "ses_notify_workers";
+
         // static final String KEY_SLEEP_TIME_OBSERVATIONS = "sleep_time_observation";
     }
 
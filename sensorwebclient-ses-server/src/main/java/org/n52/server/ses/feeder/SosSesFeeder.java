@@ -41,10 +41,12 @@ import java.util.Timer;
 import net.opengis.sensorML.x101.SensorMLDocument;
 
 import org.n52.oxf.ows.ExceptionReport;
+import org.n52.server.ses.feeder.connector.NotificationPublisher;
 import org.n52.server.ses.feeder.connector.SESConnector;
 import org.n52.server.ses.feeder.connector.SOSConnector;
 import org.n52.server.ses.feeder.task.GetObservationsTask;
 import org.n52.server.ses.feeder.util.DatabaseAccess;
+import org.n52.server.ses.feeder.util.FeedProgressWriter;
 import org.n52.server.ses.hibernate.HibernateUtil;
 import org.n52.shared.serializable.pojos.TimeseriesFeed;
 import org.n52.shared.serializable.pojos.TimeseriesMetadata;
@@ -106,12 +108,22 @@ public class SosSesFeeder {
     public void startFeeding() {
         LOGGER.info("Start feeding registered timeseries to SES.");
         long elapse = getFeederConfig().getElapseTimeOfGetObservationsUpdate();
-        timer.schedule(new GetObservationsTask(), 2000, elapse);
+        observationTask = new GetObservationsTask();
+        timer.schedule(observationTask, 2000, elapse);
     }
 
+    /**
+     * Stops feeding. Running observation feeds are stopped and waited for before pending notifications are
+     * published and feed progress is written, so that no feed publishes or records progress afterwards.
+     */
     public void stopFeeding() {
         timer.cancel();
-        observationTask.setActive(false);
+        if (observationTask != null) {
+            observationTask.setActive(false);
+            observationTask.stopObservationFeeds();
+        }
+        NotificationPublisher.shutdownAll();
+        FeedProgressWriter.shutdown();
         LOGGER.info("Feeding stopped.");
     }
 
@@ -171,18 +183,6 @@ public class SosSesFeeder {
         try {
             // FIXME should be removed during code review before next release
             active = false;
-            this.observationTask.stopObservationFeeds();
-            // wait until ObsTask is finished
-            while (this.observationTask.isActive()) {
-                LOGGER.debug("ObservationTask is active : " + observationTask.isActive());
-                try {
-                    Thread.sleep(1000);
-                }
-                catch (InterruptedException e1) {
-                    LOGGER.error("Error during destroy of SosSesFeeder servlet.", e1);
-                }
-            }
-
             stopFeeding();
 
             HibernateUtil.closeDatabaseSessionFactory();
@@ -0,0 +1,397 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.feeder.connector;
+
+import static org.n52.server.ses.feeder.FeederConfig.getFeederConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.server.ses.feeder.FeederConfig;
+import org.n52.server.ses.feeder.util.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes notifications to one SES broker. Notifications are put into bounded queues and sent by a fixed
+ * number of worker threads, each draining its own queue. All workers of a broker share one
+ * {@link TokenBucket} so that the broker is not flooded when many timeseries get fed at the same time. A full
+ * queue blocks the feeding threads until the workers have caught up.<br>
+ * <br>
+ * Notifications of deliveries with the same ordering key (e.g. the timeseries being fed) always go to the
+ * same worker, so that they reach the SES in the order they have been published. Notifications which could
+ * not be sent are retried by that worker up to {@value #MAX_ATTEMPTS} times before it continues with the
+ * next notification of its queue. Each notification
+ * belongs to a {@link Delivery} which reports to its {@link DeliveryCallback} once all of its notifications
+ * have been sent (or one of them finally failed), so that feeding progress is only stored for notifications
+ * which actually reached the SES.
+ */
+public class NotificationPublisher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationPublisher.class);
+
+    private static final Map<String, NotificationPublisher> publishers = new HashMap<String, NotificationPublisher>();
+
+    private static final long OFFER_TIMEOUT = 1000;
+
+    private static final long RETRY_DELAY = 1000;
+
+    private static final long DRAIN_TIMEOUT = 10000;
+
+    static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Sends a single notification to the SES.
+     */
+    public interface NotificationSender {
+
+        /**
+         * @param notification
+         *        the notification to send.
+         * @return <code>true</code> if the SES has received the notification, <code>false</code> if sending
+         *         failed and shall be retried.
+         */
+        boolean send(String notification);
+    }
+
+    /**
+     * Gets informed once all notifications of a {@link Delivery} have been handled.
+     */
+    public interface DeliveryCallback {
+
+        /**
+         * @param delivered
+         *        <code>true</code> if all notifications have been sent, <code>false</code> if at least one
+         *        of them could not be sent or has been discarded on shutdown.
+         */
+        void completed(boolean delivered);
+    }
+
+    /**
+     * Tracks the notifications published for one purpose (e.g. one feeding round of a timeseries). The
+     * callback is called once, after {@link #seal()} has been called and all notifications have been handled.
+     */
+    public static class Delivery {
+
+        private final String orderingKey;
+
+        private final DeliveryCallback callback;
+
+        private int pending = 0;
+
+        private boolean failed = false;
+
+        private boolean sealed = false;
+
+        private boolean completed = false;
+
+        /**
+         * Creates a delivery whose notifications are sent in publishing order, independent of other
+         * deliveries.
+         */
+        public Delivery(DeliveryCallback callback) {
+            this(null, callback);
+        }
+
+        /**
+         * @param orderingKey
+         *        notifications of all deliveries with the same key are sent in publishing order.
+         * @param callback
+         *        gets informed once all notifications have been handled.
+         */
+        public Delivery(String orderingKey, DeliveryCallback callback) {
+            this.orderingKey = orderingKey;
+            this.callback = callback;
+        }
+
+        private int getOrderingHash() {
+            return orderingKey == null ? System.identityHashCode(this) : orderingKey.hashCode();
+        }
+
+        /**
+         * Marks that no more notifications will be published for this delivery.
+         */
+        public void seal() {
+            complete(false);
+        }
+
+        /**
+         * Marks the delivery as failed and seals it.
+         */
+        public void fail() {
+            complete(true);
+        }
+
+        synchronized void added() {
+            pending++;
+        }
+
+        void handled(boolean sent) {
+            boolean complete;
+            synchronized (this) {
+                pending--;
+                failed |= !sent;
+                complete = isCompleting();
+            }
+            notifyCallback(complete);
+        }
+
+        private void complete(boolean failure) {
+            boolean complete;
+            synchronized (this) {
+                failed |= failure;
+                sealed = true;
+                complete = isCompleting();
+            }
+            notifyCallback(complete);
+        }
+
+        private boolean isCompleting() {
+            if (completed || !sealed || pending > 0) {
+                return false;
+            }
+            completed = true;
+            return true;
+        }
+
+        private void notifyCallback(boolean complete) {
+            if (complete) {
+                callback.completed( !failed);
+            }
+        }
+    }
+
+    private final List<BlockingQueue<Notification>> queues = new ArrayList<BlockingQueue<Notification>>();
+
+    private final TokenBucket rateLimit;
+
+    private final NotificationSender sender;
+
+    private final long retryDelay;
+
+    private final List<Thread> workers = new ArrayList<Thread>();
+
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param brokerUrl
+     *        the broker to publish to.
+     * @param sender
+     *        sends the notifications, has to be thread safe. Only used when the publisher for the given
+     *        broker is created.
+     * @return the publisher for the given broker.
+     */
+    public static synchronized NotificationPublisher getPublisher(String brokerUrl, NotificationSender sender) {
+        NotificationPublisher publisher = publishers.get(brokerUrl);
+        if (publisher == null) {
+            FeederConfig config = getFeederConfig();
+            TokenBucket rateLimit = new TokenBucket(config.getNotifyRate(), config.getNotifyBurst());
+            int capacity = config.getNotifyQueueCapacity();
+            int workerCount = config.getNotifyWorkers();
+            publisher = new NotificationPublisher(brokerUrl, sender, rateLimit, capacity, workerCount, RETRY_DELAY);
+            publishers.put(brokerUrl, publisher);
+        }
+        return publisher;
+    }
+
+    /**
+     * Stops all publishers. Queued notifications are sent as long as the drain timeout allows, the deliveries
+     * of notifications still left are failed.
+     */
+    public static synchronized void shutdownAll() {
+        for (NotificationPublisher publisher : publishers.values()) {
+            publisher.shutdown(DRAIN_TIMEOUT);
+        }
+        publishers.clear();
+    }
+
+    NotificationPublisher(String brokerUrl,
+                          NotificationSender sender,
+                          TokenBucket rateLimit,
+                          int capacity,
+                          int workerCount,
+                          long retryDelay) {
+        this.sender = sender;
+        this.rateLimit = rateLimit;
+        this.retryDelay = retryDelay;
+        int queueCount = Math.max(1, workerCount);
+        int queueCapacity = Math.max(1, capacity / queueCount);
+        for (int i = 0; i < queueCount; i++) {
+            BlockingQueue<Notification> queue = new LinkedBlockingQueue<Notification>(queueCapacity);
+            queues.add(queue);
+            Thread worker = new Thread(new Worker(queue), "ses-notify-" + i + "_" + brokerUrl);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Queues a notification, waiting as long as the queue is full.
+     * 
+     * @param notification
+     *        the notification message.
+     * @param delivery
+     *        the delivery the notification belongs to.
+     * @return <code>true</code> if queued, <code>false</code> if the publisher has been shut down.
+     * @throws InterruptedException
+     *         if the calling thread has been interrupted while waiting.
+     */
+    public boolean publish(String notification, Delivery delivery) throws InterruptedException {
+        delivery.added();
+        Notification queued = new Notification(notification, delivery);
+        BlockingQueue<Notification> queue = getQueue(delivery);
+        boolean offered = false;
+        try {
+            while ( !shutdown && !offered) {
+                offered = queue.offer(queued, OFFER_TIMEOUT, TimeUnit.MILLISECONDS);
+                if ( !offered) {
+                    LOGGER.debug("Notification queue is full, waiting for publishing workers.");
+                }
+            }
+        }
+        finally {
+            if ( !offered) {
+                delivery.handled(false);
+            }
+        }
+        return offered;
+    }
+
+    private BlockingQueue<Notification> getQueue(Delivery delivery) {
+        int index = (delivery.getOrderingHash() & Integer.MAX_VALUE) % queues.size();
+        return queues.get(index);
+    }
+
+    int getQueueSize() {
+        int size = 0;
+        for (BlockingQueue<Notification> queue : queues) {
+            size += queue.size();
+        }
+        return size;
+    }
+
+    void shutdown(long drainTimeout) {
+        shutdown = true;
+        long deadline = System.currentTimeMillis() + drainTimeout;
+        try {
+            for (Thread worker : workers) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining > 0) {
+                    worker.join(remaining);
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        List<Notification> unsent = new ArrayList<Notification>();
+        for (BlockingQueue<Notification> queue : queues) {
+            queue.drainTo(unsent);
+        }
+        for (Notification notification : unsent) {
+            notification.delivery.handled(false);
+        }
+        if ( !unsent.isEmpty()) {
+            LOGGER.info("Discarded {} unsent notifications on shutdown.", unsent.size());
+        }
+    }
+
+    private boolean send(Notification notification) throws InterruptedException {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            rateLimit.acquire();
+            try {
+                if (sender.send(notification.message)) {
+                    return true;
+                }
+            }
+            catch (RuntimeException e) {
+                LOGGER.error("Could not send notification to SES.", e);
+            }
+            if (attempt < MAX_ATTEMPTS) {
+                LOGGER.debug("Sending notification failed, retry #{}.", attempt);
+                TimeUnit.MILLISECONDS.sleep(attempt * retryDelay);
+            }
+        }
+        LOGGER.warn("Could not send notification to SES after {} attempts.", MAX_ATTEMPTS);
+        return false;
+    }
+
+    private static class Notification {
+
+        private final String message;
+
+        private final Delivery delivery;
+
+        Notification(String message, Delivery delivery) {
+            this.message = message;
+            this.delivery = delivery;
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        private final BlockingQueue<Notification> queue;
+
+        Worker(BlockingQueue<Notification> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            while ( !shutdown || !queue.isEmpty()) {
+                Notification notification = null;
+                boolean sent = false;
+                try {
+                    notification = queue.poll(OFFER_TIMEOUT, TimeUnit.MILLISECONDS);
+                    if (notification != null) {
+                        sent = send(notification);
+                    }
+                }
+                catch (InterruptedException e) {
+                    LOGGER.trace("Publishing worker interrupted.");
+                    return;
+                }
+                finally {
+                    if (notification != null) {
+                        notification.delivery.handled(sent);
+                    }
+                }
+            }
+        }
+    }
+
+}
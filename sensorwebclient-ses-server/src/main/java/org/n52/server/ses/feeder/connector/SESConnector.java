@@ -37,22 +37,18 @@ import static org.n52.oxf.ses.adapter.ISESRequestBuilder.REGISTER_PUBLISHER_TOPI
 import static org.n52.oxf.ses.adapter.SESAdapter.NOTIFY;
 import static org.n52.oxf.ses.adapter.SESAdapter.REGISTER_PUBLISHER;
 import static org.n52.server.ses.feeder.FeederConfig.getFeederConfig;
+import static org.n52.server.ses.feeder.connector.NotificationPublisher.getPublisher;
 import static org.n52.server.ses.util.SesServerUtil.getBrokerUrl;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Scanner;
-import java.util.StringTokenizer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import net.opengis.om.x10.ObservationPropertyType;
 import net.opengis.sensorML.x101.SensorMLDocument;
 
 import org.apache.xmlbeans.XmlException;
 import org.apache.xmlbeans.XmlObject;
-import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormatter;
-import org.joda.time.format.ISODateTimeFormat;
 import org.n52.oxf.OXFException;
 import org.n52.oxf.adapter.OperationResult;
 import org.n52.oxf.adapter.ParameterContainer;
@@ -64,6 +60,10 @@ import org.n52.oxf.ses.adapter.client.Publisher;
 import org.n52.server.ses.SesConfig;
 import org.n52.server.ses.feeder.FeederConfig;
 import org.n52.server.ses.feeder.SosSesFeeder;
+import org.n52.server.ses.feeder.connector.NotificationPublisher.Delivery;
+import org.n52.server.ses.feeder.connector.NotificationPublisher.NotificationSender;
+import org.n52.server.ses.feeder.util.ObservationSplitter;
+import org.n52.server.ses.feeder.util.ObservationSplitter.ObservationSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -146,46 +146,67 @@ public class SESConnector {
     }
 
     /**
-     * Send a given Observation to the SES.
+     * Queues a given Observation to be sent to the SES. The observation is split into single observations
+     * (or batches of observations, see {@link FeederConfig#getNotifyBatchSize()}) which are published
+     * asynchronously by the {@link NotificationPublisher} of the SES broker.
      * 
      * @param obsPropType
      *        The given Observation
-     * @return true - when sending successful
+     * @param delivery
+     *        tracks the notifications queued for the observation. It gets failed if not all of them could be
+     *        queued.
+     * @return true - when the observation had to be sent unsplitted
      * @throws OXFException
      * @throws ExceptionReport
      */
-    public boolean publishObservation(ObservationPropertyType obsPropType) throws OXFException, ExceptionReport {
+    public boolean publishObservation(ObservationPropertyType obsPropType, Delivery delivery) throws OXFException, ExceptionReport {
         LOGGER.trace("publishObservation()");
 
+        NotificationPublisher publisher = getPublisher(getBrokerUrl(serviceUrl), new NotificationSender() {
+            @Override
+            public boolean send(String notification) {
+                return sendNotificationFor(notification);
+            }
+        });
         try {
             for (String observation : getSingleObservations(obsPropType)) {
-                if (SosSesFeeder.active) {
-                    letSesFilter(observation);
-                }
-                else {
+                if ( !SosSesFeeder.active) {
                     LOGGER.info("Feeding stopped. Service is going to shutdown.");
+                    delivery.fail();
+                    break;
+                }
+                if ( !queue(publisher, observation, delivery)) {
+                    delivery.fail();
+                    break;
                 }
             }
         }
         catch (Exception e) {
             LOGGER.error("Error while splitting observations. Send observations in one request.", e);
-            sendNotificationFor(obsPropType.xmlText());
+            if ( !queue(publisher, obsPropType.xmlText(), delivery)) {
+                delivery.fail();
+            }
             return true;
         }
         return false;
     }
 
-    private void letSesFilter(String observation) throws ExceptionReport {
-        sendNotificationFor(observation);
+    private boolean queue(NotificationPublisher publisher, String observation, Delivery delivery) {
         try {
-            Thread.sleep(500);
+            return publisher.publish(observation, delivery);
         }
         catch (InterruptedException e) {
-            //
+            LOGGER.debug("Interrupted while queuing observations.");
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
-    private void sendNotificationFor(String singleObservation) throws ExceptionReport {
+    /**
+     * @return <code>false</code> if the notification could not be sent and shall be retried. Notifications
+     *         rejected by the SES are not retried.
+     */
+    private boolean sendNotificationFor(String singleObservation) {
         try {
             String brokerUrl = getBrokerUrl(serviceUrl);
             ParameterContainer parameter = new ParameterContainer();
@@ -193,13 +214,15 @@ public class SESConnector {
             parameter.addParameterShell(NOTIFY_TOPIC, topic);
             parameter.addParameterShell(NOTIFY_XML_MESSAGE, singleObservation);
 
-            LOGGER.trace("Notify request: \n {}", new SESRequestBuilder_00().buildNotifyRequest(parameter));
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("Notify request: \n {}", new SESRequestBuilder_00().buildNotifyRequest(parameter));
+            }
 
             Operation operation = new Operation(NOTIFY, null, brokerUrl);
             
             OperationResult doOperation = sesAdapter.doOperation(operation, parameter);
             if (doOperation == null) {
-                return; // SES responds with HTTP 204 when successful
+                return true; // SES responds with HTTP 204 when successful
             }
             StringBuilder sb = new StringBuilder();
             Scanner scanner = new Scanner(doOperation.getIncomingResultAsStream());
@@ -210,115 +233,32 @@ public class SESConnector {
             if (sb.length() > 0) {
                 LOGGER.warn("SES Reponse: " + sb.toString());
             }
+            return true;
+        }
+        catch (ExceptionReport e) {
+            LOGGER.error("SES rejected notify message.", e);
+            return true;
         }
         catch (OXFException e) {
             LOGGER.error("Error while sending notify message to SES.", e);
+            return false;
         }
         catch (NullPointerException e) {
             LOGGER.debug("Response of notify is null.", e);
+            return true;
         }
     }
 
-    private String[] getSingleObservations(ObservationPropertyType observations) {
-
-        String obsPropType = observations.xmlText();
-        
-        // Determining how many observations are contained in the observation collection
-        Pattern countPattern = Pattern.compile("<swe:value>(.*?)</swe:value>");
-        Matcher countMatcher = countPattern.matcher(obsPropType);
-        String countString = null;
-        if (countMatcher.find()) {
-            countString = countMatcher.group(1).trim();
-        }
-        int observationCount = Integer.parseInt(countString);
-
-        // This array will contain one observation string for each observation of the observation
-        // collection
-        String[] outputStrings;
-
-        // If the observation collection contains only one value it can be directly returned
-        if (observationCount == 1) {
-            outputStrings = new String[] {obsPropType};
-        }
-
-        // If the observation collection contains more than one value it must be split
-        else {
-
-            // Extracting the values that are contained in the observation collection and creating a
-            // StringTokenizer that allows to access the values
-            Pattern valuesPattern = Pattern.compile("<swe:values>(.*?)</swe:values>");
-            Matcher valuesMatcher = valuesPattern.matcher(obsPropType);
-            String valuesString = null;
-            if (valuesMatcher.find()) {
-                valuesString = valuesMatcher.group(1).trim();
+    private List<String> getSingleObservations(ObservationPropertyType observations) {
+        FeederConfig config = getFeederConfig();
+        ObservationSplitter splitter = new ObservationSplitter(config.getNotifyBatchSize(), config.isOnlyYoungestName());
+        final XmlObject template = observations.copy();
+        return splitter.split(template.getDomNode(), new ObservationSerializer() {
+            @Override
+            public String serialize() {
+                return template.xmlText();
             }
-
-            StringTokenizer valuesTokenizer = new StringTokenizer(valuesString, ";");
-            // If only the latest observation is wished, find youngest
-            // observation.
-            if (FeederConfig.getFeederConfig().isOnlyYoungestName()) {
-                DateTime youngest = new DateTime(0);
-                String youngestValues = "";
-                DateTimeFormatter fmt = ISODateTimeFormat.dateTime();
-                while (valuesTokenizer.hasMoreElements()) {
-                    String valueString = (String) valuesTokenizer.nextElement();
-                    DateTime time = fmt.parseDateTime(valueString.split(",")[0]);
-                    if (time.isAfter(youngest.getMillis())) {
-                        youngest = time;
-                        youngestValues = valueString;
-                    }
-                }
-                outputStrings = new String[] {createSingleObservationString(obsPropType, youngestValues)};
-            }
-            else {
-                outputStrings = new String[observationCount];
-
-                for (int i = 0; i < observationCount; i++) {
-
-                    // Add the extracted observation to an array containing
-                    // all extracted observations
-                    outputStrings[i] = createSingleObservationString(obsPropType, valuesTokenizer.nextToken());
-                }
-            }
-
-        }
-        // Returning the extracted observations
-        return outputStrings;
-    }
-
-    private String createSingleObservationString(String observation, String individualValuesString) {
-        // This string will contain the next extracted single observation
-        String singleObservationString = observation;
-
-        // // Replace the id of the observation collection
-        // singleObservationString = singleObservationString.replaceFirst(idString, idString + "_" + i);
-
-        // Replace the time period of the observation with the
-        // time of the contained observation
-        Pattern timePattern = Pattern.compile("(.*?),");
-        Matcher timeMatcher = timePattern.matcher(individualValuesString);
-        String timeString = "";
-        if (timeMatcher.find()) {
-            timeString = timeMatcher.group(1).trim();
-        }
-        singleObservationString = singleObservationString.replaceAll("<gml:beginPosition>[^<]*</gml:beginPosition>",
-                                                                     "<gml:beginPosition>" + timeString
-                                                                             + "</gml:beginPosition>");
-        singleObservationString = singleObservationString.replaceAll("<gml:endPosition>[^<]*</gml:endPosition>",
-                                                                     "<gml:endPosition>" + timeString
-                                                                             + "</gml:endPosition>");
-
-        // Set the number of elements in the observation
-        // collection to 1
-        singleObservationString = singleObservationString.replaceAll("<swe:value>[^<]*</swe:value>",
-                                                                     "<swe:value>1</swe:value>");
-
-        // Replace the elements in the values element with one
-        // singe value
-        singleObservationString = singleObservationString.replaceAll("<swe:values>[^<]*</swe:values>", "<swe:values>"
-                + individualValuesString + ";</swe:values>");
-
-        return singleObservationString;
+        });
     }
 
     public boolean isClosed() {
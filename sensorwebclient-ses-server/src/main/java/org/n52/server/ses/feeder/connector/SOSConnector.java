@@ -36,7 +36,9 @@ import static org.n52.server.util.TimeUtil.createIso8601Formatter;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import net.opengis.om.x10.ObservationCollectionDocument;
 import net.opengis.ows.x11.ExceptionReportDocument;
@@ -59,6 +61,7 @@ import org.n52.oxf.valueDomains.time.TimeFactory;
 import org.n52.server.da.oxf.ObservationAccessor;
 import org.n52.server.io.RequestConfig;
 import org.n52.server.mgmt.ConfigurationContext;
+import org.n52.server.mgmt.MetadataUnavailableException;
 import org.n52.server.parser.DescribeSensorParser;
 import org.n52.server.util.SosAdapterFactory;
 import org.n52.shared.serializable.pojos.TimeseriesFeed;
@@ -92,11 +95,14 @@ public class SOSConnector {
         try {
             serviceUrl = sosURL;
             serviceMetadata = ConfigurationContext.getSOSMetadata(serviceUrl);
-            sosAdapter = SosAdapterFactory.createSosAdapter(serviceMetadata);
+            sosAdapter = SosAdapterFactory.getSosAdapter(serviceMetadata);
         }
         catch (IllegalStateException e) {
             LOGGER.debug("Configuration is not available.", e);
         }
+        catch (MetadataUnavailableException e) {
+            LOGGER.warn("No metadata available for SOS '{}'.", serviceUrl, e);
+        }
     }
 
     /**
@@ -105,6 +111,10 @@ public class SOSConnector {
      * @return true - if service is running
      */
     public boolean initSosConnection() {
+        if (serviceMetadata == null) {
+            LOGGER.error("Cannot init SOS service '{}' without metadata.", serviceUrl);
+            return false;
+        }
         try {
             String serviceVersion = serviceMetadata.getVersion();
             ParameterContainer paramCon = new ParameterContainer();
@@ -169,25 +179,45 @@ public class SOSConnector {
         return null;
     }
 
-    public ObservationCollectionDocument performGetObservation(TimeseriesFeed timeseriesFeed) throws Exception {
+    /**
+     * Requests the observations of all given feeds within one GetObservation request. The feeds have to
+     * share the same SOS and offering. Observations are requested from the oldest last feeded time of all
+     * feeds, so that callers have to filter observations already feeded and should only request feeds with
+     * close last feeded times together.
+     * 
+     * @param timeseriesFeeds
+     *        the feeds to request observations for.
+     * @return the observation collection containing the observations of all requested feeds.
+     * @throws Exception
+     *         if the request fails or the SOS responds with an exception.
+     */
+    public ObservationCollectionDocument performGetObservation(List<TimeseriesFeed> timeseriesFeeds) throws Exception {
         ObservationAccessor obsAccessor = new ObservationAccessor();
-        List<String> fois = new ArrayList<String>();
-        TimeseriesMetadata metadata = timeseriesFeed.getTimeseriesMetadata();
-        fois.add(metadata.getFeatureOfInterest());
-        List<String> phenoms = new ArrayList<String>();
-        phenoms.add(metadata.getPhenomenon());
-        List<String> procedures = new ArrayList<String>();
-        procedures.add(metadata.getProcedure());
+        Set<String> fois = new LinkedHashSet<String>();
+        Set<String> phenoms = new LinkedHashSet<String>();
+        Set<String> procedures = new LinkedHashSet<String>();
+        Date lastFeeded = new Date();
+        for (TimeseriesFeed timeseriesFeed : timeseriesFeeds) {
+            TimeseriesMetadata metadata = timeseriesFeed.getTimeseriesMetadata();
+            fois.add(metadata.getFeatureOfInterest());
+            phenoms.add(metadata.getPhenomenon());
+            procedures.add(metadata.getProcedure());
+            Date feedLastFeeded = timeseriesFeed.getLastFeeded().getTime();
+            if (feedLastFeeded.before(lastFeeded)) {
+                lastFeeded = feedLastFeeded;
+            }
+        }
 
         SimpleDateFormat iso8601 = createIso8601Formatter();
-        String begin = iso8601.format(timeseriesFeed.getLastFeeded().getTime());
+        String begin = iso8601.format(lastFeeded);
         String end = iso8601.format(new Date());
         ITime time = TimeFactory.createTime(begin + "/" + end);
+        TimeseriesMetadata metadata = timeseriesFeeds.get(0).getTimeseriesMetadata();
         RequestConfig request = new RequestConfig(metadata.getServiceUrl(),
                                                   metadata.getOffering(),
-                                                  fois,
-                                                  phenoms,
-                                                  procedures,
+                                                  new ArrayList<String>(fois),
+                                                  new ArrayList<String>(phenoms),
+                                                  new ArrayList<String>(procedures),
                                                   time, 
                                                   null);
         OperationResult operationResult = obsAccessor.sendRequest(request);
@@ -31,30 +31,38 @@ import static java.lang.System.currentTimeMillis;
 import static org.n52.server.ses.feeder.FeederConfig.getFeederConfig;
 import static org.n52.server.util.TimeUtil.createIso8601Formatter;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.xml.namespace.QName;
 
 import net.opengis.gml.AbstractTimeObjectType;
+import net.opengis.gml.FeaturePropertyType;
 import net.opengis.gml.TimePeriodType;
 import net.opengis.om.x10.ObservationCollectionDocument;
 import net.opengis.om.x10.ObservationPropertyType;
 import net.opengis.om.x10.ObservationType;
 import net.opengis.swe.x101.DataArrayDocument;
 import net.opengis.swe.x101.DataValuePropertyType;
+import net.opengis.swe.x101.PhenomenonPropertyType;
 import net.opengis.swe.x101.TextBlockDocument.TextBlock;
 import net.opengis.swe.x101.TimeObjectPropertyType;
 
 import org.apache.xmlbeans.XmlCursor;
 import org.apache.xmlbeans.XmlException;
-import org.hibernate.HibernateException;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.ISODateTimeFormat;
 import org.n52.server.ses.feeder.FeederConfig;
+import org.n52.server.ses.feeder.connector.NotificationPublisher.Delivery;
+import org.n52.server.ses.feeder.connector.NotificationPublisher.DeliveryCallback;
 import org.n52.server.ses.feeder.connector.SESConnector;
 import org.n52.server.ses.feeder.connector.SOSConnector;
 import org.n52.server.ses.feeder.util.DatabaseAccess;
@@ -64,8 +72,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Manages the collection of the observations for a Timeseries. It requests the timeseries observation data
- * from the SOS and sends it to the SES as a notify request. If a rule has been registered at the SES for this
+ * Manages the collection of the observations for Timeseries of one offering. It requests the observation
+ * data of all timeseries within one GetObservation request from the SOS and sends it to the SES as notify
+ * requests. If a rule has been registered at the SES for this
  * specific timeseries the SES filters automatically incoming notifications (in this case the observation) and
  * generates outgoing notifications to inform external components if an observation triggers an event.<br>
  * <br>
@@ -78,16 +87,25 @@ public class FeedObservationThread extends Thread {
 
     private SESConnector sesConnection = new SESConnector();
 
+    private SOSConnector sosConnection;
+
     // TODO use managingTask.isActive() to interrupt long taking actions
     private GetObservationsTask managingTask;
     
-    private TimeseriesFeed timeseriesFeed;
+    private List<TimeseriesFeed> timeseriesFeeds;
 
     private boolean running = true;
 
-    public FeedObservationThread(TimeseriesFeed timeseriesFeed, GetObservationsTask managingTask) {
-        super("timeseriesId_" + timeseriesFeed.getTimeseriesId());
-        this.timeseriesFeed = timeseriesFeed;
+    /**
+     * @param timeseriesFeeds
+     *        the feeds to request within one GetObservation request. All feeds have to share the same SOS
+     *        and offering.
+     * @param managingTask
+     *        the task to report finished feeds to.
+     */
+    public FeedObservationThread(List<TimeseriesFeed> timeseriesFeeds, GetObservationsTask managingTask) {
+        super("timeseriesId_" + timeseriesFeeds.get(0).getTimeseriesId());
+        this.timeseriesFeeds = timeseriesFeeds;
         this.managingTask = managingTask;
     }
 
@@ -101,55 +119,77 @@ public class FeedObservationThread extends Thread {
 
     @Override
     public void run() {
-        if (isRunning()) {
-            TimeseriesMetadata metadata = timeseriesFeed.getTimeseriesMetadata();
-            try {
-                LOGGER.debug("Start feeding observation for {}: ", metadata);
-                if (!timeseriesFeed.hasBeenFeededBefore()) {
-                    setFirstTimeIntervalToFeed(timeseriesFeed);
-                }
-
-                Calendar endUpdate = null;
-                for (ObservationPropertyType observationMember : getObservationsFor(metadata)) {
-                    ObservationType observation = observationMember.getObservation();
-                    if (observation != null && observation.getProcedure().getHref().equals(metadata.getProcedure())) {
-                        replaceProcedureWithGlobalSesId(observation, metadata);
-                        endUpdate = getLastUpdateTime(observation.getSamplingTime());
-                        Calendar latestFeededAt = timeseriesFeed.getLastFeeded();
-                        timeseriesFeed.setLastConsideredTimeInterval(createUpdateInterval(observation, latestFeededAt));
-                        observationMember = checkObservations(observationMember);
-                        if ( ! (observationMember == null) && !sesConnection.isClosed()) {
-                            sesConnection.publishObservation(observationMember);
-                            LOGGER.info(metadata.getProcedure() + " with " + metadata.getOffering() + " feeded to SES");
-                        }
-                        else {
-                            LOGGER.info(String.format("No data received for procedure '%s'.", metadata.getProcedure()));
-                        }
-                    }
-                    else {
-                        LOGGER.info("No new Observations for " + metadata.getProcedure());
+        Set<TimeseriesFeed> unfinishedFeeds = new HashSet<TimeseriesFeed>(timeseriesFeeds);
+        try {
+            if (isRunning()) {
+                for (TimeseriesFeed timeseriesFeed : timeseriesFeeds) {
+                    LOGGER.debug("Start feeding observation for {}: ", timeseriesFeed.getTimeseriesMetadata());
+                    if ( !timeseriesFeed.hasBeenFeededBefore()) {
+                        setFirstTimeIntervalToFeed(timeseriesFeed);
                     }
                 }
-                if (endUpdate != null) {
-                    // to prevent receiving observation two times
-                    endUpdate.add(Calendar.MILLISECOND, 1);
-                    this.timeseriesFeed.setLastFeeded(endUpdate);
+                Map<TimeseriesFeed, List<ObservationPropertyType>> observations = assignObservations(getObservations());
+                for (TimeseriesFeed timeseriesFeed : timeseriesFeeds) {
+                    // the feed gets finished once its notifications have been delivered
+                    unfinishedFeeds.remove(timeseriesFeed);
+                    feed(timeseriesFeed, observations.get(timeseriesFeed));
                 }
-                DatabaseAccess.saveTimeseriesFeed(this.timeseriesFeed);
             }
-            catch (IllegalStateException e) {
-                LOGGER.warn("Failed to create SOS/SES Connection.", e);
-                return; // maybe shutdown .. try again
+        }
+        catch (IllegalStateException e) {
+            LOGGER.warn("Failed to create SOS/SES Connection.", e);
+            return; // maybe shutdown .. try again
+        }
+        catch (Exception e) {
+            LOGGER.warn("Could not request and publish Observation to SES: " + e.getMessage(), e);
+        }
+        finally {
+            for (TimeseriesFeed timeseriesFeed : unfinishedFeeds) {
+                managingTask.feedFinished(timeseriesFeed, false);
             }
-            catch (InterruptedException e) {
-                LOGGER.trace(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Queues the new observations of a feed. The feeding progress gets stored and the feed gets finished not
+     * until all notifications have been delivered to the SES. If delivery fails the progress is left
+     * untouched so that the observations will be requested again.
+     */
+    private void feed(TimeseriesFeed timeseriesFeed, List<ObservationPropertyType> observationMembers) {
+        TimeseriesMetadata metadata = timeseriesFeed.getTimeseriesMetadata();
+        FeedDelivery feedDelivery = new FeedDelivery(timeseriesFeed);
+        Delivery delivery = new Delivery(timeseriesFeed.getTimeseriesId(), feedDelivery);
+        try {
+            Calendar endUpdate = null;
+            for (ObservationPropertyType observationMember : observationMembers) {
+                ObservationType observation = observationMember.getObservation();
+                replaceProcedureWithGlobalSesId(observation, metadata);
+                endUpdate = getLastUpdateTime(observation.getSamplingTime());
+                Calendar latestFeededAt = timeseriesFeed.getLastFeeded();
+                timeseriesFeed.setLastConsideredTimeInterval(createUpdateInterval(observation, latestFeededAt));
+                observationMember = checkObservations(observationMember, latestFeededAt);
+                if ( ! (observationMember == null) && !sesConnection.isClosed()) {
+                    sesConnection.publishObservation(observationMember, delivery);
+                    feedDelivery.published = true;
+                    LOGGER.info(metadata.getProcedure() + " with " + metadata.getOffering() + " queued for SES");
+                }
+                else {
+                    LOGGER.info(String.format("No data received for procedure '%s'.", metadata.getProcedure()));
+                }
             }
-            catch (HibernateException e) {
-                LOGGER.warn("Datebase problem has occured: " + e.getMessage(), e);
+            if (observationMembers.isEmpty()) {
+                LOGGER.info("No new Observations for " + metadata.getProcedure());
             }
-            catch (Exception e) {
-                LOGGER.warn("Could not request and publish Observation to SES: " + e.getMessage(), e);
+            if (endUpdate != null) {
+                // to prevent receiving observation two times
+                endUpdate.add(Calendar.MILLISECOND, 1);
+                feedDelivery.endUpdate = endUpdate;
             }
+            delivery.seal();
+        }
+        catch (Exception e) {
+            LOGGER.warn("Could not publish Observation to SES: " + e.getMessage(), e);
+            delivery.fail();
         }
     }
 
@@ -157,12 +197,73 @@ public class FeedObservationThread extends Thread {
         observation.getProcedure().setHref(metadata.getGlobalSesId());
     }
 
-    private ObservationPropertyType[] getObservationsFor(TimeseriesMetadata metadata) throws Exception {
-        SOSConnector sosConnection = new SOSConnector(metadata.getServiceUrl());
-        ObservationCollectionDocument obsCollDoc = sosConnection.performGetObservation(timeseriesFeed);
+    private ObservationPropertyType[] getObservations() throws Exception {
+        // created per run, so that the current metadata of the SOS is used
+        String serviceUrl = timeseriesFeeds.get(0).getTimeseriesMetadata().getServiceUrl();
+        sosConnection = new SOSConnector(serviceUrl);
+        ObservationCollectionDocument obsCollDoc = sosConnection.performGetObservation(timeseriesFeeds);
         return obsCollDoc.getObservationCollection().getMemberArray();
     }
 
+    /**
+     * Assigns the observations of a combined response to the requested feeds. Observations are matched by
+     * procedure, observed property and feature of interest. Observations matching none of the requested
+     * feeds are dropped. As observations get modified while being feeded, each feed gets its own copy when
+     * more than one feed has been requested.
+     */
+    private Map<TimeseriesFeed, List<ObservationPropertyType>> assignObservations(ObservationPropertyType[] members) {
+        Map<TimeseriesFeed, List<ObservationPropertyType>> observations = new HashMap<TimeseriesFeed, List<ObservationPropertyType>>();
+        for (TimeseriesFeed timeseriesFeed : timeseriesFeeds) {
+            observations.put(timeseriesFeed, new ArrayList<ObservationPropertyType>());
+        }
+        boolean copy = timeseriesFeeds.size() > 1;
+        for (ObservationPropertyType member : members) {
+            ObservationType observation = member.getObservation();
+            if (observation == null) {
+                continue;
+            }
+            List<TimeseriesFeed> matchingFeeds = findFeedsFor(observation);
+            if (matchingFeeds.isEmpty()) {
+                LOGGER.debug("Dropped observation of '{}' not matching any requested feed.", observation.getProcedure().getHref());
+            }
+            for (TimeseriesFeed timeseriesFeed : matchingFeeds) {
+                ObservationPropertyType feedMember = copy ? (ObservationPropertyType) member.copy() : member;
+                observations.get(timeseriesFeed).add(feedMember);
+            }
+        }
+        return observations;
+    }
+
+    private List<TimeseriesFeed> findFeedsFor(ObservationType observation) {
+        PhenomenonPropertyType observedProperty = observation.getObservedProperty();
+        FeaturePropertyType featureOfInterestProperty = observation.getFeatureOfInterest();
+        String procedure = observation.getProcedure().getHref();
+        String phenomenon = observedProperty == null ? null : observedProperty.getHref();
+        String featureOfInterest = featureOfInterestProperty == null ? null : featureOfInterestProperty.getHref();
+        return findFeedsFor(timeseriesFeeds, procedure, phenomenon, featureOfInterest);
+    }
+
+    /**
+     * @return the feeds matching the given procedure. Observed property and feature of interest have to
+     *         match as well if the observation references them.
+     */
+    static List<TimeseriesFeed> findFeedsFor(List<TimeseriesFeed> feeds, String procedure, String phenomenon, String featureOfInterest) {
+        List<TimeseriesFeed> matchingFeeds = new ArrayList<TimeseriesFeed>();
+        for (TimeseriesFeed candidate : feeds) {
+            TimeseriesMetadata metadata = candidate.getTimeseriesMetadata();
+            if (metadata.getProcedure().equals(procedure)
+                    && matchesIfReferenced(phenomenon, metadata.getPhenomenon())
+                    && matchesIfReferenced(featureOfInterest, metadata.getFeatureOfInterest())) {
+                matchingFeeds.add(candidate);
+            }
+        }
+        return matchingFeeds;
+    }
+
+    private static boolean matchesIfReferenced(String reference, String expected) {
+        return reference == null || reference.equals(expected);
+    }
+
     private void setFirstTimeIntervalToFeed(TimeseriesFeed timeseriesFeed) {
         long lastConsideredTimeInterval = getFeederConfig().getFirstConsideredTimeInterval();
         long firstConsideredTimeInterval = currentTimeMillis() - lastConsideredTimeInterval;
@@ -173,7 +274,7 @@ public class FeedObservationThread extends Thread {
         LOGGER.debug("First feeding set to {}.", iso8601);
     }
 
-    private ObservationPropertyType checkObservations(ObservationPropertyType obsPropType) {
+    private ObservationPropertyType checkObservations(ObservationPropertyType obsPropType, Calendar lastFeededAt) {
         // zum tag hin navigieren
         XmlCursor cResult = obsPropType.getObservation().getResult().newCursor();
         cResult.toChild(new QName("http://www.opengis.net/swe/1.0.1", "DataArray"));
@@ -195,6 +296,10 @@ public class FeedObservationThread extends Thread {
             List<String> noDatas = FeederConfig.getFeederConfig().getNoDataValues();
             for (String block : blocks) {
                 String[] value = block.split(tokenSeparator);
+                if (isFeededBefore(value[0], lastFeededAt)) {
+                    // combined requests start at the oldest feed
+                    continue;
+                }
                 // check if noData values matching
                 boolean noDataMatch = false;
                 for (String noData : noDatas) {
@@ -220,6 +325,16 @@ public class FeedObservationThread extends Thread {
         return obsPropType;
     }
 
+    private boolean isFeededBefore(String time, Calendar lastFeededAt) {
+        try {
+            return ISODateTimeFormat.dateTimeParser().parseMillis(time.trim()) < lastFeededAt.getTimeInMillis();
+        }
+        catch (IllegalArgumentException e) {
+            LOGGER.debug("Could not parse observation time '{}'.", time);
+            return false;
+        }
+    }
+
     private long createUpdateInterval(ObservationType observation, Calendar lastFeededAt) {
         long updateObservationPeriod = 0;
         try {
@@ -301,4 +416,42 @@ public class FeedObservationThread extends Thread {
         cal.setTime(date);
         return cal;
     }
+
+    /**
+     * Stores the progress of a feed once its notifications have been delivered.
+     */
+    private class FeedDelivery implements DeliveryCallback {
+
+        private final TimeseriesFeed timeseriesFeed;
+
+        private volatile Calendar endUpdate;
+
+        private volatile boolean published = false;
+
+        FeedDelivery(TimeseriesFeed timeseriesFeed) {
+            this.timeseriesFeed = timeseriesFeed;
+        }
+
+        @Override
+        public void completed(boolean delivered) {
+            try {
+                if (delivered) {
+                    if (endUpdate != null) {
+                        timeseriesFeed.setLastFeeded(endUpdate);
+                    }
+                    DatabaseAccess.saveTimeseriesFeedProgress(timeseriesFeed);
+                }
+                else {
+                    LOGGER.warn("Observations of {} not delivered to SES. Retry with next feeding.", timeseriesFeed.getTimeseriesId());
+                }
+            }
+            catch (RuntimeException e) {
+                LOGGER.warn("Could not store feeding progress of " + timeseriesFeed.getTimeseriesId(), e);
+            }
+            finally {
+                managingTask.feedFinished(timeseriesFeed, delivered && published);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.feeder.task;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.n52.shared.serializable.pojos.TimeseriesFeed;
+
+/**
+ * Keeps track of which feeds are currently being requested and when each feed shall be polled next.<br>
+ * <br>
+ * A feed is polled again after its observation cadence ({@link TimeseriesFeed#getLastConsideredTimeInterval()}
+ * but at least the minimal interval) has elapsed. Each poll which did not deliver new observations doubles
+ * the interval (up to <code>2^{@value #MAX_BACKOFF_EXPONENT}</code> times) until new observations arrive
+ * again. Feeds still being requested are never scheduled twice.
+ */
+class FeedSchedule {
+
+    static final int MAX_BACKOFF_EXPONENT = 4;
+
+    private final Set<String> inFlight = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final Map<String, Long> nextPolls = new ConcurrentHashMap<String, Long>();
+
+    private final Map<String, Integer> emptyPolls = new ConcurrentHashMap<String, Integer>();
+
+    private final long minimalInterval;
+
+    /**
+     * @param minimalInterval
+     *        the minimal time in milliseconds between two polls of the same feed.
+     */
+    FeedSchedule(long minimalInterval) {
+        this.minimalInterval = minimalInterval;
+    }
+
+    /**
+     * @return <code>true</code> if the feed is not being requested and its next poll is due.
+     */
+    boolean isDue(TimeseriesFeed feed) {
+        String timeseriesId = feed.getTimeseriesId();
+        if (inFlight.contains(timeseriesId)) {
+            return false;
+        }
+        Long nextPoll = nextPolls.get(timeseriesId);
+        return nextPoll == null || now() >= nextPoll;
+    }
+
+    /**
+     * Marks the feed as being requested.
+     * 
+     * @return <code>false</code> if the feed is already being requested.
+     */
+    boolean start(TimeseriesFeed feed) {
+        return inFlight.add(feed.getTimeseriesId());
+    }
+
+    /**
+     * Releases the feed and schedules its next poll.
+     * 
+     * @param newObservations
+     *        if the poll delivered new observations.
+     */
+    void finished(TimeseriesFeed feed, boolean newObservations) {
+        String timeseriesId = feed.getTimeseriesId();
+        int backoff = 0;
+        if ( !newObservations) {
+            Integer previousBackoff = emptyPolls.get(timeseriesId);
+            backoff = previousBackoff == null ? 1 : Math.min(previousBackoff + 1, MAX_BACKOFF_EXPONENT);
+        }
+        long interval = Math.max(minimalInterval, feed.getLastConsideredTimeInterval());
+        emptyPolls.put(timeseriesId, backoff);
+        nextPolls.put(timeseriesId, now() + (interval << backoff));
+        inFlight.remove(timeseriesId);
+    }
+
+    /**
+     * Forgets all feeds which are not subscribed anymore.
+     */
+    void retain(Collection<String> subscribedTimeseriesIds) {
+        nextPolls.keySet().retainAll(subscribedTimeseriesIds);
+        emptyPolls.keySet().retainAll(subscribedTimeseriesIds);
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+}
@@ -27,21 +27,33 @@
  */
 package org.n52.server.ses.feeder.task;
 
+import static org.n52.server.ses.feeder.FeederConfig.getFeederConfig;
 import static org.n52.server.ses.feeder.util.DatabaseAccess.getSubscribedTimeseriesFeeds;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import org.n52.server.ses.feeder.FeederConfig;
 import org.n52.shared.serializable.pojos.TimeseriesFeed;
+import org.n52.shared.serializable.pojos.TimeseriesMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Manages regular GetObservation feeds for each subscribed {@link TimeseriesFeed} stored in database.<br>
  * <br>
- * When a GetObservation feed shall be repeated depends on ... TODO {@link #shallFeed(TimeseriesFeed)}
+ * Due feeds sharing the same SOS and offering are requested together within one GetObservation request
+ * (at most <code>getobservations_max_timeseries_per_request</code> feeds each) if their last feeded times
+ * differ by at most <code>getobservations_max_lag_per_request</code>. A feed which is still being
+ * requested is not scheduled again. When a GetObservation feed shall be repeated depends on the observation
+ * cadence of the feed, see {@link #shallFeed(TimeseriesFeed)}.
  * 
  * @see #shallFeed(TimeseriesFeed)
  */
@@ -51,6 +63,8 @@ public class GetObservationsTask extends TimerTask {
 
     private ExecutorService executor = Executors.newFixedThreadPool(5);
 
+    private FeedSchedule schedule = new FeedSchedule(getFeederConfig().getElapseTimeOfGetObservationsUpdate());
+
     private boolean active = true;
 
     @Override
@@ -70,23 +84,123 @@ public class GetObservationsTask extends TimerTask {
         LOGGER.debug("############## Prepare Observation tasks ################");
         List<TimeseriesFeed> subscribedFeeds = getSubscribedTimeseriesFeeds();
         LOGGER.debug("Number of subscribed Feeds: " + subscribedFeeds.size());
+        List<String> subscribedTimeseriesIds = new ArrayList<String>();
+        Map<String, List<TimeseriesFeed>> dueFeedsByOffering = new LinkedHashMap<String, List<TimeseriesFeed>>();
         for (TimeseriesFeed subscribedFeed : subscribedFeeds) {
+            subscribedTimeseriesIds.add(subscribedFeed.getTimeseriesId());
             if (isActive() && shallFeed(subscribedFeed)) {
-                if ( !executor.isShutdown()) {
-                    LOGGER.trace("Feed GetObservation for '{}'", subscribedFeed.getTimeseriesId());
-                    executor.execute(new FeedObservationThread(subscribedFeed, this));
+                String key = createOfferingKey(subscribedFeed.getTimeseriesMetadata());
+                if ( !dueFeedsByOffering.containsKey(key)) {
+                    dueFeedsByOffering.put(key, new ArrayList<TimeseriesFeed>());
                 }
+                dueFeedsByOffering.get(key).add(subscribedFeed);
+            }
+        }
+        schedule.retain(subscribedTimeseriesIds);
+
+        FeederConfig config = getFeederConfig();
+        int maxFeedsPerRequest = Math.max(1, config.getMaxFeedsPerRequest());
+        long maxLag = config.getMaxFeedLagPerRequest();
+        long firstLastFeeded = System.currentTimeMillis() - config.getFirstConsideredTimeInterval();
+        for (List<TimeseriesFeed> dueFeeds : dueFeedsByOffering.values()) {
+            for (List<TimeseriesFeed> feeds : createRequestGroups(dueFeeds, maxFeedsPerRequest, maxLag, firstLastFeeded)) {
+                submit(feeds);
             }
         }
     }
 
     /**
-     * TODO document strategy when a timeseries feed shall be feeded again (update interval, etc.)
+     * Splits the due feeds of one offering into the groups to request together. As a combined request starts
+     * at the oldest last feeded time of its feeds, a group only contains feeds fed at most
+     * <code>maxLag</code> after its oldest feed. A lagging feed thus catches up within its own request instead
+     * of widening the requested time range of all other feeds.
+     * 
+     * @param dueFeeds
+     *        the due feeds sharing the same SOS and offering.
+     * @param maxFeeds
+     *        the maximum count of feeds per group.
+     * @param maxLag
+     *        the maximum difference of last feeded times within a group in milliseconds.
+     * @param firstLastFeeded
+     *        the time feeds not fed before will be requested from.
+     * @return the groups of feeds, ordered by their oldest last feeded time.
+     */
+    static List<List<TimeseriesFeed>> createRequestGroups(List<TimeseriesFeed> dueFeeds,
+                                                          int maxFeeds,
+                                                          long maxLag,
+                                                          final long firstLastFeeded) {
+        List<TimeseriesFeed> sortedFeeds = new ArrayList<TimeseriesFeed>(dueFeeds);
+        Collections.sort(sortedFeeds, new Comparator<TimeseriesFeed>() {
+            @Override
+            public int compare(TimeseriesFeed first, TimeseriesFeed second) {
+                long firstTime = getLastFeeded(first, firstLastFeeded);
+                long secondTime = getLastFeeded(second, firstLastFeeded);
+                return firstTime < secondTime ? -1 : (firstTime == secondTime ? 0 : 1);
+            }
+        });
+        List<List<TimeseriesFeed>> groups = new ArrayList<List<TimeseriesFeed>>();
+        List<TimeseriesFeed> group = null;
+        long groupLastFeeded = 0;
+        for (TimeseriesFeed feed : sortedFeeds) {
+            long lastFeeded = getLastFeeded(feed, firstLastFeeded);
+            if (group == null || group.size() >= maxFeeds || lastFeeded - groupLastFeeded > maxLag) {
+                group = new ArrayList<TimeseriesFeed>();
+                groups.add(group);
+                groupLastFeeded = lastFeeded;
+            }
+            group.add(feed);
+        }
+        return groups;
+    }
+
+    private static long getLastFeeded(TimeseriesFeed feed, long firstLastFeeded) {
+        return feed.hasBeenFeededBefore() ? feed.getLastFeeded().getTimeInMillis() : firstLastFeeded;
+    }
+
+    private void submit(List<TimeseriesFeed> feeds) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        List<TimeseriesFeed> startedFeeds = new ArrayList<TimeseriesFeed>();
+        for (TimeseriesFeed feed : feeds) {
+            if (schedule.start(feed)) {
+                startedFeeds.add(feed);
+            }
+        }
+        if ( !startedFeeds.isEmpty()) {
+            LOGGER.trace("Feed GetObservation for {} timeseries", startedFeeds.size());
+            executor.execute(new FeedObservationThread(startedFeeds, this));
+        }
+    }
+
+    private String createOfferingKey(TimeseriesMetadata metadata) {
+        return metadata.getOffering() + "@" + metadata.getServiceUrl();
+    }
+
+    /**
+     * Releases a feed after it has been requested so that it can be scheduled again.
      * 
      * @param timeseriesFeed
-     * @return
+     *        the feed requested.
+     * @param newObservations
+     *        if new observations have been published for the feed.
+     */
+    void feedFinished(TimeseriesFeed timeseriesFeed, boolean newObservations) {
+        schedule.finished(timeseriesFeed, newObservations);
+    }
+
+    /**
+     * A feed shall be feeded again when it is not being requested at the moment, its last observation is
+     * older than its observation cadence and its next poll is due (polls without new observations are backed
+     * off, see {@link FeedSchedule}).
+     * 
+     * @param timeseriesFeed
+     * @return if the feed shall be requested.
      */
     private boolean shallFeed(TimeseriesFeed timeseriesFeed) {
+        if ( !schedule.isDue(timeseriesFeed)) {
+            return false;
+        }
         boolean noUpdateYet = timeseriesFeed.getLastFeeded() == null;
         return noUpdateYet || isThresholdExceeded(timeseriesFeed);
     }
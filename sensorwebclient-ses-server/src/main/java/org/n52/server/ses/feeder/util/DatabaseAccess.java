@@ -27,14 +27,23 @@
  */
 package org.n52.server.ses.feeder.util;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
 import java.util.List;
 
 import org.hibernate.Criteria;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.jdbc.Work;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 import org.n52.server.ses.db.CriteriaExecution;
 import org.n52.server.ses.db.HibernateDaoUtil;
+import org.n52.server.ses.feeder.util.FeedProgressWriter.FeedProgress;
 import org.n52.shared.serializable.pojos.TimeseriesFeed;
 import org.n52.shared.serializable.pojos.TimeseriesMetadata;
 
@@ -42,7 +51,7 @@ public class DatabaseAccess extends HibernateDaoUtil {
 
     // TODO use HibernateDaoUtil's execution encapsulation 
     
-	public static synchronized boolean isKnownTimeseriesFeed(TimeseriesMetadata timeseriesMetadata) {
+	public static boolean isKnownTimeseriesFeed(TimeseriesMetadata timeseriesMetadata) {
 		Session session = getSessionFactory().getCurrentSession();
 		Transaction transaction = session.beginTransaction();
 		boolean isKnownTimeseriesFeed = false;
@@ -54,13 +63,75 @@ public class DatabaseAccess extends HibernateDaoUtil {
         return isKnownTimeseriesFeed;
 	}
 
-	public static synchronized void saveTimeseriesFeed(TimeseriesFeed timeseriesFeed) {
+	public static void saveTimeseriesFeed(TimeseriesFeed timeseriesFeed) {
 		Session session = getSessionFactory().getCurrentSession();
         Transaction transaction = session.beginTransaction();
         session.saveOrUpdate(timeseriesFeed);
         transaction.commit();
 	}
 
+    /**
+     * Queues the feeding progress of the given feed to be written by the {@link FeedProgressWriter}.
+     * 
+     * @param timeseriesFeed
+     *        the feed which has been feeded.
+     */
+    public static void saveTimeseriesFeedProgress(TimeseriesFeed timeseriesFeed) {
+        FeedProgressWriter.getInstance().add(timeseriesFeed);
+    }
+
+    /**
+     * Writes the feeding progress of several feeds within one JDBC batch update. Only the last feeded time
+     * and the considered time interval get updated, so that concurrent changes of other properties (e.g.
+     * the subscription count) are not overridden.
+     * 
+     * @param progress
+     *        the progress to write.
+     */
+    public static void updateTimeseriesFeedProgress(final Collection<FeedProgress> progress) {
+        final String updateStatement = createProgressUpdateStatement();
+        execute(new CriteriaExecution<Void>() {
+            @Override
+            public Void execute(Session session) {
+                session.doWork(new Work() {
+                    @Override
+                    public void execute(Connection connection) throws SQLException {
+                        PreparedStatement statement = connection.prepareStatement(updateStatement);
+                        try {
+                            for (FeedProgress feedProgress : progress) {
+                                Long lastFeeded = feedProgress.getLastFeeded();
+                                if (lastFeeded == null) {
+                                    statement.setNull(1, Types.TIMESTAMP);
+                                }
+                                else {
+                                    statement.setTimestamp(1, new Timestamp(lastFeeded));
+                                }
+                                statement.setLong(2, feedProgress.getLastConsideredTimeInterval());
+                                statement.setString(3, feedProgress.getTimeseriesId());
+                                statement.addBatch();
+                            }
+                            statement.executeBatch();
+                        }
+                        finally {
+                            statement.close();
+                        }
+                    }
+                });
+                return null;
+            }
+        });
+    }
+
+    private static String createProgressUpdateStatement() {
+        AbstractEntityPersister persister = (AbstractEntityPersister) getSessionFactory().getClassMetadata(TimeseriesFeed.class);
+        StringBuilder sb = new StringBuilder();
+        sb.append("update ").append(persister.getTableName());
+        sb.append(" set ").append(persister.getPropertyColumnNames("lastFeeded")[0]).append(" = ?, ");
+        sb.append(persister.getPropertyColumnNames("lastConsideredTimeInterval")[0]).append(" = ?");
+        sb.append(" where ").append(persister.getIdentifierColumnNames()[0]).append(" = ?");
+        return sb.toString();
+    }
+
 	public static void increaseSubscriptionCountFor(TimeseriesFeed timeseriesFeed) {
 		updateSubscriptionCount(timeseriesFeed, 1);
 	}
@@ -80,13 +151,20 @@ public class DatabaseAccess extends HibernateDaoUtil {
 	    });
 	}
 
+	/**
+	 * @return all feeds having subscriptions, including their feeding progress not written yet.
+	 */
 	@SuppressWarnings("unchecked")
-	public static synchronized List<TimeseriesFeed> getSubscribedTimeseriesFeeds() {
+	public static List<TimeseriesFeed> getSubscribedTimeseriesFeeds() {
 		Session session = getSessionFactory().getCurrentSession();
 		Transaction transaction = session.beginTransaction();
 		Criteria criteria = session.createCriteria(TimeseriesFeed.class);
 		List<TimeseriesFeed> timeseriesFeeds = criteria.add(Restrictions.gt("usedCounter", 0L)).list();
 		transaction.commit();
+		FeedProgressWriter progressWriter = FeedProgressWriter.getInstance();
+		for (TimeseriesFeed timeseriesFeed : timeseriesFeeds) {
+		    progressWriter.applyPendingProgress(timeseriesFeed);
+		}
 		return timeseriesFeeds;
 	}
 
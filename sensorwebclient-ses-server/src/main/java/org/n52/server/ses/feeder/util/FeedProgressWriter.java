@@ -0,0 +1,248 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.feeder.util;
+
+import static org.n52.server.ses.feeder.FeederConfig.getFeederConfig;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.n52.server.ses.feeder.FeederConfig;
+import org.n52.shared.serializable.pojos.TimeseriesFeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind stage for the feeding progress of {@link TimeseriesFeed}s. Instead of committing each feed
+ * after it has been feeded, the latest progress (last feeded time and considered time interval) per feed is
+ * collected and written within one batch update, either periodically or as soon as a configured count of
+ * feeds is waiting.<br>
+ * <br>
+ * Feeds read from database have to be updated with not yet written progress via
+ * {@link #applyPendingProgress(TimeseriesFeed)}.
+ */
+public class FeedProgressWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FeedProgressWriter.class);
+
+    private static FeedProgressWriter instance;
+
+    private final ConcurrentMap<String, FeedProgress> pending = new ConcurrentHashMap<String, FeedProgress>();
+
+    private final Map<String, FeedProgress> writing = new ConcurrentHashMap<String, FeedProgress>();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
+    private final ScheduledExecutorService scheduler;
+
+    private final int batchSize;
+
+    /**
+     * @return the writer configured by {@link FeederConfig}.
+     */
+    public static synchronized FeedProgressWriter getInstance() {
+        if (instance == null) {
+            FeederConfig config = getFeederConfig();
+            instance = new FeedProgressWriter(config.getProgressFlushInterval(), config.getProgressBatchSize());
+        }
+        return instance;
+    }
+
+    /**
+     * Writes all pending progress and stops the writer.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    FeedProgressWriter(long flushInterval, int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "feeder-progress-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long interval = Math.max(1, flushInterval);
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the current progress of the given feed. An older progress of the same feed not written yet is
+     * replaced.
+     */
+    public void add(TimeseriesFeed timeseriesFeed) {
+        FeedProgress progress = new FeedProgress(timeseriesFeed);
+        pending.put(progress.getTimeseriesId(), progress);
+        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        flushRequested.set(false);
+                        flush();
+                    }
+                });
+            }
+            catch (RuntimeException e) {
+                flushRequested.set(false);
+                LOGGER.debug("Could not request flushing feed progress.", e);
+            }
+        }
+    }
+
+    /**
+     * Updates the given feed with its progress not written to database yet (if any).
+     */
+    public void applyPendingProgress(TimeseriesFeed timeseriesFeed) {
+        String timeseriesId = timeseriesFeed.getTimeseriesId();
+        FeedProgress progress = pending.get(timeseriesId);
+        if (progress == null) {
+            progress = writing.get(timeseriesId);
+        }
+        if (progress != null) {
+            progress.applyTo(timeseriesFeed);
+        }
+    }
+
+    synchronized void flush() {
+        List<FeedProgress> batch = new ArrayList<FeedProgress>();
+        for (Map.Entry<String, FeedProgress> entry : pending.entrySet()) {
+            // keep progress visible to readers until it has been written
+            writing.put(entry.getKey(), entry.getValue());
+            pending.remove(entry.getKey(), entry.getValue());
+            batch.add(entry.getValue());
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            write(batch);
+            LOGGER.debug("Written progress of {} timeseries feeds.", batch.size());
+        }
+        catch (RuntimeException e) {
+            LOGGER.error("Could not write progress of {} timeseries feeds. Retry later.", batch.size(), e);
+            for (FeedProgress progress : batch) {
+                // newer progress queued in the meantime wins
+                pending.putIfAbsent(progress.getTimeseriesId(), progress);
+            }
+        }
+        finally {
+            for (FeedProgress progress : batch) {
+                writing.remove(progress.getTimeseriesId());
+            }
+        }
+    }
+
+    void write(List<FeedProgress> batch) {
+        DatabaseAccess.updateTimeseriesFeedProgress(batch);
+    }
+
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if ( !pending.isEmpty()) {
+            LOGGER.warn("Progress of {} timeseries feeds could not be written.", pending.size());
+        }
+    }
+
+    /**
+     * The feeding progress of a timeseries feed.
+     */
+    public static class FeedProgress {
+
+        private final String timeseriesId;
+
+        private final Long lastFeeded;
+
+        private final long lastConsideredTimeInterval;
+
+        FeedProgress(TimeseriesFeed timeseriesFeed) {
+            Calendar lastFeededAt = timeseriesFeed.getLastFeeded();
+            this.timeseriesId = timeseriesFeed.getTimeseriesId();
+            this.lastFeeded = lastFeededAt == null ? null : lastFeededAt.getTimeInMillis();
+            this.lastConsideredTimeInterval = timeseriesFeed.getLastConsideredTimeInterval();
+        }
+
+        public String getTimeseriesId() {
+            return timeseriesId;
+        }
+
+        /**
+         * @return the last feeded time in milliseconds or <code>null</code> if the feed has not been feeded
+         *         yet.
+         */
+        public Long getLastFeeded() {
+            return lastFeeded;
+        }
+
+        public long getLastConsideredTimeInterval() {
+            return lastConsideredTimeInterval;
+        }
+
+        void applyTo(TimeseriesFeed timeseriesFeed) {
+            if (lastFeeded != null) {
+                Calendar lastFeededAt = new GregorianCalendar();
+                lastFeededAt.setTimeInMillis(lastFeeded);
+                timeseriesFeed.setLastFeeded(lastFeededAt);
+            }
+            timeseriesFeed.setLastConsideredTimeInterval(lastConsideredTimeInterval);
+        }
+    }
+
+}
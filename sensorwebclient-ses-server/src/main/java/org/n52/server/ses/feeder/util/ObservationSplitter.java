@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.feeder.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Splits the DataArray result of an O&amp;M observation into smaller observations which can be notified to
+ * the SES one by one (or batch by batch).<br>
+ * <br>
+ * The splitter works on the DOM of an already parsed observation: the relevant nodes (time period, element
+ * count, encoding and values) are located once and then rewritten in place for each chunk of values before
+ * the template gets serialized. Because the DOM is modified, the splitter has to be given a private copy of
+ * the observation.
+ */
+public class ObservationSplitter {
+
+    static final String SWE_NAMESPACE = "http://www.opengis.net/swe/1.0.1";
+
+    static final String GML_NAMESPACE = "http://www.opengis.net/gml";
+
+    private static final String DEFAULT_TOKEN_SEPARATOR = ",";
+
+    private static final String DEFAULT_BLOCK_SEPARATOR = ";";
+
+    /**
+     * Serializes the (modified) observation template.
+     */
+    public interface ObservationSerializer {
+        String serialize();
+    }
+
+    private final int batchSize;
+
+    private final boolean onlyYoungest;
+
+    /**
+     * @param batchSize
+     *        how many values shall be put into one observation (values smaller than 1 are treated as 1).
+     * @param onlyYoungest
+     *        if only the youngest value shall be kept.
+     */
+    public ObservationSplitter(int batchSize, boolean onlyYoungest) {
+        this.batchSize = Math.max(1, batchSize);
+        this.onlyYoungest = onlyYoungest;
+    }
+
+    /**
+     * @param template
+     *        the DOM node of a private observation copy which will be modified while splitting.
+     * @param serializer
+     *        serializes the template after each modification.
+     * @return the serialized observations, each containing at most batch size values.
+     * @throws IllegalArgumentException
+     *         if the observation does not contain a DataArray with values.
+     */
+    public List<String> split(Node template, ObservationSerializer serializer) {
+        Element values = findFirst(template, SWE_NAMESPACE, "values");
+        if (values == null) {
+            throw new IllegalArgumentException("Observation does not contain any swe:values.");
+        }
+        String tokenSeparator = DEFAULT_TOKEN_SEPARATOR;
+        String blockSeparator = DEFAULT_BLOCK_SEPARATOR;
+        Element textBlock = findFirst(template, SWE_NAMESPACE, "TextBlock");
+        if (textBlock != null) {
+            tokenSeparator = getAttribute(textBlock, "tokenSeparator", DEFAULT_TOKEN_SEPARATOR);
+            blockSeparator = getAttribute(textBlock, "blockSeparator", DEFAULT_BLOCK_SEPARATOR);
+        }
+
+        List<String> blocks = splitBlocks(getText(values), blockSeparator);
+        if (onlyYoungest && blocks.size() > 1) {
+            blocks = Collections.singletonList(findYoungest(blocks, tokenSeparator));
+        }
+        if (blocks.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Element elementCount = findElementCountValue(template);
+        List<Element> beginPositions = findAll(template, GML_NAMESPACE, "beginPosition");
+        List<Element> endPositions = findAll(template, GML_NAMESPACE, "endPosition");
+
+        List<String> observations = new ArrayList<String>();
+        for (int from = 0; from < blocks.size(); from += batchSize) {
+            List<String> batch = blocks.subList(from, Math.min(from + batchSize, blocks.size()));
+            StringBuilder batchValues = new StringBuilder();
+            for (String block : batch) {
+                batchValues.append(block).append(blockSeparator);
+            }
+            setText(values, batchValues.toString());
+            if (elementCount != null) {
+                setText(elementCount, Integer.toString(batch.size()));
+            }
+            String begin = getTime(batch.get(0), tokenSeparator);
+            String end = getTime(batch.get(batch.size() - 1), tokenSeparator);
+            for (Element beginPosition : beginPositions) {
+                setText(beginPosition, begin);
+            }
+            for (Element endPosition : endPositions) {
+                setText(endPosition, end);
+            }
+            observations.add(serializer.serialize());
+        }
+        return observations;
+    }
+
+    private List<String> splitBlocks(String values, String blockSeparator) {
+        List<String> blocks = new ArrayList<String>();
+        for (String block : values.split(Pattern.quote(blockSeparator))) {
+            String trimmedBlock = block.trim();
+            if ( !trimmedBlock.isEmpty()) {
+                blocks.add(trimmedBlock);
+            }
+        }
+        return blocks;
+    }
+
+    private String findYoungest(List<String> blocks, String tokenSeparator) {
+        DateTimeFormatter fmt = ISODateTimeFormat.dateTimeParser();
+        String youngest = blocks.get(0);
+        long youngestTime = Long.MIN_VALUE;
+        for (String block : blocks) {
+            long time = fmt.parseMillis(getTime(block, tokenSeparator));
+            if (time > youngestTime) {
+                youngestTime = time;
+                youngest = block;
+            }
+        }
+        return youngest;
+    }
+
+    private String getTime(String block, String tokenSeparator) {
+        int index = block.indexOf(tokenSeparator);
+        return index < 0 ? block : block.substring(0, index).trim();
+    }
+
+    private Element findElementCountValue(Node template) {
+        Element elementCount = findFirst(template, SWE_NAMESPACE, "elementCount");
+        return elementCount == null ? null : findFirst(elementCount, SWE_NAMESPACE, "value");
+    }
+
+    private String getAttribute(Element element, String name, String defaultValue) {
+        String value = element.getAttribute(name);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    private String getText(Element element) {
+        StringBuilder text = new StringBuilder();
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (isText(child)) {
+                text.append(child.getNodeValue());
+            }
+        }
+        return text.toString();
+    }
+
+    private void setText(Element element, String text) {
+        Node child = element.getFirstChild();
+        while (child != null) {
+            Node next = child.getNextSibling();
+            if (isText(child)) {
+                element.removeChild(child);
+            }
+            child = next;
+        }
+        element.appendChild(element.getOwnerDocument().createTextNode(text));
+    }
+
+    private boolean isText(Node node) {
+        return node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE;
+    }
+
+    private Element findFirst(Node node, String namespace, String localName) {
+        List<Element> elements = new ArrayList<Element>();
+        collect(node, namespace, localName, elements, true);
+        return elements.isEmpty() ? null : elements.get(0);
+    }
+
+    private List<Element> findAll(Node node, String namespace, String localName) {
+        List<Element> elements = new ArrayList<Element>();
+        collect(node, namespace, localName, elements, false);
+        return elements;
+    }
+
+    private boolean collect(Node node, String namespace, String localName, List<Element> elements, boolean firstOnly) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+            if (namespace.equals(child.getNamespaceURI()) && localName.equals(child.getLocalName())) {
+                elements.add((Element) child);
+                if (firstOnly) {
+                    return true;
+                }
+            }
+            if (collect(child, namespace, localName, elements, firstOnly) && firstOnly) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.feeder.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simple token bucket to limit the rate of outgoing requests. Tokens are refilled continuously with the
+ * configured rate up to the given burst size. Each request has to take one token before it is allowed to
+ * pass.
+ */
+public class TokenBucket {
+
+    private final double tokensPerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    /**
+     * @param tokensPerSecond
+     *        the sustained rate of tokens per second (has to be positive).
+     * @param burstSize
+     *        how many tokens may be taken at once after an idle period (values smaller than 1 are treated
+     *        as 1).
+     */
+    public TokenBucket(double tokensPerSecond, int burstSize) {
+        if (tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate has to be positive: " + tokensPerSecond);
+        }
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, burstSize);
+        this.tokens = capacity;
+        this.lastRefill = now();
+    }
+
+    /**
+     * Takes one token, waiting until one becomes available.
+     * 
+     * @throws InterruptedException
+     *         if the waiting thread has been interrupted.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes one token if available.
+     * 
+     * @return <code>0</code> if a token has been taken, otherwise the nanoseconds to wait until the next
+     *         token becomes available.
+     */
+    public synchronized long tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil( (1 - tokens) / tokensPerNano));
+    }
+
+    private void refill() {
+        long now = now();
+        if (now > lastRefill) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+
+    long now() {
+        return System.nanoTime();
+    }
+
+}
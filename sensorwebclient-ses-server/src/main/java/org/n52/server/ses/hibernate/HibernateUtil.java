@@ -31,9 +31,15 @@ import static java.lang.Integer.valueOf;
 import static org.n52.shared.serializable.pojos.UserRole.ADMIN;
 import static org.n52.shared.serializable.pojos.UserRole.NOT_REGISTERED_USER;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
+import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Restrictions;
@@ -41,6 +47,7 @@ import org.hibernate.criterion.SimpleExpression;
 import org.n52.server.ses.db.CriteriaExecution;
 import org.n52.server.ses.db.HibernateDaoUtil;
 import org.n52.server.ses.feeder.SosSesFeeder;
+import org.n52.server.ses.util.RuleSearchIndex;
 import org.n52.shared.serializable.pojos.BasicRule;
 import org.n52.shared.serializable.pojos.ComplexRule;
 import org.n52.shared.serializable.pojos.Subscription;
@@ -65,6 +72,8 @@ public class HibernateUtil extends HibernateDaoUtil {
 
     private static final String TIMESERIES_ID = "timeseriesId";
 
+    private static final String TIMESERIES_METADATA = "timeseriesMetadata";
+
     private static final String PUBLISHED = "published";
 
     private static final String RULE_NAME = "name";
@@ -249,6 +258,7 @@ public class HibernateUtil extends HibernateDaoUtil {
 				return null;
 			}
 		});
+    	RuleSearchIndex.ruleSaved(rule);
     }
 
     /**
@@ -260,6 +270,7 @@ public class HibernateUtil extends HibernateDaoUtil {
         session.beginTransaction();
         session.save(rule);
         session.getTransaction().commit();
+        RuleSearchIndex.ruleSaved(rule);
     }
 
     /**
@@ -271,6 +282,7 @@ public class HibernateUtil extends HibernateDaoUtil {
         session.beginTransaction();
         session.save(rule);
         session.getTransaction().commit();
+        RuleSearchIndex.ruleSaved(rule);
     }
 
     @SuppressWarnings("unchecked")
@@ -315,29 +327,6 @@ public class HibernateUtil extends HibernateDaoUtil {
         session.getTransaction().commit();
     }
 
-    @SuppressWarnings("unchecked")
-    public static List<BasicRule> getAllOtherBasicRules(String userID) {
-        Session session = getSessionFactory().getCurrentSession();
-        session.beginTransaction();
-        Criteria crit = session.createCriteria(BasicRule.class);
-        Criterion restriction = Restrictions.not(Restrictions.eq(OWNER_ID, Integer.valueOf(userID)));
-        List<BasicRule> rules = crit.add(restriction).list();
-        session.getTransaction().commit();
-        return rules;
-    }
-
-    @SuppressWarnings("unchecked")
-    public static List<BasicRule> getAllOtherPublishedBasicRules(String userID) {
-        Session session = getSessionFactory().getCurrentSession();
-        session.beginTransaction();
-        Criteria crit = session.createCriteria(BasicRule.class);
-        Criterion isOwner = Restrictions.not(Restrictions.eq(OWNER_ID, valueOf(userID)));
-        SimpleExpression isPublished = Restrictions.eq(PUBLISHED, true);
-        List<BasicRule> rules = crit.add(Restrictions.and(isOwner, isPublished)).list();
-        session.getTransaction().commit();
-        return rules;
-    }
-
     @Deprecated
     @SuppressWarnings("unchecked")
     public static List<ComplexRule> getAllOtherPublishedComplexRules(String userID) {
@@ -394,17 +383,6 @@ public class HibernateUtil extends HibernateDaoUtil {
         session.getTransaction().commit();
     }
 
-    @Deprecated
-    @SuppressWarnings("unchecked")
-    public static List<ComplexRule> getAllOtherComplexRules(String userID) {
-        Session session = getSessionFactory().getCurrentSession();
-        session.beginTransaction();
-        Criteria crit = session.createCriteria(ComplexRule.class);
-        List<ComplexRule> rules = crit.add(Restrictions.not(Restrictions.eq(OWNER_ID, Integer.valueOf(userID)))).list();
-        session.getTransaction().commit();
-        return rules;
-    }
-
     @SuppressWarnings("unchecked")
     public static List<TimeseriesFeed> getTimeseriesFeeds() {
         Session session = getCurrentSession();
@@ -487,12 +465,14 @@ public class HibernateUtil extends HibernateDaoUtil {
                     basicRule.setPublished(value);
                     session.update(basicRule);
                     session.getTransaction().commit();
+                    RuleSearchIndex.ruleSaved(basicRule);
                 }
                 else {
                     ComplexRule complexRule = getComplexRuleByName(ruleName);
                     complexRule.setPublished(value);
                     session.update(complexRule);
                     session.getTransaction().commit();
+                    RuleSearchIndex.ruleSaved(complexRule);
                 }
                 return null;
             }
@@ -504,6 +484,8 @@ public class HibernateUtil extends HibernateDaoUtil {
         Session session = getSessionFactory().getCurrentSession();
         session.beginTransaction();
         Criteria crit = session.createCriteria(BasicRule.class);
+        // avoid one select per rule for the (non-lazy) metadata
+        crit.setFetchMode(TIMESERIES_METADATA, FetchMode.JOIN);
         List<BasicRule> rules = crit.list();
         session.getTransaction().commit();
 
@@ -558,11 +540,13 @@ public class HibernateUtil extends HibernateDaoUtil {
         if (basicRule != null) {
             session.delete(basicRule);
             session.getTransaction().commit();
+            RuleSearchIndex.ruleDeleted(basicRule);
             return true;
         }
         else if (complexRule != null) {
             session.delete(complexRule);
             session.getTransaction().commit();
+            RuleSearchIndex.ruleDeleted(complexRule);
             return true;
         }
         return false;
@@ -597,17 +581,124 @@ public class HibernateUtil extends HibernateDaoUtil {
         return rules;
     }
 
-    @Deprecated
-    @SuppressWarnings("unchecked")
-    public static List<ComplexRule> getAllPublishedCcomplexRules() {
-        Session session = getSessionFactory().getCurrentSession();
-        session.beginTransaction();
-        Criteria crit = session.createCriteria(ComplexRule.class);
-        List<ComplexRule> rules = crit.add(Restrictions.eq(PUBLISHED, true)).list();
-        session.getTransaction().commit();
+    /**
+     * Selects which rules shall be loaded relative to a given user.
+     */
+    public enum RuleScope {
+
+        /** Rules owned by the user. */
+        OWN("r.ownerID = :owner"),
+
+        /** Published rules owned by other users. */
+        OTHERS_PUBLISHED("r.ownerID <> :owner and r.published = true"),
+
+        /** Rules owned by the user and published rules of all users. */
+        OWN_OR_PUBLISHED("(r.ownerID = :owner or r.published = true)");
+
+        private final String restriction;
+
+        private RuleScope(String restriction) {
+            this.restriction = restriction;
+        }
+    }
+
+    /**
+     * Loads rules together with the subscription state of the given user within one query. The timeseries
+     * metadata of basic rules are fetched within the same query.
+     * 
+     * @param ruleType
+     *        the rule type to load, i.e. {@link BasicRule} or {@link ComplexRule}.
+     * @param userID
+     *        the user the rules and subscriptions are loaded for.
+     * @param scope
+     *        which rules shall be loaded.
+     * @param firstResult
+     *        the index of the first rule to load (for paging).
+     * @param maxResults
+     *        the maximum count of rules to load, or <code>0</code> to load all rules.
+     * @return the rules ordered by id together with their subscription state.
+     */
+    public static <T> List<SubscribedRule<T>> getRulesWithSubscriptionState(final Class<T> ruleType,
+                                                                           final String userID,
+                                                                           final RuleScope scope,
+                                                                           final int firstResult,
+                                                                           final int maxResults) {
+        List<Object[]> rows = execute(new CriteriaExecution<List<Object[]>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public List<Object[]> execute(Session session) {
+                Query query = session.createQuery(createSubscriptionStateQuery(ruleType, scope));
+                query.setInteger("owner", valueOf(userID));
+                query.setFirstResult(Math.max(0, firstResult));
+                if (maxResults > 0) {
+                    query.setMaxResults(maxResults);
+                }
+                return query.list();
+            }
+        });
+        // set after commit, subscribed is a persisted property of the rules
+        List<SubscribedRule<T>> rules = new ArrayList<SubscribedRule<T>>(rows.size());
+        for (Object[] row : rows) {
+            T rule = ruleType.cast(row[0]);
+            boolean subscribed = ((Number) row[1]).longValue() > 0;
+            rules.add(new SubscribedRule<T>(rule, subscribed));
+        }
         return rules;
     }
 
+    /**
+     * @return HQL selecting the rules of the given type and scope together with the count of subscriptions of
+     *         the user bound to the <code>owner</code> parameter.
+     */
+    static String createSubscriptionStateQuery(Class<?> ruleType, RuleScope scope) {
+        StringBuilder hql = new StringBuilder();
+        hql.append("select r, (select count(s.id) from Subscription s");
+        hql.append(" where s.userID = :owner and s.ruleID = r.id)");
+        hql.append(" from ").append(ruleType.getSimpleName()).append(" r");
+        if (BasicRule.class.equals(ruleType)) {
+            hql.append(" left join fetch r.timeseriesMetadata");
+        }
+        hql.append(" where ").append(scope.restriction);
+        hql.append(" order by r.id");
+        return hql.toString();
+    }
+
+    /**
+     * @return the distinct names of the rules within the given scope.
+     */
+    public static List<String> getRuleNames(final Class<?> ruleType, final String userID, final RuleScope scope) {
+        return execute(new CriteriaExecution<List<String>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public List<String> execute(Session session) {
+                String hql = "select distinct r.name from " + ruleType.getSimpleName() + " r where " + scope.restriction;
+                return session.createQuery(hql).setInteger("owner", valueOf(userID)).list();
+            }
+        });
+    }
+
+    /**
+     * @return the user names of the given users mapped by user id.
+     */
+    public static Map<Integer, String> getUserNames(final Collection<Integer> userIDs) {
+        Map<Integer, String> userNames = new HashMap<Integer, String>();
+        if (userIDs.isEmpty()) {
+            return userNames;
+        }
+        List<Object[]> rows = execute(new CriteriaExecution<List<Object[]>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public List<Object[]> execute(Session session) {
+                Query query = session.createQuery("select u.id, u.userName from User u where u.id in (:ids)");
+                return query.setParameterList("ids", userIDs).list();
+            }
+        });
+        for (Object[] row : rows) {
+            userNames.put((Integer) row[0], (String) row[1]);
+        }
+        return userNames;
+    }
+
     @SuppressWarnings("unchecked")
     public static boolean isSubscribed(String id, int ruleID) {
         Session session = getSessionFactory().getCurrentSession();
@@ -771,6 +862,7 @@ public class HibernateUtil extends HibernateDaoUtil {
         session.beginTransaction();
         session.saveOrUpdate(complexRule);
         session.getTransaction().commit();
+        RuleSearchIndex.ruleSaved(complexRule);
     }
 
     @SuppressWarnings("unchecked")
@@ -860,51 +952,32 @@ public class HibernateUtil extends HibernateDaoUtil {
     }
 
     @SuppressWarnings("unchecked")
-    public static List<BasicRule> searchBasic(String row, String text) {
-        text = "%" + text + "%";
-        Session session = getSessionFactory().getCurrentSession();
-        session.beginTransaction();
-        Criteria crit = session.createCriteria(BasicRule.class);
-        List<BasicRule> rules = crit.add(Restrictions.and(Restrictions.eq(PUBLISHED, true),
-                                                          Restrictions.ilike(row, text))).list();
-        session.getTransaction().commit();
-        return rules;
-    }
-
-    @SuppressWarnings("unchecked")
-    public static List<BasicRule> searchOwnBasic(String userID, String row, String text) {
-        Session session = getSessionFactory().getCurrentSession();
-        session.beginTransaction();
-        Criteria crit = session.createCriteria(BasicRule.class);
-        List<BasicRule> rules = crit.add(Restrictions.and(Restrictions.eq(OWNER_ID, Integer.valueOf(userID)),
-                                                          Restrictions.ilike(row, text))).list();
-        session.getTransaction().commit();
-        return rules;
-    }
-
-    @Deprecated
-    @SuppressWarnings("unchecked")
-    public static List<ComplexRule> searchComplex(String row, String text) {
-        text = "%" + text + "%";
-        Session session = getSessionFactory().getCurrentSession();
-        session.beginTransaction();
-        Criteria crit = session.createCriteria(ComplexRule.class);
-        List<ComplexRule> rules = crit.add(Restrictions.and(Restrictions.eq(PUBLISHED, true),
-                                                            Restrictions.ilike(row, text))).list();
-        session.getTransaction().commit();
-        return rules;
+    public static List<BasicRule> getBasicRulesById(final Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<BasicRule>();
+        }
+        return execute(new CriteriaExecution<List<BasicRule>>() {
+            @Override
+            public List<BasicRule> execute(Session session) {
+                Criteria crit = session.createCriteria(BasicRule.class);
+                crit.setFetchMode(TIMESERIES_METADATA, FetchMode.JOIN);
+                return crit.add(Restrictions.in(ID, ids)).list();
+            }
+        });
     }
 
-    @Deprecated
     @SuppressWarnings("unchecked")
-    public static List<ComplexRule> searchOwnComplex(String userID, String row, String text) {
-        Session session = getSessionFactory().getCurrentSession();
-        session.beginTransaction();
-        Criteria crit = session.createCriteria(ComplexRule.class);
-        List<ComplexRule> rules = crit.add(Restrictions.and(Restrictions.eq(OWNER_ID, Integer.valueOf(userID)),
-                                                            Restrictions.ilike(row, text))).list();
-        session.getTransaction().commit();
-        return rules;
+    public static List<ComplexRule> getComplexRulesById(final Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<ComplexRule>();
+        }
+        return execute(new CriteriaExecution<List<ComplexRule>>() {
+            @Override
+            public List<ComplexRule> execute(Session session) {
+                Criteria crit = session.createCriteria(ComplexRule.class);
+                return crit.add(Restrictions.in(ID, ids)).list();
+            }
+        });
     }
 
     public static TimeseriesMetadata getTimeseriesMetadata(final String timeseriesId) {
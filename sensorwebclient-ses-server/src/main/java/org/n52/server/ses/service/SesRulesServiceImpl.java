@@ -37,12 +37,16 @@ import static org.n52.server.ses.hibernate.HibernateUtil.deleteSubscription;
 import static org.n52.server.ses.hibernate.HibernateUtil.existsBasicRule;
 import static org.n52.server.ses.hibernate.HibernateUtil.existsComplexRuleName;
 import static org.n52.server.ses.hibernate.HibernateUtil.existsSubscription;
+import static org.n52.server.ses.hibernate.HibernateUtil.getRulesWithSubscriptionState;
 import static org.n52.server.ses.hibernate.HibernateUtil.getSubscriptionIdByRuleIdAndUserId;
 import static org.n52.server.ses.hibernate.HibernateUtil.getTimeseriesFeedById;
 import static org.n52.server.ses.hibernate.HibernateUtil.getTimeseriesMetadata;
 import static org.n52.server.ses.hibernate.HibernateUtil.subscribeBasicRule;
 import static org.n52.server.ses.hibernate.HibernateUtil.unsubscribeBasicRule;
 import static org.n52.server.ses.hibernate.HibernateUtil.updateComplexRuleSubscribtion;
+import static org.n52.server.ses.hibernate.HibernateUtil.RuleScope.OTHERS_PUBLISHED;
+import static org.n52.server.ses.hibernate.HibernateUtil.RuleScope.OWN;
+import static org.n52.server.ses.hibernate.HibernateUtil.RuleScope.OWN_OR_PUBLISHED;
 import static org.n52.server.ses.util.SesServerUtil.getTimeseriesIdsFromEML;
 import static org.n52.server.ses.util.SesServerUtil.isLoggedInAdmin;
 import static org.n52.shared.responses.SesClientResponseType.DELETE_RULE_OK;
@@ -55,6 +59,8 @@ import static org.n52.shared.responses.SesClientResponseType.USER_SUBSCRIPTIONS;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.n52.client.service.SesRuleService;
 import org.n52.oxf.adapter.OperationResult;
@@ -68,6 +74,8 @@ import org.n52.server.ses.eml.ComplexRule_Builder;
 import org.n52.server.ses.eml.ComplexRule_BuilderV2;
 import org.n52.server.ses.eml.Meta_Builder;
 import org.n52.server.ses.hibernate.HibernateUtil;
+import org.n52.server.ses.hibernate.HibernateUtil.RuleScope;
+import org.n52.server.ses.hibernate.SubscribedRule;
 import org.n52.server.ses.util.RulesUtil;
 import org.n52.server.ses.util.SearchUtil;
 import org.n52.server.ses.util.SesServerUtil;
@@ -495,44 +503,8 @@ public class SesRulesServiceImpl implements SesRuleService {
             String id = sessionStore.getLoggedInUserId(sessionInfo);
             LOGGER.debug("getAllOwnRules of user: " + id);
 
-            ArrayList<BasicRuleDTO> finalBasicList = new ArrayList<BasicRuleDTO>();
-            ArrayList<ComplexRuleDTO> finalComplexList = new ArrayList<ComplexRuleDTO>();
-            List<BasicRule> basicList;
-            List<ComplexRule> complexList;
-
-            // get rules from DB
-            basicList = HibernateUtil.getAllBasicRulesBy(id);
-            complexList = HibernateUtil.getAllComplexRulesBy(id);
-
-            // basic rules
-            for (int i = 0; i < basicList.size(); i++) {
-                BasicRule rule = basicList.get(i);
-
-                // check if user subscribed this rule
-                if (HibernateUtil.isSubscribed(id, rule.getId())) {
-                    rule.setSubscribed(true);
-                }
-                else {
-                    rule.setSubscribed(false);
-                }
-
-                finalBasicList.add(SesUserServiceImpl.createBasicRuleDTO(rule));
-            }
-
-            // complex rules
-            for (int i = 0; i < complexList.size(); i++) {
-                ComplexRule rule = complexList.get(i);
-
-                // check if user subscribed this rule
-                if (HibernateUtil.isSubscribed(id, rule.getId())) {
-                    rule.setSubscribed(true);
-                }
-                else {
-                    rule.setSubscribed(false);
-                }
-
-                finalComplexList.add(SesUserServiceImpl.createComplexRuleDTO(rule));
-            }
+            ArrayList<BasicRuleDTO> finalBasicList = createBasicRuleDTOs(id, OWN);
+            ArrayList<ComplexRuleDTO> finalComplexList = createComplexRuleDTOs(id, OWN);
 
             if (edit) {
                 return new SesClientResponse(SesClientResponseType.EDIT_OWN_RULES, finalBasicList, finalComplexList);
@@ -554,50 +526,9 @@ public class SesRulesServiceImpl implements SesRuleService {
             }
             String id = sessionStore.getLoggedInUserId(sessionInfo);
             LOGGER.debug("get all rules except user: " + id);
-            ArrayList<BasicRuleDTO> finalBasicList = new ArrayList<BasicRuleDTO>();
-            ArrayList<ComplexRuleDTO> finalComplexList = new ArrayList<ComplexRuleDTO>();
-            List<BasicRule> basicList;
-            List<ComplexRule> complexList;
-
-            // get rules from DB
-            basicList = HibernateUtil.getAllOtherBasicRules(id);
-            complexList = HibernateUtil.getAllOtherComplexRules(id);
-
-            // basic rules
-            for (int i = 0; i < basicList.size(); i++) {
-                BasicRule rule = basicList.get(i);
-
-                // show only published rules
-                if (rule.isPublished()) {
-
-                    // check if user subscribed this rule
-                    if (HibernateUtil.isSubscribed(id, rule.getId())) {
-                        rule.setSubscribed(true);
-                    }
-                    else {
-                        rule.setSubscribed(false);
-                    }
-                    finalBasicList.add(SesUserServiceImpl.createBasicRuleDTO(rule));
-                }
-            }
-
-            // complex rules
-            for (int i = 0; i < complexList.size(); i++) {
-                ComplexRule rule = complexList.get(i);
-
-                // show only published rules
-                if (rule.isPublished()) {
-
-                    // check if user subscribed this rule
-                    if (HibernateUtil.isSubscribed(id, rule.getId())) {
-                        rule.setSubscribed(true);
-                    }
-                    else {
-                        rule.setSubscribed(false);
-                    }
-                    finalComplexList.add(SesUserServiceImpl.createComplexRuleDTO(rule));
-                }
-            }
+            // show only published rules
+            ArrayList<BasicRuleDTO> finalBasicList = createBasicRuleDTOs(id, OTHERS_PUBLISHED);
+            ArrayList<ComplexRuleDTO> finalComplexList = createComplexRuleDTOs(id, OTHERS_PUBLISHED);
 
             if (edit) {
                 return new SesClientResponse(SesClientResponseType.EDIT_OTHER_RULES, finalBasicList, finalComplexList);
@@ -611,6 +542,22 @@ public class SesRulesServiceImpl implements SesRuleService {
         }
     }
 
+    private ArrayList<BasicRuleDTO> createBasicRuleDTOs(String userID, RuleScope scope) {
+        ArrayList<BasicRuleDTO> basicRuleDTOs = new ArrayList<BasicRuleDTO>();
+        for (SubscribedRule<BasicRule> rule : getRulesWithSubscriptionState(BasicRule.class, userID, scope, 0, 0)) {
+            basicRuleDTOs.add(SesUserServiceImpl.createBasicRuleDTO(rule.getRule(), rule.isSubscribed()));
+        }
+        return basicRuleDTOs;
+    }
+
+    private ArrayList<ComplexRuleDTO> createComplexRuleDTOs(String userID, RuleScope scope) {
+        ArrayList<ComplexRuleDTO> complexRuleDTOs = new ArrayList<ComplexRuleDTO>();
+        for (SubscribedRule<ComplexRule> rule : getRulesWithSubscriptionState(ComplexRule.class, userID, scope, 0, 0)) {
+            complexRuleDTOs.add(SesUserServiceImpl.createComplexRuleDTO(rule.getRule(), rule.isSubscribed()));
+        }
+        return complexRuleDTOs;
+    }
+
     @Override
     public SesClientResponse publishRule(SessionInfo sessionInfo, String ruleName, boolean published) throws Exception {
         try {
@@ -646,15 +593,24 @@ public class SesRulesServiceImpl implements SesRuleService {
             List<BasicRule> basicList = HibernateUtil.getAllBasicRules();
             List<ComplexRule> complexList = HibernateUtil.getAllComplexRules();
 
+            Set<Integer> ownerIDs = new HashSet<Integer>();
+            for (BasicRule basicRule : basicList) {
+                ownerIDs.add(basicRule.getOwnerID());
+            }
+            for (ComplexRule complexRule : complexList) {
+                ownerIDs.add(complexRule.getOwnerID());
+            }
+            Map<Integer, String> ownerNames = HibernateUtil.getUserNames(ownerIDs);
+
             for (int i = 0; i < basicList.size(); i++) {
                 basicDTO = SesUserServiceImpl.createBasicRuleDTO(basicList.get(i));
-                basicDTO.setOwnerName(HibernateUtil.getUserBy(basicDTO.getOwnerID()).getUserName());
+                basicDTO.setOwnerName(ownerNames.get(basicDTO.getOwnerID()));
                 finalBasicList.add(basicDTO);
             }
 
             for (int i = 0; i < complexList.size(); i++) {
                 complexDTO = SesUserServiceImpl.createComplexRuleDTO(complexList.get(i));
-                complexDTO.setOwnerName(HibernateUtil.getUserBy(complexDTO.getOwnerID()).getUserName());
+                complexDTO.setOwnerName(ownerNames.get(complexDTO.getOwnerID()));
                 finalComplexList.add(complexDTO);
             }
 
@@ -786,35 +742,24 @@ public class SesRulesServiceImpl implements SesRuleService {
             LOGGER.debug("get all published rules");
             ArrayList<String> finalList = new ArrayList<String>();
 
-            List<BasicRule> basicRuleList = new ArrayList<BasicRule>();
-            List<ComplexRule> complexRuleList = new ArrayList<ComplexRule>();
-
             // 1 = own
             // 2 = other
             // 3 = both
+            RuleScope scope = null;
             if (operator == 1) {
-                basicRuleList.addAll(HibernateUtil.getAllBasicRulesBy(userID));
-                complexRuleList.addAll(HibernateUtil.getAllComplexRulesBy(userID));
+                scope = OWN;
             }
             else if (operator == 2) {
-                basicRuleList.addAll(HibernateUtil.getAllOtherPublishedBasicRules(userID));
-                complexRuleList.addAll(HibernateUtil.getAllOtherPublishedComplexRules(userID));
+                scope = OTHERS_PUBLISHED;
             }
             else if (operator == 3) {
-                basicRuleList.addAll(HibernateUtil.getAllBasicRulesBy(userID));
-                complexRuleList.addAll(HibernateUtil.getAllComplexRulesBy(userID));
-                basicRuleList.addAll(HibernateUtil.getAllPublishedBasicRules());
-                complexRuleList.addAll(HibernateUtil.getAllPublishedCcomplexRules());
+                scope = OWN_OR_PUBLISHED;
             }
             // HashSet is used to avoid duplicates
             HashSet<String> h = new HashSet<String>();
-
-            for (int i = 0; i < basicRuleList.size(); i++) {
-                h.add(basicRuleList.get(i).getName());
-            }
-
-            for (int i = 0; i < complexRuleList.size(); i++) {
-                h.add(complexRuleList.get(i).getName());
+            if (scope != null) {
+                h.addAll(HibernateUtil.getRuleNames(BasicRule.class, userID, scope));
+                h.addAll(HibernateUtil.getRuleNames(ComplexRule.class, userID, scope));
             }
 
             finalList.addAll(h);
@@ -128,6 +128,16 @@ public class SesUserServiceImpl implements SesUserService {
     }
 
     public static ComplexRuleDTO createComplexRuleDTO(ComplexRule complexRule) {
+        return createComplexRuleDTO(complexRule, complexRule.isSubscribed());
+    }
+
+    /**
+     * @param complexRule
+     *        the rule to create a DTO for.
+     * @param subscribed
+     *        the subscription state of the requesting user (as loaded together with the rule).
+     */
+    public static ComplexRuleDTO createComplexRuleDTO(ComplexRule complexRule, boolean subscribed) {
         // XXX refactor
         return new ComplexRuleDTO(complexRule.getId(),
                                   complexRule.getName(),
@@ -136,7 +146,7 @@ public class SesUserServiceImpl implements SesUserService {
                                   complexRule.isPublished(),
                                   complexRule.getOwnerID(),
                                   complexRule.getEml(),
-                                  complexRule.isSubscribed(),
+                                  subscribed,
                                   complexRule.getMedium(),
                                   complexRule.getFormat(),
                                   complexRule.getTree(),
@@ -145,6 +155,16 @@ public class SesUserServiceImpl implements SesUserService {
     }
 
     public static BasicRuleDTO createBasicRuleDTO(BasicRule basicRule) {
+        return createBasicRuleDTO(basicRule, basicRule.isSubscribed());
+    }
+
+    /**
+     * @param basicRule
+     *        the rule to create a DTO for.
+     * @param subscribed
+     *        the subscription state of the requesting user (as loaded together with the rule).
+     */
+    public static BasicRuleDTO createBasicRuleDTO(BasicRule basicRule, boolean subscribed) {
         // XXX refactor
         return new BasicRuleDTO(basicRule.getId(),
                                 basicRule.getName(),
@@ -154,7 +174,7 @@ public class SesUserServiceImpl implements SesUserService {
                                 basicRule.isPublished(),
                                 basicRule.getOwnerID(),
                                 basicRule.getEml(),
-                                basicRule.isSubscribed(),
+                                subscribed,
                                 basicRule.getMedium(),
                                 basicRule.getFormat(),
                                 basicRule.getUuid(),
@@ -0,0 +1,436 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.n52.server.ses.hibernate.HibernateUtil;
+import org.n52.shared.serializable.pojos.BasicRule;
+import org.n52.shared.serializable.pojos.ComplexRule;
+import org.n52.shared.serializable.pojos.TimeseriesMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory inverted index over the searchable fields of basic and complex rules. The index is built once
+ * from the database on first use and kept up to date by {@link HibernateUtil} whenever a rule is saved,
+ * published or deleted. Query terms match indexed terms by prefix; all terms of a query have to match
+ * (in any of the requested fields) and hits are ranked by a field weighted tf-idf score.
+ */
+public class RuleSearchIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RuleSearchIndex.class);
+
+    private static final Pattern XML_MARKUP = Pattern.compile("<[^>]*>|&[#a-zA-Z0-9]+;");
+
+    /**
+     * Score factor applied when a query term matches an indexed term only by prefix.
+     */
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+
+    private static RuleSearchIndex instance;
+
+    public enum Field {
+        NAME(4.0), DESCRIPTION(2.0), SENSOR(2.0), PHENOMENON(2.0), EML(1.0);
+
+        private final double weight;
+
+        private Field(double weight) {
+            this.weight = weight;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * term -> rule -> term frequency per field (indexed by {@link Field#ordinal()})
+     */
+    private final TreeMap<String, Map<RuleKey, int[]>> postings = new TreeMap<String, Map<RuleKey, int[]>>();
+
+    private final Map<RuleKey, IndexedRule> rules = new HashMap<RuleKey, IndexedRule>();
+
+    RuleSearchIndex() {
+        // package-private for testing; use getInstance()
+    }
+
+    /**
+     * @return the index, built from all stored rules on first access.
+     */
+    public static synchronized RuleSearchIndex getInstance() {
+        if (instance == null) {
+            RuleSearchIndex index = new RuleSearchIndex();
+            List<BasicRule> basicRules = HibernateUtil.getAllBasicRules();
+            for (BasicRule basicRule : basicRules) {
+                index.add(basicRule);
+            }
+            List<ComplexRule> complexRules = HibernateUtil.getAllComplexRules();
+            for (ComplexRule complexRule : complexRules) {
+                index.add(complexRule);
+            }
+            LOGGER.debug("Indexed {} basic and {} complex rules.", basicRules.size(), complexRules.size());
+            instance = index;
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the index only if it has already been built. Synchronizing with {@link #getInstance()} ensures
+     * that a change committed while the index is built from the database is not lost.
+     */
+    private static synchronized RuleSearchIndex getLoadedInstance() {
+        return instance;
+    }
+
+    public static void ruleSaved(BasicRule rule) {
+        RuleSearchIndex index = getLoadedInstance();
+        if (index != null) {
+            index.add(rule);
+        }
+    }
+
+    public static void ruleSaved(ComplexRule rule) {
+        RuleSearchIndex index = getLoadedInstance();
+        if (index != null) {
+            index.add(rule);
+        }
+    }
+
+    public static void ruleDeleted(BasicRule rule) {
+        RuleSearchIndex index = getLoadedInstance();
+        if (index != null) {
+            index.remove(new RuleKey(false, rule.getId()));
+        }
+    }
+
+    public static void ruleDeleted(ComplexRule rule) {
+        RuleSearchIndex index = getLoadedInstance();
+        if (index != null) {
+            index.remove(new RuleKey(true, rule.getId()));
+        }
+    }
+
+    void add(BasicRule rule) {
+        Map<String, int[]> terms = new HashMap<String, int[]>();
+        addTerms(terms, Field.NAME, rule.getName());
+        addTerms(terms, Field.DESCRIPTION, rule.getDescription());
+        TimeseriesMetadata metadata = rule.getTimeseriesMetadata();
+        if (metadata != null) {
+            addTerms(terms, Field.SENSOR, metadata.getProcedure());
+            addTerms(terms, Field.PHENOMENON, metadata.getPhenomenon());
+        }
+        addTerms(terms, Field.EML, stripMarkup(rule.getEml()));
+        RuleKey key = new RuleKey(false, rule.getId());
+        put(new IndexedRule(key, rule.getOwnerID(), rule.isPublished(), terms.keySet()), terms);
+    }
+
+    void add(ComplexRule rule) {
+        Map<String, int[]> terms = new HashMap<String, int[]>();
+        addTerms(terms, Field.NAME, rule.getName());
+        addTerms(terms, Field.DESCRIPTION, rule.getDescription());
+        addTerms(terms, Field.SENSOR, rule.getSensor());
+        addTerms(terms, Field.PHENOMENON, rule.getPhenomenon());
+        addTerms(terms, Field.EML, stripMarkup(rule.getEml()));
+        RuleKey key = new RuleKey(true, rule.getId());
+        put(new IndexedRule(key, rule.getOwnerID(), rule.isPublished(), terms.keySet()), terms);
+    }
+
+    private void put(IndexedRule rule, Map<String, int[]> terms) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(rule.key);
+            rules.put(rule.key, rule);
+            for (Map.Entry<String, int[]> term : terms.entrySet()) {
+                Map<RuleKey, int[]> posting = postings.get(term.getKey());
+                if (posting == null) {
+                    posting = new HashMap<RuleKey, int[]>();
+                    postings.put(term.getKey(), posting);
+                }
+                posting.put(rule.key, term.getValue());
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(RuleKey key) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(key);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeUnlocked(RuleKey key) {
+        IndexedRule removed = rules.remove(key);
+        if (removed == null) {
+            return;
+        }
+        for (String term : removed.terms) {
+            Map<RuleKey, int[]> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(key);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param text
+     *        the search text; tokenized the same way as the indexed fields.
+     * @param fields
+     *        the fields to match the query terms against.
+     * @param userID
+     *        the requesting user; hits are restricted to published rules and rules owned by the user.
+     * @param firstResult
+     *        index of the first ranked hit to return.
+     * @param maxResults
+     *        maximum number of hits to return, or a negative value to return all remaining hits.
+     * @return the requested page of ranked hits, best hit first.
+     */
+    public List<Hit> search(String text, EnumSet<Field> fields, int userID, int firstResult, int maxResults) {
+        List<String> queryTerms = new ArrayList<String>(new HashSet<String>(tokenize(text)));
+        if (queryTerms.isEmpty() || fields.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Hit> hits = new ArrayList<Hit>();
+        lock.readLock().lock();
+        try {
+            Map<RuleKey, Double> scores = null;
+            for (String queryTerm : queryTerms) {
+                Map<RuleKey, Double> termScores = scoreQueryTerm(queryTerm, fields);
+                if (scores == null) {
+                    scores = termScores;
+                }
+                else {
+                    // all query terms have to match
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<RuleKey, Double> score : scores.entrySet()) {
+                        score.setValue(score.getValue() + termScores.get(score.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+            for (Map.Entry<RuleKey, Double> score : scores.entrySet()) {
+                IndexedRule rule = rules.get(score.getKey());
+                if (rule.published || rule.ownerID == userID) {
+                    hits.add(new Hit(rule.key, score.getValue()));
+                }
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+        Collections.sort(hits, new Comparator<Hit>() {
+            @Override
+            public int compare(Hit o1, Hit o2) {
+                int byScore = Double.compare(o2.score, o1.score);
+                return byScore != 0 ? byScore : o1.key.compareTo(o2.key);
+            }
+        });
+        int from = Math.min(Math.max(firstResult, 0), hits.size());
+        int to = maxResults < 0 ? hits.size() : Math.min(from + maxResults, hits.size());
+        return new ArrayList<Hit>(hits.subList(from, to));
+    }
+
+    /**
+     * Scores all rules containing an indexed term starting with the given query term. A rule matching
+     * several such terms gets the score of its best matching term.
+     */
+    private Map<RuleKey, Double> scoreQueryTerm(String queryTerm, EnumSet<Field> fields) {
+        Map<RuleKey, Double> scores = new HashMap<RuleKey, Double>();
+        SortedMap<String, Map<RuleKey, int[]>> matches = postings.subMap(queryTerm, queryTerm + Character.MAX_VALUE);
+        for (Map.Entry<String, Map<RuleKey, int[]>> match : matches.entrySet()) {
+            double factor = match.getKey().equals(queryTerm) ? 1.0 : PREFIX_MATCH_FACTOR;
+            double idf = Math.log(1.0 + (double) rules.size() / match.getValue().size());
+            for (Map.Entry<RuleKey, int[]> posting : match.getValue().entrySet()) {
+                double score = 0;
+                int[] frequencies = posting.getValue();
+                for (Field field : fields) {
+                    int frequency = frequencies[field.ordinal()];
+                    if (frequency > 0) {
+                        score += field.getWeight() * (1.0 + Math.log(frequency));
+                    }
+                }
+                if (score > 0) {
+                    score *= factor * idf;
+                    Double current = scores.get(posting.getKey());
+                    if (current == null || current < score) {
+                        scores.put(posting.getKey(), score);
+                    }
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static void addTerms(Map<String, int[]> terms, Field field, String text) {
+        for (String term : tokenize(text)) {
+            int[] frequencies = terms.get(term);
+            if (frequencies == null) {
+                frequencies = new int[Field.values().length];
+                terms.put(term, frequencies);
+            }
+            frequencies[field.ordinal()]++;
+        }
+    }
+
+    static String stripMarkup(String xml) {
+        return xml == null ? null : XML_MARKUP.matcher(xml).replaceAll(" ");
+    }
+
+    /**
+     * Splits the given text into lower case terms at every character which is neither a letter nor a digit.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<String>();
+        if (text == null) {
+            return tokens;
+        }
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if (Character.isLetterOrDigit(lowerCase.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            }
+            else if (start >= 0) {
+                tokens.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(lowerCase.substring(start));
+        }
+        return tokens;
+    }
+
+    static final class RuleKey implements Comparable<RuleKey> {
+
+        private final boolean complex;
+
+        private final int id;
+
+        RuleKey(boolean complex, int id) {
+            this.complex = complex;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(RuleKey other) {
+            if (complex != other.complex) {
+                return complex ? 1 : -1;
+            }
+            return id < other.id ? -1 : (id == other.id ? 0 : 1);
+        }
+
+        @Override
+        public int hashCode() {
+            return complex ? -id - 1 : id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if ( !(obj instanceof RuleKey)) {
+                return false;
+            }
+            RuleKey other = (RuleKey) obj;
+            return complex == other.complex && id == other.id;
+        }
+    }
+
+    private static final class IndexedRule {
+
+        private final RuleKey key;
+
+        private final int ownerID;
+
+        private final boolean published;
+
+        private final Set<String> terms;
+
+        IndexedRule(RuleKey key, int ownerID, boolean published, Set<String> terms) {
+            this.key = key;
+            this.ownerID = ownerID;
+            this.published = published;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * A ranked search hit referencing either a basic or a complex rule by its database id.
+     */
+    public static final class Hit {
+
+        private final RuleKey key;
+
+        private final double score;
+
+        Hit(RuleKey key, double score) {
+            this.key = key;
+            this.score = score;
+        }
+
+        public boolean isComplexRule() {
+            return key.complex;
+        }
+
+        public int getRuleId() {
+            return key.id;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
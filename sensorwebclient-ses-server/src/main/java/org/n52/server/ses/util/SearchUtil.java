@@ -28,10 +28,15 @@
 package org.n52.server.ses.util;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.n52.server.ses.hibernate.HibernateUtil;
 import org.n52.server.ses.service.SesUserServiceImpl;
+import org.n52.server.ses.util.RuleSearchIndex.Field;
+import org.n52.server.ses.util.RuleSearchIndex.Hit;
 import org.n52.shared.responses.SesClientResponse;
 import org.n52.shared.responses.SesClientResponseType;
 import org.n52.shared.serializable.pojos.BasicRule;
@@ -40,96 +45,90 @@ import org.n52.shared.serializable.pojos.ComplexRule;
 import org.n52.shared.serializable.pojos.ComplexRuleDTO;
 
 public class SearchUtil {
-    
-    // final output lists
-    private static ArrayList<BasicRuleDTO> finalBasicList = new ArrayList<BasicRuleDTO>();
-    private static ArrayList<ComplexRuleDTO> finalComplexList = new ArrayList<ComplexRuleDTO>();
-    
+
+    /**
+     * Searches all rules visible to the given user.
+     * 
+     * @see #search(String, int, String, int, int)
+     */
     public static SesClientResponse search(String text, int criterion, String userID) throws Exception {
-        
-        finalBasicList = new ArrayList<BasicRuleDTO>();
-        finalComplexList = new ArrayList<ComplexRuleDTO>();
-        
-        String row = "";
-        
+        return search(text, criterion, userID, 0, -1);
+    }
+
+    /**
+     * Searches published rules and rules owned by the given user via the {@link RuleSearchIndex}. Each
+     * result list is ordered by relevance.
+     * 
+     * @param text
+     *        the search text
+     * @param criterion
+     *        the fields to search: 1 (name, description and EML), 2 (name), 3 (description), 4 (sensor) or 5
+     *        (phenomenon)
+     * @param userID
+     *        the id of the requesting user
+     * @param firstResult
+     *        index of the first ranked hit to return
+     * @param maxResults
+     *        maximum number of hits to return, or a negative value for all hits
+     */
+    public static SesClientResponse search(String text, int criterion, String userID, int firstResult, int maxResults) throws Exception {
+        RuleSearchIndex index = RuleSearchIndex.getInstance();
+        List<Hit> hits = index.search(text, getFields(criterion), Integer.parseInt(userID), firstResult, maxResults);
+
+        List<Integer> basicRuleIds = new ArrayList<Integer>();
+        List<Integer> complexRuleIds = new ArrayList<Integer>();
+        for (Hit hit : hits) {
+            if (hit.isComplexRule()) {
+                complexRuleIds.add(hit.getRuleId());
+            } else {
+                basicRuleIds.add(hit.getRuleId());
+            }
+        }
+
+        Map<Integer, BasicRule> basicRules = new HashMap<Integer, BasicRule>();
+        for (BasicRule basicRule : HibernateUtil.getBasicRulesById(basicRuleIds)) {
+            basicRules.put(basicRule.getId(), basicRule);
+        }
+        Map<Integer, ComplexRule> complexRules = new HashMap<Integer, ComplexRule>();
+        for (ComplexRule complexRule : HibernateUtil.getComplexRulesById(complexRuleIds)) {
+            complexRules.put(complexRule.getId(), complexRule);
+        }
+
+        // keep ranking order; skip rules deleted since the index was queried
+        ArrayList<BasicRuleDTO> basicList = new ArrayList<BasicRuleDTO>();
+        for (Integer id : basicRuleIds) {
+            BasicRule basicRule = basicRules.get(id);
+            if (basicRule != null) {
+                basicList.add(SesUserServiceImpl.createBasicRuleDTO(basicRule));
+            }
+        }
+        ArrayList<ComplexRuleDTO> complexList = new ArrayList<ComplexRuleDTO>();
+        for (Integer id : complexRuleIds) {
+            ComplexRule complexRule = complexRules.get(id);
+            if (complexRule != null) {
+                complexList.add(SesUserServiceImpl.createComplexRuleDTO(complexRule));
+            }
+        }
+
+        return new SesClientResponse(SesClientResponseType.SEARCH_RESULT, basicList, complexList);
+    }
+
+    private static EnumSet<Field> getFields(int criterion) {
         if (criterion == 1) {
-            row = "eml";
-            hibernateSearch(userID, row, text);
-            row = "description";
-            hibernateSearch(userID, row, text);
-            row = "name";
-            hibernateSearch(userID, row, text);
+            return EnumSet.of(Field.EML, Field.DESCRIPTION, Field.NAME);
         } else if (criterion == 2) {
             // Titel
-            row = "name";
-            hibernateSearch(userID, row, text);
+            return EnumSet.of(Field.NAME);
         } else if (criterion == 3) {
             // Description
-            row = "description";
-            hibernateSearch(userID, row, text);
+            return EnumSet.of(Field.DESCRIPTION);
         } else if (criterion == 4) {
             // Sensor
-            row = "sensor";
-            hibernateSearch(userID, row, text);
+            return EnumSet.of(Field.SENSOR);
         } else if (criterion == 5) {
             // Phenomenon
-            row = "phenomenon";
-            hibernateSearch(userID, row, text);
-        }
-        
-        // remove duplicates
-        BasicRuleDTO basicRule;
-        ComplexRuleDTO complexRule;
-        String ruleName;
-        
-        for (int i = 0; i < finalBasicList.size(); i++) {
-            basicRule = finalBasicList.get(i);
-            ruleName = basicRule.getName();
-            for (int j = i+1; j < finalBasicList.size(); j++) {
-                if (ruleName.equals(finalBasicList.get(j).getName())) {
-                    finalBasicList.remove(j);              
-                }
-            }
-        }
-        for (int i = 0; i < finalComplexList.size(); i++) {
-            complexRule = finalComplexList.get(i);
-            ruleName = complexRule.getName();
-            for (int j = i+1; j < finalComplexList.size(); j++) {
-                if (ruleName.equals(finalComplexList.get(j).getName())) {
-                    finalComplexList.remove(j);              
-                }
-            }
-        }
-        
-        return new SesClientResponse(SesClientResponseType.SEARCH_RESULT, finalBasicList, finalComplexList);
-    }
-    
-    /**
-     * 
-     * @param userID
-     * @param row
-     * @param text
-     */
-    private static void hibernateSearch(String userID, String row, String text){
-        // search
-        List<BasicRule> allPublishedBasic = HibernateUtil.searchBasic(row, text);
-        for (int i = 0; i < allPublishedBasic.size(); i++) {
-            finalBasicList.add(SesUserServiceImpl.createBasicRuleDTO(allPublishedBasic.get(i)));
-        }
-        
-        List<BasicRule> allOwnBasic = HibernateUtil.searchOwnBasic(userID, row, text);
-        for (int i = 0; i < allOwnBasic.size(); i++) {
-            finalBasicList.add(SesUserServiceImpl.createBasicRuleDTO(allOwnBasic.get(i)));
-        }
-        
-        List<ComplexRule> allPublishedComplex = HibernateUtil.searchComplex(row, text);
-        for (int i = 0; i < allPublishedComplex.size(); i++) {
-            finalComplexList.add(SesUserServiceImpl.createComplexRuleDTO(allPublishedComplex.get(i)));
-        }
-        
-        List<ComplexRule> allOwnComplex = HibernateUtil.searchOwnComplex(userID, row, text);
-        for (int i = 0; i < allOwnComplex.size(); i++) {
-            finalComplexList.add(SesUserServiceImpl.createComplexRuleDTO(allOwnComplex.get(i)));
+            return EnumSet.of(Field.PHENOMENON);
         }
+        return EnumSet.noneOf(Field.class);
     }
-}
\ No newline at end of file
+}
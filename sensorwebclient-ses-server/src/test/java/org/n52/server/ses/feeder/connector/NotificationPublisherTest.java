@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.feeder.connector;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.n52.server.ses.feeder.connector.NotificationPublisher.Delivery;
+import org.n52.server.ses.feeder.connector.NotificationPublisher.DeliveryCallback;
+import org.n52.server.ses.feeder.connector.NotificationPublisher.NotificationSender;
+import org.n52.server.ses.feeder.util.TokenBucket;
+
+public class NotificationPublisherTest {
+
+    @Test public void
+    shouldCompleteDeliveryWhenAllNotificationsHaveBeenSent() throws Exception {
+        RecordingSender sender = new RecordingSender(0);
+        NotificationPublisher publisher = createPublisher(sender, 2);
+        RecordingCallback callback = new RecordingCallback();
+        Delivery delivery = new Delivery(callback);
+        publisher.publish("first", delivery);
+        publisher.publish("second", delivery);
+        delivery.seal();
+        assertThat(callback.await(), is(true));
+        assertThat(callback.delivered, is(true));
+        assertThat(sender.sent.size(), is(2));
+        publisher.shutdown(0);
+    }
+
+    @Test public void
+    shouldNotCompleteDeliveryBeforeSealed() throws Exception {
+        NotificationPublisher publisher = createPublisher(new RecordingSender(0), 1);
+        RecordingCallback callback = new RecordingCallback();
+        Delivery delivery = new Delivery(callback);
+        publisher.publish("notification", delivery);
+        assertThat(callback.awaitShortly(), is(false));
+        delivery.seal();
+        assertThat(callback.await(), is(true));
+        publisher.shutdown(0);
+    }
+
+    @Test public void
+    shouldRetryFailedNotifications() throws Exception {
+        RecordingSender sender = new RecordingSender(NotificationPublisher.MAX_ATTEMPTS - 1);
+        NotificationPublisher publisher = createPublisher(sender, 1);
+        RecordingCallback callback = new RecordingCallback();
+        Delivery delivery = new Delivery(callback);
+        publisher.publish("notification", delivery);
+        delivery.seal();
+        assertThat(callback.await(), is(true));
+        assertThat(callback.delivered, is(true));
+        assertThat(sender.attempts.get(), is(NotificationPublisher.MAX_ATTEMPTS));
+        publisher.shutdown(0);
+    }
+
+    @Test public void
+    shouldFailDeliveryWhenRetriesAreExhausted() throws Exception {
+        RecordingSender sender = new RecordingSender(Integer.MAX_VALUE);
+        NotificationPublisher publisher = createPublisher(sender, 1);
+        RecordingCallback callback = new RecordingCallback();
+        Delivery delivery = new Delivery(callback);
+        publisher.publish("notification", delivery);
+        delivery.seal();
+        assertThat(callback.await(), is(true));
+        assertThat(callback.delivered, is(false));
+        publisher.shutdown(0);
+    }
+
+    @Test public void
+    shouldDrainQueueOnShutdown() throws Exception {
+        RecordingSender sender = new RecordingSender(0);
+        NotificationPublisher publisher = createPublisher(sender, 1);
+        RecordingCallback callback = new RecordingCallback();
+        Delivery delivery = new Delivery(callback);
+        for (int i = 0; i < 5; i++) {
+            publisher.publish("notification" + i, delivery);
+        }
+        delivery.seal();
+        publisher.shutdown(5000);
+        assertThat(callback.await(), is(true));
+        assertThat(callback.delivered, is(true));
+        assertThat(sender.sent.size(), is(5));
+    }
+
+    @Test public void
+    shouldFailDeliveryOfNotificationsLeftAfterShutdown() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        NotificationPublisher publisher = createPublisher(new NotificationSender() {
+            @Override
+            public boolean send(String notification) {
+                try {
+                    blocked.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }
+        }, 1);
+        RecordingCallback callback = new RecordingCallback();
+        Delivery delivery = new Delivery(callback);
+        publisher.publish("first", delivery);
+        publisher.publish("second", delivery);
+        delivery.seal();
+        publisher.shutdown(0);
+        assertThat(callback.await(), is(true));
+        assertThat(callback.delivered, is(false));
+        assertThat(publisher.publish("third", new Delivery(callback)), is(false));
+    }
+
+    @Test public void
+    shouldKeepOrderOfTimeseriesWhenRetrying() throws Exception {
+        RecordingSender sender = new RecordingSender(1);
+        NotificationPublisher publisher = createPublisher(sender, 10, 4, 100);
+        RecordingCallback callback = new RecordingCallback();
+        Delivery delivery = new Delivery("timeseries", callback);
+        publisher.publish("first", delivery);
+        Delivery nextDelivery = new Delivery("timeseries", new RecordingCallback());
+        publisher.publish("second", nextDelivery);
+        publisher.publish("third", nextDelivery);
+        delivery.seal();
+        nextDelivery.seal();
+        publisher.shutdown(5000);
+        assertThat(callback.await(), is(true));
+        assertThat(sender.sent, is(Arrays.asList("first", "second", "third")));
+    }
+
+    @Test public void
+    shouldFailDeliveryExplicitly() {
+        RecordingCallback callback = new RecordingCallback();
+        new Delivery(callback).fail();
+        assertThat(callback.delivered, is(false));
+        assertThat(callback.calls.get(), is(1));
+    }
+
+    private NotificationPublisher createPublisher(NotificationSender sender, int capacity) {
+        return createPublisher(sender, capacity, 1, 1);
+    }
+
+    private NotificationPublisher createPublisher(NotificationSender sender, int capacity, int workers, long retryDelay) {
+        TokenBucket rateLimit = new TokenBucket(1000, 1000);
+        return new NotificationPublisher("http://fake.url", sender, rateLimit, capacity, workers, retryDelay);
+    }
+
+    private static class RecordingSender implements NotificationSender {
+
+        private final List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private final int failures;
+
+        RecordingSender(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public boolean send(String notification) {
+            if (attempts.incrementAndGet() <= failures) {
+                return false;
+            }
+            sent.add(notification);
+            return true;
+        }
+    }
+
+    private static class RecordingCallback implements DeliveryCallback {
+
+        private final CountDownLatch completion = new CountDownLatch(1);
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private volatile boolean delivered;
+
+        @Override
+        public void completed(boolean delivered) {
+            this.delivered = delivered;
+            calls.incrementAndGet();
+            completion.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return completion.await(5, TimeUnit.SECONDS);
+        }
+
+        boolean awaitShortly() throws InterruptedException {
+            return completion.await(100, TimeUnit.MILLISECONDS);
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.feeder.task;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shared.serializable.pojos.TimeseriesFeed;
+import org.n52.shared.serializable.pojos.TimeseriesMetadata;
+
+public class FeedObservationThreadTest {
+
+    private TimeseriesFeed temperatureFeed;
+
+    private TimeseriesFeed humidityFeed;
+
+    @Before public void
+    setUp() {
+        temperatureFeed = createFeed("temperature");
+        humidityFeed = createFeed("humidity");
+    }
+
+    @Test public void
+    shouldNotAssignObservationOfFeedInOtherBatch() {
+        List<TimeseriesFeed> firstBatch = asList(temperatureFeed);
+        List<TimeseriesFeed> secondBatch = asList(humidityFeed);
+        assertThat(FeedObservationThread.findFeedsFor(firstBatch, "procedure", "humidity", "feature").isEmpty(), is(true));
+        assertThat(FeedObservationThread.findFeedsFor(secondBatch, "procedure", "temperature", "feature").isEmpty(), is(true));
+        assertThat(FeedObservationThread.findFeedsFor(secondBatch, "procedure", "humidity", "feature"), is(secondBatch));
+    }
+
+    @Test public void
+    shouldAssignObservationToMatchingFeedOnly() {
+        List<TimeseriesFeed> batch = asList(temperatureFeed, humidityFeed);
+        List<TimeseriesFeed> matching = FeedObservationThread.findFeedsFor(batch, "procedure", "humidity", "feature");
+        assertThat(matching, is(Collections.singletonList(humidityFeed)));
+    }
+
+    @Test public void
+    shouldDropObservationOfUnknownFeature() {
+        List<TimeseriesFeed> batch = asList(temperatureFeed);
+        assertThat(FeedObservationThread.findFeedsFor(batch, "procedure", "temperature", "other").isEmpty(), is(true));
+    }
+
+    @Test public void
+    shouldMatchByProcedureIfNothingElseIsReferenced() {
+        List<TimeseriesFeed> batch = asList(temperatureFeed, humidityFeed);
+        assertThat(FeedObservationThread.findFeedsFor(batch, "procedure", null, null), is(batch));
+    }
+
+    private TimeseriesFeed createFeed(String phenomenon) {
+        TimeseriesMetadata metadata = new TimeseriesMetadata();
+        metadata.setServiceUrl("http://fake.url");
+        metadata.setOffering("offering");
+        metadata.setPhenomenon(phenomenon);
+        metadata.setProcedure("procedure");
+        metadata.setFeatureOfInterest("feature");
+        return new TimeseriesFeed(metadata);
+    }
+
+}
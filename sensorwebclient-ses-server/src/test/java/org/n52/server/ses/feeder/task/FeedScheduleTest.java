@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.feeder.task;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shared.serializable.pojos.TimeseriesFeed;
+import org.n52.shared.serializable.pojos.TimeseriesMetadata;
+
+public class FeedScheduleTest {
+
+    private static final long MINIMAL_INTERVAL = 60000;
+
+    private FeedScheduleSeam schedule;
+
+    private TimeseriesFeed feed;
+
+    @Before public void
+    setUp() {
+        schedule = new FeedScheduleSeam();
+        TimeseriesMetadata metadata = new TimeseriesMetadata();
+        metadata.setServiceUrl("http://fake.url");
+        metadata.setOffering("offering");
+        metadata.setPhenomenon("phenomenon");
+        metadata.setProcedure("procedure");
+        metadata.setFeatureOfInterest("feature");
+        feed = new TimeseriesFeed(metadata);
+    }
+
+    @Test public void
+    shouldNotScheduleFeedTwiceWhileInFlight() {
+        assertThat(schedule.isDue(feed), is(true));
+        assertThat(schedule.start(feed), is(true));
+        assertThat(schedule.isDue(feed), is(false));
+        assertThat(schedule.start(feed), is(false));
+    }
+
+    @Test public void
+    shouldPollAgainAfterObservationCadence() {
+        feed.setLastConsideredTimeInterval(2 * MINIMAL_INTERVAL);
+        schedule.start(feed);
+        schedule.finished(feed, true);
+        schedule.time += 2 * MINIMAL_INTERVAL - 1;
+        assertThat(schedule.isDue(feed), is(false));
+        schedule.time += 1;
+        assertThat(schedule.isDue(feed), is(true));
+    }
+
+    @Test public void
+    shouldBackOffWhenNoNewObservationsArrive() {
+        schedule.start(feed);
+        schedule.finished(feed, false);
+        schedule.time += 2 * MINIMAL_INTERVAL - 1;
+        assertThat(schedule.isDue(feed), is(false));
+        schedule.time += 1;
+        assertThat(schedule.isDue(feed), is(true));
+
+        schedule.start(feed);
+        schedule.finished(feed, false);
+        schedule.time += 4 * MINIMAL_INTERVAL - 1;
+        assertThat(schedule.isDue(feed), is(false));
+
+        schedule.time += 1;
+        schedule.start(feed);
+        schedule.finished(feed, true);
+        schedule.time += MINIMAL_INTERVAL;
+        assertThat(schedule.isDue(feed), is(true));
+    }
+
+    @Test public void
+    shouldForgetUnsubscribedFeeds() {
+        schedule.start(feed);
+        schedule.finished(feed, false);
+        schedule.retain(Collections.<String> emptyList());
+        assertThat(schedule.isDue(feed), is(true));
+    }
+
+    static class FeedScheduleSeam extends FeedSchedule {
+
+        long time = 1000000;
+
+        FeedScheduleSeam() {
+            super(MINIMAL_INTERVAL);
+        }
+
+        @Override
+        long now() {
+            return time;
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.feeder.task;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import org.junit.Test;
+import org.n52.shared.serializable.pojos.TimeseriesFeed;
+import org.n52.shared.serializable.pojos.TimeseriesMetadata;
+
+public class GetObservationsTaskTest {
+
+    private static final long HOUR = 3600000;
+
+    @Test public void
+    shouldRequestFeedsWithCloseLastFeededTimesTogether() {
+        TimeseriesFeed first = createFeed("first", 10 * HOUR);
+        TimeseriesFeed second = createFeed("second", 10 * HOUR + 1000);
+        List<List<TimeseriesFeed>> groups = GetObservationsTask.createRequestGroups(asList(first, second), 50, HOUR, 0);
+        assertThat(groups.size(), is(1));
+        assertThat(groups.get(0), is(asList(first, second)));
+    }
+
+    @Test public void
+    shouldRequestLaggingFeedSeparately() {
+        TimeseriesFeed upToDate = createFeed("upToDate", 10 * HOUR);
+        TimeseriesFeed lagging = createFeed("lagging", 2 * HOUR);
+        TimeseriesFeed other = createFeed("other", 10 * HOUR - 1000);
+        List<List<TimeseriesFeed>> groups = GetObservationsTask.createRequestGroups(asList(upToDate, lagging, other), 50, HOUR, 0);
+        assertThat(groups.size(), is(2));
+        assertThat(groups.get(0), is(asList(lagging)));
+        assertThat(groups.get(1), is(asList(other, upToDate)));
+    }
+
+    @Test public void
+    shouldLimitFeedsPerRequest() {
+        TimeseriesFeed first = createFeed("first", HOUR);
+        TimeseriesFeed second = createFeed("second", HOUR);
+        TimeseriesFeed third = createFeed("third", HOUR);
+        List<List<TimeseriesFeed>> groups = GetObservationsTask.createRequestGroups(asList(first, second, third), 2, HOUR, 0);
+        assertThat(groups.size(), is(2));
+        assertThat(groups.get(1), is(asList(third)));
+    }
+
+    @Test public void
+    shouldGroupNewFeedsByTheirFirstRequestedTime() {
+        TimeseriesFeed newFeed = createFeed("new", -1);
+        TimeseriesFeed feededBefore = createFeed("feededBefore", 10 * HOUR);
+        List<List<TimeseriesFeed>> groups = GetObservationsTask.createRequestGroups(asList(newFeed, feededBefore), 50, HOUR, 10 * HOUR - 1000);
+        assertThat(groups.size(), is(1));
+        assertThat(groups.get(0), is(asList(newFeed, feededBefore)));
+    }
+
+    private TimeseriesFeed createFeed(String procedure, long lastFeeded) {
+        TimeseriesMetadata metadata = new TimeseriesMetadata();
+        metadata.setServiceUrl("http://fake.url");
+        metadata.setOffering("offering");
+        metadata.setPhenomenon("phenomenon");
+        metadata.setProcedure(procedure);
+        metadata.setFeatureOfInterest("feature");
+        TimeseriesFeed feed = new TimeseriesFeed(metadata);
+        if (lastFeeded >= 0) {
+            Calendar calendar = new GregorianCalendar();
+            calendar.setTimeInMillis(lastFeeded);
+            feed.setLastFeeded(calendar);
+        }
+        return feed;
+    }
+
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.feeder.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.server.ses.feeder.util.FeedProgressWriter.FeedProgress;
+import org.n52.shared.serializable.pojos.TimeseriesFeed;
+import org.n52.shared.serializable.pojos.TimeseriesMetadata;
+
+public class FeedProgressWriterTest {
+
+    private FeedProgressWriterSeam writer;
+
+    private TimeseriesFeed feed;
+
+    @Before public void
+    setUp() {
+        writer = new FeedProgressWriterSeam();
+        feed = createFeed("procedure");
+    }
+
+    @After public void
+    tearDown() {
+        writer.close();
+    }
+
+    @Test public void
+    shouldWriteOnlyLatestProgressOfFeed() {
+        feed.setLastFeeded(createCalendar(1000));
+        writer.add(feed);
+        feed.setLastFeeded(createCalendar(2000));
+        writer.add(feed);
+        writer.flush();
+        assertThat(writer.written.size(), is(1));
+        assertThat(writer.written.get(0).getLastFeeded(), is(2000L));
+        assertThat(writer.getPendingCount(), is(0));
+    }
+
+    @Test public void
+    shouldApplyPendingProgressToReadFeeds() {
+        feed.setLastFeeded(createCalendar(2000));
+        feed.setLastConsideredTimeInterval(60000);
+        writer.add(feed);
+
+        TimeseriesFeed readFeed = createFeed("procedure");
+        readFeed.setLastFeeded(createCalendar(1000));
+        writer.applyPendingProgress(readFeed);
+        assertThat(readFeed.getLastFeeded().getTimeInMillis(), is(2000L));
+        assertThat(readFeed.getLastConsideredTimeInterval(), is(60000L));
+    }
+
+    @Test public void
+    shouldKeepProgressWhenWritingFails() {
+        feed.setLastFeeded(createCalendar(1000));
+        writer.add(feed);
+        writer.failing = true;
+        writer.flush();
+        assertThat(writer.getPendingCount(), is(1));
+
+        writer.failing = false;
+        writer.flush();
+        assertThat(writer.written.size(), is(1));
+        assertThat(writer.getPendingCount(), is(0));
+    }
+
+    private TimeseriesFeed createFeed(String procedure) {
+        TimeseriesMetadata metadata = new TimeseriesMetadata();
+        metadata.setServiceUrl("http://fake.url");
+        metadata.setOffering("offering");
+        metadata.setPhenomenon("phenomenon");
+        metadata.setProcedure(procedure);
+        metadata.setFeatureOfInterest("feature");
+        return new TimeseriesFeed(metadata);
+    }
+
+    private Calendar createCalendar(long millis) {
+        Calendar calendar = new GregorianCalendar();
+        calendar.setTimeInMillis(millis);
+        return calendar;
+    }
+
+    static class FeedProgressWriterSeam extends FeedProgressWriter {
+
+        List<FeedProgress> written = new ArrayList<FeedProgress>();
+
+        boolean failing;
+
+        FeedProgressWriterSeam() {
+            super(Long.MAX_VALUE / 2, 100);
+        }
+
+        @Override
+        void write(List<FeedProgress> batch) {
+            if (failing) {
+                throw new IllegalStateException("database not available");
+            }
+            written.addAll(batch);
+        }
+    }
+
+}
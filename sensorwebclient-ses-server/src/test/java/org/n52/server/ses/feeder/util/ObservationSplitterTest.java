@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.feeder.util;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.server.ses.feeder.util.ObservationSplitter.ObservationSerializer;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+public class ObservationSplitterTest {
+
+    private static final String OBSERVATION = "<om:member xmlns:om=\"http://www.opengis.net/om/1.0\" "
+            + "xmlns:gml=\"http://www.opengis.net/gml\" xmlns:swe=\"http://www.opengis.net/swe/1.0.1\">"
+            + "<om:Observation><om:samplingTime><gml:TimePeriod>"
+            + "<gml:beginPosition>2013-01-01T00:00:00.000Z</gml:beginPosition>"
+            + "<gml:endPosition>2013-01-01T00:20:00.000Z</gml:endPosition>"
+            + "</gml:TimePeriod></om:samplingTime><om:result><swe:DataArray>"
+            + "<swe:elementCount><swe:Count><swe:value>3</swe:value></swe:Count></swe:elementCount>"
+            + "<swe:encoding><swe:TextBlock decimalSeparator=\".\" tokenSeparator=\",\" blockSeparator=\";\"/>"
+            + "</swe:encoding><swe:values>2013-01-01T00:00:00.000Z,feature,1.0;"
+            + "2013-01-01T00:20:00.000Z,feature,3.0;2013-01-01T00:10:00.000Z,feature,2.0;</swe:values>"
+            + "</swe:DataArray></om:result></om:Observation></om:member>";
+
+    private Document document;
+
+    private ObservationSerializer serializer;
+
+    @Before public void
+    setUp() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(OBSERVATION)));
+        serializer = new ObservationSerializer() {
+            @Override
+            public String serialize() {
+                try {
+                    StringWriter writer = new StringWriter();
+                    TransformerFactory.newInstance().newTransformer().transform(new DOMSource(document),
+                                                                                  new StreamResult(writer));
+                    return writer.toString();
+                }
+                catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    @Test public void
+    shouldSplitIntoSingleObservations() {
+        List<String> observations = new ObservationSplitter(1, false).split(document, serializer);
+        assertThat(observations.size(), is(3));
+        String second = observations.get(1);
+        assertThat(second, containsString("<swe:value>1</swe:value>"));
+        assertThat(second, containsString("<swe:values>2013-01-01T00:20:00.000Z,feature,3.0;</swe:values>"));
+        assertThat(second, containsString("<gml:beginPosition>2013-01-01T00:20:00.000Z</gml:beginPosition>"));
+        assertThat(second, containsString("<gml:endPosition>2013-01-01T00:20:00.000Z</gml:endPosition>"));
+    }
+
+    @Test public void
+    shouldBatchObservations() {
+        List<String> observations = new ObservationSplitter(2, false).split(document, serializer);
+        assertThat(observations.size(), is(2));
+        String first = observations.get(0);
+        assertThat(first, containsString("<swe:value>2</swe:value>"));
+        assertThat(first, containsString("<gml:beginPosition>2013-01-01T00:00:00.000Z</gml:beginPosition>"));
+        assertThat(first, containsString("<gml:endPosition>2013-01-01T00:20:00.000Z</gml:endPosition>"));
+        assertThat(observations.get(1), containsString("<swe:value>1</swe:value>"));
+    }
+
+    @Test public void
+    shouldKeepOnlyYoungestObservation() {
+        List<String> observations = new ObservationSplitter(1, true).split(document, serializer);
+        assertThat(observations.size(), is(1));
+        assertThat(observations.get(0), containsString("<swe:values>2013-01-01T00:20:00.000Z,feature,3.0;</swe:values>"));
+    }
+
+}
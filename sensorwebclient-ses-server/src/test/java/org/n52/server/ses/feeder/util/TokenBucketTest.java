@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.feeder.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+    private TokenBucketSeam bucket;
+
+    @Before public void
+    setUp() {
+        bucket = new TokenBucketSeam(2, 3);
+    }
+
+    @Test public void
+    shouldAllowBurstAfterIdlePeriod() {
+        assertThat(bucket.tryAcquire(), is(0L));
+        assertThat(bucket.tryAcquire(), is(0L));
+        assertThat(bucket.tryAcquire(), is(0L));
+        assertThat(bucket.tryAcquire() > 0, is(true));
+    }
+
+    @Test public void
+    shouldReportTimeUntilNextToken() {
+        drain();
+        assertThat(bucket.tryAcquire(), is(TimeUnit.MILLISECONDS.toNanos(500)));
+        bucket.time += TimeUnit.MILLISECONDS.toNanos(200);
+        assertThat(bucket.tryAcquire(), is(TimeUnit.MILLISECONDS.toNanos(300)));
+    }
+
+    @Test public void
+    shouldRefillWithConfiguredRate() {
+        drain();
+        bucket.time += TimeUnit.MILLISECONDS.toNanos(500);
+        assertThat(bucket.tryAcquire(), is(0L));
+        assertThat(bucket.tryAcquire() > 0, is(true));
+    }
+
+    @Test public void
+    shouldNotRefillBeyondBurstSize() {
+        drain();
+        bucket.time += TimeUnit.SECONDS.toNanos(60);
+        drain();
+        assertThat(bucket.tryAcquire() > 0, is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void
+    shouldRejectNonPositiveRate() {
+        new TokenBucket(0, 1);
+    }
+
+    private void drain() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(), is(0L));
+        }
+    }
+
+    static class TokenBucketSeam extends TokenBucket {
+
+        long time;
+
+        TokenBucketSeam(double tokensPerSecond, int burstSize) {
+            super(tokensPerSecond, burstSize);
+        }
+
+        @Override
+        long now() {
+            return time;
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.hibernate;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.n52.server.ses.hibernate.HibernateUtil.createSubscriptionStateQuery;
+
+import org.junit.Test;
+import org.n52.server.ses.hibernate.HibernateUtil.RuleScope;
+import org.n52.shared.serializable.pojos.BasicRule;
+import org.n52.shared.serializable.pojos.ComplexRule;
+
+public class HibernateUtilTest {
+
+    private static final String SELECT_WITH_SUBSCRIPTION_COUNT = "select r, (select count(s.id) from Subscription s"
+            + " where s.userID = :owner and s.ruleID = r.id)";
+
+    @Test public void
+    shouldSelectOwnRulesWithSubscriptionCount() {
+        assertThat(createSubscriptionStateQuery(ComplexRule.class, RuleScope.OWN),
+                   is(SELECT_WITH_SUBSCRIPTION_COUNT + " from ComplexRule r"
+                           + " where r.ownerID = :owner order by r.id"));
+    }
+
+    @Test public void
+    shouldSelectPublishedRulesOfOthersWithSubscriptionCount() {
+        assertThat(createSubscriptionStateQuery(ComplexRule.class, RuleScope.OTHERS_PUBLISHED),
+                   is(SELECT_WITH_SUBSCRIPTION_COUNT + " from ComplexRule r"
+                           + " where r.ownerID <> :owner and r.published = true order by r.id"));
+    }
+
+    @Test public void
+    shouldSelectOwnOrPublishedRulesWithSubscriptionCount() {
+        assertThat(createSubscriptionStateQuery(ComplexRule.class, RuleScope.OWN_OR_PUBLISHED),
+                   is(SELECT_WITH_SUBSCRIPTION_COUNT + " from ComplexRule r"
+                           + " where (r.ownerID = :owner or r.published = true) order by r.id"));
+    }
+
+    @Test public void
+    shouldFetchTimeseriesMetadataOfBasicRulesInEveryScope() {
+        for (RuleScope scope : RuleScope.values()) {
+            String hql = createSubscriptionStateQuery(BasicRule.class, scope);
+            assertThat(hql.startsWith(SELECT_WITH_SUBSCRIPTION_COUNT
+                    + " from BasicRule r left join fetch r.timeseriesMetadata where "), is(true));
+        }
+    }
+
+}
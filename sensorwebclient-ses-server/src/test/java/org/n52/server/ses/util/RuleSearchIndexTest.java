@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.server.ses.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.server.ses.util.RuleSearchIndex.Field;
+import org.n52.server.ses.util.RuleSearchIndex.Hit;
+import org.n52.server.ses.util.RuleSearchIndex.RuleKey;
+import org.n52.shared.serializable.pojos.BasicRule;
+
+public class RuleSearchIndexTest {
+
+    private static final int OWNER = 1;
+
+    private static final int OTHER_USER = 2;
+
+    private RuleSearchIndex index;
+
+    @Before public void
+    setUp() {
+        index = new RuleSearchIndex();
+        index.add(createRule(1, "Pegel Konstanz", "Wasserstand am Bodensee", true));
+        index.add(createRule(2, "Temperatur", "Wassertemperatur Konstanz", true));
+        index.add(createRule(3, "Private Konstanz", "not published", false));
+    }
+
+    @Test public void
+    shouldRankMatchesInNameBeforeMatchesInDescription() {
+        List<Hit> hits = index.search("konstanz", EnumSet.allOf(Field.class), OTHER_USER, 0, -1);
+        assertThat(hits.size(), is(2));
+        assertThat(hits.get(0).getRuleId(), is(1));
+        assertThat(hits.get(1).getRuleId(), is(2));
+    }
+
+    @Test public void
+    shouldFindUnpublishedRulesOfOwnerOnly() {
+        assertThat(index.search("private", EnumSet.of(Field.NAME), OTHER_USER, 0, -1).size(), is(0));
+        assertThat(index.search("private", EnumSet.of(Field.NAME), OWNER, 0, -1).size(), is(1));
+    }
+
+    @Test public void
+    shouldRequireAllTermsAndMatchByPrefix() {
+        List<Hit> hits = index.search("wasser KONST", EnumSet.of(Field.DESCRIPTION), OTHER_USER, 0, -1);
+        assertThat(hits.size(), is(1));
+        assertThat(hits.get(0).getRuleId(), is(2));
+    }
+
+    @Test public void
+    shouldReturnRequestedPage() {
+        List<Hit> hits = index.search("konstanz", EnumSet.allOf(Field.class), OTHER_USER, 1, 1);
+        assertThat(hits.size(), is(1));
+        assertThat(hits.get(0).getRuleId(), is(2));
+    }
+
+    @Test public void
+    shouldNotFindRemovedRules() {
+        index.remove(new RuleKey(false, 1));
+        assertThat(index.search("pegel", EnumSet.allOf(Field.class), OWNER, 0, -1).size(), is(0));
+    }
+
+    @Test public void
+    shouldIndexTextContentOfEml() {
+        BasicRule rule = createRule(4, "Rule", "", true);
+        rule.setEml("<EML><SimplePattern patternID=\"ignored\"><Name>Hochwasser</Name></SimplePattern></EML>");
+        index.add(rule);
+        assertThat(index.search("hochwasser", EnumSet.of(Field.EML), OWNER, 0, -1).size(), is(1));
+        assertThat(index.search("patternid", EnumSet.of(Field.EML), OWNER, 0, -1).size(), is(0));
+    }
+
+    private BasicRule createRule(int id, String name, String description, boolean published) {
+        BasicRule rule = new BasicRule(name, "", "", description, published, OWNER, "", false);
+        rule.setId(id);
+        return rule;
+    }
+}
@@ -27,20 +27,30 @@
  */
 package org.n52.series.api.proxy.v0.ctrl;
 
-
 import static org.n52.series.api.proxy.v0.ctrl.RestfulUrls.DEFAULT_PATH;
+import static org.n52.series.api.proxy.v0.out.ClusterOutput.createClusterOutput;
 import static org.n52.series.api.proxy.v0.out.StationOutput.createCompleteStationOutput;
 import static org.n52.series.api.proxy.v0.out.StationOutput.createSimpleStationOutput;
+import static org.n52.server.mgmt.ConfigurationContext.STATION_CLUSTER_LIMIT;
+import static org.n52.server.mgmt.ConfigurationContext.STATION_TILE_MAX_AGE;
+import static org.n52.server.mgmt.ConfigurationContext.getSOSMetadata;
+import static org.n52.server.mgmt.ConfigurationContext.getStationIndex;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
+import org.n52.series.api.proxy.v0.io.EntityTags;
+import org.n52.series.api.proxy.v0.io.StationTile;
 import org.n52.series.api.proxy.v0.io.Vicinity;
 import org.n52.series.api.proxy.v0.out.ModelAndViewPager;
 import org.n52.series.api.proxy.v0.out.StationOutput;
+import org.n52.server.mgmt.MetadataUnavailableException;
+import org.n52.server.mgmt.StationIndex;
+import org.n52.server.mgmt.StationIndex.Cluster;
 import org.n52.shared.requests.query.QueryFactory;
 import org.n52.shared.requests.query.QueryParameters;
 import org.n52.shared.requests.query.queries.QueryRequest;
@@ -54,6 +64,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.n52.web.BadRequestException;
+import org.n52.web.InternalServerException;
 import org.n52.web.ResourceNotFoundException;
 
 @Controller
@@ -101,6 +113,68 @@ public class RestfulStationsController extends QueryController implements Restfu
         }
     }
 
+    /**
+     * Returns the stations of a tile (see {@link StationTile}). Tiles containing more than
+     * {@link org.n52.server.mgmt.ConfigurationContext#STATION_CLUSTER_LIMIT} stations are returned as
+     * clusters instead. Responds with <code>304 Not Modified</code> if the stations have not been reindexed
+     * since the client fetched the tile.
+     */
+    @RequestMapping(value = "/{instance}/" + COLLECTION_CLUSTERS + "/{zoom}/{column}/{row}", method = RequestMethod.GET)
+    public ModelAndView getStationTileByGET(HttpServletRequest request,
+                                            HttpServletResponse response,
+                                            @PathVariable("instance") String instance,
+                                            @PathVariable("zoom") int zoom,
+                                            @PathVariable("column") int column,
+                                            @PathVariable("row") int row) throws Exception {
+        StationTile tile = createTile(zoom, column, row);
+        String serviceUrl = findServiceMetadataForItemName(instance).getServiceUrl();
+        requireInitializedMetadata(serviceUrl); // make sure stations are available
+
+        StationIndex index = getStationIndex();
+        String etag = "\"" + Long.toHexString(index.getVersion()) + "\"";
+        if (EntityTags.checkNotModified(request, response, etag, STATION_TILE_MAX_AGE)) {
+            return null;
+        }
+
+        double minX = tile.getMinX();
+        double minY = tile.getMinY();
+        double maxX = tile.getMaxX();
+        double maxY = tile.getMaxY();
+        List<Cluster> clusters = index.getClusters(serviceUrl, minX, minY, maxX, maxY, tile.getCellSize());
+        ModelAndView mav = new ModelAndView("stations");
+        if (countStations(clusters) > STATION_CLUSTER_LIMIT) {
+            return mav.addObject("clusters", createClusterOutput(clusters));
+        }
+        List<Station> stations = index.getStations(serviceUrl, minX, minY, maxX, maxY);
+        return mav.addObject("stations", createSimpleStationOutput(stations.toArray(new Station[0])));
+    }
+
+    private StationTile createTile(int zoom, int column, int row) {
+        try {
+            return new StationTile(zoom, column, row);
+        }
+        catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+    }
+
+    private void requireInitializedMetadata(String serviceUrl) {
+        try {
+            getSOSMetadata(serviceUrl);
+        }
+        catch (MetadataUnavailableException e) {
+            throw new InternalServerException("Stations of '" + serviceUrl + "' are not available.", e);
+        }
+    }
+
+    private int countStations(List<Cluster> clusters) {
+        int count = 0;
+        for (Cluster cluster : clusters) {
+            count += cluster.getCount();
+        }
+        return count;
+    }
+
     private ModelAndView pageResults(List<StationOutput> stations, int offset, int size) {
         ModelAndViewPager mavPage = new ModelAndViewPager("stations");
         return mavPage.createPagedModelAndViewFrom(stations, offset, size);
@@ -27,23 +27,29 @@
  */
 package org.n52.series.api.proxy.v0.ctrl;
 
+import static org.n52.server.mgmt.ConfigurationContext.CHART_CACHE_TIME_GRANULARITY;
 import static org.n52.shared.requests.query.QueryParameters.createEmptyFilterQuery;
 import static org.n52.shared.serializable.pojos.TimeseriesRenderingOptions.createDefaultRenderingOptions;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.n52.series.api.proxy.v0.io.DesignedParameterSet;
+import org.n52.series.api.proxy.v0.io.EntityTags;
 import org.n52.series.api.proxy.v0.io.UndesignedParameterSet;
 import org.n52.series.api.proxy.v0.out.ModelAndViewPager;
 import org.n52.series.api.proxy.v0.out.TimeseriesData;
 import org.n52.series.api.proxy.v0.out.TimeseriesDataCollection;
 import org.n52.series.api.proxy.v0.srv.GetDataService;
 import org.n52.series.api.proxy.v0.srv.GetImageService;
+import org.n52.server.io.render.RenderedChart;
 import org.n52.shared.requests.query.QueryFactory;
 import org.n52.shared.requests.query.QueryParameters;
 import org.n52.shared.requests.query.queries.QueryRequest;
@@ -72,15 +78,10 @@ public class RestfulTimeSeriesController extends QueryController implements Rest
     private GetImageService imageService;
 
     @RequestMapping(value = "/v0/timeseries", produces = "image/png", method = POST)
-    public void getTimeseriesGraphForMultipleTimeseries(HttpServletResponse response,
+    public void getTimeseriesGraphForMultipleTimeseries(HttpServletRequest request,
+                                                        HttpServletResponse response,
                                                         @RequestBody DesignedParameterSet parameterSet) throws Exception {
-        try {
-            response.setContentType("image/png");
-            imageService.writeTimeSeriesChart(parameterSet, response.getOutputStream());
-        }
-        finally {
-            response.getOutputStream().close();
-        }
+        writeTimeseriesChart(request, response, parameterSet);
     }
 
     @RequestMapping(value = "/v0/timeseries", produces = "application/json", method = POST)
@@ -153,35 +154,54 @@ public class RestfulTimeSeriesController extends QueryController implements Rest
     }
 
     @RequestMapping(value = "/v0/services/{instance}/timeseries/{timeseriesId}", produces = "image/png", method = GET)
-    public void getTimeseriesGraph(HttpServletResponse response,
+    public void getTimeseriesGraph(HttpServletRequest request,
+                                   HttpServletResponse response,
                                    @PathVariable String instance,
                                    @PathVariable String timeseriesId,
                                    @RequestParam(required = false) String timespan,
                                    @RequestParam(defaultValue = "-1") int width,
                                    @RequestParam(defaultValue = "-1") int height) throws Exception {
-        try {
-            if (!containsServiceInstance(instance)) {
-                LOGGER.info("SOS instance {} is not available.", instance);
-                throw new ResourceNotFoundException("Not found.");
-            }
-            SOSMetadata metadata = findServiceMetadataForItemName(instance);
-            if ( !metadata.containsStationWithTimeseriesId(timeseriesId)) {
-                LOGGER.info("Timeseries {} is not available.", timeseriesId);
-                throw new ResourceNotFoundException("Not found.");
-            }
+        if (!containsServiceInstance(instance)) {
+            LOGGER.info("SOS instance {} is not available.", instance);
+            throw new ResourceNotFoundException("Not found.");
+        }
+        SOSMetadata metadata = findServiceMetadataForItemName(instance);
+        if ( !metadata.containsStationWithTimeseriesId(timeseriesId)) {
+            LOGGER.info("Timeseries {} is not available.", timeseriesId);
+            throw new ResourceNotFoundException("Not found.");
+        }
 
-            for (Station station : getAllStations(instance)) {
-                if (station.contains(timeseriesId)) {
-                    response.setContentType("image/png");
-                    DesignedParameterSet parameterSet = createDesignedParameterSet(timespan, width, height);
-                    parameterSet.addTimeseriesWithRenderingOptions(timeseriesId, createDefaultRenderingOptions());
-                    imageService.writeTimeSeriesChart(parameterSet, response.getOutputStream());
-                    break;
-                }
+        for (Station station : getAllStations(instance)) {
+            if (station.contains(timeseriesId)) {
+                DesignedParameterSet parameterSet = createDesignedParameterSet(timespan, width, height);
+                parameterSet.addTimeseriesWithRenderingOptions(timeseriesId, createDefaultRenderingOptions());
+                writeTimeseriesChart(request, response, parameterSet);
+                break;
             }
         }
+    }
+
+    /**
+     * Writes the rendered chart as PNG. Responds with <code>304 Not Modified</code> if the client already
+     * holds the same image, i.e. sent a matching <code>If-None-Match</code> header. Clients may reuse the
+     * image as long as the requested timespan is rounded to the same chart cache granularity.
+     */
+    private void writeTimeseriesChart(HttpServletRequest request,
+                                      HttpServletResponse response,
+                                      DesignedParameterSet parameterSet) throws IOException {
+        RenderedChart chart = imageService.renderTimeSeriesChart(parameterSet);
+        long maxAge = CHART_CACHE_TIME_GRANULARITY / 1000;
+        if (EntityTags.checkNotModified(request, response, chart.getEtag(), maxAge)) {
+            return;
+        }
+        response.setContentType("image/png");
+        response.setContentLength(chart.getImage().length);
+        OutputStream outputStream = response.getOutputStream();
+        try {
+            outputStream.write(chart.getImage());
+        }
         finally {
-            response.getOutputStream().close();
+            outputStream.close();
         }
     }
 
@@ -69,6 +69,11 @@ public interface RestfulUrls {
      * Subpath identifying a collection of stations available.
      */
     static final String COLLECTION_STATIONS = "stations";
+
+    /**
+     * Subpath identifying tiles of clustered stations.
+     */
+    static final String COLLECTION_CLUSTERS = "clusters";
     
     /**
      * Subpath identifying a collection of timeseries metadata available.
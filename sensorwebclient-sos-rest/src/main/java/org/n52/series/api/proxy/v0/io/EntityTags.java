@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.series.api.proxy.v0.io;
+
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+
+import java.util.Enumeration;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Handles conditional GET requests via entity tags. <code>If-None-Match</code> headers are compared weakly
+ * (<code>W/</code> prefixes are ignored), may list several tags and may contain the <code>*</code>
+ * wildcard.
+ */
+public final class EntityTags {
+
+    private static final String IF_NONE_MATCH = "If-None-Match";
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private EntityTags() {
+        // static helper
+    }
+
+    /**
+     * Sets <code>ETag</code> and <code>Cache-Control</code> headers and sets status
+     * <code>304 Not Modified</code> if the client already holds the tagged representation.
+     * 
+     * @param request
+     *        the request possibly containing <code>If-None-Match</code> headers.
+     * @param response
+     *        the response to set the headers to.
+     * @param etag
+     *        the quoted entity tag of the current representation.
+     * @param maxAge
+     *        seconds the client may use the representation without revalidation.
+     * @return <code>true</code> if the status has been set to <code>304 Not Modified</code>, i.e. no body
+     *         must be written.
+     */
+    public static boolean checkNotModified(HttpServletRequest request,
+                                           HttpServletResponse response,
+                                           String etag,
+                                           long maxAge) {
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "public, max-age=" + maxAge);
+        Enumeration< ? > headers = request.getHeaders(IF_NONE_MATCH);
+        while (headers != null && headers.hasMoreElements()) {
+            if (matches((String) headers.nextElement(), etag)) {
+                response.setStatus(SC_NOT_MODIFIED);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param ifNoneMatch
+     *        the value of an <code>If-None-Match</code> header, may be <code>null</code>.
+     * @param etag
+     *        the (possibly weak) entity tag of the current representation.
+     * @return <code>true</code> if the header contains <code>*</code> or a tag weakly matching the given one.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String header = ifNoneMatch.trim();
+        if ("*".equals(header)) {
+            return true;
+        }
+        String opaqueTag = etag.startsWith(WEAK_PREFIX) ? etag.substring(WEAK_PREFIX.length()) : etag;
+        int start = header.indexOf('"');
+        while (start >= 0) {
+            int end = header.indexOf('"', start + 1);
+            if (end < 0) {
+                return false;
+            }
+            if (header.substring(start, end + 1).equals(opaqueTag)) {
+                return true;
+            }
+            start = header.indexOf('"', end + 1);
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.series.api.proxy.v0.io;
+
+/**
+ * Addresses a tile of station clusters. Tiles follow the global geodetic tiling scheme of a lon/lat ordered
+ * EPSG:4326 reference frame: zoom level 0 consists of two tiles, each further level halves the tiles' edge
+ * length. Columns are counted eastwards from -180, rows northwards from -90. Each tile is divided into
+ * {@value #CELLS_PER_AXIS}x{@value #CELLS_PER_AXIS} cells, stations are clustered per cell.<br>
+ * <br>
+ * Tiles are half-open, i.e. upper bounds are exclusive. The upper bounds of the easternmost column and the
+ * northernmost row lie just beyond 180 and 90, so that stations located exactly there fall into a tile.
+ */
+public class StationTile {
+
+    /**
+     * The highest supported zoom level.
+     */
+    public static final int MAX_ZOOM = 21;
+
+    /**
+     * The number of cluster cells along each axis of a tile.
+     */
+    public static final int CELLS_PER_AXIS = 8;
+
+    private final double minX;
+
+    private final double minY;
+
+    private final double size;
+
+    private final double maxX;
+
+    private final double maxY;
+
+    /**
+     * @param zoom
+     *        the zoom level.
+     * @param column
+     *        the tile column.
+     * @param row
+     *        the tile row.
+     * @throws IllegalArgumentException
+     *         if zoom level, column or row is out of range.
+     */
+    public StationTile(int zoom, int column, int row) {
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("Zoom level must be between 0 and " + MAX_ZOOM + ".");
+        }
+        int rows = 1 << zoom;
+        if (column < 0 || column >= 2 * rows || row < 0 || row >= rows) {
+            throw new IllegalArgumentException("Tile " + column + "/" + row + " does not exist on zoom level " + zoom + ".");
+        }
+        this.size = 180d / rows;
+        this.minX = -180 + column * size;
+        this.minY = -90 + row * size;
+        this.maxX = column == 2 * rows - 1 ? Math.nextUp(180d) : minX + size;
+        this.maxY = row == rows - 1 ? Math.nextUp(90d) : minY + size;
+    }
+
+    /**
+     * @return the western bound (inclusive).
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return the southern bound (inclusive).
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * @return the eastern bound (exclusive).
+     */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return the northern bound (exclusive).
+     */
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * @return the edge length of a cluster cell in degrees.
+     */
+    public double getCellSize() {
+        return size / CELLS_PER_AXIS;
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.series.api.proxy.v0.out;
+
+import static org.n52.io.geojson.GeojsonPoint.createWithCoordinates;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.n52.io.geojson.GeojsonFeature;
+import org.n52.server.mgmt.StationIndex.Cluster;
+
+/**
+ * {@link Cluster} output data to be used for de-/marshalling web views. The geometry is the centroid of the
+ * clustered stations.
+ */
+public class ClusterOutput extends GeojsonFeature {
+
+    private static final long serialVersionUID = -2317795532862153620L;
+
+    ClusterOutput() {
+        // for serialization
+    }
+
+    /**
+     * @param clusters
+     *        the clusters to create an output for.
+     * @return the output data.
+     */
+    public static ClusterOutput[] createClusterOutput(List<Cluster> clusters) {
+        List<ClusterOutput> clusterOutput = new ArrayList<ClusterOutput>();
+        for (Cluster cluster : clusters) {
+            clusterOutput.add(createClusterOutput(cluster));
+        }
+        return clusterOutput.toArray(new ClusterOutput[0]);
+    }
+
+    /**
+     * @param cluster
+     *        the cluster to create an output for.
+     * @return the output data.
+     */
+    public static ClusterOutput createClusterOutput(Cluster cluster) {
+        ClusterOutput clusterOutput = new ClusterOutput();
+        clusterOutput.setGeometry(createWithCoordinates(new Double[] {cluster.getX(), cluster.getY()}));
+        clusterOutput.addProperty("count", cluster.getCount());
+        clusterOutput.addProperty("categories", new HashMap<String, Integer>(cluster.getCategories()));
+        return clusterOutput;
+    }
+
+}
@@ -27,18 +27,14 @@
  */
 package org.n52.series.api.proxy.v0.srv;
 
-import java.io.OutputStream;
 import java.util.ArrayList;
 
-import javax.servlet.ServletOutputStream;
-
-import org.jfree.chart.ChartRenderingInfo;
-import org.jfree.chart.entity.StandardEntityCollection;
 import org.n52.series.api.proxy.v0.io.DesignedParameterSet;
 import org.n52.series.api.proxy.v0.io.ParameterSet;
 import org.n52.series.api.proxy.v0.out.ImageDataResult;
 import org.n52.client.service.EESDataService;
 import org.n52.server.io.EESGenerator;
+import org.n52.server.io.render.RenderedChart;
 import org.n52.shared.serializable.pojos.DesignOptions;
 import org.n52.shared.serializable.pojos.TimeseriesProperties;
 import org.n52.web.InternalServerException;
@@ -65,8 +61,7 @@ public class GetImageService extends DataService {
     private ImageDataResult performChartRendering(DesignOptions options) {
         try {
             EESGenerator chartGenerator = new EESGenerator();
-            ChartRenderingInfo renderingInfo = new ChartRenderingInfo(new StandardEntityCollection());
-            String chartUrl = chartGenerator.createChart(options, renderingInfo);
+            String chartUrl = chartGenerator.createChart(options);
             return new ImageDataResult(chartUrl);
         }
         catch (Exception e) {
@@ -75,9 +70,14 @@ public class GetImageService extends DataService {
         }
     }
 
-    public void writeTimeSeriesChart(DesignedParameterSet parameterSet, ServletOutputStream outputStream) {
+    /**
+     * @param parameterSet
+     *        the timeseries and rendering options of the chart.
+     * @return the rendered chart, possibly taken from cache.
+     */
+    public RenderedChart renderTimeSeriesChart(DesignedParameterSet parameterSet) {
         DesignOptions options = createDesignOptions(parameterSet);
-        performChartRendering(options, outputStream);
+        return renderChart(options);
     }
 
     private DesignOptions createDesignOptions(DesignedParameterSet parameterSet) {
@@ -86,11 +86,10 @@ public class GetImageService extends DataService {
         return createDesignOptions(parameterSet, tsProperties, isRenderGrid());
     }
 
-    private void performChartRendering(DesignOptions options, OutputStream outputStream) {
+    private RenderedChart renderChart(DesignOptions options) {
         try {
             EESGenerator chartGenerator = new EESGenerator();
-            ChartRenderingInfo renderingInfo = new ChartRenderingInfo(new StandardEntityCollection());
-            chartGenerator.createChartToOutputStream(options, renderingInfo, outputStream);
+            return chartGenerator.renderChart(options);
         }
         catch (Exception e) {
             LOGGER.error("Could not render timeseries chart.", e);
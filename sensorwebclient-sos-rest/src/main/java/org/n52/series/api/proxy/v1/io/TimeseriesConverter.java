@@ -28,6 +28,7 @@
 package org.n52.series.api.proxy.v1.io;
 
 import static java.lang.System.currentTimeMillis;
+import static org.n52.server.mgmt.ConfigurationContext.getTimeseriesIdIndex;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -43,6 +44,7 @@ import org.n52.io.v1.data.StationOutput;
 import org.n52.io.v1.data.TimeseriesMetadataOutput;
 import org.n52.io.v1.data.TimeseriesOutput;
 import org.n52.io.v1.data.TimeseriesValue;
+import org.n52.server.mgmt.TimeseriesIdIndex;
 import org.n52.shared.serializable.pojos.ReferenceValue;
 import org.n52.shared.serializable.pojos.sos.Phenomenon;
 import org.n52.shared.serializable.pojos.sos.Procedure;
@@ -142,7 +144,10 @@ public class TimeseriesConverter extends OutputConverter<SosTimeseries, Timeseri
     }
 
     private StationOutput getCondensedStation(SosTimeseries timeseries) {
-        Station station = getMetadata().getStationByTimeSeries(timeseries);
+        TimeseriesIdIndex.Entry entry = getTimeseriesIdIndex().get(timeseries.getTimeseriesId());
+        Station station = entry != null && entry.getMetadata() == getMetadata()
+            ? entry.getStation()
+            : getMetadata().getStationByTimeSeries(timeseries);
         StationConverter stationConverter = new StationConverter(getMetadata());
         return stationConverter.convertCondensed(station);
     }
@@ -28,7 +28,7 @@
 package org.n52.series.api.proxy.v1.srv;
 
 import static org.n52.server.mgmt.ConfigurationContext.getSOSMetadataForItemName;
-import static org.n52.server.mgmt.ConfigurationContext.getSOSMetadatas;
+import static org.n52.server.mgmt.ConfigurationContext.getTimeseriesIdIndex;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -43,6 +43,7 @@ import org.n52.client.service.TimeSeriesDataService;
 import org.n52.io.format.TvpDataCollection;
 import org.n52.io.v1.data.TimeseriesData;
 import org.n52.io.v1.data.UndesignedParameterSet;
+import org.n52.server.mgmt.TimeseriesIdIndex;
 import org.n52.shared.serializable.pojos.DesignOptions;
 import org.n52.shared.serializable.pojos.ReferenceValue;
 import org.n52.shared.serializable.pojos.TimeseriesProperties;
@@ -69,12 +70,23 @@ public abstract class DataService {
      *         unknown.
      */
     protected SOSMetadata getMetadataForTimeseriesId(String timeseriesId) {
-        for (SOSMetadata metadata : getSOSMetadatas()) {
-            if (metadata.containsStationWithTimeseriesId(timeseriesId)) {
-                return metadata;
-            }
+        TimeseriesIdIndex.Entry entry = getTimeseriesIdIndex().get(timeseriesId);
+        return entry != null ? entry.getMetadata() : null;
+    }
+
+    /**
+     * @param timeseriesId
+     *        the timeseries id to resolve.
+     * @return the indexed metadata, station and timeseries of the given timeseries id.
+     * @throws ResourceNotFoundException
+     *         if timeseries id is unknown.
+     */
+    protected TimeseriesIdIndex.Entry getIndexedTimeseries(String timeseriesId) {
+        TimeseriesIdIndex.Entry entry = getTimeseriesIdIndex().get(timeseriesId);
+        if (entry == null) {
+            throw new ResourceNotFoundException("No timeseries with id '" + timeseriesId + "'.");
         }
-        return null;
+        return entry;
     }
 
     /**
@@ -137,10 +149,9 @@ public abstract class DataService {
     }
     
     protected TimeseriesProperties createExpandedTimeseriesProperties(String timeseriesId) {
-        SOSMetadata metadata = getMetadataForTimeseriesId(timeseriesId);
-        TimeseriesParametersLookup lookup = metadata.getTimeseriesParametersLookup();
-        Station station = metadata.getStationByTimeSeriesId(timeseriesId);
-        SosTimeseries timeseries = station.getTimeseriesById(timeseriesId);
+        TimeseriesIdIndex.Entry entry = getIndexedTimeseries(timeseriesId);
+        TimeseriesParametersLookup lookup = entry.getMetadata().getTimeseriesParametersLookup();
+        SosTimeseries timeseries = entry.getTimeseries();
         TimeseriesProperties condensedTimeseriesProperties = createCondensedTimeseriesProperties(timeseriesId);
         Procedure procedure = lookup.getProcedure(timeseries.getProcedureId());
         condensedTimeseriesProperties.addAllRefValues(procedure.getReferenceValues());
@@ -148,11 +159,10 @@ public abstract class DataService {
     }
 
     protected HashMap<String,ReferenceValue> getReferenceValuesFor(String timeseriesId) {
-        SOSMetadata metadata = getMetadataForTimeseriesId(timeseriesId);
-        Station station = metadata.getStationByTimeSeriesId(timeseriesId);
-        SosTimeseries timeseries = station.getTimeseriesById(timeseriesId);
+        TimeseriesIdIndex.Entry entry = getIndexedTimeseries(timeseriesId);
+        SosTimeseries timeseries = entry.getTimeseries();
         
-        TimeseriesParametersLookup lookup = metadata.getTimeseriesParametersLookup();
+        TimeseriesParametersLookup lookup = entry.getMetadata().getTimeseriesParametersLookup();
         Procedure procedure = lookup.getProcedure(timeseries.getProcedureId());
         return procedure.getReferenceValues();
     }
@@ -167,10 +177,9 @@ public abstract class DataService {
     }
 
     protected TimeseriesProperties createCondensedTimeseriesProperties(String timeseriesId) {
-        SOSMetadata metadata = getMetadataForTimeseriesId(timeseriesId);
-        Station station = metadata.getStationByTimeSeriesId(timeseriesId);
-        SosTimeseries timeseries = station.getTimeseriesById(timeseriesId);
-        TimeseriesParametersLookup lookup = metadata.getTimeseriesParametersLookup();
+        TimeseriesIdIndex.Entry entry = getIndexedTimeseries(timeseriesId);
+        Station station = entry.getStation();
+        SosTimeseries timeseries = entry.getTimeseries();
         TimeseriesProperties properties = new TimeseriesProperties(timeseries, station, 0, 0, "???", true);
         return properties;
     }
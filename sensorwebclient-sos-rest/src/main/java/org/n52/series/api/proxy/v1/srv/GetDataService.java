@@ -35,6 +35,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.n52.client.service.TimeSeriesDataService;
 import org.n52.io.format.TvpDataCollection;
 import org.n52.io.v1.data.TimeseriesData;
@@ -42,16 +44,21 @@ import org.n52.io.v1.data.TimeseriesDataMetadata;
 import org.n52.io.v1.data.TimeseriesValue;
 import org.n52.io.v1.data.UndesignedParameterSet;
 import org.n52.server.da.oxf.ResponseExceedsSizeLimitException;
+import org.n52.server.io.downsampling.DownsamplingAlgorithm;
 import org.n52.shared.requests.TimeSeriesDataRequest;
 import org.n52.shared.responses.TimeSeriesDataResponse;
 import org.n52.shared.serializable.pojos.DesignOptions;
 import org.n52.shared.serializable.pojos.ReferenceValue;
 import org.n52.shared.serializable.pojos.TimeseriesProperties;
+import org.n52.shared.serializable.pojos.TimeseriesValues;
 import org.n52.shared.serializable.pojos.sos.SosTimeseries;
 import org.n52.web.BadRequestException;
 import org.n52.web.InternalServerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 /**
  * Gets data values from an SOS instance. Requested time series are aggregated to a list of
@@ -62,6 +69,19 @@ public class GetDataService extends DataService {
 
     static final Logger LOGGER = LoggerFactory.getLogger(GetDataService.class);
 
+    /**
+     * Query parameter naming the algorithm to downsample data values with (<code>lttb</code>,
+     * <code>minmax</code> or <code>none</code>).
+     */
+    static final String DOWNSAMPLING_PARAMETER = "downsampling";
+
+    /**
+     * Query parameter determining the number of pixels the downsampled values shall fit in.
+     */
+    static final String WIDTH_PARAMETER = "width";
+
+    static final int DEFAULT_DOWNSAMPLING_WIDTH = 800;
+
     private TimeSeriesDataService timeSeriesDataService;
 
     /**
@@ -72,20 +92,50 @@ public class GetDataService extends DataService {
     public TvpDataCollection getTimeSeriesFromParameterSet(UndesignedParameterSet parameterSet) {
         ArrayList<TimeseriesProperties> tsProperties = new ArrayList<TimeseriesProperties>();
         TvpDataCollection timeseriesCollection = prepareTimeseriesResults(parameterSet, tsProperties);
-        return performTimeseriesDataRequest(timeseriesCollection, createDesignOptions(parameterSet, tsProperties));
+        DesignOptions options = createDesignOptions(parameterSet, tsProperties);
+        setDownsamplingOptions(options, getCurrentRequest());
+        return performTimeseriesDataRequest(timeseriesCollection, options);
+    }
+
+    /**
+     * The data controller is not part of this project and does not pass unknown query parameters, so the
+     * downsampling parameters are read from the request currently bound to the executing thread.
+     */
+    private HttpServletRequest getCurrentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes
+            ? ((ServletRequestAttributes) attributes).getRequest()
+            : null;
+    }
+
+    void setDownsamplingOptions(DesignOptions options, HttpServletRequest request) {
+        if (request == null || request.getParameter(DOWNSAMPLING_PARAMETER) == null) {
+            return;
+        }
+        String downsampling = request.getParameter(DOWNSAMPLING_PARAMETER);
+        String width = request.getParameter(WIDTH_PARAMETER);
+        try {
+            DownsamplingAlgorithm.fromName(downsampling);
+            options.setDownsampling(downsampling);
+            options.setWidth(width == null ? DEFAULT_DOWNSAMPLING_WIDTH : Integer.parseInt(width));
+        }
+        catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException as well
+            throw new BadRequestException("Invalid downsampling parameters: " + DOWNSAMPLING_PARAMETER + "="
+                    + downsampling + ", " + WIDTH_PARAMETER + "=" + width);
+        }
     }
 
     private TvpDataCollection performTimeseriesDataRequest(TvpDataCollection timeSeriesResults, DesignOptions options) {
         try {
             TimeSeriesDataRequest tsRequest = new TimeSeriesDataRequest(options);
             TimeSeriesDataResponse timeSeriesData = timeSeriesDataService.getTimeSeriesData(tsRequest);
-            Map<String, HashMap<Long, Double>> data = timeSeriesData.getPayloadData();
 
             for (String timeseriesId : timeSeriesResults.getAllTimeseries().keySet()) {
                 TimeseriesProperties properties = getTimeseriesProperties(timeseriesId, options);
                 GetDataInfos infos = new GetDataInfos(timeseriesId, properties, options);
-                HashMap<Long, Double> values = data.get(timeseriesId);
-                TimeseriesData timeseriesData = newTimeseriesData(values);
+                TimeseriesValues values = timeSeriesData.getTimeseriesValues(timeseriesId);
+                TimeseriesData timeseriesData = newTimeseriesData(createTimeseriesValues(values));
                 if (properties.getReferenceValues() != null) {
                     timeseriesData.setMetadata(createTimeseriesMetadata(infos));
                 }
@@ -101,6 +151,18 @@ public class GetDataService extends DataService {
         return timeSeriesResults;
     }
 
+    private TimeseriesValue[] createTimeseriesValues(TimeseriesValues values) {
+        if (values == null) {
+            return new TimeseriesValue[0];
+        }
+        TimeseriesValue[] timeseriesValues = new TimeseriesValue[values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            Double value = values.hasValue(i) ? Double.valueOf(values.getValue(i)) : null;
+            timeseriesValues[i] = new TimeseriesValue(values.getTime(i), value);
+        }
+        return timeseriesValues;
+    }
+
     private TimeseriesDataMetadata createTimeseriesMetadata(GetDataInfos infos) {
         HashMap<String, ReferenceValue> refValues = infos.getProperties().getRefvalues();
         if (refValues == null || refValues.isEmpty()) {
@@ -45,11 +45,11 @@ import org.n52.oxf.ows.capabilities.Operation;
 import org.n52.sensorweb.v1.spi.ResultTimeService;
 import org.n52.server.da.AccessorThreadPool;
 import org.n52.server.da.oxf.OperationAccessor;
-import static org.n52.server.mgmt.ConfigurationContext.getSOSMetadatas;
+import org.n52.server.mgmt.TimeseriesIdIndex;
+import static org.n52.server.mgmt.ConfigurationContext.getTimeseriesIdIndex;
 import org.n52.server.util.SosAdapterFactory;
 import org.n52.shared.serializable.pojos.sos.SOSMetadata;
 import org.n52.shared.serializable.pojos.sos.SosTimeseries;
-import org.n52.shared.serializable.pojos.sos.Station;
 import org.slf4j.LoggerFactory;
 
 public class ResultTimeAdapter implements ResultTimeService {
@@ -63,10 +63,11 @@ public class ResultTimeAdapter implements ResultTimeService {
         if (start == null || end == null) {
             LOGGER.error("Missing start or end parameter.");
         }
-        for (SOSMetadata metadata : getSOSMetadatas()) {
+        TimeseriesIdIndex.Entry entry = getTimeseriesIdIndex().get(timeseriesId);
+        if (entry != null) {
             try {
-                Station station = metadata.getStationByTimeSeriesId(timeseriesId);
-                SosTimeseries timeseries = station.getTimeseriesById(timeseriesId);
+                SOSMetadata metadata = entry.getMetadata();
+                SosTimeseries timeseries = entry.getTimeseries();
                 FutureTask<OperationResult> futureTask = new FutureTask<OperationResult>(createGDA(timeseries, metadata, start, end));
                 AccessorThreadPool.execute(futureTask);
                 OperationResult result = futureTask.get(metadata.getTimeout(), TimeUnit.MILLISECONDS);
@@ -93,7 +94,7 @@ public class ResultTimeAdapter implements ResultTimeService {
         array[1] = end;
         container.addParameterShell("phenomenonTime", array);
         Operation operation = new Operation("GetDataAvailability", metadata.getServiceUrl(), metadata.getServiceUrl());
-        return new OperationAccessor(SosAdapterFactory.createSosAdapter(metadata), operation, container);
+        return new OperationAccessor(SosAdapterFactory.getSosAdapter(metadata), operation, container);
     }
 
     public ArrayList<String> getResultTimes(XmlObject result_xb) {
@@ -27,20 +27,12 @@
  */
 package org.n52.series.api.proxy.v1.srv;
 
-import static org.n52.server.mgmt.ConfigurationContext.getSOSMetadatas;
-import static org.n52.shared.requests.query.QueryParameters.createEmptyFilterQuery;
+import static org.n52.server.mgmt.ConfigurationContext.SEARCH_RESULT_LIMIT;
+import static org.n52.server.mgmt.ConfigurationContext.getSearchIndex;
 
 import java.util.ArrayList;
 import java.util.Collection;
 
-import org.n52.shared.serializable.pojos.sos.Feature;
-import org.n52.shared.serializable.pojos.sos.Offering;
-import org.n52.shared.serializable.pojos.sos.Phenomenon;
-import org.n52.shared.serializable.pojos.sos.Procedure;
-import org.n52.shared.serializable.pojos.sos.SOSMetadata;
-import org.n52.shared.serializable.pojos.sos.SosTimeseries;
-import org.n52.shared.serializable.pojos.sos.Station;
-import org.n52.shared.serializable.pojos.sos.TimeseriesParametersLookup;
 import org.n52.sensorweb.v1.spi.SearchService;
 import org.n52.sensorweb.v1.spi.search.CategorySearchResult;
 import org.n52.sensorweb.v1.spi.search.FeatureSearchResult;
@@ -51,6 +43,7 @@ import org.n52.sensorweb.v1.spi.search.SearchResult;
 import org.n52.sensorweb.v1.spi.search.ServiceSearchResult;
 import org.n52.sensorweb.v1.spi.search.StationSearchResult;
 import org.n52.sensorweb.v1.spi.search.TimeseriesSearchResult;
+import org.n52.server.mgmt.MetadataSearchIndex;
 
 public class SearchAdapter implements SearchService {
 
@@ -60,133 +53,43 @@ public class SearchAdapter implements SearchService {
         return searchResources(search);
     }
 
+    /**
+     * @param search
+     *        comma separated search terms which all have to match (case insensitive) a resource's label or
+     *        id.
+     * @return the matching resources ranked by relevance.
+     */
     private Collection<SearchResult> searchResources(String search) {
-
-        // TODO extend search logic to support composed search strings
-
-        String[] searchTerms = search.split(",");
-        ArrayList<SearchResult> results = new ArrayList<SearchResult>();
-        if (searchTerms.length <= 1) {
-            results.addAll(requestServices(searchTerms));
-            results.addAll(requestStations(searchTerms));
-            results.addAll(requestTSParameters(searchTerms));
-        }
-        results.addAll(requestTimeseries(searchTerms));
-        return results;
-    }
-
-    private Collection<SearchResult> requestTimeseries(String... searchTerms) {
         Collection<SearchResult> results = new ArrayList<SearchResult>();
-        for (SOSMetadata metadata : getSOSMetadatas()) {
-            SosTimeseries[] timeseries = metadata.getMatchingTimeseries(createEmptyFilterQuery());
-            for (SosTimeseries ts : timeseries) {
-                boolean matchTerms = true;
-                for (String searchTerm : searchTerms) {
-                    if (!(matchAnyId(ts, searchTerm) || matchAnyLabel(ts, searchTerm) ||
-                          containsSearchString(ts.getServiceUrl(), searchTerm))) {
-                        matchTerms = false;
-                    }
-                }
-                if (matchTerms) {
-                    results.add(new TimeseriesSearchResult(ts.getTimeseriesId(), ts.getLabel()));
-                }
-            }
+        if (search == null) {
+            return results;
         }
-        return results;
-    }
-
-    private boolean matchAnyLabel(SosTimeseries ts, String searchTerm) {
-        return containsSearchString(ts.getFeature().getLabel(), searchTerm)
-                || containsSearchString(ts.getPhenomenon().getLabel(), searchTerm)
-                || containsSearchString(ts.getProcedure().getLabel(), searchTerm)
-                || containsSearchString(ts.getOffering().getLabel(), searchTerm)
-                || containsSearchString(ts.getCategory().getLabel(), searchTerm);
-    }
-
-    private boolean matchAnyId(SosTimeseries ts, String searchTerm) {
-        return containsSearchString(ts.getFeature().getFeatureId(), searchTerm)
-                || containsSearchString(ts.getPhenomenon().getPhenomenonId(), searchTerm)
-                || containsSearchString(ts.getProcedure().getProcedureId(), searchTerm)
-                || containsSearchString(ts.getOffering().getOfferingId(), searchTerm);
-    }
-
-    private Collection<SearchResult> requestStations(String... searchTerms) {
-        Collection<SearchResult> results = new ArrayList<SearchResult>();
-        for (SOSMetadata metadata : getSOSMetadatas()) {
-            for (Station station : metadata.getStations()) {
-                for (String searchTerm : searchTerms) {
-                    if (containsSearchString(station.getLabel(), searchTerm)) {
-                        results.add(new StationSearchResult(station.getGlobalId(), station.getLabel()));
-                    }
-                }
-            }
-        }
-        return results;
-    }
-
-    private Collection<SearchResult> requestTSParameters(String... searchTerms) {
-        Collection<SearchResult> results = new ArrayList<SearchResult>();
-        for (SOSMetadata metadata : getSOSMetadatas()) {
-            for (String searchTerm : searchTerms) {
-                TimeseriesParametersLookup lookup = metadata.getTimeseriesParametersLookup();
-                // offerings
-                for (Offering offering : lookup.getOfferings()) {
-                    if (containsSearchString(offering.getLabel(), searchTerm)) {
-                        results.add(new OfferingSearchResult(offering.getGlobalId(), offering.getLabel()));
-                    }
-                }
-                // features
-                for (Feature feature : lookup.getFeatures()) {
-                    if (containsSearchString(feature.getLabel(), searchTerm)) {
-                        results.add(new FeatureSearchResult(feature.getGlobalId(), feature.getLabel()));
-                    }
-                }
-                // procedures
-                for (Procedure procedure : lookup.getProcedures()) {
-                    if (containsSearchString(procedure.getLabel(), searchTerm)) {
-                        results.add(new ProcedureSearchResult(procedure.getGlobalId(), procedure.getLabel()));
-                    }
-                }
-                // phenomena
-                for (Phenomenon phenomenon : lookup.getPhenomenons()) {
-                    if (containsSearchString(phenomenon.getLabel(), searchTerm)) {
-                        results.add(new PhenomenonSearchResult(phenomenon.getGlobalId(), phenomenon.getLabel()));
-                    }
-                }
-                // categories
-                SosTimeseries[] timeseries = metadata.getMatchingTimeseries(createEmptyFilterQuery());
-                for (SosTimeseries sosTimeseries : timeseries) {
-                    if (containsSearchString(sosTimeseries.getCategory().getLabel(), searchTerm)) {
-                        results.add(new CategorySearchResult(sosTimeseries.getCategory().getGlobalId(), sosTimeseries.getCategory().getLabel()));
-                    }
-                }
-            }
+        String[] searchTerms = search.split(",");
+        for (MetadataSearchIndex.Hit hit : getSearchIndex().search(searchTerms, SEARCH_RESULT_LIMIT)) {
+            results.add(createSearchResult(hit));
         }
         return results;
     }
 
-    private Collection<SearchResult> requestServices(String... searchTerms) {
-        Collection<SearchResult> results = new ArrayList<SearchResult>();
-        for (SOSMetadata metadata : getSOSMetadatas()) {
-            for (String searchTerm : searchTerms) {
-                if (containsSearchString(metadata.getTitle(), searchTerm)) {
-                    results.add(new ServiceSearchResult(metadata.getGlobalId(), metadata.getTitle()));
-                }
-            }
+    private SearchResult createSearchResult(MetadataSearchIndex.Hit hit) {
+        switch (hit.getType()) {
+        case SERVICE:
+            return new ServiceSearchResult(hit.getId(), hit.getLabel());
+        case STATION:
+            return new StationSearchResult(hit.getId(), hit.getLabel());
+        case OFFERING:
+            return new OfferingSearchResult(hit.getId(), hit.getLabel());
+        case FEATURE:
+            return new FeatureSearchResult(hit.getId(), hit.getLabel());
+        case PROCEDURE:
+            return new ProcedureSearchResult(hit.getId(), hit.getLabel());
+        case PHENOMENON:
+            return new PhenomenonSearchResult(hit.getId(), hit.getLabel());
+        case CATEGORY:
+            return new CategorySearchResult(hit.getId(), hit.getLabel());
+        default:
+            return new TimeseriesSearchResult(hit.getId(), hit.getLabel());
         }
-        return results;
-    }
-
-    /**
-     * @param label
-     *        the label to check.
-     * @param searchToken
-     *        the input search token.
-     * @return <code>true</code> if the <code>label</code> contains the <code>searchToken</code> and ignores
-     *         the case.
-     */
-    private boolean containsSearchString(String label, String searchToken) {
-        return label.toLowerCase().contains(searchToken.toLowerCase());
     }
 
 }
@@ -29,6 +29,7 @@ package org.n52.series.api.proxy.v1.srv;
 
 import static org.n52.series.api.proxy.v1.srv.QueryParameterAdapter.createQueryParameters;
 import static org.n52.server.mgmt.ConfigurationContext.getSOSMetadatas;
+import static org.n52.server.mgmt.ConfigurationContext.getTimeseriesIdIndex;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -44,12 +45,7 @@ public class ServiceOutputAdapter implements ServiceParameterService {
 
     @Override
     public boolean isKnownTimeseries(String timeseriesId) {
-        for (SOSMetadata metadatas : getSOSMetadatas()) {
-            if (metadatas.getStationByTimeSeriesId(timeseriesId) != null) {
-                return true;
-            }
-        }
-        return false;
+        return getTimeseriesIdIndex().contains(timeseriesId);
     }
 
 	@Override
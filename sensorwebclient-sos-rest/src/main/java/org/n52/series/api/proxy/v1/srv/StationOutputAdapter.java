@@ -28,16 +28,16 @@
 package org.n52.series.api.proxy.v1.srv;
 
 import static org.n52.server.mgmt.ConfigurationContext.getSOSMetadatas;
+import static org.n52.server.mgmt.ConfigurationContext.getStationIndex;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.n52.series.api.proxy.v1.io.StationConverter;
 import org.n52.io.IoParameters;
 import org.n52.io.crs.BoundingBox;
 import org.n52.io.v1.data.StationOutput;
+import org.n52.server.mgmt.StationIndex;
 import org.n52.shared.requests.query.QueryParameters;
 import org.n52.shared.serializable.pojos.sos.SOSMetadata;
 import org.n52.shared.serializable.pojos.sos.SosTimeseries;
@@ -94,30 +94,40 @@ public class StationOutputAdapter implements ParameterService<StationOutput> {
 
     @Override
     public StationOutput getParameter(String stationId, IoParameters query) {
-        for (SOSMetadata metadata : getSOSMetadatas()) {
-            for (Station station : metadata.getStations()) {
-                if (station.getGlobalId().equals(stationId)) {
-                    if (isStationWithinBounds(query.getSpatialFilter(), station)) {
-                        StationConverter converter = new StationConverter(metadata);
-                        return converter.convertExpanded(station);
-                    }
-                }
-            }
+        StationIndex.Entry entry = getStationIndex().getStation(stationId);
+        if (entry != null && isStationWithinBounds(query.getSpatialFilter(), entry.getStation())) {
+            StationConverter converter = new StationConverter(entry.getMetadata());
+            return converter.convertExpanded(entry.getStation());
         }
         return null;
     }
 
     private Station[] filter(SOSMetadata metadata, QueryParameters query) {
-        Set<Station> allStations = new HashSet<Station>();
-        for (SosTimeseries timeseries : metadata.getMatchingTimeseries(query)) {
-            Station station = metadata.getStationByTimeSeries(timeseries);
-            if (isStationWithinBounds(query.getSpatialFilter(), station)) {
-                allStations.add(station);
+        BoundingBox spatialFilter = query.getSpatialFilter();
+        List<Station> candidates = spatialFilter == null
+            ? metadata.getStations()
+            : getStationIndex().getStations(metadata.getServiceUrl(), spatialFilter);
+        List<Station> allStations = new ArrayList<Station>();
+        String stationFilter = query.getStation();
+        for (Station station : candidates) {
+            if (stationFilter == null || station.getGlobalId().equals(stationFilter)) {
+                if (hasMatchingTimeseries(station, query)) {
+                    allStations.add(station);
+                }
             }
         }
         return allStations.toArray(new Station[0]);
     }
 
+    private boolean hasMatchingTimeseries(Station station, QueryParameters query) {
+        for (SosTimeseries timeseries : station.getObservedTimeseries()) {
+            if (timeseries.matchesGlobalIds(query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean isStationWithinBounds(BoundingBox boundingBox, Station station) {
         return boundingBox == null || boundingBox.contains(station.getLocation());
     }
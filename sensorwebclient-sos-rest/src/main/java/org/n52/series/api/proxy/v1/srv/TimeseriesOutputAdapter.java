@@ -29,6 +29,7 @@ package org.n52.series.api.proxy.v1.srv;
 
 import static org.n52.series.api.proxy.v1.srv.QueryParameterAdapter.createQueryParameters;
 import static org.n52.server.mgmt.ConfigurationContext.getSOSMetadatas;
+import static org.n52.server.mgmt.ConfigurationContext.getTimeseriesIdIndex;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -42,10 +43,10 @@ import org.n52.io.StatusIntervalsConfigApplier;
 import org.n52.io.format.TvpDataCollection;
 import org.n52.io.v1.data.TimeseriesMetadataOutput;
 import org.n52.io.v1.data.UndesignedParameterSet;
+import org.n52.server.mgmt.TimeseriesIdIndex;
 import org.n52.shared.requests.query.QueryParameters;
 import org.n52.shared.serializable.pojos.sos.SOSMetadata;
 import org.n52.shared.serializable.pojos.sos.SosTimeseries;
-import org.n52.shared.serializable.pojos.sos.Station;
 import org.n52.sensorweb.v1.spi.ParameterService;
 import org.n52.sensorweb.v1.spi.TimeseriesDataService;
 
@@ -127,20 +128,19 @@ public class TimeseriesOutputAdapter implements TimeseriesDataService, Parameter
 
     @Override
     public TimeseriesMetadataOutput getParameter(String timeseriesId, IoParameters query) {
-        for (SOSMetadata metadata : getSOSMetadatas()) {
-            Station station = metadata.getStationByTimeSeriesId(timeseriesId);
-            if (station != null) {
-                TimeseriesConverter converter = new TimeseriesConverter(metadata);
-                SosTimeseries timeseries = station.getTimeseriesById(timeseriesId);
-                TimeseriesMetadataOutput convertExpanded = converter.convertExpanded(timeseries);
-                if (metadata.isSupportsFirstLatest()) {
-                    convertExpanded.setFirstValue(dataService.getFirstValue(timeseries));
-                    convertExpanded.setLastValue(dataService.getLastValue(timeseries));
-                }
-                return convertExpanded;
-            }
+        TimeseriesIdIndex.Entry entry = getTimeseriesIdIndex().get(timeseriesId);
+        if (entry == null) {
+            return null;
+        }
+        SOSMetadata metadata = entry.getMetadata();
+        TimeseriesConverter converter = new TimeseriesConverter(metadata);
+        SosTimeseries timeseries = entry.getTimeseries();
+        TimeseriesMetadataOutput convertExpanded = converter.convertExpanded(timeseries);
+        if (metadata.isSupportsFirstLatest()) {
+            convertExpanded.setFirstValue(dataService.getFirstValue(timeseries));
+            convertExpanded.setLastValue(dataService.getLastValue(timeseries));
         }
-        return null;
+        return convertExpanded;
     }
 
     public GetDataService getDataService() {
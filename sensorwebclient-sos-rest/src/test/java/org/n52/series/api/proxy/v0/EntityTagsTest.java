@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.series.api.proxy.v0;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.n52.series.api.proxy.v0.io.EntityTags;
+
+public class EntityTagsTest {
+
+    private static final String ETAG = "\"a1b2\"";
+
+    @Test
+    public void
+    shouldMatchExactTag()
+    {
+        assertThat(EntityTags.matches("\"a1b2\"", ETAG), is(true));
+        assertThat(EntityTags.matches(" \"a1b2\" ", ETAG), is(true));
+    }
+
+    @Test
+    public void
+    shouldMatchWeakTags()
+    {
+        assertThat(EntityTags.matches("W/\"a1b2\"", ETAG), is(true));
+        assertThat(EntityTags.matches("\"a1b2\"", "W/" + ETAG), is(true));
+    }
+
+    @Test
+    public void
+    shouldMatchTagWithinList()
+    {
+        assertThat(EntityTags.matches("\"other\", W/\"a1b2\",\"third\"", ETAG), is(true));
+        assertThat(EntityTags.matches("\"other\", \"third\"", ETAG), is(false));
+    }
+
+    @Test
+    public void
+    shouldMatchWildcard()
+    {
+        assertThat(EntityTags.matches("*", ETAG), is(true));
+    }
+
+    @Test
+    public void
+    shouldNotMatchMissingOrMalformedHeader()
+    {
+        assertThat(EntityTags.matches(null, ETAG), is(false));
+        assertThat(EntityTags.matches("a1b2", ETAG), is(false));
+        assertThat(EntityTags.matches("\"a1b2", ETAG), is(false));
+        assertThat(EntityTags.matches("\"a1b23\"", ETAG), is(false));
+    }
+
+}
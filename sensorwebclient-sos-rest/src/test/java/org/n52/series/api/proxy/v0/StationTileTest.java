@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.series.api.proxy.v0;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.n52.series.api.proxy.v0.io.StationTile;
+
+public class StationTileTest {
+
+    @Test
+    public void
+    shouldCoverWesternHemisphereWithFirstTileOnLowestZoomLevel()
+    {
+        StationTile tile = new StationTile(0, 0, 0);
+        assertThat(tile.getMinX(), is(-180d));
+        assertThat(tile.getMinY(), is(-90d));
+        assertThat(tile.getMaxX(), is(0d));
+        assertThat(tile.getMaxY(), is(Math.nextUp(90d)));
+        assertThat(tile.getCellSize(), is(180d / StationTile.CELLS_PER_AXIS));
+    }
+
+    @Test
+    public void
+    shouldHalveTileSizeOnNextZoomLevel()
+    {
+        StationTile tile = new StationTile(1, 2, 1);
+        assertThat(tile.getMinX(), is(0d));
+        assertThat(tile.getMinY(), is(0d));
+        assertThat(tile.getMaxX(), is(90d));
+        assertThat(tile.getMaxY(), is(Math.nextUp(90d)));
+    }
+
+    @Test
+    public void
+    shouldIncludeOuterEdgesInLastColumnAndRow()
+    {
+        StationTile tile = new StationTile(2, 7, 3);
+        assertThat(180d >= tile.getMinX() && 180d < tile.getMaxX(), is(true));
+        assertThat(90d >= tile.getMinY() && 90d < tile.getMaxY(), is(true));
+    }
+
+    @Test
+    public void
+    shouldExcludeUpperBoundsOfInnerTiles()
+    {
+        StationTile tile = new StationTile(2, 6, 2);
+        assertThat(tile.getMaxX(), is(135d));
+        assertThat(tile.getMaxY(), is(45d));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void
+    shouldRejectTileOutsideOfZoomLevel()
+    {
+        new StationTile(1, 4, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void
+    shouldRejectTooHighZoomLevel()
+    {
+        new StationTile(StationTile.MAX_ZOOM + 1, 0, 0);
+    }
+
+}
@@ -27,40 +27,23 @@
  */
 package org.n52.server.service;
 
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import static org.n52.oxf.sos.adapter.ISOSRequestBuilder.DESCRIBE_SENSOR_OUTPUT_FORMAT;
-import static org.n52.oxf.sos.adapter.ISOSRequestBuilder.DESCRIBE_SENSOR_PROCEDURE_DESCRIPTION_FORMAT;
-import static org.n52.oxf.sos.adapter.ISOSRequestBuilder.DESCRIBE_SENSOR_PROCEDURE_PARAMETER;
-import static org.n52.oxf.sos.adapter.ISOSRequestBuilder.DESCRIBE_SENSOR_SERVICE_PARAMETER;
-import static org.n52.oxf.sos.adapter.ISOSRequestBuilder.DESCRIBE_SENSOR_VERSION_PARAMETER;
-import static org.n52.oxf.sos.adapter.SOSAdapter.DESCRIBE_SENSOR;
-import static org.n52.server.mgmt.ConfigurationContext.SERVER_TIMEOUT;
-
-import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.concurrent.FutureTask;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.n52.client.service.FileDataService;
-import org.n52.oxf.adapter.OperationResult;
-import org.n52.oxf.adapter.ParameterContainer;
-import org.n52.oxf.ows.capabilities.Operation;
-import org.n52.oxf.sos.adapter.ISOSRequestBuilder;
-import org.n52.oxf.sos.util.SosUtil;
-import org.n52.oxf.util.IOHelper;
-import org.n52.oxf.util.JavaHelper;
-import org.n52.server.da.AccessorThreadPool;
-import org.n52.server.da.oxf.OperationAccessor;
-import org.n52.server.da.oxf.SOSAdapter_OXFExtension;
-import org.n52.server.da.oxf.SosRequestBuilderFactory;
+import org.n52.server.da.oxf.SensorDescriptionCache;
 import org.n52.server.io.CsvGenerator;
-import org.n52.server.io.Generator;
+import org.n52.server.io.FileGenerator;
 import org.n52.server.io.PdfGenerator;
 import org.n52.server.io.XlsGenerator;
 import org.n52.server.io.ZipGenerator;
+import org.n52.server.io.ZipGenerator.EntryWriter;
 import org.n52.server.mgmt.ConfigurationContext;
 import org.n52.shared.exceptions.ServerException;
-import org.n52.shared.exceptions.TimeoutException;
 import org.n52.shared.requests.TimeSeriesDataRequest;
 import org.n52.shared.responses.RepresentationResponse;
 import org.n52.shared.serializable.pojos.DesignOptions;
@@ -110,10 +93,10 @@ public class FileDataServiceImpl implements FileDataService {
     public RepresentationResponse getPDFzip(TimeSeriesDataRequest req) throws Exception {
         try {
             Date d = new Date();
-            String folder = "zip"+d.getTime()+"/";
+            String folder = "zip"+d.getTime();
             PdfGenerator gen = new PdfGenerator(true, folder);
             // generate all timeseries on their own
-            return generateZipPresentation(req, gen);
+            return generateZipPresentation(req, gen, folder);
         }  catch (Exception e) {
             LOG.error("Exception occured on server side.", e);
             throw e; // last chance to log on server side
@@ -127,7 +110,7 @@ public class FileDataServiceImpl implements FileDataService {
             String folder = "zip" + d.getTime();
             XlsGenerator gen = new XlsGenerator(true, folder);
             // generate all timeseries on their own
-            return generateZipPresentation(req, gen);
+            return generateZipPresentation(req, gen, folder);
         } catch (Exception e) {
             LOG.error("Exception occured on server side.", e);
             throw e; // last chance to log on server side
@@ -141,78 +124,51 @@ public class FileDataServiceImpl implements FileDataService {
             String folder = "zip"+d.getTime();
             CsvGenerator gen = new CsvGenerator(true, folder);
             // generate all timeseries on their own
-            return generateZipPresentation(req, gen);
+            return generateZipPresentation(req, gen, folder);
         } catch (Exception e) {
             LOG.error("Exception occured on server side.", e);
             throw e; // last chance to log on server side
         }
     }
 
-    private RepresentationResponse generateZipPresentation(TimeSeriesDataRequest req, Generator gen) throws ServerException {
+    /**
+     * Bundles one file per timeseries along with the SensorML description of each procedure. All files and
+     * descriptions are produced concurrently.
+     */
+    private RepresentationResponse generateZipPresentation(TimeSeriesDataRequest req, FileGenerator gen, String folder) throws ServerException {
         try {
-            for (TimeseriesProperties prop : req.getOptions().getProperties()) {
-                generateSensorMLFile(sendDescSens(prop), prop, gen.getFolderPostfix());
+            DesignOptions options = req.getOptions();
+            ZipGenerator zipgen = new ZipGenerator(folder);
+            Set<String> procedures = new HashSet<String>();
+            for (final TimeseriesProperties prop : options.getProperties()) {
+                if (procedures.add(prop.getProcedure() + "@" + prop.getServiceUrl())) {
+                    String fileName = "SensorML_" + prop.getProcedure().replaceAll("/", "_") + ".xml";
+                    zipgen.addEntry(fileName, new EntryWriter() {
+                        @Override
+                        public void write(OutputStream out) throws Exception {
+                            writeSensorML(sendDescSens(prop), out);
+                        }
+                    });
+                }
                 ArrayList<TimeseriesProperties> props = new ArrayList<TimeseriesProperties>();
                 props.add(prop);
-                gen.producePresentation(new DesignOptions(props, req.getOptions()
-                        .getBegin(), req.getOptions().getEnd(), req.getOptions().getGrid()));
+                zipgen.addEntry(new DesignOptions(props, options.getBegin(), options.getEnd(), options.getGrid()), gen);
             }
-            // so we got our files in the right folder, now zippem
-            ZipGenerator zipgen = new ZipGenerator(gen.getFolderPostfix());
-            return zipgen.producePresentation(req.getOptions());
+            return zipgen.producePresentation(options);
         } catch (Exception e) {
             // wrap generic exception
             throw new ServerException("Could not generate ZIP file.", e);
         }
     }
-    
 
-    private void generateSensorMLFile(OperationResult sendDescSens, TimeseriesProperties prop, String folderPostfix) throws ServerException {
-        try {
-            File f = JavaHelper.genFile(ConfigurationContext.GEN_DIR+"/"+folderPostfix, 
-                    "SensorML_" + prop.getProcedure().replaceAll("/", "_"), "xml");
-            IOHelper.saveFile(f, sendDescSens.getIncomingResultAsStream());
-        } catch (Exception e) {
-            // wrap generic exception
-            throw new ServerException("Could not save file.", e);
-        }
+    private void writeSensorML(byte[] sensorML, OutputStream out) throws IOException {
+        out.write(sensorML);
     }
 
-    private OperationResult sendDescSens(TimeseriesProperties prop) throws ServerException {
+    private byte[] sendDescSens(TimeseriesProperties prop) throws ServerException {
         try {
-            String sosUrl = prop.getServiceUrl();
-            SOSMetadata meta = ConfigurationContext.getSOSMetadata(sosUrl);
-            
-            OperationResult opResult = null;
-            // build up parameterContainer for DescribeSensor operation:
-            ParameterContainer paramCon = new ParameterContainer();
-    
-            String sosVersion = meta.getSosVersion();
-            String procedureId = prop.getProcedure();
-            String smlVersion = meta.getSensorMLVersion();
-            paramCon.addParameterShell(DESCRIBE_SENSOR_SERVICE_PARAMETER, "SOS");
-            paramCon.addParameterShell(DESCRIBE_SENSOR_VERSION_PARAMETER, sosVersion);
-            paramCon.addParameterShell(DESCRIBE_SENSOR_PROCEDURE_PARAMETER, procedureId);
-            if (SosUtil.isVersion100(sosVersion)) {
-                paramCon.addParameterShell(DESCRIBE_SENSOR_OUTPUT_FORMAT, smlVersion);
-            } else if (SosUtil.isVersion200(sosVersion)) {
-                paramCon.addParameterShell(DESCRIBE_SENSOR_PROCEDURE_DESCRIPTION_FORMAT, smlVersion);
-            } else {
-                throw new IllegalStateException("SOS Version (" + sosVersion + ") is not supported!");
-            }
-    
-            ISOSRequestBuilder requestBuilder = SosRequestBuilderFactory.createRequestBuilder(sosVersion);
-            SOSAdapter_OXFExtension adapter = new SOSAdapter_OXFExtension(sosVersion, requestBuilder);
-            Operation descSensorOperation = new Operation(DESCRIBE_SENSOR, sosUrl, sosUrl);
-            OperationAccessor callable = new OperationAccessor(adapter, descSensorOperation, paramCon);
-            FutureTask<OperationResult> t = new FutureTask<OperationResult>(callable);
-            try {
-                AccessorThreadPool.execute(t);
-                opResult = t.get(SERVER_TIMEOUT, MILLISECONDS);
-            } catch (java.util.concurrent.TimeoutException e) {
-                throw new TimeoutException("Server did not respond in time", e);
-            }
-            return opResult;
+            SOSMetadata meta = ConfigurationContext.getSOSMetadata(prop.getServiceUrl());
+            return SensorDescriptionCache.getInstance().getSensorML(prop.getProcedure(), meta);
         } catch (Exception e) {
             // wrap generic exception
             throw new ServerException("Could not get sensor descrioption.", e);
@@ -110,14 +110,15 @@ public class QueryServiceImpl implements QueryService {
 
             if (offset == 0 && pageSize == 0) {
                 // when query is done from server side without paging
+                List<Station> candidates = spatialFilter == null
+                    ? stations
+                    : ConfigurationContext.getStationIndex().getStations(serviceUrl, spatialFilter);
                 List<Station> filteredStations = new ArrayList<Station>();
-                for (Station station : stations) {
-                    if (spatialFilter == null || spatialFilter.contains(station.getLocation())) {
-                        if (parameters.getStation() == null || station.getLabel().equals(parameters.getStation())) {
-                            station = cloneAndMatchAgainstQuery(station, parameters);
-                            if (station.hasAtLeastOneParameterConstellation()) {
-                                filteredStations.add(station);
-                            }
+                for (Station station : candidates) {
+                    if (parameters.getStation() == null || station.getLabel().equals(parameters.getStation())) {
+                        station = cloneAndMatchAgainstQuery(station, parameters);
+                        if (station.hasAtLeastOneParameterConstellation()) {
+                            filteredStations.add(station);
                         }
                     }
                 }
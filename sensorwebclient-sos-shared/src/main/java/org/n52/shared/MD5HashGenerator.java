@@ -27,12 +27,31 @@
  */
 package org.n52.shared;
 
-import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+/**
+ * Generates ids from the MD5 digest of the given parameters. Digesters are kept per thread and the digest
+ * is hex encoded without leading zeros, i.e. ids are the same as with
+ * <code>new BigInteger(1, digest).toString(16)</code>. Content hashes (see {@link #hash(byte[])}) keep
+ * leading zeros.
+ */
 public class MD5HashGenerator implements IdGenerator {
-    
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> DIGESTERS = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            }
+            catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("MD5 message digester not available!", e);
+            }
+        }
+    };
+
     private String prefix;
 
     public MD5HashGenerator(String prefix) {
@@ -41,20 +60,51 @@ public class MD5HashGenerator implements IdGenerator {
 
     @Override
     public String generate(String[] parameters) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            for (String parameter : parameters) {
-                if (parameter != null) {
-                    md.update(parameter.getBytes());
-                }
+        MessageDigest md = DIGESTERS.get();
+        md.reset();
+        for (String parameter : parameters) {
+            if (parameter != null) {
+                md.update(parameter.getBytes());
+            }
+        }
+        return toHex(prefix, md.digest());
+    }
+
+    /**
+     * @param content
+     *        the content to hash.
+     * @return the MD5 digest of the given content as 32 hex digits, e.g. to be used as ETag.
+     */
+    public static String hash(byte[] content) {
+        MessageDigest md = DIGESTERS.get();
+        md.reset();
+        return toHex("", md.digest(content), true);
+    }
+
+    static String toHex(String prefix, byte[] digest) {
+        return toHex(prefix, digest, false);
+    }
+
+    private static String toHex(String prefix, byte[] digest, boolean keepLeadingZeros) {
+        StringBuilder sb = new StringBuilder(prefix.length() + 2 * digest.length);
+        sb.append(prefix);
+        boolean leadingZero = !keepLeadingZeros;
+        for (byte b : digest) {
+            int high = (b >> 4) & 0xf;
+            int low = b & 0xf;
+            if ( !leadingZero || high != 0) {
+                sb.append(HEX_DIGITS[high]);
+                leadingZero = false;
+            }
+            if ( !leadingZero || low != 0) {
+                sb.append(HEX_DIGITS[low]);
+                leadingZero = false;
             }
-            byte[] digest = md.digest();
-            BigInteger bigInt = new BigInteger(1, digest);
-            return prefix + bigInt.toString(16);
         }
-        catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5 message digester not available!", e);
+        if (leadingZero) {
+            sb.append('0');
         }
+        return sb.toString();
     }
 
 }
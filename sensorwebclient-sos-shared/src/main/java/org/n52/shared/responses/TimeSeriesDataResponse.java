@@ -29,39 +29,79 @@ package org.n52.shared.responses;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.n52.shared.serializable.pojos.TimeseriesValues;
 
 public class TimeSeriesDataResponse extends RepresentationResponse {
 
     private static final long serialVersionUID = 6907927979169769766L;
 
-    private HashMap<String, HashMap<Long, Double>> data = null;
+    private HashMap<String, TimeseriesValues> values = null;
 
     TimeSeriesDataResponse() {
         // serializable for GWT needs empty default constructor
     }
 
+    /**
+     * @param data
+     *        the timeseries data mapped by timeseries id.
+     * @see #TimeSeriesDataResponse(Map)
+     */
     public TimeSeriesDataResponse(HashMap<String, HashMap<Long, Double>> data) {
-        this.data = data;
+        this.values = new HashMap<String, TimeseriesValues>();
+        for (String timeseriesId : data.keySet()) {
+            values.put(timeseriesId, TimeseriesValues.fromMap(data.get(timeseriesId)));
+        }
     }
 
+    /**
+     * @param values
+     *        the timeseries values mapped by timeseries id.
+     */
+    public TimeSeriesDataResponse(Map<String, TimeseriesValues> values) {
+        this.values = new HashMap<String, TimeseriesValues>(values);
+    }
+
+    /**
+     * @param timeseriesId
+     *        the timeseries id.
+     * @return the sorted values of the given timeseries, or <code>null</code> if not part of the response.
+     */
+    public TimeseriesValues getTimeseriesValues(String timeseriesId) {
+        return values.get(timeseriesId);
+    }
+
+    public Set<String> getTimeseriesIds() {
+        return values.keySet();
+    }
+
+    /**
+     * Adapts the values to the map based representation. Prefer {@link #getTimeseriesValues(String)} as
+     * each call creates new maps containing boxed values.
+     * 
+     * @return the timeseries data mapped by timeseries id.
+     */
     public HashMap<String, HashMap<Long, Double>> getPayloadData() {
-        return this.data;
+        HashMap<String, HashMap<Long, Double>> data = new HashMap<String, HashMap<Long, Double>>();
+        for (String timeseriesId : values.keySet()) {
+            data.put(timeseriesId, values.get(timeseriesId).toMap());
+        }
+        return data;
     }
 
     public String toDebugString() {
         StringBuilder sb = new StringBuilder();
         sb.append("\nData for timeseries \n"); 
-        for (String key : data.keySet()) {
+        for (String key : values.keySet()) {
+            TimeseriesValues timeseriesValues = values.get(key);
             sb.append("\t").append(key).append("\n");
-            int count = 5;
-            sb.append("\tsize: ").append(data.get(key).size()).append("\n");
+            sb.append("\tsize: ").append(timeseriesValues.size()).append("\n");
             sb.append("\t\t");
-            for (Long date : data.get(key).keySet()) {
-                sb.append(new Date(date)).append(" : ").append(data.get(key).get(date)).append(";  ");
-                count--;
-                if (count == 0) {
-                    break;
-                }
+            for (int i = 0; i < Math.min(5, timeseriesValues.size()); i++) {
+                sb.append(new Date(timeseriesValues.getTime(i))).append(" : ");
+                sb.append(timeseriesValues.getValue(i)).append(";  ");
             }
             sb.append("...\n");
         }
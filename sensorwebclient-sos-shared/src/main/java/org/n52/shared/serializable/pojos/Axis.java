@@ -85,6 +85,23 @@ public class Axis implements Serializable {
         this.lowerStack.add(lowerBound);
     }
 
+    /**
+     * Instantiates a copy of the given axis.
+     * 
+     * @param axis
+     *            the axis to copy
+     */
+    public Axis(Axis axis) {
+        this.upperBound = axis.upperBound;
+        this.lowerBound = axis.lowerBound;
+        this.maxY = axis.maxY;
+        this.minY = axis.minY;
+        this.upperStack.addAll(axis.upperStack);
+        this.lowerStack.addAll(axis.lowerStack);
+        this.minYStack.addAll(axis.minYStack);
+        this.maxYStack.addAll(axis.maxYStack);
+    }
+
     /**
      * Gets the upper bound.
      * 
@@ -57,6 +57,8 @@ public class DesignOptions implements Serializable {
     private String language;
 
     private String timeExtensionTerm; // getFirst or latest
+
+    private String downsampling; // algorithm name, see getDownsampling()
     
     @SuppressWarnings("unused")
 	private DesignOptions() {
@@ -158,6 +160,21 @@ public class DesignOptions implements Serializable {
         return this.resultTime;
     }
 
+    /**
+     * Charts always downsample series having more values than the chart is wide, using the named algorithm
+     * or, if <code>null</code> or unknown, the server's configured one. Timeseries data is only downsampled
+     * to the requested width if an algorithm is named.
+     * 
+     * @return the name of the algorithm to downsample values with, may be <code>null</code>.
+     */
+    public String getDownsampling() {
+        return downsampling;
+    }
+
+    public void setDownsampling(String downsampling) {
+        this.downsampling = downsampling;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("DesignOptions [");
@@ -165,6 +182,9 @@ public class DesignOptions implements Serializable {
         sb.append("end: ").append(new Date(end)).append(", ");
         sb.append("height: ").append(height).append(", ");
         sb.append("width: ").append(width).append(", ");
+        if (downsampling != null) {
+            sb.append("downsampling: ").append(downsampling).append(", ");
+        }
         sb.append("language: ").append(language).append("]");
         return sb.toString();
     }
@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.shared.serializable.pojos;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact representation of a timeseries' observations held in two primitive arrays which are sorted by
+ * time. Missing (no-data) values are represented as {@link Double#NaN}.<br>
+ * <br>
+ * Compared to a <code>Map&lt;Long, Double&gt;</code> no boxing takes place and ordering is retained, so
+ * consumers do not have to re-sort. Use {@link #toMap()} and {@link #fromMap(Map)} to adapt from and to the
+ * map based representation.
+ */
+public class TimeseriesValues implements Serializable {
+
+    private static final long serialVersionUID = -1856043926426358419L;
+
+    private static final long[] NO_TIMES = new long[0];
+
+    private static final double[] NO_VALUES = new double[0];
+
+    private long[] times;
+
+    private double[] values;
+
+    @SuppressWarnings("unused")
+    private TimeseriesValues() {
+        // for serialization
+    }
+
+    /**
+     * @param times
+     *        the observation times sorted ascending.
+     * @param values
+     *        the observation values, {@link Double#NaN} for no-data values.
+     */
+    public TimeseriesValues(long[] times, double[] values) {
+        if (times.length != values.length) {
+            throw new IllegalArgumentException("Times and values have to be of same length.");
+        }
+        this.times = times;
+        this.values = values;
+    }
+
+    public static TimeseriesValues empty() {
+        return new TimeseriesValues(NO_TIMES, NO_VALUES);
+    }
+
+    /**
+     * @param data
+     *        time value pairs, <code>null</code> values are considered as no-data values.
+     * @return sorted values of the given map.
+     */
+    public static TimeseriesValues fromMap(Map<Long, Double> data) {
+        if (data == null || data.isEmpty()) {
+            return empty();
+        }
+        List<Long> sortedTimes = new ArrayList<Long>(data.keySet());
+        Collections.sort(sortedTimes);
+        long[] times = new long[sortedTimes.size()];
+        double[] values = new double[sortedTimes.size()];
+        for (int i = 0; i < times.length; i++) {
+            Long time = sortedTimes.get(i);
+            Double value = data.get(time);
+            times[i] = time.longValue();
+            values[i] = value == null ? Double.NaN : value.doubleValue();
+        }
+        return new TimeseriesValues(times, values);
+    }
+
+    /**
+     * @return the values as map, no-data values are mapped to <code>null</code>.
+     */
+    public HashMap<Long, Double> toMap() {
+        HashMap<Long, Double> data = new HashMap<Long, Double>();
+        for (int i = 0; i < times.length; i++) {
+            data.put(times[i], hasValue(i) ? Double.valueOf(values[i]) : null);
+        }
+        return data;
+    }
+
+    /**
+     * @param begin
+     *        the begin of the time range (inclusive).
+     * @param end
+     *        the end of the time range (inclusive).
+     * @return the values within the given time range.
+     */
+    public TimeseriesValues subRange(long begin, long end) {
+        int from = indexOf(begin);
+        int to = indexOf(end);
+        while (to < times.length && times[to] <= end) {
+            to++;
+        }
+        if (from == 0 && to == times.length) {
+            return this;
+        }
+        int length = Math.max(0, to - from);
+        long[] subTimes = new long[length];
+        double[] subValues = new double[length];
+        System.arraycopy(times, from, subTimes, 0, length);
+        System.arraycopy(values, from, subValues, 0, length);
+        return new TimeseriesValues(subTimes, subValues);
+    }
+
+    /**
+     * @param time
+     *        the time to search for.
+     * @return the index of the first value not before the given time, or {@link #size()} if all values are
+     *         before.
+     */
+    public int indexOf(long time) {
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    public boolean isEmpty() {
+        return times.length == 0;
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * @param index
+     *        the index of the value.
+     * @return <code>false</code> if value at given index is a no-data value.
+     */
+    public boolean hasValue(int index) {
+        return !Double.isNaN(values[index]);
+    }
+
+    /**
+     * @return the observation times. Do not modify the returned array.
+     */
+    public long[] getTimes() {
+        return times;
+    }
+
+    /**
+     * @return the observation values. Do not modify the returned array.
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    /**
+     * Collects time value pairs in time order. If a time is added twice, the latter value replaces the
+     * former. Values added out of order are sorted when building.
+     */
+    public static class Builder {
+
+        private long[] times;
+
+        private double[] values;
+
+        private int size;
+
+        private boolean sorted = true;
+
+        public Builder() {
+            this(16);
+        }
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(1, expectedSize);
+            times = new long[capacity];
+            values = new double[capacity];
+        }
+
+        public Builder add(long time, Double value) {
+            return add(time, value == null ? Double.NaN : value.doubleValue());
+        }
+
+        public Builder add(long time, double value) {
+            if (size > 0) {
+                long last = times[size - 1];
+                if (last == time) {
+                    values[size - 1] = value;
+                    return this;
+                }
+                sorted &= last < time;
+            }
+            ensureCapacity(size + 1);
+            times[size] = time;
+            values[size] = value;
+            size++;
+            return this;
+        }
+
+        public Builder addAll(TimeseriesValues timeseriesValues) {
+            for (int i = 0; i < timeseriesValues.size(); i++) {
+                add(timeseriesValues.getTime(i), timeseriesValues.getValue(i));
+            }
+            return this;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > times.length) {
+                int newCapacity = Math.max(capacity, times.length * 2);
+                long[] newTimes = new long[newCapacity];
+                double[] newValues = new double[newCapacity];
+                System.arraycopy(times, 0, newTimes, 0, size);
+                System.arraycopy(values, 0, newValues, 0, size);
+                times = newTimes;
+                values = newValues;
+            }
+        }
+
+        public TimeseriesValues build() {
+            if ( !sorted) {
+                return fromMap(toMap());
+            }
+            long[] resultTimes = new long[size];
+            double[] resultValues = new double[size];
+            System.arraycopy(times, 0, resultTimes, 0, size);
+            System.arraycopy(values, 0, resultValues, 0, size);
+            return new TimeseriesValues(resultTimes, resultValues);
+        }
+
+        private Map<Long, Double> toMap() {
+            Map<Long, Double> data = new HashMap<Long, Double>();
+            for (int i = 0; i < size; i++) {
+                data.put(times[i], Double.isNaN(values[i]) ? null : Double.valueOf(values[i]));
+            }
+            return data;
+        }
+
+    }
+
+}
@@ -47,7 +47,7 @@ import org.n52.shared.requests.query.QueryParameters;
  */
 public class SOSMetadata implements Serializable {
 
-    private static final long serialVersionUID = -3721927620888635622L;
+    private static final long serialVersionUID = -3721927620888635623L;
 
     private String serviceUrl; // mandatory
 
@@ -97,8 +97,12 @@ public class SOSMetadata implements Serializable {
 
     private int httpConnectionPoolSize = 50; // default
 
+    private int maxConcurrentRequests = 8; // default
+
     private BoundingBox configuredExtent;
 
+    private String globalId;
+
     @SuppressWarnings("unused")
     private SOSMetadata() {
         // for serialization
@@ -108,6 +112,7 @@ public class SOSMetadata implements Serializable {
         this(url);
         this.title = title;
         this.version = sosVersion;
+        updateGlobalId();
         this.sensorMLVersion = sensorMLVersion;
         this.omVersion = omVersion;
     }
@@ -126,6 +131,7 @@ public class SOSMetadata implements Serializable {
     @Deprecated
     public SOSMetadata(String serviceUrl) {
         this.serviceUrl = serviceUrl;
+        updateGlobalId();
     }
 
     /**
@@ -142,11 +148,13 @@ public class SOSMetadata implements Serializable {
     public SOSMetadata(String url, String title, String version) {
         this(url, title);
         this.version = version;
+        updateGlobalId();
     }
 
     public SOSMetadata(SOSMetadataBuilder builder) {
         this(builder.getServiceURL(), builder.getServiceName());
         this.version = builder.getServiceVersion();
+        updateGlobalId();
         this.configuredItemName = builder.getServiceName();
         this.waterML = builder.isWaterML();
         this.autoZoom = builder.isAutoZoom();
@@ -159,6 +167,7 @@ public class SOSMetadata implements Serializable {
         this.eventing = builder.isEventing();
         this.gdaPrefinal = builder.isGdaPrefinal();
         this.httpConnectionPoolSize = builder.getHttpConnectionPoolSize();
+        this.maxConcurrentRequests = builder.getMaxConcurrentRequests();
         this.setSosMetadataHandler(builder.getSosMetadataHandler());
         this.setAdapter(builder.getAdapter());
     }
@@ -180,6 +189,7 @@ public class SOSMetadata implements Serializable {
 
     public void setVersion(String version) {
         this.version = version;
+        updateGlobalId();
     }
 
     /**
@@ -298,6 +308,13 @@ public class SOSMetadata implements Serializable {
         return httpConnectionPoolSize;
     }
 
+    /**
+     * @return the maximum number of requests sent to the SOS at the same time when harvesting metadata.
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
     public boolean isProtectedService() {
         return protectedService;
     }
@@ -421,6 +438,12 @@ public class SOSMetadata implements Serializable {
         clone.timeout = this.timeout;
         clone.configuredExtent = this.configuredExtent;
         clone.protectedService = this.protectedService;
+        clone.configuredItemName = this.configuredItemName;
+        clone.eventing = this.eventing;
+        clone.gdaPrefinal = this.gdaPrefinal;
+        clone.supportsFirstLatest = this.supportsFirstLatest;
+        clone.httpConnectionPoolSize = this.httpConnectionPoolSize;
+        clone.maxConcurrentRequests = this.maxConcurrentRequests;
         clone.setSosMetadataHandler(this.getSosMetadataHandler());
         clone.setAdapter(this.getAdapter());
         return clone;
@@ -459,10 +482,17 @@ public class SOSMetadata implements Serializable {
         return true;
     }
 
+    /**
+     * @return an id generated from service URL and version.
+     */
     public String getGlobalId() {
+        return globalId;
+    }
+
+    private void updateGlobalId() {
         String[] parameters = new String[] {serviceUrl, version};
         IdGenerator idGenerator = new MD5HashGenerator("srv_");
-        return idGenerator.generate(parameters);
+        globalId = idGenerator.generate(parameters);
     }
 
 }
@@ -57,6 +57,8 @@ public class SOSMetadataBuilder {
 
     private int httpConnectionPoolSize = 50;
 
+    private int maxConcurrentRequests = 8;
+
     private int requestChunk = 100;
 
     private int timeout = 10000;
@@ -151,6 +153,13 @@ public class SOSMetadataBuilder {
         return this;
     }
 
+    public SOSMetadataBuilder setMaxConcurrentRequests(int maxConcurrentRequests) {
+        if (maxConcurrentRequests > 0) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+        return this;
+    }
+
     public SOSMetadataBuilder setRequestChunk(int requestChunk) {
         if (requestChunk > 0) {
             this.requestChunk = requestChunk;
@@ -224,6 +233,10 @@ public class SOSMetadataBuilder {
         return httpConnectionPoolSize;
     }
 
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
     public int getRequestChunk() {
         return this.requestChunk;
     }
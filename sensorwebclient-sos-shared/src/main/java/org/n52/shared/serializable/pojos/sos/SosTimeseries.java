@@ -42,7 +42,7 @@ import org.n52.shared.requests.query.QueryParameters;
  */
 public class SosTimeseries implements Serializable {
 
-    private static final long serialVersionUID = 4336908002034438766L;
+    private static final long serialVersionUID = 4336908002034438767L;
 
     private SosService sosService;
 
@@ -56,8 +56,10 @@ public class SosTimeseries implements Serializable {
 
     private Category category;
 
+    private String timeseriesId;
+
     public SosTimeseries() {
-        // for serialization
+        updateTimeseriesId();
     }
 
     /**
@@ -68,7 +70,7 @@ public class SosTimeseries implements Serializable {
     }
 
     /**
-     * Computes a unique timeseries id on-the-fly dependend on the following parameters:
+     * Holds a unique timeseries id dependend on the following parameters:
      * <ul>
      * <li>{@link #serviceUrl}</li>
      * <li>{@link #offeringId}</li>
@@ -76,14 +78,19 @@ public class SosTimeseries implements Serializable {
      * <li>{@link #procedureId}</li>
      * <li>{@link #phenomenonId}</li>
      * </ul>
-     * If a parameter is not set it will be ignored.
+     * If a parameter is not set it will be ignored. The id is computed each time one of the parameters is
+     * set.
      * 
      * @return a unique and gml:id-valid identifier dependend on the parameter values set.
      */
     public String getTimeseriesId() {
+        return timeseriesId;
+    }
+
+    private void updateTimeseriesId() {
         String[] parameters = getParamtersAsArray();
         IdGenerator idGenerator = new MD5HashGenerator("ts_");
-        return idGenerator.generate(parameters);
+        timeseriesId = idGenerator.generate(parameters);
     }
 
     private String[] getParamtersAsArray() {
@@ -96,6 +103,7 @@ public class SosTimeseries implements Serializable {
 
     public void setSosService(SosService sosService) {
         this.sosService = sosService;
+        updateTimeseriesId();
     }
 
     public Procedure getProcedure() {
@@ -104,6 +112,7 @@ public class SosTimeseries implements Serializable {
 
     public void setProcedure(Procedure procedure) {
         this.procedure = procedure;
+        updateTimeseriesId();
     }
 
     public Phenomenon getPhenomenon() {
@@ -112,6 +121,7 @@ public class SosTimeseries implements Serializable {
 
     public void setPhenomenon(Phenomenon phenomenon) {
         this.phenomenon = phenomenon;
+        updateTimeseriesId();
     }
 
     public Feature getFeature() {
@@ -120,6 +130,7 @@ public class SosTimeseries implements Serializable {
 
     public void setFeature(Feature feature) {
         this.feature = feature;
+        updateTimeseriesId();
     }
 
     public Offering getOffering() {
@@ -128,6 +139,7 @@ public class SosTimeseries implements Serializable {
 
     public void setOffering(Offering offering) {
         this.offering = offering;
+        updateTimeseriesId();
     }
 
     public String getServiceUrl() {
@@ -43,7 +43,7 @@ import com.vividsolutions.jts.geom.Point;
  */
 public class Station implements Serializable {
 
-    private static final long serialVersionUID = 5016550440955260625L;
+    private static final long serialVersionUID = 5016550440955260626L;
 
     private ArrayList<SosTimeseries> observingTimeseries;
 
@@ -53,6 +53,8 @@ public class Station implements Serializable {
 
     private String label;
 
+    private String globalId;
+
     Station() {
         // keep serializable
     }
@@ -73,6 +75,7 @@ public class Station implements Serializable {
      */
     public void setLocation(Point location) {
         this.location = location;
+        updateGlobalId();
     }
 
     /**
@@ -164,10 +167,22 @@ public class Station implements Serializable {
         this.observingTimeseries = observingTimeseries;
     }
 
+    /**
+     * @return an id generated from service URL and location or <code>null</code> if the location is not set.
+     */
     public String getGlobalId() {
-        String[] parameters = new String[] {serviceUrl, location.toString()};
-        IdGenerator idGenerator = new MD5HashGenerator("sta_");
-        return idGenerator.generate(parameters);
+        return globalId;
+    }
+
+    private void updateGlobalId() {
+        if (location == null) {
+            globalId = null;
+        }
+        else {
+            String[] parameters = new String[] {serviceUrl, location.toString()};
+            IdGenerator idGenerator = new MD5HashGenerator("sta_");
+            globalId = idGenerator.generate(parameters);
+        }
     }
 
 }
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.shared;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+
+import org.junit.Test;
+
+public class MD5HashGeneratorTest {
+
+    @Test public void
+    shouldGenerateIdFromNonNullParameters() throws Exception {
+        MD5HashGenerator generator = new MD5HashGenerator("ts_");
+        String expected = "ts_" + new BigInteger(1, MessageDigest.getInstance("MD5").digest("abc".getBytes())).toString(16);
+        assertThat(generator.generate(new String[] {"a", null, "bc"}), is(expected));
+    }
+
+    @Test public void
+    shouldOmitLeadingZerosLikeBigInteger() {
+        byte[] digest = new byte[] {0, 0x0a, 0x10, (byte) 0xff};
+        assertThat(MD5HashGenerator.toHex("p_", digest), is("p_" + new BigInteger(1, digest).toString(16)));
+        assertThat(MD5HashGenerator.toHex("p_", new byte[16]), is("p_0"));
+    }
+
+    @Test public void
+    shouldKeepLeadingZerosOfContentHash() throws Exception {
+        byte[] content = "abc".getBytes();
+        String hash = MD5HashGenerator.hash(content);
+        assertThat(hash.length(), is(32));
+        assertThat(new BigInteger(hash, 16), is(new BigInteger(1, MessageDigest.getInstance("MD5").digest(content))));
+    }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.shared.serializable.pojos;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+
+import org.junit.Test;
+
+public class TimeseriesValuesTest {
+
+    @Test public void
+    shouldSortValuesWhenCreatedFromMap() {
+        HashMap<Long, Double> data = new HashMap<Long, Double>();
+        data.put(3L, 3.0);
+        data.put(1L, 1.0);
+        data.put(2L, null);
+        TimeseriesValues values = TimeseriesValues.fromMap(data);
+        assertThat(values.getTime(0), is(1L));
+        assertThat(values.getTime(2), is(3L));
+        assertTrue( !values.hasValue(1));
+        assertThat(values.toMap().get(2L), is(nullValue()));
+    }
+
+    @Test public void
+    shouldSortValuesAddedOutOfOrder() {
+        TimeseriesValues.Builder builder = new TimeseriesValues.Builder(1);
+        builder.add(5L, 5.0).add(2L, 2.0).add(9L, 9.0);
+        TimeseriesValues values = builder.build();
+        assertThat(values.size(), is(3));
+        assertThat(values.getTime(0), is(2L));
+        assertThat(values.getValue(2), is(9.0));
+    }
+
+    @Test public void
+    shouldReplaceValueOfSameTime() {
+        TimeseriesValues values = new TimeseriesValues.Builder().add(1L, 1.0).add(1L, 2.0).build();
+        assertThat(values.size(), is(1));
+        assertThat(values.getValue(0), is(2.0));
+    }
+
+    @Test public void
+    shouldReturnInclusiveSubRange() {
+        TimeseriesValues.Builder builder = new TimeseriesValues.Builder();
+        for (long time = 0; time < 10; time++) {
+            builder.add(time, (double) time);
+        }
+        TimeseriesValues subRange = builder.build().subRange(3, 6);
+        assertThat(subRange.size(), is(4));
+        assertThat(subRange.getTime(0), is(3L));
+        assertThat(subRange.getTime(3), is(6L));
+    }
+
+}
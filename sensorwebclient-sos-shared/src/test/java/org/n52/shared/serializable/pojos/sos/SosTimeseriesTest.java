@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2012-2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.shared.serializable.pojos.sos;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+public class SosTimeseriesTest {
+
+    private static final String FICTIVE_SOS_URL = "http://localhost/sos";
+
+    @Test public void
+    shouldRecomputeTimeseriesIdWhenParameterChanges() {
+        SosTimeseries timeseries = createTimeseries("sensor1");
+        String timeseriesId = timeseries.getTimeseriesId();
+        assertThat(timeseries.getTimeseriesId(), is(timeseriesId));
+
+        timeseries.setProcedure(new Procedure("sensor2", FICTIVE_SOS_URL));
+        assertThat(timeseries.getTimeseriesId(), is(not(timeseriesId)));
+        assertThat(timeseries.getTimeseriesId(), is(createTimeseries("sensor2").getTimeseriesId()));
+    }
+
+    @Test public void
+    shouldHaveSameTimeseriesIdAfterClone() {
+        SosTimeseries timeseries = createTimeseries("sensor1");
+        assertThat(timeseries.clone().getTimeseriesId(), is(timeseries.getTimeseriesId()));
+    }
+
+    @Test public void
+    shouldKeepTimeseriesIdWhenSerialized() throws Exception {
+        SosTimeseries timeseries = createTimeseries("sensor1");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(out);
+        output.writeObject(timeseries);
+        output.close();
+        ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()));
+        SosTimeseries deserialized = (SosTimeseries) input.readObject();
+        assertThat(deserialized.getTimeseriesId(), is(timeseries.getTimeseriesId()));
+    }
+
+    private SosTimeseries createTimeseries(String procedure) {
+        SosTimeseries timeseries = new SosTimeseries();
+        timeseries.setSosService(new SosService(FICTIVE_SOS_URL, "1.0.0"));
+        timeseries.setOffering(new Offering("offering", FICTIVE_SOS_URL));
+        timeseries.setProcedure(new Procedure(procedure, FICTIVE_SOS_URL));
+        timeseries.setFeature(new Feature("feature", FICTIVE_SOS_URL));
+        timeseries.setPhenomenon(new Phenomenon("phenomenon", FICTIVE_SOS_URL));
+        return timeseries;
+    }
+
+}